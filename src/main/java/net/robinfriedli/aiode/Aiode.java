@@ -20,6 +20,7 @@ import net.dv8tion.jda.api.sharding.ShardManager;
 import net.robinfriedli.aiode.audio.AudioManager;
 import net.robinfriedli.aiode.audio.ChartService;
 import net.robinfriedli.aiode.audio.playables.PlayableContainerManager;
+import net.robinfriedli.aiode.audio.spotify.SpotifyItemSnapshotService;
 import net.robinfriedli.aiode.boot.Shutdownable;
 import net.robinfriedli.aiode.boot.SpringPropertiesConfig;
 import net.robinfriedli.aiode.boot.VersionManager;
@@ -88,6 +89,7 @@ public class Aiode {
     private final ShardManager shardManager;
     private final SpotifyApi.Builder spotifyApiBuilder;
     private final SpotifyComponent spotifyComponent;
+    private final SpotifyItemSnapshotService spotifyItemSnapshotService;
     private final SpringPropertiesConfig springPropertiesConfig;
     private final VersionManager versionManager;
     private final WidgetManager widgetManager;
@@ -117,6 +119,7 @@ public class Aiode {
         ShardManager shardManager,
         SpotifyApi.Builder spotifyApiBuilder,
         SpotifyComponent spotifyComponent,
+        SpotifyItemSnapshotService spotifyItemSnapshotService,
         SpringPropertiesConfig springPropertiesConfig,
         VersionManager versionManager,
         WidgetManager widgetManager,
@@ -146,6 +149,7 @@ public class Aiode {
         this.shardManager = shardManager;
         this.spotifyApiBuilder = spotifyApiBuilder;
         this.spotifyComponent = spotifyComponent;
+        this.spotifyItemSnapshotService = spotifyItemSnapshotService;
         this.springPropertiesConfig = springPropertiesConfig;
         this.versionManager = versionManager;
         this.widgetManager = widgetManager;
@@ -364,6 +368,10 @@ public class Aiode {
         return spotifyComponent;
     }
 
+    public SpotifyItemSnapshotService getSpotifyItemSnapshotService() {
+        return spotifyItemSnapshotService;
+    }
+
     public SpringPropertiesConfig getSpringPropertiesConfig() {
         return springPropertiesConfig;
     }
@@ -1,23 +1,24 @@
 package net.robinfriedli.aiode.audio;
 
-import java.lang.ref.SoftReference;
-
 import javax.annotation.Nullable;
 
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import net.robinfriedli.aiode.Aiode;
 
 /**
- * creates a soft reference to the resulting AudioTrack when playing a Playable
+ * caches the resulting AudioTrack in the shared {@link AudioTrackCache} when playing a Playable, only retaining the key
+ * of the cache entry, so that the lifetime of the cached track is decided by the cache rather than the Playable
  */
 public abstract class AbstractSoftCachedPlayable implements Playable {
 
-    private SoftReference<AudioTrack> cachedTrack;
+    private volatile String cacheKey;
 
     @Nullable
     @Override
     public AudioTrack getCached() {
-        if (cachedTrack != null) {
-            return cachedTrack.get();
+        String key = cacheKey;
+        if (key != null && Aiode.isInitialised()) {
+            return Aiode.get().getAudioManager().getAudioTrackCache().get(key);
         }
 
         return null;
@@ -25,6 +26,8 @@ public abstract class AbstractSoftCachedPlayable implements Playable {
 
     @Override
     public void setCached(AudioTrack audioTrack) {
-        cachedTrack = new SoftReference<>(audioTrack);
+        if (Aiode.isInitialised()) {
+            cacheKey = Aiode.get().getAudioManager().getAudioTrackCache().put(audioTrack);
+        }
     }
 }
@@ -1,7 +1,11 @@
 package net.robinfriedli.aiode.audio;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -33,12 +37,14 @@ import dev.lavalink.youtube.clients.*;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
 import net.robinfriedli.aiode.audio.exec.TrackLoadingExecutor;
 import net.robinfriedli.aiode.audio.playables.PlayableFactory;
 import net.robinfriedli.aiode.audio.queue.AudioQueue;
 import net.robinfriedli.aiode.audio.spotify.SpotifyService;
+import net.robinfriedli.aiode.audio.spotify.SpotifyTrack;
 import net.robinfriedli.aiode.audio.youtube.YouTubeService;
 import net.robinfriedli.aiode.boot.AbstractShutdownable;
 import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
@@ -46,13 +52,15 @@ import net.robinfriedli.aiode.command.widget.WidgetRegistry;
 import net.robinfriedli.aiode.command.widget.widgets.NowPlayingWidget;
 import net.robinfriedli.aiode.concurrent.CompletableFutures;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
-import net.robinfriedli.aiode.concurrent.HistoryPool;
+import net.robinfriedli.aiode.concurrent.WriteBehindBuffer;
 import net.robinfriedli.aiode.discord.GuildContext;
 import net.robinfriedli.aiode.discord.GuildManager;
+import net.robinfriedli.aiode.entities.Artist;
 import net.robinfriedli.aiode.entities.PlaybackHistory;
 import net.robinfriedli.aiode.entities.UserPlaybackHistory;
 import net.robinfriedli.aiode.exceptions.InvalidCommandException;
 import net.robinfriedli.filebroker.FilebrokerApi;
+import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -64,20 +72,31 @@ import org.springframework.stereotype.Component;
 @Component
 public class AudioManager extends AbstractShutdownable {
 
+    private static final int HISTORY_BATCH_SIZE = 50;
+
     private final AudioPlayerManager playerManager;
+    private final AudioTrackCache audioTrackCache;
     private final AudioTrackLoader audioTrackLoader;
+    private final ChartService chartService;
     private final FilebrokerApi filebrokerApi;
     private final GuildManager guildManager;
     private final HibernateComponent hibernateComponent;
     private final Logger logger;
+    private final WriteBehindBuffer<PendingPlaybackHistory> playbackHistoryBuffer;
+    private final TrackPrefetcher trackPrefetcher;
     private final YouTubeService youTubeService;
 
     public AudioManager(
+        ChartService chartService,
         FilebrokerApi filebrokerApi,
         GuildManager guildManager,
         HibernateComponent hibernateComponent,
         YouTubeService youTubeService,
         @Value("${aiode.preferences.ipv6_blocks:#{null}}") String ipv6Blocks,
+        @Value("${aiode.preferences.prefetch_count:2}") int prefetchCount,
+        @Value("${aiode.preferences.track_cache_size:10000}") long trackCacheSize,
+        @Value("${aiode.preferences.track_cache_ttl_minutes:360}") long trackCacheTtlMinutes,
+        @Value("${aiode.preferences.playback_history_buffer_size:10000}") int playbackHistoryBufferSize,
         @Value("${aiode.tokens.yt-oauth-refresh-token:#{null}}") String ytOauthRefreshToken,
         @Value("${aiode.tokens.yt-po-token:#{null}}") String ytPoToken,
         @Value("${aiode.tokens.yt-po-visitor-data:#{null}}") String ytPoVisitorData,
@@ -85,8 +104,18 @@ public class AudioManager extends AbstractShutdownable {
         @Value("${aiode.tokens.yt-remote-cipher-password:#{null}}") String ytRemoteCipherPassword
     ) {
         playerManager = new DefaultAudioPlayerManager();
+        audioTrackCache = new AudioTrackCache(trackCacheSize, Duration.ofMinutes(trackCacheTtlMinutes));
         audioTrackLoader = new AudioTrackLoader(playerManager);
+        trackPrefetcher = new TrackPrefetcher(audioTrackCache, audioTrackLoader, prefetchCount);
+        playbackHistoryBuffer = new WriteBehindBuffer<>(
+            "playback-history",
+            playbackHistoryBufferSize,
+            HISTORY_BATCH_SIZE,
+            Duration.ofSeconds(2),
+            this::persistPlaybackHistories
+        );
 
+        this.chartService = chartService;
         this.filebrokerApi = filebrokerApi;
         this.guildManager = guildManager;
         this.hibernateComponent = hibernateComponent;
@@ -196,8 +225,16 @@ public class AudioManager extends AbstractShutdownable {
         return playerManager;
     }
 
+    public AudioTrackCache getAudioTrackCache() {
+        return audioTrackCache;
+    }
+
+    public TrackPrefetcher getTrackPrefetcher() {
+        return trackPrefetcher;
+    }
+
     public PlayableFactory createPlayableFactory(SpotifyService spotifyService, TrackLoadingExecutor trackLoadingExecutor, boolean shouldRedirectSpotify) {
-        return new PlayableFactory(audioTrackLoader, spotifyService, trackLoadingExecutor, youTubeService, shouldRedirectSpotify, filebrokerApi);
+        return new PlayableFactory(audioTrackCache, audioTrackLoader, spotifyService, trackLoadingExecutor, youTubeService, shouldRedirectSpotify, filebrokerApi);
     }
 
     public void setChannel(AudioPlayback audioPlayback, AudioChannel channel) {
@@ -212,26 +249,66 @@ public class AudioManager extends AbstractShutdownable {
     }
 
     void createHistoryEntry(Playable playable, Guild guild, AudioChannel audioChannel) {
-        HistoryPool.execute(() -> {
-            try {
-                hibernateComponent.consumeSession(session -> {
-                    PlaybackHistory playbackHistory = new PlaybackHistory(LocalDateTime.now(), playable, guild, session);
-
-                    session.persist(playbackHistory);
-                    if (audioChannel != null) {
-                        Member selfMember = guild.getSelfMember();
-                        for (Member member : audioChannel.getMembers()) {
-                            if (!member.equals(selfMember)) {
-                                UserPlaybackHistory userPlaybackHistory = new UserPlaybackHistory(member.getUser(), playbackHistory);
-                                session.persist(userPlaybackHistory);
-                            }
-                        }
-                    }
-
-                });
-            } catch (Exception e) {
-                logger.error("Exception while creating playback history entry", e);
+        guildManager.recordActivity(guild);
+        List<User> listeners = new ArrayList<>();
+        if (audioChannel != null) {
+            Member selfMember = guild.getSelfMember();
+            for (Member member : audioChannel.getMembers()) {
+                if (!member.equals(selfMember)) {
+                    listeners.add(member.getUser());
+                }
+            }
+        }
+
+        playbackHistoryBuffer.offer(new PendingPlaybackHistory(LocalDateTime.now(), playable, guild, listeners));
+    }
+
+    public WriteBehindBuffer<PendingPlaybackHistory> getPlaybackHistoryBuffer() {
+        return playbackHistoryBuffer;
+    }
+
+    /**
+     * Persist a batch of playback history entries in one transaction. All entries are persisted before the
+     * {@link UserPlaybackHistory} entries so that the inserts of each table are sent as consecutive JDBC batches.
+     */
+    private void persistPlaybackHistories(List<PendingPlaybackHistory> pendingHistories) {
+        hibernateComponent.consumeSession(session -> {
+            session.setJdbcBatchSize(HISTORY_BATCH_SIZE);
+            List<ArtistSimplified> spotifyArtists = new ArrayList<>();
+            for (PendingPlaybackHistory pendingHistory : pendingHistories) {
+                SpotifyTrack spotifyTrack = PlaybackHistory.getSpotifyTrack(pendingHistory.playable());
+                if (spotifyTrack != null) {
+                    spotifyTrack.exhaustiveMatch(
+                        track -> spotifyArtists.addAll(Arrays.asList(track.getArtists())),
+                        episode -> false
+                    );
+                }
+            }
+            Map<String, Artist> artists = Artist.getOrCreateArtists(spotifyArtists, session);
+
+            List<PlaybackHistory> playbackHistories = new ArrayList<>();
+            List<UserPlaybackHistory> userPlaybackHistories = new ArrayList<>();
+            for (PendingPlaybackHistory pendingHistory : pendingHistories) {
+                PlaybackHistory playbackHistory = new PlaybackHistory(
+                    pendingHistory.timestamp(),
+                    pendingHistory.playable(),
+                    pendingHistory.guild(),
+                    session,
+                    artist -> artists.get(artist.getId())
+                );
+                session.persist(playbackHistory);
+                playbackHistories.add(playbackHistory);
+
+                for (User listener : pendingHistory.listeners()) {
+                    userPlaybackHistories.add(new UserPlaybackHistory(listener, playbackHistory));
+                }
             }
+
+            for (UserPlaybackHistory userPlaybackHistory : userPlaybackHistories) {
+                session.persist(userPlaybackHistory);
+            }
+
+            chartService.incrementCharts(playbackHistories, session);
         });
     }
 
@@ -241,6 +318,9 @@ public class AudioManager extends AbstractShutdownable {
         CompletableFutures.thenAccept(futureMessage, message -> new NowPlayingWidget(widgetRegistry, guild, message).initialise());
     }
 
+    public record PendingPlaybackHistory(LocalDateTime timestamp, Playable playable, Guild guild, List<User> listeners) {
+    }
+
     @Override
     public void shutdown(int delayMs) {
         for (GuildContext guildContext : guildManager.getGuildContexts()) {
@@ -0,0 +1,76 @@
+package net.robinfriedli.aiode.audio;
+
+import java.time.Duration;
+
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+/**
+ * Central cache of loaded lavaplayer {@link AudioTrack} instances shared by all guilds, keyed by the URI of the track,
+ * which is the playback url of the {@link Playable} the track was loaded for. The cache holds a bounded number of
+ * entries, evicting the least recently used entries once full and entries that have not been accessed for the configured
+ * time.
+ * <p>
+ * Tracks returned by this cache may have been played already and have to be cloned using {@link AudioTrack#makeClone()}
+ * before playing them.
+ */
+public class AudioTrackCache {
+
+    private final Cache<String, AudioTrack> cache;
+    private final long maxSize;
+
+    /**
+     * @param maxSize the maximum number of cached tracks, caching is disabled if 0
+     * @param ttl     the duration after which a track that has not been accessed is evicted
+     */
+    public AudioTrackCache(long maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(ttl)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * @return the key under which the provided track is cached, the URI of the track or the identifier if the track has
+     * no URI
+     */
+    public static String getKey(AudioTrack audioTrack) {
+        String uri = audioTrack.getInfo().uri;
+        return uri != null ? uri : audioTrack.getIdentifier();
+    }
+
+    @Nullable
+    public AudioTrack get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Cache the provided track under the key returned by {@link #getKey(AudioTrack)}.
+     *
+     * @return the key of the cached track
+     */
+    public String put(AudioTrack audioTrack) {
+        String key = getKey(audioTrack);
+        cache.put(key, audioTrack);
+        return key;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+}
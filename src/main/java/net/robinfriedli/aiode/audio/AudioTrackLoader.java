@@ -1,10 +1,13 @@
 package net.robinfriedli.aiode.audio;
 
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -21,10 +24,16 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 
 /**
  * Loads an {@link AudioTrack} or {@link AudioPlaylist} from lavaplayer from any given URL which then can be played by
- * lavaplayer's {@link AudioPlayer}
+ * lavaplayer's {@link AudioPlayer}. Concurrent loads of the same identifier, e.g. when the same track is queued in
+ * several guilds at once, are coalesced into a single lavaplayer load whose result is shared by all callers.
  */
 public class AudioTrackLoader {
 
+    // shared by all loaders as loaders are created wherever tracks are loaded
+    private static final Map<LoadKey, CompletableFuture<AudioItem>> IN_FLIGHT_LOADS = new ConcurrentHashMap<>();
+    private static final AtomicLong LOAD_COUNT = new AtomicLong();
+    private static final AtomicLong COALESCED_COUNT = new AtomicLong();
+
     private final AudioPlayerManager playerManager;
     private final Logger logger;
 
@@ -56,7 +65,63 @@ public class AudioTrackLoader {
      */
     @Nullable
     public AudioItem loadByIdentifier(String identifier, long timeout, TimeUnit unit) {
-        CompletableFuture<AudioItem> result = new CompletableFuture<>();
+        return awaitResult(loadAsync(identifier), timeout, unit);
+    }
+
+    /**
+     * Wait for the result of a future composed on {@link #loadAsync(String)} for callers that need the result
+     * synchronously, unwrapping the {@link FriendlyException} the load might have failed with.
+     *
+     * @return the result of the future or null if the timeout elapsed or the thread was interrupted
+     */
+    @Nullable
+    public static <T> T awaitResult(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        try {
+            return future.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause != null) {
+                throw new RuntimeException(cause);
+            }
+
+            throw new RuntimeException(e);
+        } catch (TimeoutException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Load an {@link AudioTrack} or {@link AudioPlaylist} via an identifier without blocking the current thread. This is
+     * usually its URL or a YouTube search query, if preceded by the prefix "ytsearch:". The returned future is completed
+     * by a lavaplayer thread, so dependent actions that block should be executed asynchronously.
+     *
+     * @param identifier the url or YouTube search query
+     * @return a future completed with the loaded {@link AudioTrack} or {@link AudioPlaylist}, with null if nothing was
+     * found or exceptionally with the resulting {@link FriendlyException}
+     */
+    public CompletableFuture<AudioItem> loadAsync(String identifier) {
+        LoadKey key = new LoadKey(playerManager, identifier);
+        CompletableFuture<AudioItem> newLoad = new CompletableFuture<>();
+        CompletableFuture<AudioItem> inFlightLoad = IN_FLIGHT_LOADS.putIfAbsent(key, newLoad);
+        if (inFlightLoad == null) {
+            LOAD_COUNT.incrementAndGet();
+            newLoad.whenComplete((audioItem, throwable) -> IN_FLIGHT_LOADS.remove(key, newLoad));
+            startLoad(identifier, newLoad);
+            // return a copy so that callers completing the future, e.g. on timeout, do not complete it for joining callers
+            return newLoad.copy();
+        } else {
+            COALESCED_COUNT.incrementAndGet();
+            // the same track instance cannot be played twice, so callers joining an in-flight load receive a clone
+            return inFlightLoad.thenApply(audioItem -> audioItem instanceof AudioTrack audioTrack ? audioTrack.makeClone() : audioItem);
+        }
+    }
+
+    private void startLoad(String identifier, CompletableFuture<AudioItem> result) {
         playerManager.loadItem(identifier, new AudioLoadResultHandler() {
             @Override
             public void trackLoaded(AudioTrack audioTrack) {
@@ -70,7 +135,7 @@ public class AudioTrackLoader {
 
             @Override
             public void noMatches() {
-                result.cancel(false);
+                result.complete(null);
             }
 
             @Override
@@ -81,24 +146,24 @@ public class AudioTrackLoader {
                 }
             }
         });
+    }
 
-        try {
-            return result.get(timeout, unit);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return null;
-        } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof RuntimeException) {
-                throw (RuntimeException) cause;
-            } else if (cause != null) {
-                throw new RuntimeException(cause);
-            }
+    /**
+     * @return the number of loads issued to lavaplayer since startup
+     */
+    public static long getLoadCount() {
+        return LOAD_COUNT.get();
+    }
 
-            throw new RuntimeException(e);
-        } catch (TimeoutException | CancellationException e) {
-            return null;
-        }
+    /**
+     * @return the number of calls that joined a load for the same identifier that was already in progress instead of
+     * issuing a new load
+     */
+    public static long getCoalescedCount() {
+        return COALESCED_COUNT.get();
+    }
+
+    private record LoadKey(AudioPlayerManager playerManager, String identifier) {
     }
 
 }
@@ -1,282 +1,259 @@
 package net.robinfriedli.aiode.audio;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Types;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
-import com.google.common.collect.Lists;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
 import net.robinfriedli.aiode.entities.Artist;
-import net.robinfriedli.aiode.entities.GlobalArtistChart;
-import net.robinfriedli.aiode.entities.GlobalTrackChart;
 import net.robinfriedli.aiode.entities.PlaybackHistory;
-import net.robinfriedli.aiode.entities.PlaybackHistorySource;
 import net.robinfriedli.aiode.entities.SpotifyItemKind;
 import net.robinfriedli.aiode.entities.UserPlaybackHistory;
-import net.robinfriedli.aiode.persist.qb.QueryBuilderFactory;
-import net.robinfriedli.aiode.persist.qb.builders.SelectQueryBuilder;
 import org.hibernate.Session;
-import org.hibernate.query.Query;
 import org.springframework.stereotype.Component;
 
+/**
+ * Maintains the counters of the track_chart_rollup and artist_chart_rollup tables when persisting
+ * {@link PlaybackHistory} entries and reads the charts from them. Each playback increments the counters of the all time period and of the
+ * current month for the global scope, the scope of the guild and the scope of each listener, so that reading a chart
+ * only requires reading the top rows of one period of one scope, regardless of the size of the playback history.
+ * <p>
+ * Track chart records consist of the source pk, the track id, the play count and the spotify item kind pk, artist chart
+ * records consist of the artist pk and the play count.
+ */
 @Component
 public class ChartService {
 
+    /**
+     * The period start of the all time counters.
+     */
+    public static final LocalDate ALL_TIME = LocalDate.of(1970, 1, 1);
+
+    private static final int TRACK_CHART_SIZE = 10;
+    private static final int ARTIST_CHART_SIZE = 5;
+
+    private static final Comparator<TrackCounter> TRACK_COUNTER_ORDER = Comparator
+        .comparing(TrackCounter::scope)
+        .thenComparing(TrackCounter::scopeId)
+        .thenComparing(TrackCounter::periodStart)
+        .thenComparingLong(TrackCounter::fkSource)
+        .thenComparing(TrackCounter::trackId);
+    private static final Comparator<ArtistCounter> ARTIST_COUNTER_ORDER = Comparator
+        .comparing(ArtistCounter::scope)
+        .thenComparing(ArtistCounter::scopeId)
+        .thenComparing(ArtistCounter::periodStart)
+        .thenComparingLong(ArtistCounter::artistPk);
+
     private final HibernateComponent hibernateComponent;
-    private final QueryBuilderFactory queryBuilderFactory;
 
-    public ChartService(HibernateComponent hibernateComponent, QueryBuilderFactory queryBuilderFactory) {
+    public ChartService(HibernateComponent hibernateComponent) {
         this.hibernateComponent = hibernateComponent;
-        this.queryBuilderFactory = queryBuilderFactory;
     }
 
-    public void refreshPersistentGlobalCharts() {
-        hibernateComponent.consumeSession(session -> {
-            session.createNativeMutationQuery("delete from global_artist_chart").executeUpdate();
-            session.createNativeMutationQuery("delete from global_track_chart").executeUpdate();
-
-            for (Object[] record : getGlobalTrackChart(session)) {
-                GlobalTrackChart globalTrackChart = new GlobalTrackChart();
-                globalTrackChart.setSource(session.get(PlaybackHistorySource.class, (long) record[0]));
-                globalTrackChart.setTrackId((String) record[1]);
-                globalTrackChart.setCount((long) record[2]);
-                Long spotifyItemKindPk = (Long) record[3];
-                if (spotifyItemKindPk != null) {
-                    globalTrackChart.setSpotifyItemKind(session.get(SpotifyItemKind.class, spotifyItemKindPk));
+    /**
+     * Increment the chart counters for the provided, newly persisted, playback histories. The counters are aggregated
+     * in memory and upserted using one JDBC batch per table within the transaction of the provided session, so that the
+     * counters are only incremented if the histories are committed. Rows are written in a consistent order so that
+     * concurrent transactions incrementing the same counters wait for each other instead of deadlocking.
+     */
+    public void incrementCharts(Collection<PlaybackHistory> playbackHistories, Session session) {
+        Map<TrackCounter, Long> trackIncrements = new TreeMap<>(TRACK_COUNTER_ORDER);
+        Map<TrackCounter, Long> spotifyItemKinds = new TreeMap<>(TRACK_COUNTER_ORDER);
+        Map<ArtistCounter, Long> artistIncrements = new TreeMap<>(ARTIST_COUNTER_ORDER);
+
+        for (PlaybackHistory playbackHistory : playbackHistories) {
+            LocalDate startOfMonth = playbackHistory.getTimestamp().toLocalDate().withDayOfMonth(1);
+            Set<String> userIds = playbackHistory.getUserPlaybackHistories().stream()
+                .map(UserPlaybackHistory::getUserId)
+                .collect(Collectors.toSet());
+            SpotifyItemKind spotifyItemKind = playbackHistory.getSpotifyItemKind();
+
+            for (LocalDate periodStart : List.of(ALL_TIME, startOfMonth)) {
+                Map<Scope, Collection<String>> scopes = Map.of(
+                    Scope.GLOBAL, List.of(""),
+                    Scope.GUILD, playbackHistory.getGuildId() != null ? List.of(playbackHistory.getGuildId()) : List.of(),
+                    Scope.USER, userIds
+                );
+
+                for (Map.Entry<Scope, Collection<String>> scopeEntry : scopes.entrySet()) {
+                    for (String scopeId : scopeEntry.getValue()) {
+                        if (playbackHistory.getTrackId() != null) {
+                            TrackCounter trackCounter = new TrackCounter(
+                                scopeEntry.getKey(),
+                                scopeId,
+                                periodStart,
+                                playbackHistory.getSource().getPk(),
+                                playbackHistory.getTrackId()
+                            );
+                            trackIncrements.merge(trackCounter, 1L, Long::sum);
+                            if (spotifyItemKind != null) {
+                                spotifyItemKinds.put(trackCounter, spotifyItemKind.getPk());
+                            }
+                        }
+
+                        for (Artist artist : playbackHistory.getArtists()) {
+                            ArtistCounter artistCounter = new ArtistCounter(scopeEntry.getKey(), scopeId, periodStart, artist.getPk());
+                            artistIncrements.merge(artistCounter, 1L, Long::sum);
+                        }
+                    }
                 }
-                globalTrackChart.setMonthly(false);
-                session.persist(globalTrackChart);
             }
-
-            for (Object[] record : getGlobalTrackMonthlyChart(session)) {
-                GlobalTrackChart globalTrackChart = new GlobalTrackChart();
-                globalTrackChart.setSource(session.get(PlaybackHistorySource.class, (long) record[0]));
-                globalTrackChart.setTrackId((String) record[1]);
-                globalTrackChart.setCount((long) record[2]);
-                Long spotifyItemKindPk = (Long) record[3];
-                if (spotifyItemKindPk != null) {
-                    globalTrackChart.setSpotifyItemKind(session.get(SpotifyItemKind.class, spotifyItemKindPk));
+        }
+
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("insert into track_chart_rollup" +
+                "(scope, scope_id, period_start, fk_source, track_id, fk_spotify_item_kind, play_count) values(?, ?, ?, ?, ?, ?, ?) " +
+                "on conflict (scope, scope_id, period_start, fk_source, track_id) do update " +
+                "set play_count = track_chart_rollup.play_count + excluded.play_count, " +
+                "fk_spotify_item_kind = coalesce(excluded.fk_spotify_item_kind, track_chart_rollup.fk_spotify_item_kind)")) {
+                for (Map.Entry<TrackCounter, Long> increment : trackIncrements.entrySet()) {
+                    TrackCounter counter = increment.getKey();
+                    statement.setString(1, counter.scope().name());
+                    statement.setString(2, counter.scopeId());
+                    statement.setDate(3, Date.valueOf(counter.periodStart()));
+                    statement.setLong(4, counter.fkSource());
+                    statement.setString(5, counter.trackId());
+                    Long spotifyItemKindPk = spotifyItemKinds.get(counter);
+                    if (spotifyItemKindPk != null) {
+                        statement.setLong(6, spotifyItemKindPk);
+                    } else {
+                        statement.setNull(6, Types.BIGINT);
+                    }
+                    statement.setLong(7, increment.getValue());
+                    statement.addBatch();
                 }
-                globalTrackChart.setMonthly(true);
-                session.persist(globalTrackChart);
+                statement.executeBatch();
             }
 
-            for (Object[] record : getGlobalArtistChart(session)) {
-                GlobalArtistChart globalArtistChart = new GlobalArtistChart();
-                globalArtistChart.setArtist(session.get(Artist.class, record[0]));
-                globalArtistChart.setCount((Long) record[1]);
-                globalArtistChart.setMonthly(false);
-                session.persist(globalArtistChart);
-            }
-
-            for (Object[] record : getGlobalArtistMonthlyChart(session)) {
-                GlobalArtistChart globalArtistChart = new GlobalArtistChart();
-                globalArtistChart.setArtist(session.get(Artist.class, record[0]));
-                globalArtistChart.setCount((Long) record[1]);
-                globalArtistChart.setMonthly(true);
-                session.persist(globalArtistChart);
+            try (PreparedStatement statement = connection.prepareStatement("insert into artist_chart_rollup" +
+                "(scope, scope_id, period_start, artist_pk, play_count) values(?, ?, ?, ?, ?) " +
+                "on conflict (scope, scope_id, period_start, artist_pk) do update " +
+                "set play_count = artist_chart_rollup.play_count + excluded.play_count")) {
+                for (Map.Entry<ArtistCounter, Long> increment : artistIncrements.entrySet()) {
+                    ArtistCounter counter = increment.getKey();
+                    statement.setString(1, counter.scope().name());
+                    statement.setString(2, counter.scopeId());
+                    statement.setDate(3, Date.valueOf(counter.periodStart()));
+                    statement.setLong(4, counter.artistPk());
+                    statement.setLong(5, increment.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
             }
         });
     }
 
-    public SelectQueryBuilder<PlaybackHistory> getGlobalTrackChartQuery() {
-        return queryBuilderFactory
-            .select(PlaybackHistory.class,
-                (from, cb) -> from.get("fkSource"),
-                (from, cb) -> from.get("trackId"),
-                (from, cb) -> cb.count(from.get("pk")),
-                (from, cb) -> from.get("fkSpotifyItemKind"))
-            .where((cb, root) -> cb.isNotNull(root.get("trackId")))
-            .groupBySeveral((from, cb) -> Lists.newArrayList(from.get("trackId"), from.get("fkSource"), from.get("fkSpotifyItemKind")))
-            .orderBy((from, cb) -> cb.desc(cb.count(from.get("pk"))));
+    /**
+     * Delete the counters of months that have passed, charts only show the current month and all time.
+     */
+    public void deleteOutdatedMonthlyCharts() {
+        hibernateComponent.consumeSession(session -> {
+            Date startOfMonth = Date.valueOf(LocalDate.now().withDayOfMonth(1));
+            for (String table : List.of("track_chart_rollup", "artist_chart_rollup")) {
+                session.createNativeMutationQuery("delete from " + table + " where period_start > ? and period_start < ?")
+                    .setParameter(1, Date.valueOf(ALL_TIME))
+                    .setParameter(2, startOfMonth)
+                    .executeUpdate();
+            }
+        });
     }
 
     public List<Object[]> getGlobalTrackChart(Session session) {
-        return getGlobalTrackChartQuery().build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<GlobalTrackChart> getPersistentGlobalTrackChartQuery() {
-        return queryBuilderFactory
-            .select(GlobalTrackChart.class,
-                (from, cb) -> from.get("fkSource"),
-                (from, cb) -> from.get("trackId"),
-                (from, cb) -> from.get("count"),
-                (from, cb) -> from.get("fkSpotifyItemKind"))
-            .where((cb, root) -> cb.not(root.get("isMonthly")))
-            .orderBy((from, cb) -> cb.desc(from.get("count")));
-    }
-
-    public List<Object[]> getPersistentGlobalTrackChart(Session session) {
-        return getPersistentGlobalTrackChartQuery().build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<PlaybackHistory> getGlobalTrackMonthlyChartQuery() {
-        LocalDateTime startOfMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
-        return getGlobalTrackChartQuery().fork().where((cb, root) -> cb.greaterThan(root.get("timestamp"), startOfMonth));
+        return getTrackChart(Scope.GLOBAL, "", ALL_TIME, session);
     }
 
     public List<Object[]> getGlobalTrackMonthlyChart(Session session) {
-        return getGlobalTrackMonthlyChartQuery().build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<GlobalTrackChart> getPersistentGlobalTrackMonthlyChartQuery() {
-        return queryBuilderFactory
-            .select(GlobalTrackChart.class,
-                (from, cb) -> from.get("fkSource"),
-                (from, cb) -> from.get("trackId"),
-                (from, cb) -> from.get("count"),
-                (from, cb) -> from.get("fkSpotifyItemKind"))
-            .where((cb, root) -> cb.isTrue(root.get("isMonthly")))
-            .orderBy((from, cb) -> cb.desc(from.get("count")));
-    }
-
-    public List<Object[]> getPersistentGlobalTrackMonthlyChart(Session session) {
-        return getPersistentGlobalTrackMonthlyChartQuery().build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<PlaybackHistory> getGuildTrackChartQuery(Guild guild) {
-        return getGlobalTrackChartQuery().fork().where((cb, root) -> cb.equal(root.get("guildId"), guild.getId()));
+        return getTrackChart(Scope.GLOBAL, "", currentMonth(), session);
     }
 
     public List<Object[]> getGuildTrackChart(Guild guild, Session session) {
-        return getGuildTrackChartQuery(guild).build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<PlaybackHistory> getGuildTrackMonthlyChartQuery(Guild guild) {
-        return getGlobalTrackMonthlyChartQuery().fork().where((cb, root) -> cb.equal(root.get("guildId"), guild.getId()));
+        return getTrackChart(Scope.GUILD, guild.getId(), ALL_TIME, session);
     }
 
     public List<Object[]> getGuildTrackMonthlyChart(Guild guild, Session session) {
-        return getGuildTrackMonthlyChartQuery(guild).build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<PlaybackHistory> getUserTrackChartQuery(User user, Session session) {
-        return getGlobalTrackChartQuery().where((cb, root, subQueryFactory) -> root.get("pk").in(
-            subQueryFactory
-                .createUncorrelatedSubQuery(UserPlaybackHistory.class, "playbackHistoryPk", Long.class)
-                .where((cb1, root1) -> cb1.equal(root1.get("userId"), user.getId()))
-                .build(session)
-        ));
+        return getTrackChart(Scope.GUILD, guild.getId(), currentMonth(), session);
     }
 
     public List<Object[]> getUserTrackChart(User user, Session session) {
-        return getUserTrackChartQuery(user, session).build(session).setMaxResults(10).getResultList();
-    }
-
-    public SelectQueryBuilder<PlaybackHistory> getUserTrackMonthlyChartQuery(User user, Session session) {
-        return getGlobalTrackMonthlyChartQuery().fork().where((cb, root, subQueryFactory) -> root.get("pk").in(
-            subQueryFactory
-                .createUncorrelatedSubQuery(UserPlaybackHistory.class, "playbackHistoryPk", Long.class)
-                .where((cb1, root1) -> cb1.equal(root1.get("userId"), user.getId()))
-                .build(session)
-        ));
+        return getTrackChart(Scope.USER, user.getId(), ALL_TIME, session);
     }
 
     public List<Object[]> getUserTrackMonthlyChart(User user, Session session) {
-        return getUserTrackMonthlyChartQuery(user, session).build(session).setMaxResults(10).getResultList();
-    }
-
-    public Query<Object[]> getGlobalArtistChartQuery(Session session) {
-        return session.createNativeQuery("select artist_pk, count(*) as c " +
-            "from playback_history_artist group by artist_pk order by c desc limit 5", Object[].class);
+        return getTrackChart(Scope.USER, user.getId(), currentMonth(), session);
     }
 
     public List<Object[]> getGlobalArtistChart(Session session) {
-        return getGlobalArtistChartQuery(session).getResultList();
-    }
-
-    public Query<Object[]> getPersistentGlobalArtistChartQuery(Session session) {
-        return session.createNativeQuery("select artist_pk, count as c " +
-            "from global_artist_chart where not is_monthly order by c desc limit 5", Object[].class);
-    }
-
-    public List<Object[]> getPersistentGlobalArtistChart(Session session) {
-        return getPersistentGlobalArtistChartQuery(session).getResultList();
-    }
-
-    public Query<Object[]> getGlobalArtistMonthlyChartQuery(Session session) {
-        LocalDateTime startOfMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
-        Date dateAtStartOfMonth = Date.valueOf(startOfMonth.toLocalDate());
-        Query<Object[]> globalArtistMonthlyQuery = session.createNativeQuery("select artist_pk, count(*) as c " +
-            "from playback_history_artist as p " +
-            "where p.playback_history_pk in(select pk from playback_history where timestamp > ?) " +
-            "group by artist_pk order by c desc limit 5", Object[].class);
-        globalArtistMonthlyQuery.setParameter(1, dateAtStartOfMonth);
-        return globalArtistMonthlyQuery;
+        return getArtistChart(Scope.GLOBAL, "", ALL_TIME, session);
     }
 
     public List<Object[]> getGlobalArtistMonthlyChart(Session session) {
-        return getGlobalArtistMonthlyChartQuery(session).getResultList();
+        return getArtistChart(Scope.GLOBAL, "", currentMonth(), session);
     }
 
-    public Query<Object[]> getPersistentGlobalArtistMonthlyChartQuery(Session session) {
-        return session.createNativeQuery("select artist_pk, count as c " +
-            "from global_artist_chart " +
-            "where is_monthly " +
-            "order by c desc limit 5", Object[].class);
+    public List<Object[]> getGuildArtistChart(Guild guild, Session session) {
+        return getArtistChart(Scope.GUILD, guild.getId(), ALL_TIME, session);
     }
 
-    public List<Object[]> getPersistentGlobalArtistMonthlyChart(Session session) {
-        return getPersistentGlobalArtistMonthlyChartQuery(session).getResultList();
+    public List<Object[]> getGuildArtistMonthlyChart(Guild guild, Session session) {
+        return getArtistChart(Scope.GUILD, guild.getId(), currentMonth(), session);
     }
 
-    public Query<Object[]> getGuildArtistChartQuery(Guild guild, Session session) {
-        Query<Object[]> guildArtistQuery = session.createNativeQuery("select artist_pk, count(*) as c from " +
-            "playback_history_artist as p where p.playback_history_pk in(select pk from playback_history where guild_id = ?) " +
-            "group by artist_pk order by c desc limit 5", Object[].class);
-        guildArtistQuery.setParameter(1, guild.getId());
-        return guildArtistQuery;
+    public List<Object[]> getUserArtistChart(User user, Session session) {
+        return getArtistChart(Scope.USER, user.getId(), ALL_TIME, session);
     }
 
-    public List<Object[]> getGuildArtistChart(Guild guild, Session session) {
-        return getGuildArtistChartQuery(guild, session).getResultList();
+    public List<Object[]> getUserArtistMonthlyChart(User user, Session session) {
+        return getArtistChart(Scope.USER, user.getId(), currentMonth(), session);
     }
 
-    public Query<Object[]> getGuildArtistMonthlyChartQuery(Guild guild, Session session) {
-        LocalDateTime startOfMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
-        Date dateAtStartOfMonth = Date.valueOf(startOfMonth.toLocalDate());
-        Query<Object[]> guildArtistMonthlyQuery = session.createNativeQuery("select artist_pk, count(*) as c " +
-            "from playback_history_artist where playback_history_pk in(select pk from playback_history " +
-            "where timestamp > ? and guild_id = ?) " +
-            "group by artist_pk order by c desc limit 5", Object[].class);
-        guildArtistMonthlyQuery.setParameter(1, dateAtStartOfMonth);
-        guildArtistMonthlyQuery.setParameter(2, guild.getId());
-        return guildArtistMonthlyQuery;
+    private List<Object[]> getTrackChart(Scope scope, String scopeId, LocalDate periodStart, Session session) {
+        return session.createNativeQuery("select fk_source, track_id, play_count, fk_spotify_item_kind " +
+                "from track_chart_rollup where scope = ? and scope_id = ? and period_start = ? " +
+                "order by play_count desc limit " + TRACK_CHART_SIZE, Object[].class)
+            .setParameter(1, scope.name())
+            .setParameter(2, scopeId)
+            .setParameter(3, Date.valueOf(periodStart))
+            .getResultList();
     }
 
-    public List<Object[]> getGuildArtistMonthlyChart(Guild guild, Session session) {
-        return getGuildArtistMonthlyChartQuery(guild, session).getResultList();
+    private List<Object[]> getArtistChart(Scope scope, String scopeId, LocalDate periodStart, Session session) {
+        return session.createNativeQuery("select artist_pk, play_count " +
+                "from artist_chart_rollup where scope = ? and scope_id = ? and period_start = ? " +
+                "order by play_count desc limit " + ARTIST_CHART_SIZE, Object[].class)
+            .setParameter(1, scope.name())
+            .setParameter(2, scopeId)
+            .setParameter(3, Date.valueOf(periodStart))
+            .getResultList();
     }
 
-    public Query<Object[]> getUserArtistChartQuery(User user, Session session) {
-        Query<Object[]> userArtistQuery = session.createNativeQuery("select artist_pk, count(*) as c from " +
-            "playback_history_artist as p where p.playback_history_pk in(select pk from playback_history where pk IN(SELECT playback_history_pk FROM user_playback_history WHERE user_id = ?)) " +
-            "group by artist_pk order by c desc limit 5", Object[].class);
-        userArtistQuery.setParameter(1, user.getId());
-        return userArtistQuery;
+    private static LocalDate currentMonth() {
+        return LocalDate.now().withDayOfMonth(1);
     }
 
-    public List<Object[]> getUserArtistChart(User user, Session session) {
-        return getUserArtistChartQuery(user, session).getResultList();
+    /**
+     * The scope of a chart counter, the scope id is the guild id for the guild scope, the user id for the user scope
+     * and empty for the global scope.
+     */
+    public enum Scope {
+        GLOBAL,
+        GUILD,
+        USER
     }
 
-    public Query<Object[]> getUserArtistMonthlyChartQuery(User user, Session session) {
-        LocalDateTime startOfMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
-        Date dateAtStartOfMonth = Date.valueOf(startOfMonth.toLocalDate());
-        Query<Object[]> userArtistMonthlyQuery = session.createNativeQuery("select artist_pk, count(*) as c " +
-            "from playback_history_artist where playback_history_pk in(select pk from playback_history " +
-            "where timestamp > ? and pk IN(SELECT playback_history_pk FROM user_playback_history WHERE user_id = ?)) " +
-            "group by artist_pk order by c desc limit 5", Object[].class);
-        userArtistMonthlyQuery.setParameter(1, dateAtStartOfMonth);
-        userArtistMonthlyQuery.setParameter(2, user.getId());
-        return userArtistMonthlyQuery;
+    private record TrackCounter(Scope scope, String scopeId, LocalDate periodStart, long fkSource, String trackId) {
     }
 
-    public List<Object[]> getUserArtistMonthlyChart(User user, Session session) {
-        return getUserArtistMonthlyChartQuery(user, session).getResultList();
+    private record ArtistCounter(Scope scope, String scopeId, LocalDate periodStart, long artistPk) {
     }
 
 }
@@ -2,8 +2,10 @@ package net.robinfriedli.aiode.audio;
 
 import java.awt.Color;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -23,19 +25,17 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.playables.containers.PlaylistPlayableContainer;
 import net.robinfriedli.aiode.audio.queue.AudioQueue;
 import net.robinfriedli.aiode.audio.spotify.SpotifyTrackRedirect;
 import net.robinfriedli.aiode.audio.youtube.YouTubeVideo;
 import net.robinfriedli.aiode.boot.SpringPropertiesConfig;
 import net.robinfriedli.aiode.discord.MessageService;
-import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
 import net.robinfriedli.aiode.discord.property.properties.ColorSchemeProperty;
-import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.exceptions.ExceptionUtils;
 import net.robinfriedli.aiode.exceptions.UnavailableResourceException;
 import net.robinfriedli.aiode.exceptions.handler.handlers.LoggingUncaughtExceptionHandler;
 import net.robinfriedli.aiode.filebroker.FilebrokerPlayableWrapper;
-import net.robinfriedli.aiode.persist.StaticSessionProvider;
 import net.robinfriedli.aiode.util.EmojiConstants;
 import net.robinfriedli.threadpool.ThreadPool;
 import org.jetbrains.annotations.NotNull;
@@ -86,6 +86,8 @@ public class QueueIterator extends AudioEventAdapter {
 
     private volatile boolean isYouTubeBanned = false;
     private volatile boolean retryCurrent = false;
+    // System.nanoTime() of the last track end that started the next track, 0 if the last track was started manually
+    private volatile long lastTrackEndNanos = 0;
 
     QueueIterator(AudioPlayback playback, AudioManager audioManager) {
         this.playback = playback;
@@ -97,6 +99,12 @@ public class QueueIterator extends AudioEventAdapter {
 
     @Override
     public void onTrackStart(AudioPlayer player, AudioTrack track) {
+        long trackEndNanos = lastTrackEndNanos;
+        if (trackEndNanos != 0) {
+            lastTrackEndNanos = 0;
+            audioManager.getTrackPrefetcher().recordTransitionGap(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - trackEndNanos));
+        }
+
         handleAudioEvent(() -> {
             if (playback.isPaused()) {
                 playback.unpause();
@@ -104,17 +112,21 @@ public class QueueIterator extends AudioEventAdapter {
 
             Playable current = track.getUserData(Playable.class);
             if (current != null) {
+                PlaylistPlayableContainer.recordTrackStart(current);
                 audioManager.createHistoryEntry(current, playback.getGuild(), playback.getAudioChannel());
                 if (shouldSendPlaybackNotification()) {
                     sendCurrentTrackNotification(current, track);
                 }
             }
+
+            audioManager.getTrackPrefetcher().prefetch(queue);
         });
     }
 
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason reason) {
         if (reason.mayStartNext) {
+            lastTrackEndNanos = System.nanoTime();
             handleAudioEvent(() -> {
                 if (retryCurrent) {
                     playNext();
@@ -197,6 +209,7 @@ public class QueueIterator extends AudioEventAdapter {
                 result = cachedTracked.makeClone();
             }
         }
+        audioManager.getTrackPrefetcher().recordPlay(track, result != null);
 
         if (result == null) {
             String playbackUrl;
@@ -222,32 +235,29 @@ public class QueueIterator extends AudioEventAdapter {
                 return;
             }
 
-            try {
-                result = audioTrackLoader.loadByIdentifier(playbackUrl);
-            } catch (FriendlyException e) {
-                if (!isYouTubeBanned && isYouTubeBanError(track, e)) {
-                    isYouTubeBanned = true;
-                    if (track instanceof SpotifyTrackRedirect spotifyTrackRedirect && spotifyTrackRedirect.getCompletedSoundCloudTrack() != null) {
-                        // retry redirect using soundcloud on yt ban
-                        retryCurrent = true;
-                        logger.warn("Failed to play YouTube video for redirected Spotify track, trying SoundCloud instead");
-                        playNext();
-                        return;
-                    }
-                }
-
-                if (e.severity == FriendlyException.Severity.COMMON) {
-                    logger.warn("Common lavaplayer track error: " + e.getMessage());
-                } else {
-                    logger.error("Lavaplayer track exception", e);
-                }
-
-                sendError(track, e);
-
-                iterateQueue(playback, queue, true);
+            // the same track might have been loaded for a different playable, e.g. in a different guild
+            AudioTrack sharedTrack = ignoreCache ? null : audioManager.getAudioTrackCache().get(playbackUrl);
+            if (sharedTrack != null) {
+                result = sharedTrack.makeClone();
+            } else {
+                // continue as a new audio event once the track is loaded instead of blocking the audio event thread
+                audioTrackLoader.loadAsync(playbackUrl)
+                    .orTimeout(2, TimeUnit.MINUTES)
+                    .whenComplete((audioItem, throwable) -> handleAudioEvent(() -> {
+                        if (throwable != null) {
+                            handleLoadFailure(track, throwable);
+                        } else {
+                            play(track, audioItem);
+                        }
+                    }));
                 return;
             }
         }
+
+        play(track, result);
+    }
+
+    private void play(Playable track, @Nullable AudioItem result) {
         if (result != null) {
             if (result instanceof AudioTrack audioTrack) {
                 track.setCached(audioTrack);
@@ -262,6 +272,44 @@ public class QueueIterator extends AudioEventAdapter {
         }
     }
 
+    private void handleLoadFailure(Playable track, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof TimeoutException) {
+            logger.warn("Timed out loading track " + track.display());
+            sendError(track, new TimeoutException("Loading the track timed out"));
+            iterateQueue(playback, queue, true);
+            return;
+        }
+
+        if (!(cause instanceof FriendlyException e)) {
+            logger.error("Exception while loading track", cause);
+            sendError(track, cause);
+            iterateQueue(playback, queue, true);
+            return;
+        }
+
+        if (!isYouTubeBanned && isYouTubeBanError(track, e)) {
+            isYouTubeBanned = true;
+            if (track instanceof SpotifyTrackRedirect spotifyTrackRedirect && spotifyTrackRedirect.getCompletedSoundCloudTrack() != null) {
+                // retry redirect using soundcloud on yt ban
+                retryCurrent = true;
+                logger.warn("Failed to play YouTube video for redirected Spotify track, trying SoundCloud instead");
+                playNext();
+                return;
+            }
+        }
+
+        if (e.severity == FriendlyException.Severity.COMMON) {
+            logger.warn("Common lavaplayer track error: " + e.getMessage());
+        } else {
+            logger.error("Lavaplayer track exception", e);
+        }
+
+        sendError(track, e);
+
+        iterateQueue(playback, queue, true);
+    }
+
     private void iterateQueue(AudioPlayback playback, AudioQueue queue) {
         iterateQueue(playback, queue, false);
     }
@@ -368,11 +416,7 @@ public class QueueIterator extends AudioEventAdapter {
         embedBuilder.setAuthor("Support aiode", "https://ko-fi.com/R5R0XAC5J", "https://storage.ko-fi.com/cdn/brandasset/kofi_s_logo_nolabel.png");
 
         Guild guild = playback.getGuild();
-        Color color = StaticSessionProvider.invokeWithSession(session -> {
-            GuildSpecification specification = Aiode.get().getGuildManager().getContextForGuild(guild).getSpecification(session);
-            return ColorSchemeProperty.getColor(specification);
-        });
-        embedBuilder.setColor(color);
+        embedBuilder.setColor(ColorSchemeProperty.getColor(Aiode.get().getGuildManager().getContextForGuild(guild).getPropertySnapshot()));
 
         CompletableFuture<Message> futureMessage = messageService.send(embedBuilder.build(), communicationChannel);
         futureMessage.thenAccept(playback::setLastPlaybackNotification);
@@ -392,14 +436,10 @@ public class QueueIterator extends AudioEventAdapter {
     }
 
     private boolean shouldSendPlaybackNotification() {
-        return StaticSessionProvider.invokeWithSession(session -> {
-            Guild guild = playback.getGuild();
-            GuildSpecification specification = Aiode.get().getGuildManager().getContextForGuild(guild).getSpecification(session);
-            GuildPropertyManager guildPropertyManager = Aiode.get().getGuildPropertyManager();
-            return guildPropertyManager
-                .getPropertyValueOptional("sendPlaybackNotification", Boolean.class, specification)
-                .orElse(true);
-        });
+        return Aiode.get().getGuildManager().getContextForGuild(playback.getGuild())
+            .getPropertySnapshot()
+            .getValue("sendPlaybackNotification", Boolean.class)
+            .orElse(true);
     }
 
     private void appendIfTrue(StringBuilder builder, String s, boolean b) {
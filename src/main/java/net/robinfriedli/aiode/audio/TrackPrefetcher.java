@@ -0,0 +1,207 @@
+package net.robinfriedli.aiode.audio;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.queue.AudioQueue;
+import net.robinfriedli.aiode.boot.ShutdownableExecutorService;
+import net.robinfriedli.aiode.concurrent.ForkTaskThreadPool;
+import net.robinfriedli.aiode.concurrent.LoggingThreadFactory;
+import net.robinfriedli.aiode.exceptions.UnavailableResourceException;
+import net.robinfriedli.threadpool.ThreadPool;
+
+/**
+ * Resolves the next items of an {@link AudioQueue} in the background while the current track is playing, so that the
+ * {@link QueueIterator} finds a cached {@link AudioTrack} when the current track ends instead of loading it synchronously.
+ * Resolving a {@link Playable} includes the redirection of Spotify tracks and the loading of hollow YouTube videos, both
+ * triggered by requesting the playback url, and loading the lavaplayer track for the playback url.
+ * <p>
+ * Also records the rate of track transitions that found a cached track and the gap between a track ending and the next
+ * track starting.
+ */
+public class TrackPrefetcher {
+
+    // separate from the EagerFetchQueue as prefetching tasks wait for the fetch tasks submitted to the EagerFetchQueue
+    private static final ForkTaskThreadPool PREFETCH_POOL = new ForkTaskThreadPool(
+        ThreadPool.Builder.create()
+            .setCoreSize(3)
+            .setMaxSize(20)
+            .setKeepAlive(1L, TimeUnit.MINUTES)
+            .setThreadFactory(new LoggingThreadFactory("track-prefetch-pool")).build()
+    );
+
+    static {
+        Aiode.SHUTDOWNABLES.add(new ShutdownableExecutorService(PREFETCH_POOL));
+    }
+
+    private final AudioTrackCache audioTrackCache;
+    private final AudioTrackLoader audioTrackLoader;
+    private final int lookahead;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Set<Playable> inFlight = ConcurrentHashMap.newKeySet();
+    // playables whose track has been loaded by this prefetcher and has not been played yet
+    private final Set<Playable> prefetched = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong transitionCount = new AtomicLong();
+    private final AtomicLong totalGapMs = new AtomicLong();
+    private final AtomicLong maxGapMs = new AtomicLong();
+
+    /**
+     * @param audioTrackCache  the cache checked for tracks already loaded for a different playable
+     * @param audioTrackLoader the loader used to load the lavaplayer tracks
+     * @param lookahead        the number of upcoming queue items to resolve, prefetching is disabled if 0
+     */
+    public TrackPrefetcher(AudioTrackCache audioTrackCache, AudioTrackLoader audioTrackLoader, int lookahead) {
+        this.audioTrackCache = audioTrackCache;
+        this.audioTrackLoader = audioTrackLoader;
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Submit the next items of the queue for prefetching if they are neither cached nor already being prefetched.
+     */
+    public void prefetch(AudioQueue queue) {
+        if (lookahead <= 0) {
+            return;
+        }
+
+        for (Playable playable : queue.listNext(lookahead)) {
+            prefetch(playable);
+        }
+    }
+
+    public void prefetch(Playable playable) {
+        if (playable.getCached() != null || !inFlight.add(playable)) {
+            return;
+        }
+
+        submittedCount.incrementAndGet();
+        // start resolving redirects right away using the EagerFetchQueue
+        playable.fetch();
+        PREFETCH_POOL.execute(() -> {
+            try {
+                String playbackUrl = playable.getPlaybackUrl();
+                if (playable.getCached() != null) {
+                    return;
+                }
+
+                AudioTrack sharedTrack = audioTrackCache.get(playbackUrl);
+                if (sharedTrack != null) {
+                    playable.setCached(sharedTrack);
+                    prefetched.add(playable);
+                    completedCount.incrementAndGet();
+                    return;
+                }
+
+                AudioItem audioItem = audioTrackLoader.loadByIdentifier(playbackUrl);
+                if (audioItem instanceof AudioTrack audioTrack) {
+                    playable.setCached(audioTrack);
+                    prefetched.add(playable);
+                    completedCount.incrementAndGet();
+                } else {
+                    failedCount.incrementAndGet();
+                }
+            } catch (UnavailableResourceException | FriendlyException e) {
+                // the QueueIterator handles unavailable tracks when it reaches them
+                failedCount.incrementAndGet();
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                logger.warn("Exception while prefetching track", e);
+            } finally {
+                inFlight.remove(playable);
+            }
+        });
+    }
+
+    /**
+     * Record that the {@link QueueIterator} is about to play the provided playable.
+     *
+     * @param playable the playable to play
+     * @param cached   whether a cached track was available for the playable
+     */
+    public void recordPlay(Playable playable, boolean cached) {
+        boolean wasPrefetched = prefetched.remove(playable);
+        if (lookahead <= 0) {
+            return;
+        }
+
+        if (cached && wasPrefetched) {
+            hitCount.incrementAndGet();
+        } else if (!cached) {
+            missCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the time between a track ending and the next track starting when the queue was iterated automatically.
+     */
+    public void recordTransitionGap(long gapMs) {
+        transitionCount.incrementAndGet();
+        totalGapMs.addAndGet(gapMs);
+        maxGapMs.accumulateAndGet(gapMs, Math::max);
+    }
+
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the share of played tracks that were loaded by the prefetcher in advance, 0 if nothing was played yet
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    public long getTransitionCount() {
+        return transitionCount.get();
+    }
+
+    public long getAverageGapMs() {
+        long transitions = transitionCount.get();
+        return transitions > 0 ? totalGapMs.get() / transitions : 0;
+    }
+
+    public long getMaxGapMs() {
+        return maxGapMs.get();
+    }
+
+}
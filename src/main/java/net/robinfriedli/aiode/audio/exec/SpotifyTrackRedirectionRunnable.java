@@ -62,7 +62,11 @@ public class SpotifyTrackRedirectionRunnable implements TrackLoadingRunnable<Spo
         if (!tracksToRedirect.isEmpty()) {
             StaticSessionProvider.consumeSession((CheckedConsumer<Session>) session -> {
                 spotifyRedirectService = new SpotifyRedirectService(filebrokerApi, session, youTubeService);
-                loadItems();
+                try {
+                    spotifyRedirectService.redirectTracks(List.copyOf(tracksToRedirect));
+                } catch (InterruptedException e) {
+                    handleCancellation();
+                }
             });
         }
     }
@@ -0,0 +1,422 @@
+package net.robinfriedli.aiode.audio.spotify;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.spotify.SpotifyTrackBulkLoadingService.SpotifyItem;
+import net.robinfriedli.aiode.boot.ShutdownableExecutorService;
+import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
+import net.robinfriedli.aiode.concurrent.WriteBehindBuffer;
+import net.robinfriedli.aiode.entities.SpotifyItemSnapshot;
+import net.robinfriedli.aiode.exceptions.handler.handlers.LoggingUncaughtExceptionHandler;
+import net.robinfriedli.aiode.function.SpotifyInvoker;
+import net.robinfriedli.aiode.function.modes.SpotifyAuthorizationMode;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.stereotype.Component;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.enums.ModelObjectType;
+import se.michaelthelin.spotify.model_objects.specification.AlbumSimplified;
+import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
+import se.michaelthelin.spotify.model_objects.specification.Episode;
+import se.michaelthelin.spotify.model_objects.specification.ExternalUrl;
+import se.michaelthelin.spotify.model_objects.specification.Image;
+import se.michaelthelin.spotify.model_objects.specification.ShowSimplified;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+
+/**
+ * Resolves Spotify items to {@link SpotifyTrack} instances using the persisted {@link SpotifyItemSnapshot}s so that
+ * playing, exporting or uploading a saved playlist does not require loading each item from the Spotify API again. Items
+ * without snapshot are loaded from the Spotify API and snapshotted through a {@link WriteBehindBuffer}. Snapshots that
+ * have not been updated within the freshness period are still used but refreshed in the background.
+ * <p>
+ * Snapshots only hold the metadata used by this application: the name, duration, explicitness, artists and album of
+ * tracks and the show of episodes as well as the cover image, the preview url used for previews and playback, whether
+ * the item is playable and the popularity of tracks.
+ */
+@Component
+public class SpotifyItemSnapshotService {
+
+    private static final Duration FRESHNESS = Duration.ofDays(14);
+    private static final int BUFFER_CAPACITY = 10000;
+    private static final int WRITE_BATCH_SIZE = 500;
+    // the number of ids queried at once, keeping the number of bind parameters per query well below the limit of the driver
+    private static final int QUERY_BATCH_SIZE = 1000;
+    // the number of batches of missing items loaded from the Spotify API at the same time
+    private static final int MAX_CONCURRENT_LOADING_REQUESTS = 4;
+
+    private static final Comparator<SpotifyTrack> SNAPSHOT_ORDER = Comparator
+        .comparing(SpotifyTrack::getKind)
+        .thenComparing(SpotifyTrack::getId);
+
+    private final HibernateComponent hibernateComponent;
+    private final SpotifyApi.Builder spotifyApiBuilder;
+    private final WriteBehindBuffer<SpotifyTrack> snapshotBuffer;
+    private final ExecutorService refreshExecutor;
+    private final Logger logger;
+
+    // items that are currently being refreshed, so that playing a playlist repeatedly does not refresh its items repeatedly
+    private final Set<SpotifyItem> refreshingItems = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    public SpotifyItemSnapshotService(HibernateComponent hibernateComponent, SpotifyApi.Builder spotifyApiBuilder) {
+        this.hibernateComponent = hibernateComponent;
+        this.spotifyApiBuilder = spotifyApiBuilder;
+        snapshotBuffer = new WriteBehindBuffer<>(
+            "spotify-item-snapshot",
+            BUFFER_CAPACITY,
+            WRITE_BATCH_SIZE,
+            Duration.ofSeconds(2),
+            this::persistSnapshots
+        );
+        refreshExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual()
+                .name("spotify-snapshot-refresh-thread-", 1)
+                .uncaughtExceptionHandler(new LoggingUncaughtExceptionHandler())
+                .factory()
+        );
+        Aiode.SHUTDOWNABLES.add(new ShutdownableExecutorService(refreshExecutor));
+        logger = LoggerFactory.getLogger(getClass());
+    }
+
+    /**
+     * Resolve the provided Spotify items to Spotify tracks, using the persisted snapshots where available. Items without
+     * snapshot are loaded from the Spotify API, so this method has to be invoked with Spotify credentials unless all items
+     * have been snapshotted, see {@link SpotifyAuthorizationMode}.
+     *
+     * @return the resolved tracks mapped by item, items that could not be found are absent
+     */
+    public Map<SpotifyItem, SpotifyTrack> getTracks(SpotifyApi spotifyApi, Collection<SpotifyItem> items) {
+        Set<SpotifyItem> distinctItems = new LinkedHashSet<>(items);
+        Map<SpotifyItem, SpotifyTrack> tracks = new HashMap<>();
+        List<SpotifyItem> staleItems = new ArrayList<>();
+        querySnapshots(distinctItems, tracks, staleItems);
+        hitCount.addAndGet(tracks.size());
+
+        SpotifyTrackBulkLoadingService service = new SpotifyTrackBulkLoadingService(spotifyApi);
+        service.setMaxInFlight(MAX_CONCURRENT_LOADING_REQUESTS);
+        for (SpotifyItem item : distinctItems) {
+            if (!tracks.containsKey(item)) {
+                missCount.incrementAndGet();
+                service.add(item, track -> {
+                    tracks.put(item, track);
+                    snapshotBuffer.offer(track);
+                });
+            }
+        }
+        service.perform();
+
+        refreshInBackground(staleItems);
+        return tracks;
+    }
+
+    public WriteBehindBuffer<SpotifyTrack> getSnapshotBuffer() {
+        return snapshotBuffer;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    private void querySnapshots(Set<SpotifyItem> items, Map<SpotifyItem, SpotifyTrack> tracks, List<SpotifyItem> staleItems) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime staleBefore = LocalDateTime.now().minus(FRESHNESS);
+        List<String> ids = items.stream().map(SpotifyItem::getId).distinct().toList();
+        hibernateComponent.consumeSession(session -> {
+            for (List<String> idBatch : Lists.partition(ids, QUERY_BATCH_SIZE)) {
+                List<SpotifyItemSnapshot> snapshots = session
+                    .createQuery("select s from SpotifyItemSnapshot s join fetch s.spotifyItemKind where s.spotifyId in (:ids)", SpotifyItemSnapshot.class)
+                    .setParameterList("ids", idBatch)
+                    .setReadOnly(true)
+                    .getResultList();
+
+                for (SpotifyItemSnapshot snapshot : snapshots) {
+                    // do not keep the snapshots in the persistence context of the session, which may be the session of the command
+                    session.detach(snapshot);
+                    SpotifyItem item = new SpotifyItem(snapshot.getSpotifyId(), snapshot.getSpotifyItemKind().asEnum());
+                    if (items.contains(item)) {
+                        tracks.put(item, toSpotifyTrack(snapshot, item.getKind()));
+                        if (snapshot.getLastUpdated().isBefore(staleBefore)) {
+                            staleItems.add(item);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void refreshInBackground(List<SpotifyItem> staleItems) {
+        List<SpotifyItem> itemsToRefresh = staleItems.stream().filter(refreshingItems::add).toList();
+        if (itemsToRefresh.isEmpty()) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(itemsToRefresh);
+                } finally {
+                    itemsToRefresh.forEach(refreshingItems::remove);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            itemsToRefresh.forEach(refreshingItems::remove);
+        }
+    }
+
+    private void refresh(List<SpotifyItem> items) {
+        SpotifyApi spotifyApi = spotifyApiBuilder.build();
+        SpotifyTrackBulkLoadingService service = new SpotifyTrackBulkLoadingService(spotifyApi, true);
+        Map<SpotifyTrackKind, List<String>> removedIds = new TreeMap<>();
+        for (SpotifyItem item : items) {
+            service.add(item, track -> {
+                if (track != null) {
+                    snapshotBuffer.offer(track);
+                    refreshCount.incrementAndGet();
+                } else {
+                    removedIds.computeIfAbsent(item.getKind(), kind -> new ArrayList<>()).add(item.getId());
+                }
+            });
+        }
+
+        try {
+            SpotifyInvoker.create(spotifyApi).invokeFunction(api -> {
+                service.perform();
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn(String.format("Could not refresh %d Spotify item snapshots", items.size()), e);
+            return;
+        }
+
+        if (!removedIds.isEmpty()) {
+            hibernateComponent.consumeSession(session -> {
+                for (Map.Entry<SpotifyTrackKind, List<String>> entry : removedIds.entrySet()) {
+                    session.createNativeMutationQuery("delete from spotify_item_snapshot where spotify_id in (:ids) " +
+                            "and fk_spotify_item_kind = (select pk from spotify_item_kind where unique_id = :kind)")
+                        .setParameterList("ids", entry.getValue())
+                        .setParameter("kind", entry.getKey().name())
+                        .executeUpdate();
+                }
+            });
+        }
+    }
+
+    private void persistSnapshots(List<SpotifyTrack> tracks) {
+        // the same item may have been offered several times, e.g. when playing the same playlist in several guilds
+        Map<SpotifyTrack, SpotifyTrack> distinctTracks = new TreeMap<>(SNAPSHOT_ORDER);
+        for (SpotifyTrack track : tracks) {
+            if (track.getId() != null && track.getName() != null) {
+                distinctTracks.put(track, track);
+            }
+        }
+
+        if (distinctTracks.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        hibernateComponent.consumeSession(session -> session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("insert into spotify_item_snapshot" +
+                "(spotify_id, fk_spotify_item_kind, name, duration_ms, explicit, artists, album_id, album_name, show_id, show_name, image_url, preview_url, is_playable, popularity, last_updated) " +
+                "values(?, (select pk from spotify_item_kind where unique_id = ?), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "on conflict (spotify_id, fk_spotify_item_kind) do update set name = excluded.name, duration_ms = excluded.duration_ms, " +
+                "explicit = excluded.explicit, artists = excluded.artists, album_id = excluded.album_id, album_name = excluded.album_name, " +
+                "show_id = excluded.show_id, show_name = excluded.show_name, image_url = excluded.image_url, preview_url = excluded.preview_url, " +
+                "is_playable = excluded.is_playable, popularity = excluded.popularity, last_updated = excluded.last_updated")) {
+                for (SpotifyTrack track : distinctTracks.values()) {
+                    SpotifyItemSnapshot snapshot = createSnapshot(track);
+                    statement.setString(1, snapshot.getSpotifyId());
+                    statement.setString(2, track.getKind().name());
+                    statement.setString(3, snapshot.getName());
+                    Integer durationMs = snapshot.getDurationMs();
+                    if (durationMs != null) {
+                        statement.setInt(4, durationMs);
+                    } else {
+                        statement.setNull(4, Types.INTEGER);
+                    }
+                    Boolean explicit = snapshot.getExplicit();
+                    if (explicit != null) {
+                        statement.setBoolean(5, explicit);
+                    } else {
+                        statement.setNull(5, Types.BOOLEAN);
+                    }
+                    statement.setString(6, snapshot.getArtists());
+                    statement.setString(7, snapshot.getAlbumId());
+                    statement.setString(8, snapshot.getAlbumName());
+                    statement.setString(9, snapshot.getShowId());
+                    statement.setString(10, snapshot.getShowName());
+                    statement.setString(11, snapshot.getImageUrl());
+                    statement.setString(12, snapshot.getPreviewUrl());
+                    Boolean isPlayable = snapshot.getIsPlayable();
+                    if (isPlayable != null) {
+                        statement.setBoolean(13, isPlayable);
+                    } else {
+                        statement.setNull(13, Types.BOOLEAN);
+                    }
+                    Integer popularity = snapshot.getPopularity();
+                    if (popularity != null) {
+                        statement.setInt(14, popularity);
+                    } else {
+                        statement.setNull(14, Types.INTEGER);
+                    }
+                    statement.setTimestamp(15, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }));
+    }
+
+    /**
+     * Create a transient snapshot holding the fields of the provided track that are persisted, the kind and last update
+     * are set by the upsert.
+     */
+    static SpotifyItemSnapshot createSnapshot(SpotifyTrack track) {
+        SpotifyItemSnapshot snapshot = new SpotifyItemSnapshot();
+        snapshot.setSpotifyId(track.getId());
+        snapshot.setName(track.getName());
+        snapshot.setDurationMs(track.getDurationMs());
+        snapshot.setExplicit(track.getIsExplicit());
+        Track spotifyTrack = track.tryCast(Track.class);
+        if (spotifyTrack != null) {
+            AlbumSimplified album = spotifyTrack.getAlbum();
+            snapshot.setArtists(serializeArtists(spotifyTrack.getArtists()));
+            snapshot.setAlbumId(album != null ? album.getId() : null);
+            snapshot.setAlbumName(album != null ? album.getName() : null);
+            snapshot.setPopularity(spotifyTrack.getPopularity());
+        }
+        Episode episode = track.tryCast(Episode.class);
+        ShowSimplified show = episode != null ? episode.getShow() : null;
+        if (show != null) {
+            snapshot.setShowId(show.getId());
+            snapshot.setShowName(show.getName());
+        }
+        snapshot.setImageUrl(track.getAlbumCoverUrl());
+        snapshot.setPreviewUrl(track.getPreviewUrl());
+        snapshot.setIsPlayable(track.getIsPlayable());
+        return snapshot;
+    }
+
+    static String serializeArtists(ArtistSimplified[] artists) {
+        JSONArray jsonArray = new JSONArray();
+        if (artists != null) {
+            for (ArtistSimplified artist : artists) {
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("id", artist.getId());
+                jsonObject.put("name", artist.getName());
+                jsonArray.put(jsonObject);
+            }
+        }
+        return jsonArray.toString();
+    }
+
+    static ArtistSimplified[] deserializeArtists(String artists) {
+        if (artists == null) {
+            return new ArtistSimplified[0];
+        }
+
+        JSONArray jsonArray = new JSONArray(artists);
+        ArtistSimplified[] result = new ArtistSimplified[jsonArray.length()];
+        for (int i = 0; i < jsonArray.length(); i++) {
+            JSONObject jsonObject = jsonArray.getJSONObject(i);
+            result[i] = new ArtistSimplified.Builder()
+                .setId(jsonObject.optString("id", null))
+                .setName(jsonObject.optString("name", null))
+                .setType(ModelObjectType.ARTIST)
+                .build();
+        }
+        return result;
+    }
+
+    static SpotifyTrack toSpotifyTrack(SpotifyItemSnapshot snapshot, SpotifyTrackKind kind) {
+        String id = snapshot.getSpotifyId();
+        Image[] images = snapshot.getImageUrl() != null
+            ? new Image[]{new Image.Builder().setUrl(snapshot.getImageUrl()).build()}
+            : new Image[0];
+
+        if (kind == SpotifyTrackKind.EPISODE) {
+            return SpotifyTrack.wrap(new Episode.Builder()
+                .setId(id)
+                .setName(snapshot.getName())
+                .setDurationMs(snapshot.getDurationMs())
+                .setExplicit(snapshot.getExplicit())
+                .setAudioPreviewUrl(snapshot.getPreviewUrl())
+                .setPlayable(snapshot.getIsPlayable())
+                .setImages(images)
+                .setShow(new ShowSimplified.Builder()
+                    .setId(snapshot.getShowId())
+                    .setName(snapshot.getShowName())
+                    .build())
+                .setType(ModelObjectType.EPISODE)
+                .setUri("spotify:episode:" + id)
+                .setHref("https://api.spotify.com/v1/episodes/" + id)
+                .setExternalUrls(createExternalUrl("episode", id))
+                .build());
+        }
+
+        return SpotifyTrack.wrap(new Track.Builder()
+            .setId(id)
+            .setName(snapshot.getName())
+            .setDurationMs(snapshot.getDurationMs())
+            .setExplicit(snapshot.getExplicit())
+            .setPreviewUrl(snapshot.getPreviewUrl())
+            .setIsPlayable(snapshot.getIsPlayable())
+            .setPopularity(snapshot.getPopularity())
+            .setArtists(deserializeArtists(snapshot.getArtists()))
+            .setAlbum(new AlbumSimplified.Builder()
+                .setId(snapshot.getAlbumId())
+                .setName(snapshot.getAlbumName())
+                .setImages(images)
+                .build())
+            .setType(ModelObjectType.TRACK)
+            .setUri("spotify:track:" + id)
+            .setHref("https://api.spotify.com/v1/tracks/" + id)
+            .setExternalUrls(createExternalUrl("track", id))
+            .build());
+    }
+
+    private static ExternalUrl createExternalUrl(String type, String id) {
+        return new ExternalUrl.Builder()
+            .setExternalUrls(Map.of("spotify", String.format("https://open.spotify.com/%s/%s", type, id)))
+            .build();
+    }
+
+}
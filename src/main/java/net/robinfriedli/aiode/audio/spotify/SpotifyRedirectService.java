@@ -4,17 +4,25 @@ import java.io.IOException;
 import java.rmi.RemoteException;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 import javax.annotation.Nullable;
@@ -24,6 +32,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.commons.text.similarity.LevenshteinDistance;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.sedmelluq.discord.lavaplayer.track.AudioItem;
 import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
@@ -34,14 +43,15 @@ import net.robinfriedli.aiode.audio.youtube.HollowYouTubeVideo;
 import net.robinfriedli.aiode.audio.youtube.YouTubeService;
 import net.robinfriedli.aiode.audio.youtube.YouTubeVideo;
 import net.robinfriedli.aiode.boot.ShutdownableExecutorService;
+import net.robinfriedli.aiode.concurrent.ForkTaskThreadPool;
 import net.robinfriedli.aiode.concurrent.LoggingThreadFactory;
 import net.robinfriedli.aiode.entities.SpotifyRedirectIndex;
 import net.robinfriedli.aiode.entities.SpotifyRedirectIndexModificationLock;
 import net.robinfriedli.aiode.exceptions.UnavailableResourceException;
 import net.robinfriedli.aiode.filebroker.FilebrokerPlayableWrapper;
-import net.robinfriedli.aiode.function.HibernateInvoker;
 import net.robinfriedli.aiode.persist.StaticSessionProvider;
 import net.robinfriedli.filebroker.FilebrokerApi;
+import net.robinfriedli.threadpool.ThreadPool;
 import org.hibernate.Session;
 import se.michaelthelin.spotify.model_objects.specification.AlbumSimplified;
 import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
@@ -52,58 +62,150 @@ import static net.robinfriedli.aiode.entities.SpotifyRedirectIndex.*;
 /**
  * Service that aids loading the corresponding YouTube video for a Spotify track since Spotify does not allow playback
  * of full tracks via its api. Checks if there is a persisted {@link SpotifyRedirectIndex} or loads the YouTube video
- * via {@link YouTubeService#redirectSpotify(HollowYouTubeVideo)} if not.
+ * via {@link YouTubeService#redirectSpotify(HollowYouTubeVideo)} if not. Several tracks, e.g. of a Spotify playlist,
+ * should be redirected using {@link #redirectTracks(List)}, which loads and writes the indices in batches and redirects
+ * tracks concurrently.
  */
 public class SpotifyRedirectService {
 
+    // number of tracks of which the indices are loaded and written together when redirecting several tracks
+    private static final int BATCH_SIZE = 100;
     private static final ExecutorService SINGE_THREAD_EXECUTOR_SERVICE = Executors.newSingleThreadExecutor(new LoggingThreadFactory("spotify-redirect-service-pool"));
+    // bounds the number of tracks redirected concurrently by all batches
+    private static final ForkTaskThreadPool REDIRECT_POOL = new ForkTaskThreadPool(
+        ThreadPool.Builder.create()
+            .setCoreSize(3)
+            .setMaxSize(10)
+            .setKeepAlive(1L, TimeUnit.MINUTES)
+            .setThreadFactory(new LoggingThreadFactory("spotify-redirect-batch-pool")).build()
+    );
+
+    private static final PipelineStage INDEX_LOOKUP_STAGE = new PipelineStage();
+    private static final PipelineStage RESOLUTION_STAGE = new PipelineStage();
+    private static final PipelineStage PERSIST_STAGE = new PipelineStage();
 
     static {
         Aiode.SHUTDOWNABLES.add(new ShutdownableExecutorService(SINGE_THREAD_EXECUTOR_SERVICE));
+        Aiode.SHUTDOWNABLES.add(new ShutdownableExecutorService(REDIRECT_POOL));
     }
 
     private final FilebrokerApi filebrokerApi;
-    private final HibernateInvoker invoker;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Session session;
     private final YouTubeService youTubeService;
 
     public SpotifyRedirectService(FilebrokerApi filebrokerApi, Session session, YouTubeService youTubeService) {
         this.filebrokerApi = filebrokerApi;
-        invoker = HibernateInvoker.create();
         this.session = session;
         this.youTubeService = youTubeService;
     }
 
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
     public void redirectTrack(SpotifyTrackRedirect spotifyTrackRedirect) throws IOException {
+        if (spotifyTrackRedirect.isDone()) {
+            return;
+        }
+
+        redirectTrack(spotifyTrackRedirect, queryIndex(spotifyTrackRedirect.getSpotifyTrack().getId()), new ImmediateIndexWriter());
+    }
+
+    /**
+     * Redirect several tracks in batches of {@link #BATCH_SIZE}. The existing {@link SpotifyRedirectIndex} entities for
+     * each batch are loaded with a single query, the tracks of the batch are then redirected concurrently using the
+     * bounded {@link #REDIRECT_POOL} and the indices created or updated for the batch are written in a single
+     * transaction. Returns when all tracks have been redirected. Failing to redirect a track does not affect the other
+     * tracks.
+     *
+     * @throws InterruptedException if the current thread is interrupted, the remaining tracks are not redirected
+     */
+    public void redirectTracks(List<SpotifyTrackRedirect> spotifyTrackRedirects) throws InterruptedException {
+        for (List<SpotifyTrackRedirect> batch : Lists.partition(spotifyTrackRedirects, BATCH_SIZE)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            List<SpotifyTrackRedirect> pendingRedirects = batch.stream().filter(redirect -> !redirect.isDone()).toList();
+            if (pendingRedirects.isEmpty()) {
+                continue;
+            }
+
+            long lookupStart = System.nanoTime();
+            Map<String, SpotifyRedirectIndex> indices = queryExistingIndices(
+                session,
+                pendingRedirects.stream().map(redirect -> redirect.getSpotifyTrack().getId()).toList()
+            );
+            INDEX_LOOKUP_STAGE.record(pendingRedirects.size(), System.nanoTime() - lookupStart);
+
+            BatchIndexWriter indexWriter = new BatchIndexWriter();
+            List<Future<?>> futures = new ArrayList<>(pendingRedirects.size());
+            Queue<CompletableFuture<Void>> completions = new ConcurrentLinkedQueue<>();
+            try {
+                for (SpotifyTrackRedirect redirect : pendingRedirects) {
+                    futures.add(REDIRECT_POOL.submit(() -> {
+                        long start = System.nanoTime();
+                        String spotifyTrackId = redirect.getSpotifyTrack().getId();
+                        try {
+                            completions.add(redirectTrack(redirect, Optional.ofNullable(spotifyTrackId).map(indices::get), indexWriter)
+                                .exceptionally(e -> {
+                                    logger.error("Exception while completing redirect of spotify track " + spotifyTrackId, e);
+                                    return null;
+                                }));
+                        } catch (Exception e) {
+                            logger.error("Exception while redirecting spotify track " + spotifyTrackId, e);
+                        } finally {
+                            RESOLUTION_STAGE.record(1, System.nanoTime() - start);
+                        }
+                    }));
+                }
+
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                // redirects waiting for a SoundCloud search are completed by the search, wait for them to write their indices
+                CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new)).get();
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e;
+            } catch (ExecutionException e) {
+                // exceptions are handled by the task
+                throw new RuntimeException(e);
+            } finally {
+                indexWriter.flush();
+            }
+        }
+    }
+
+    /**
+     * Redirect the track to the first match of a persisted or found filebroker post, a YouTube video or a SoundCloud
+     * track. The SoundCloud search is started before redirecting to YouTube and completes the redirect without blocking
+     * the current thread.
+     *
+     * @return a future that is completed once the redirect is complete and the index changes have been passed to the
+     * {@link IndexWriter}
+     */
+    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    private CompletableFuture<Void> redirectTrack(SpotifyTrackRedirect spotifyTrackRedirect, Optional<SpotifyRedirectIndex> persistedSpotifyRedirectIndex, IndexWriter indexWriter) throws IOException {
         synchronized (spotifyTrackRedirect) {
             if (spotifyTrackRedirect.isDone()) {
-                return;
+                return CompletableFuture.completedFuture(null);
             }
 
+            CompletableFuture<Void> soundCloudCompletion = null;
             try {
                 spotifyTrackRedirect.markLoading();
                 SpotifyTrack spotifyTrack = spotifyTrackRedirect.getSpotifyTrack();
                 String spotifyTrackId = spotifyTrack.getId();
-                Optional<SpotifyRedirectIndex> persistedSpotifyRedirectIndex;
-                if (!Strings.isNullOrEmpty(spotifyTrackId)) {
-                    persistedSpotifyRedirectIndex = queryExistingIndex(session, spotifyTrackId);
-                } else {
-                    persistedSpotifyRedirectIndex = Optional.empty();
-                }
 
                 if (persistedSpotifyRedirectIndex.isPresent() && persistedSpotifyRedirectIndex.get().getFileBrokerPk() != null) {
                     Long fileBrokerPk = persistedSpotifyRedirectIndex.get().getFileBrokerPk();
                     try {
                         FilebrokerApi.PostDetailed post = filebrokerApi.getPostAsync(fileBrokerPk, null, null).get(10, TimeUnit.SECONDS);
                         spotifyTrackRedirect.complete(new FilebrokerPlayableWrapper(new FilebrokerApi.Post(post)));
-                        runUpdateTask(spotifyTrackId, (index, session) -> index.setLastUsed(LocalDate.now()));
-                        return;
+                        indexWriter.update(spotifyTrackId, (index, session) -> index.setLastUsed(LocalDate.now()));
+                        return CompletableFuture.completedFuture(null);
                     } catch (ExecutionException e) {
                         if (e.getCause() instanceof FilebrokerApi.InvalidHttpResponseException filebrokerApiException && filebrokerApiException.getStatus() == 403) {
                             logger.warn("Filebroker post for redirected spotify track {} has become unavailable", spotifyTrackId);
-                            runUpdateTask(spotifyTrackId, (track, session) -> track.setFileBrokerPk(null));
+                            indexWriter.update(spotifyTrackId, (track, session) -> track.setFileBrokerPk(null));
                         } else {
                             logger.error("Failed to load filebroker post for redirected spotify track " + spotifyTrackId, e);
                         }
@@ -112,92 +214,69 @@ public class SpotifyRedirectService {
 
                 FilebrokerApi.Post post = findFilebrokerPostForSpotifyTrack(spotifyTrack);
                 if (post == null) {
-                    AudioTrack soundCloudTrack = null;
-                    if (persistedSpotifyRedirectIndex.isPresent() && !Strings.isNullOrEmpty(persistedSpotifyRedirectIndex.get().getSoundCloudUri())) {
-                        try {
-                            AudioTrackLoader audioTrackLoader = new AudioTrackLoader(Aiode.get().getAudioManager().getPlayerManager());
-                            soundCloudTrack = (AudioTrack) audioTrackLoader.loadByIdentifier(persistedSpotifyRedirectIndex.get().getSoundCloudUri());
-                        } catch (Exception e) {
-                            logger.error("Failed to load soundcloud track with uri {} for track {}", persistedSpotifyRedirectIndex.get().getSoundCloudUri(), spotifyTrackId, e);
-                        }
-                    }
-                    if (soundCloudTrack == null) {
-                        // if the index already exists, only try to find a soundcloud track again if the last time the index was updated was before soundcloud search was implemented
-                        if (persistedSpotifyRedirectIndex.isEmpty() || persistedSpotifyRedirectIndex.get().getLastUpdated().isBefore(LocalDate.of(2024, Month.SEPTEMBER, 7))) {
-                            soundCloudTrack = findSoundCloudTrackForSpotifyTrack(spotifyTrack);
-                        }
-                    }
-                    redirectTrackToYouTube(spotifyTrackRedirect.getYouTubeVideo());
-                    if (soundCloudTrack == null) {
-                        spotifyTrackRedirect.complete(null);
-                    } else {
-                        String soundCloudUri = soundCloudTrack.getInfo().uri;
-                        if (persistedSpotifyRedirectIndex.isPresent()) {
-                            runUpdateTask(spotifyTrackId, (index, session) -> {
-                                LocalDate now = LocalDate.now();
-                                index.setLastUsed(now);
-                                index.setLastUpdated(now);
-                                index.setSoundCloudUri(soundCloudUri);
-                            });
-                        } else {
-                            SINGE_THREAD_EXECUTOR_SERVICE.execute(() -> StaticSessionProvider.consumeSession(otherThreadSession -> {
-                                try {
-                                    SpotifyRedirectIndex spotifyRedirectIndex = new SpotifyRedirectIndex(spotifyTrack.getId(), null, null, soundCloudUri, spotifyTrack.getKind(), otherThreadSession);
-                                    // check again if the index was not created by other thread
-                                    Optional<SpotifyRedirectIndex> createdIndex = queryExistingIndex(otherThreadSession, spotifyTrackId);
-                                    if (createdIndex.isEmpty()) {
-                                        invoker.invoke(() -> otherThreadSession.persist(spotifyRedirectIndex));
-                                    } else {
-                                        runUpdateTask(spotifyTrackId, (index, session) -> {
-                                            LocalDate now = LocalDate.now();
-                                            index.setLastUsed(now);
-                                            index.setLastUpdated(now);
-                                            index.setSoundCloudUri(soundCloudUri);
-                                        });
-                                    }
-                                } catch (Exception e) {
-                                    logger.error("Exception while creating SpotifyRedirectIndex", e);
-                                }
-                            }));
-                        }
-                        UrlPlayable soundCloudPlayable = new UrlPlayable(soundCloudTrack);
-                        spotifyTrackRedirect.complete(soundCloudPlayable);
-                    }
-                    return;
+                    // resolve the SoundCloud track while redirecting to YouTube
+                    CompletableFuture<AudioTrack> futureSoundCloudTrack = loadSoundCloudTrack(spotifyTrack, persistedSpotifyRedirectIndex);
+                    redirectTrackToYouTube(spotifyTrackRedirect.getYouTubeVideo(), persistedSpotifyRedirectIndex, indexWriter);
+                    soundCloudCompletion = futureSoundCloudTrack.thenAccept(soundCloudTrack ->
+                        completeSoundCloudRedirect(spotifyTrackRedirect, soundCloudTrack, persistedSpotifyRedirectIndex, indexWriter)
+                    );
+                    return soundCloudCompletion;
                 }
 
                 if (persistedSpotifyRedirectIndex.isPresent()) {
-                    runUpdateTask(spotifyTrackId, (index, session) -> {
+                    indexWriter.update(spotifyTrackId, (index, session) -> {
                         LocalDate now = LocalDate.now();
                         index.setLastUsed(now);
                         index.setLastUpdated(now);
                         index.setFileBrokerPk(post.getPk());
                     });
                 } else {
-                    SINGE_THREAD_EXECUTOR_SERVICE.execute(() -> StaticSessionProvider.consumeSession(otherThreadSession -> {
-                        try {
-                            SpotifyRedirectIndex spotifyRedirectIndex = new SpotifyRedirectIndex(spotifyTrack.getId(), null, post.getPk(), null, spotifyTrack.getKind(), otherThreadSession);
-                            // check again if the index was not created by other thread
-                            if (queryExistingIndex(otherThreadSession, spotifyTrackId).isEmpty()) {
-                                invoker.invoke(() -> otherThreadSession.persist(spotifyRedirectIndex));
-                            }
-                        } catch (Exception e) {
-                            logger.error("Exception while creating SpotifyRedirectIndex", e);
-                        }
-                    }));
+                    indexWriter.create(new IndexCreation(spotifyTrack, null, post.getPk(), null));
                 }
 
                 spotifyTrackRedirect.complete(new FilebrokerPlayableWrapper(post));
+                return CompletableFuture.completedFuture(null);
             } catch (InterruptedException | TimeoutException e) {
                 throw new RemoteException("Failed to load track redirect for spotify track " + spotifyTrackRedirect.getSpotifyTrack().getId(), e);
             } finally {
-                if (!spotifyTrackRedirect.isDone()) {
+                // a pending SoundCloud search completes the redirect itself
+                if (soundCloudCompletion == null && !spotifyTrackRedirect.isDone()) {
                     spotifyTrackRedirect.complete(null);
                 }
             }
         }
     }
 
+    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    private void completeSoundCloudRedirect(
+        SpotifyTrackRedirect spotifyTrackRedirect,
+        @Nullable AudioTrack soundCloudTrack,
+        Optional<SpotifyRedirectIndex> persistedSpotifyRedirectIndex,
+        IndexWriter indexWriter
+    ) {
+        synchronized (spotifyTrackRedirect) {
+            if (soundCloudTrack == null) {
+                spotifyTrackRedirect.complete(null);
+                return;
+            }
+
+            spotifyTrackRedirect.complete(new UrlPlayable(soundCloudTrack));
+        }
+
+        SpotifyTrack spotifyTrack = spotifyTrackRedirect.getSpotifyTrack();
+        String soundCloudUri = soundCloudTrack.getInfo().uri;
+        if (persistedSpotifyRedirectIndex.isPresent()) {
+            indexWriter.update(spotifyTrack.getId(), (index, session) -> {
+                LocalDate now = LocalDate.now();
+                index.setLastUsed(now);
+                index.setLastUpdated(now);
+                index.setSoundCloudUri(soundCloudUri);
+            });
+        } else {
+            indexWriter.create(new IndexCreation(spotifyTrack, null, null, soundCloudUri));
+        }
+    }
+
     @Nullable
     public FilebrokerApi.Post findFilebrokerPostForSpotifyTrack(SpotifyTrack spotifyTrack) throws InterruptedException, TimeoutException {
         StringBuilder filebrokerQueryBuilder = new StringBuilder("(@type ~= \"audio\" OR @type ~= \"video\" OR music)");
@@ -265,11 +344,13 @@ public class SpotifyRedirectService {
         return postsByLevenshteinDistance.get(bestScore);
     }
 
-    @Nullable
-    public AudioTrack findSoundCloudTrackForSpotifyTrack(SpotifyTrack spotifyTrack) {
+    /**
+     * Search SoundCloud for the provided Spotify track without blocking the current thread.
+     *
+     * @return a future completed with the best matching SoundCloud track or null if no track matched
+     */
+    public CompletableFuture<AudioTrack> findSoundCloudTrackForSpotifyTrack(SpotifyTrack spotifyTrack) {
         String trackName = spotifyTrack.getName();
-        String trackNameWithParenthesisRemoved = trackName.replaceAll("\\(.*\\)|\\[.*]", "").trim().replaceAll("\\s+", " ").toLowerCase();
-        String trackNameWithHyphenRemoved = trackName.split("-")[0].trim().toLowerCase();
         String[] artists = spotifyTrack.exhaustiveMatch(
             track -> Arrays.stream(track.getArtists()).map(ArtistSimplified::getName).toArray(String[]::new),
             episode -> Optional.ofNullable(episode.getShow()).map(show -> new String[]{show.getName()}).orElse(new String[0])
@@ -277,11 +358,51 @@ public class SpotifyRedirectService {
         String artist = artists.length > 0 ? artists[0] : "";
 
         if ((Strings.isNullOrEmpty(trackName) || trackName.isBlank())) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
         AudioTrackLoader audioTrackLoader = new AudioTrackLoader(Aiode.get().getAudioManager().getPlayerManager());
-        AudioItem audioItem = audioTrackLoader.loadByIdentifier(String.format("scsearch:%s %s", trackName, artist));
+        return audioTrackLoader.loadAsync(String.format("scsearch:%s %s", trackName, artist))
+            .thenApply(audioItem -> getBestSoundCloudMatch(spotifyTrack, trackName, artists, artist, audioItem));
+    }
+
+    /**
+     * Load the SoundCloud track persisted for the Spotify track or search SoundCloud if there is none and the index has
+     * not been updated since SoundCloud search was implemented. Failures, including the track not being found within 2
+     * minutes, are logged and result in null as the track can still be redirected to YouTube.
+     */
+    private CompletableFuture<AudioTrack> loadSoundCloudTrack(SpotifyTrack spotifyTrack, Optional<SpotifyRedirectIndex> persistedSpotifyRedirectIndex) {
+        CompletableFuture<AudioTrack> persistedSoundCloudTrack;
+        if (persistedSpotifyRedirectIndex.isPresent() && !Strings.isNullOrEmpty(persistedSpotifyRedirectIndex.get().getSoundCloudUri())) {
+            String soundCloudUri = persistedSpotifyRedirectIndex.get().getSoundCloudUri();
+            AudioTrackLoader audioTrackLoader = new AudioTrackLoader(Aiode.get().getAudioManager().getPlayerManager());
+            persistedSoundCloudTrack = audioTrackLoader.loadAsync(soundCloudUri)
+                .thenApply(audioItem -> audioItem instanceof AudioTrack audioTrack ? audioTrack : null)
+                .exceptionally(e -> {
+                    logger.error("Failed to load soundcloud track with uri {} for track {}", soundCloudUri, spotifyTrack.getId(), e);
+                    return null;
+                });
+        } else {
+            persistedSoundCloudTrack = CompletableFuture.completedFuture(null);
+        }
+
+        // if the index already exists, only try to find a soundcloud track again if the last time the index was updated was before soundcloud search was implemented
+        boolean search = persistedSpotifyRedirectIndex.isEmpty() || persistedSpotifyRedirectIndex.get().getLastUpdated().isBefore(LocalDate.of(2024, Month.SEPTEMBER, 7));
+        return persistedSoundCloudTrack
+            .thenCompose(soundCloudTrack -> soundCloudTrack == null && search
+                ? findSoundCloudTrackForSpotifyTrack(spotifyTrack)
+                : CompletableFuture.completedFuture(soundCloudTrack))
+            .orTimeout(2, TimeUnit.MINUTES)
+            .exceptionally(e -> {
+                logger.warn("Failed to search soundcloud track for track {}", spotifyTrack.getId(), e);
+                return null;
+            });
+    }
+
+    @Nullable
+    private AudioTrack getBestSoundCloudMatch(SpotifyTrack spotifyTrack, String trackName, String[] artists, String artist, @Nullable AudioItem audioItem) {
+        String trackNameWithParenthesisRemoved = trackName.replaceAll("\\(.*\\)|\\[.*]", "").trim().replaceAll("\\s+", " ").toLowerCase();
+        String trackNameWithHyphenRemoved = trackName.split("-")[0].trim().toLowerCase();
         if (!(audioItem instanceof AudioPlaylist audioPlaylist)) {
             return null;
         }
@@ -326,14 +447,23 @@ public class SpotifyRedirectService {
             return;
         }
 
+        redirectTrackToYouTube(youTubeVideo, queryIndex(spotifyTrack.getId()), new ImmediateIndexWriter());
+    }
+
+    private void redirectTrackToYouTube(HollowYouTubeVideo youTubeVideo, Optional<SpotifyRedirectIndex> persistedSpotifyRedirectIndex, IndexWriter indexWriter) throws IOException {
+        SpotifyTrack spotifyTrack = youTubeVideo.getRedirectedSpotifyTrack();
+
+        if (spotifyTrack == null) {
+            throw new IllegalArgumentException(youTubeVideo.toString() + " is not a placeholder for a redirected Spotify Track");
+        }
+
+        // early exit to avoid duplicate loading of Playables that have been loaded prioritised by invoking Playable#fetchNow
+        if (youTubeVideo.isDone()) {
+            return;
+        }
+
         youTubeVideo.markLoading();
         String spotifyTrackId = spotifyTrack.getId();
-        Optional<SpotifyRedirectIndex> persistedSpotifyRedirectIndex;
-        if (!Strings.isNullOrEmpty(spotifyTrackId)) {
-            persistedSpotifyRedirectIndex = queryExistingIndex(session, spotifyTrackId);
-        } else {
-            persistedSpotifyRedirectIndex = Optional.empty();
-        }
 
         if (persistedSpotifyRedirectIndex.isPresent() && persistedSpotifyRedirectIndex.get().getYouTubeId() != null) {
             SpotifyRedirectIndex spotifyRedirectIndex = persistedSpotifyRedirectIndex.get();
@@ -349,55 +479,244 @@ public class SpotifyRedirectService {
 
                 youTubeVideo.setTitle(spotifyTrack.getDisplay());
 
-                runUpdateTask(spotifyTrackId, (index, session) -> index.setLastUsed(LocalDate.now()));
+                indexWriter.update(spotifyTrackId, (index, session) -> index.setLastUsed(LocalDate.now()));
                 return;
             } else {
-                runUpdateTask(spotifyTrackId, (index, session) -> session.remove(index));
+                indexWriter.update(spotifyTrackId, (index, session) -> session.remove(index));
             }
         }
 
         youTubeService.redirectSpotify(youTubeVideo);
         if (!youTubeVideo.isCanceled() && !Strings.isNullOrEmpty(spotifyTrack.getId())) {
+            String videoId;
+            try {
+                videoId = youTubeVideo.getVideoId();
+            } catch (UnavailableResourceException e) {
+                logger.warn("Tried creating a SpotifyRedirectIndex for an unavailable Track");
+                return;
+            }
+
             if (persistedSpotifyRedirectIndex.isPresent()) {
-                runUpdateTask(spotifyTrackId, (index, session) -> {
+                indexWriter.update(spotifyTrackId, (index, session) -> {
                     LocalDate now = LocalDate.now();
                     index.setLastUsed(now);
                     index.setLastUpdated(now);
-                    try {
-                        index.setYouTubeId(youTubeVideo.getVideoId());
-                    } catch (UnavailableResourceException e) {
-                        logger.warn("Tried creating a SpotifyRedirectIndex for an unavailable Track");
-                    }
+                    index.setYouTubeId(videoId);
                 });
             } else {
-                SINGE_THREAD_EXECUTOR_SERVICE.execute(() -> StaticSessionProvider.consumeSession(otherThreadSession -> {
-                    try {
-                        String videoId = youTubeVideo.getVideoId();
-                        SpotifyRedirectIndex spotifyRedirectIndex = new SpotifyRedirectIndex(spotifyTrack.getId(), videoId, null, null, spotifyTrack.getKind(), otherThreadSession);
-                        // check again if the index was not created by other thread
-                        if (queryExistingIndex(otherThreadSession, spotifyTrackId).isEmpty()) {
-                            invoker.invoke(() -> otherThreadSession.persist(spotifyRedirectIndex));
-                        }
-                    } catch (UnavailableResourceException e) {
-                        logger.warn("Tried creating a SpotifyRedirectIndex for an unavailable Track");
-                    } catch (Exception e) {
-                        logger.error("Exception while creating SpotifyRedirectIndex", e);
-                    }
-                }));
+                indexWriter.create(new IndexCreation(spotifyTrack, videoId, null, null));
             }
         }
     }
 
+    public static PipelineStage getIndexLookupStage() {
+        return INDEX_LOOKUP_STAGE;
+    }
+
+    public static PipelineStage getResolutionStage() {
+        return RESOLUTION_STAGE;
+    }
+
+    public static PipelineStage getPersistStage() {
+        return PERSIST_STAGE;
+    }
+
+    private Optional<SpotifyRedirectIndex> queryIndex(String spotifyTrackId) {
+        if (!Strings.isNullOrEmpty(spotifyTrackId)) {
+            return queryExistingIndex(session, spotifyTrackId);
+        } else {
+            return Optional.empty();
+        }
+    }
+
     private void runUpdateTask(String spotifyId, BiConsumer<SpotifyRedirectIndex, Session> sessionConsumer) {
         SINGE_THREAD_EXECUTOR_SERVICE.execute(() -> StaticSessionProvider.consumeSession(session -> {
-            Long modificationLocks = session
-                .createQuery("select count(*) from " + SpotifyRedirectIndexModificationLock.class.getName(), Long.class)
-                .uniqueResult();
-            if (modificationLocks == 0) {
+            if (!isModificationLocked(session)) {
                 Optional<SpotifyRedirectIndex> foundIndex = queryExistingIndex(session, spotifyId);
                 foundIndex.ifPresent(spotifyRedirectIndex -> sessionConsumer.accept(spotifyRedirectIndex, session));
             }
         }));
     }
 
+    private static boolean isModificationLocked(Session session) {
+        Long modificationLocks = session
+            .createQuery("select count(*) from " + SpotifyRedirectIndexModificationLock.class.getName(), Long.class)
+            .uniqueResult();
+        return modificationLocks > 0;
+    }
+
+    /**
+     * Create the index described by the provided {@link IndexCreation} unless an index for the track has already been
+     * created by a different thread, in which case that index is updated instead.
+     */
+    private static SpotifyRedirectIndex createOrUpdateIndex(Session session, IndexCreation creation, Optional<SpotifyRedirectIndex> existingIndex) {
+        if (existingIndex.isPresent()) {
+            SpotifyRedirectIndex index = existingIndex.get();
+            LocalDate now = LocalDate.now();
+            index.setLastUsed(now);
+            index.setLastUpdated(now);
+            if (creation.youTubeId() != null) {
+                index.setYouTubeId(creation.youTubeId());
+            }
+            if (creation.fileBrokerPk() != null) {
+                index.setFileBrokerPk(creation.fileBrokerPk());
+            }
+            if (creation.soundCloudUri() != null) {
+                index.setSoundCloudUri(creation.soundCloudUri());
+            }
+            return index;
+        } else {
+            SpotifyTrack spotifyTrack = creation.spotifyTrack();
+            SpotifyRedirectIndex index = new SpotifyRedirectIndex(
+                spotifyTrack.getId(),
+                creation.youTubeId(),
+                creation.fileBrokerPk(),
+                creation.soundCloudUri(),
+                spotifyTrack.getKind(),
+                session
+            );
+            session.persist(index);
+            return index;
+        }
+    }
+
+    /**
+     * Receives the creation and modification of {@link SpotifyRedirectIndex} entities when redirecting tracks.
+     */
+    private interface IndexWriter {
+
+        void create(IndexCreation creation);
+
+        void update(String spotifyId, BiConsumer<SpotifyRedirectIndex, Session> update);
+
+    }
+
+    private record IndexCreation(SpotifyTrack spotifyTrack, @Nullable String youTubeId, @Nullable Long fileBrokerPk, @Nullable String soundCloudUri) {
+    }
+
+    private record IndexUpdate(String spotifyId, BiConsumer<SpotifyRedirectIndex, Session> update) {
+    }
+
+    /**
+     * Writes each change in a separate transaction when redirecting a single track.
+     */
+    private class ImmediateIndexWriter implements IndexWriter {
+
+        @Override
+        public void create(IndexCreation creation) {
+            String spotifyTrackId = creation.spotifyTrack().getId();
+            if (Strings.isNullOrEmpty(spotifyTrackId)) {
+                return;
+            }
+
+            SINGE_THREAD_EXECUTOR_SERVICE.execute(() -> StaticSessionProvider.consumeSession(otherThreadSession -> {
+                long start = System.nanoTime();
+                try {
+                    // check again if the index was not created by other thread
+                    createOrUpdateIndex(otherThreadSession, creation, queryExistingIndex(otherThreadSession, spotifyTrackId));
+                } catch (Exception e) {
+                    logger.error("Exception while creating SpotifyRedirectIndex", e);
+                }
+                PERSIST_STAGE.record(1, System.nanoTime() - start);
+            }));
+        }
+
+        @Override
+        public void update(String spotifyId, BiConsumer<SpotifyRedirectIndex, Session> update) {
+            runUpdateTask(spotifyId, update);
+        }
+    }
+
+    /**
+     * Collects the changes made while redirecting a batch of tracks to write them in a single transaction when flushed.
+     * Thread safe as the tracks of a batch are redirected concurrently.
+     */
+    private class BatchIndexWriter implements IndexWriter {
+
+        private final Queue<IndexCreation> creations = new ConcurrentLinkedQueue<>();
+        private final Queue<IndexUpdate> updates = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void create(IndexCreation creation) {
+            if (!Strings.isNullOrEmpty(creation.spotifyTrack().getId())) {
+                creations.add(creation);
+            }
+        }
+
+        @Override
+        public void update(String spotifyId, BiConsumer<SpotifyRedirectIndex, Session> update) {
+            updates.add(new IndexUpdate(spotifyId, update));
+        }
+
+        void flush() {
+            if (creations.isEmpty() && updates.isEmpty()) {
+                return;
+            }
+
+            List<IndexCreation> creationList = List.copyOf(creations);
+            List<IndexUpdate> updateList = List.copyOf(updates);
+            SINGE_THREAD_EXECUTOR_SERVICE.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    StaticSessionProvider.consumeSession(session -> {
+                        Set<String> spotifyIds = new HashSet<>();
+                        creationList.forEach(creation -> spotifyIds.add(creation.spotifyTrack().getId()));
+                        updateList.forEach(update -> spotifyIds.add(update.spotifyId()));
+                        Map<String, SpotifyRedirectIndex> existingIndices = queryExistingIndices(session, spotifyIds);
+
+                        if (!updateList.isEmpty() && !isModificationLocked(session)) {
+                            for (IndexUpdate update : updateList) {
+                                SpotifyRedirectIndex index = existingIndices.get(update.spotifyId());
+                                if (index != null) {
+                                    update.update().accept(index, session);
+                                }
+                            }
+                        }
+
+                        for (IndexCreation creation : creationList) {
+                            String spotifyTrackId = creation.spotifyTrack().getId();
+                            // remember created indices as the same track may appear several times in a batch
+                            SpotifyRedirectIndex index = createOrUpdateIndex(session, creation, Optional.ofNullable(existingIndices.get(spotifyTrackId)));
+                            existingIndices.put(spotifyTrackId, index);
+                        }
+                    });
+                } catch (Exception e) {
+                    logger.error("Exception while writing SpotifyRedirectIndex batch", e);
+                }
+                PERSIST_STAGE.record(creationList.size() + updateList.size(), System.nanoTime() - start);
+            });
+        }
+    }
+
+    /**
+     * Throughput statistics of a stage of the redirection pipeline since startup.
+     */
+    public static class PipelineStage {
+
+        private final AtomicLong itemCount = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        void record(long items, long nanos) {
+            itemCount.addAndGet(items);
+            totalNanos.addAndGet(nanos);
+        }
+
+        public long getItemCount() {
+            return itemCount.get();
+        }
+
+        public long getTotalMs() {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+        }
+
+        /**
+         * @return the average time spent on one item, stages that handle items concurrently may spend more time than
+         * has passed
+         */
+        public double getAverageMs() {
+            long items = itemCount.get();
+            return items > 0 ? (double) totalNanos.get() / items / 1_000_000 : 0;
+        }
+    }
+
 }
@@ -37,12 +37,7 @@ public class SpotifyTrackBulkLoadingService extends BulkOperationService<Spotify
 
             @Override
             public List<Pair<SpotifyItem, SpotifyTrack>> doApply(List<SpotifyItem> ids) throws Exception {
-                LocalDateTime now = LocalDateTime.now();
-                if (now.compareTo(timeToRefreshCredentials) > 0) {
-                    ClientCredentials credentials = spotifyApi.clientCredentials().build().execute();
-                    spotifyApi.setAccessToken(credentials.getAccessToken());
-                    timeToRefreshCredentials = now.plusMinutes(50);
-                }
+                refreshCredentialsIfExpiring();
 
                 Map<SpotifyTrackKind, List<SpotifyItem>> kindIdMap = ids.stream().collect(Collectors.groupingBy(SpotifyItem::getKind));
                 List<Pair<SpotifyItem, SpotifyTrack>> keyValuePairs = Lists.newArrayList();
@@ -69,6 +64,16 @@ public class SpotifyTrackBulkLoadingService extends BulkOperationService<Spotify
 
                 return keyValuePairs;
             }
+
+            // synchronized as batches may be loaded concurrently, see BulkOperationService#setMaxInFlight
+            private synchronized void refreshCredentialsIfExpiring() throws Exception {
+                LocalDateTime now = LocalDateTime.now();
+                if (now.compareTo(timeToRefreshCredentials) > 0) {
+                    ClientCredentials credentials = spotifyApi.clientCredentials().build().execute();
+                    spotifyApi.setAccessToken(credentials.getAccessToken());
+                    timeToRefreshCredentials = now.plusMinutes(50);
+                }
+            }
         });
     }
 
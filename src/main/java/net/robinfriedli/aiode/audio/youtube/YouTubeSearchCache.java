@@ -0,0 +1,238 @@
+package net.robinfriedli.aiode.audio.youtube;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
+import net.robinfriedli.aiode.concurrent.LoggingThreadFactory;
+import net.robinfriedli.aiode.cron.tasks.DeleteExpiredYouTubeSearchResultsTask;
+import net.robinfriedli.aiode.entities.YouTubeSearchResultIndex;
+import org.hibernate.Session;
+
+/**
+ * Two tier cache for YouTube search results, holding recently used search terms in memory and persisting all results in
+ * the {@link YouTubeSearchResultIndex} table. Results older than the configured time to live are ignored, replaced by
+ * the next search and eventually deleted by the {@link DeleteExpiredYouTubeSearchResultsTask}. Lookups of the
+ * persistent tier are bounded by a query timeout and a limit of concurrent lookups, and terms without a usable persisted
+ * result are remembered for a while, so that repeated misses do not wait for the database. Keeps track of the YouTube
+ * API quota, or lavaplayer searches, saved by answering searches from the cache.
+ */
+public class YouTubeSearchCache {
+
+    // length of the search_term column
+    private static final int MAX_PERSISTED_TERM_LENGTH = 1000;
+    // bounds the time callers spend waiting for the persistent tier, which is skipped when exceeded
+    private static final int MAX_CONCURRENT_PERSISTENT_LOOKUPS = 8;
+    private static final int PERSISTENT_LOOKUP_TIMEOUT_SECONDS = 2;
+    private static final ExecutorService PERSIST_RESULT_SERVICE = Executors.newSingleThreadExecutor(new LoggingThreadFactory("persist-youtube-search-result-pool"));
+
+    private final Cache<Key, CachedSearch> memoryCache;
+    // keys that are known to have no usable persisted result, so that repeated misses do not query the database
+    private final Cache<Key, Boolean> persistentMisses;
+    private final Semaphore persistentLookupPermits = new Semaphore(MAX_CONCURRENT_PERSISTENT_LOOKUPS);
+    private final Duration ttl;
+    private final HibernateComponent hibernateComponent;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AtomicLong memoryHitCount = new AtomicLong();
+    private final AtomicLong persistentHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong savedQuota = new AtomicLong();
+    private final AtomicLong savedLavaplayerSearches = new AtomicLong();
+
+    public YouTubeSearchCache(HibernateComponent hibernateComponent, long memorySize, Duration ttl) {
+        this.hibernateComponent = hibernateComponent;
+        this.ttl = ttl;
+        memoryCache = CacheBuilder.newBuilder()
+            .maximumSize(memorySize)
+            .expireAfterWrite(ttl)
+            .build();
+        persistentMisses = CacheBuilder.newBuilder()
+            .maximumSize(memorySize)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+    }
+
+    /**
+     * Get the cached result for the search term if there is a result that is not older than the time to live and
+     * contains at least the requested number of videos, or all videos found for the term.
+     *
+     * @param kind       the kind of search, results of different kinds are cached separately as they use different
+     *                   search parameters
+     * @param searchTerm the search term, compared case insensitively
+     * @param limit      the number of requested videos
+     * @param quotaCost  the YouTube API quota the search would cost, 0 if the search would use lavaplayer
+     * @return the cached videos, possibly more than requested, or null
+     */
+    @Nullable
+    public List<CachedVideo> get(Kind kind, String searchTerm, int limit, int quotaCost) {
+        Key key = new Key(kind, normalize(searchTerm));
+        CachedSearch cachedSearch = memoryCache.getIfPresent(key);
+        if (cachedSearch != null && cachedSearch.satisfies(limit)) {
+            memoryHitCount.incrementAndGet();
+            recordSaved(quotaCost);
+            return cachedSearch.videos();
+        }
+
+        CachedSearch persistedSearch = queryPersistedSearch(key);
+        if (persistedSearch != null && persistedSearch.satisfies(limit)) {
+            memoryCache.put(key, persistedSearch);
+            persistentHitCount.incrementAndGet();
+            recordSaved(quotaCost);
+            return persistedSearch.videos();
+        }
+
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache the videos found for the search term, replacing the previous result. The result is persisted
+     * asynchronously.
+     */
+    public void put(Kind kind, String searchTerm, int limit, List<CachedVideo> videos) {
+        Key key = new Key(kind, normalize(searchTerm));
+        List<CachedVideo> videoList = List.copyOf(videos);
+        memoryCache.put(key, new CachedSearch(videoList, limit));
+        persistentMisses.invalidate(key);
+        if (key.searchTerm().length() > MAX_PERSISTED_TERM_LENGTH) {
+            return;
+        }
+
+        PERSIST_RESULT_SERVICE.execute(() -> {
+            try {
+                hibernateComponent.consumeSession(session -> {
+                    YouTubeSearchResultIndex.deleteResults(session, kind.name(), key.searchTerm());
+                    for (int i = 0; i < videoList.size(); i++) {
+                        CachedVideo video = videoList.get(i);
+                        session.persist(new YouTubeSearchResultIndex(kind.name(), key.searchTerm(), limit, i, video.videoId(), video.title(), video.durationMs()));
+                    }
+                });
+            } catch (Exception e) {
+                logger.error("Exception while persisting YouTube search result", e);
+            }
+        });
+    }
+
+    /**
+     * Delete persisted results that are older than the time to live, results are otherwise only replaced when the same
+     * term is searched again.
+     *
+     * @return the number of deleted rows
+     */
+    public int deleteExpiredResults() {
+        LocalDateTime threshold = LocalDateTime.now().minus(ttl);
+        return hibernateComponent.invokeWithSession(session -> YouTubeSearchResultIndex.deleteResultsUpdatedBefore(session, threshold));
+    }
+
+    public void shutdown() {
+        PERSIST_RESULT_SERVICE.shutdown();
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHitCount.get();
+    }
+
+    public long getPersistentHitCount() {
+        return persistentHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the YouTube API quota saved since startup by answering searches from the cache
+     */
+    public long getSavedQuota() {
+        return savedQuota.get();
+    }
+
+    /**
+     * @return the number of lavaplayer searches saved since startup by answering searches from the cache after the quota
+     * threshold was reached
+     */
+    public long getSavedLavaplayerSearches() {
+        return savedLavaplayerSearches.get();
+    }
+
+    @Nullable
+    private CachedSearch queryPersistedSearch(Key key) {
+        if (persistentMisses.getIfPresent(key) != null || !persistentLookupPermits.tryAcquire()) {
+            return null;
+        }
+
+        List<YouTubeSearchResultIndex> results;
+        // use a fresh session to avoid interfering with the transaction of the current thread
+        try (Session session = hibernateComponent.getSessionFactory().openSession()) {
+            results = YouTubeSearchResultIndex.queryResults(session, key.kind().name(), key.searchTerm(), PERSISTENT_LOOKUP_TIMEOUT_SECONDS);
+        } catch (Exception e) {
+            logger.error("Exception while querying persisted YouTube search result", e);
+            return null;
+        } finally {
+            persistentLookupPermits.release();
+        }
+
+        if (results.isEmpty() || results.get(0).getLastUpdated().plus(ttl).isBefore(LocalDateTime.now())) {
+            persistentMisses.put(key, Boolean.TRUE);
+            return null;
+        }
+
+        YouTubeSearchResultIndex first = results.get(0);
+
+        List<CachedVideo> videos = results.stream()
+            .map(result -> new CachedVideo(result.getVideoId(), result.getTitle(), result.getDurationMs()))
+            .toList();
+        return new CachedSearch(videos, first.getRequestedLimit());
+    }
+
+    private void recordSaved(int quotaCost) {
+        if (quotaCost > 0) {
+            savedQuota.addAndGet(quotaCost);
+        } else {
+            savedLavaplayerSearches.incrementAndGet();
+        }
+    }
+
+    private static String normalize(String searchTerm) {
+        return searchTerm.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Kind {
+        VIDEO_SEARCH,
+        SPOTIFY_REDIRECT
+    }
+
+    public record CachedVideo(String videoId, String title, long durationMs) {
+    }
+
+    private record Key(Kind kind, String searchTerm) {
+    }
+
+    private record CachedSearch(List<CachedVideo> videos, int requestedLimit) {
+
+        /**
+         * @return true if this result contains at least the given number of videos or if the search returned fewer
+         * videos than requested, meaning these are all videos found for the term
+         */
+        boolean satisfies(int limit) {
+            return videos.size() >= limit || requestedLimit >= limit;
+        }
+
+    }
+
+}
@@ -10,8 +10,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -41,8 +44,10 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
 import jakarta.persistence.LockModeType;
 import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.AudioTrackCache;
 import net.robinfriedli.aiode.audio.AudioTrackLoader;
 import net.robinfriedli.aiode.audio.spotify.SpotifyTrack;
+import net.robinfriedli.aiode.audio.youtube.YouTubeSearchCache.CachedVideo;
 import net.robinfriedli.aiode.boot.AbstractShutdownable;
 import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
 import net.robinfriedli.aiode.command.commands.playback.PlayCommand;
@@ -86,15 +91,19 @@ public class YouTubeService extends AbstractShutdownable {
     private final HibernateComponent hibernateComponent;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final YouTube youTube;
+    private final YouTubeSearchCache searchCache;
 
     @Value("${aiode.tokens.youtube_credentials}")
     private String apiKey;
 
     public YouTubeService(HibernateComponent hibernateComponent,
                           YouTube youTube,
-                          @Value("${aiode.preferences.youtube_api_daily_quota}") int youtubeApiDailyQuota) {
+                          @Value("${aiode.preferences.youtube_api_daily_quota}") int youtubeApiDailyQuota,
+                          @Value("${aiode.preferences.youtube_search_cache_size:10000}") long searchCacheSize,
+                          @Value("${aiode.preferences.youtube_search_cache_ttl_days:14}") long searchCacheTtlDays) {
         this.hibernateComponent = hibernateComponent;
         this.youTube = youTube;
+        searchCache = new YouTubeSearchCache(hibernateComponent, searchCacheSize, Duration.ofDays(searchCacheTtlDays));
         double factor = youtubeApiDailyQuota > 50000 ? 0.75 : 0.5;
         quotaThreshold = (int) (youtubeApiDailyQuota * factor);
     }
@@ -117,6 +126,7 @@ public class YouTubeService extends AbstractShutdownable {
     @Override
     public void shutdown(int delayMs) {
         UPDATE_QUOTA_SERVICE.shutdown();
+        searchCache.shutdown();
     }
 
     /**
@@ -132,6 +142,10 @@ public class YouTubeService extends AbstractShutdownable {
         currentQuota.set(quota);
     }
 
+    public YouTubeSearchCache getSearchCache() {
+        return searchCache;
+    }
+
     interface YouTubeVideoSearchResult {
         String getId();
 
@@ -261,6 +275,17 @@ public class YouTubeService extends AbstractShutdownable {
             }
         );
         String searchTerm = spotifyTrack.getName() + " " + artists.toSeparatedString(" ");
+        String artistString = artists.toSeparatedString(", ");
+        String title = spotifyTrack.getName() + " by " + artistString;
+
+        List<CachedVideo> cachedRedirect = searchCache.get(YouTubeSearchCache.Kind.SPOTIFY_REDIRECT, searchTerm, 1, getSearchQuotaCost());
+        if (cachedRedirect != null && !cachedRedirect.isEmpty()) {
+            CachedVideo cachedVideo = cachedRedirect.get(0);
+            youTubeVideo.setTitle(title);
+            youTubeVideo.setId(cachedVideo.videoId());
+            youTubeVideo.setDuration(cachedVideo.durationMs());
+            return;
+        }
 
         YouTubeVideoSearchResult video;
         if (currentQuota.get() < quotaThreshold) {
@@ -313,8 +338,7 @@ public class YouTubeService extends AbstractShutdownable {
             video = getBestMatch(audioTracks.stream().map(AudioTrackSearchResult::new).toList(), spotifyTrack, artists);
         }
 
-        String artistString = artists.toSeparatedString(", ");
-        String title = spotifyTrack.getName() + " by " + artistString;
+        searchCache.put(YouTubeSearchCache.Kind.SPOTIFY_REDIRECT, searchTerm, 1, List.of(new CachedVideo(video.getId(), video.getTitle(), video.getDuration())));
         youTubeVideo.setTitle(title);
         youTubeVideo.setId(video.getId());
         youTubeVideo.setDuration(video.getDuration());
@@ -323,7 +347,9 @@ public class YouTubeService extends AbstractShutdownable {
     /**
      * Search a single YouTube video. If the current YouTube API quota usage is beneath the threshold then this action
      * will use the YouTube API, costing {@link #QUOTA_COST_SEARCH} + {@link #QUOTA_COST_LIST} quota. Else this uses
-     * lavaplayer to load the video metadata by scraping the HTML page returned by YouTube.
+     * lavaplayer to load the video metadata by scraping the HTML page returned by YouTube. Results are cached by the
+     * {@link YouTubeSearchCache}, a cached result costs no quota. Callers that do not need the result immediately should
+     * use {@link #searchVideoAsync(String)} instead.
      *
      * @param searchTerm the video title to search for
      * @return the {@link YouTubeVideo} instance, never null
@@ -331,30 +357,59 @@ public class YouTubeService extends AbstractShutdownable {
      * @throws IOException             if the YouTube API request fails
      */
     public YouTubeVideo searchVideo(String searchTerm) throws IOException {
-        if (currentQuota.get() < quotaThreshold) {
-            List<SearchResult> items = searchVideos(1, searchTerm);
-            SearchResult searchResult = items.get(0);
-            String videoId = searchResult.getId().getVideoId();
-            VideoListResponse videoListResponse = doWithQuota(QUOTA_COST_LIST, () -> youTube.videos().list(List.of("snippet", "contentDetails"))
-                .setKey(apiKey)
-                .setId(List.of(videoId))
-                .setPart(List.of("snippet", "contentDetails"))
-                .setMaxResults(1L)
-                .execute());
-            Video video = videoListResponse.getItems().get(0);
+        return awaitSearch(searchVideoAsync(searchTerm));
+    }
+
+    /**
+     * Search a single YouTube video, see {@link #searchVideo(String)}. Requests to the YouTube API are executed on the
+     * current thread while searches using lavaplayer complete the returned future without blocking the current thread.
+     *
+     * @param searchTerm the video title to search for
+     * @return a future completed with the {@link YouTubeVideo} or exceptionally with a {@link NoResultsFoundException}
+     * if no video was found or the {@link IOException} if the YouTube API request failed
+     */
+    public CompletableFuture<YouTubeVideo> searchVideoAsync(String searchTerm) {
+        List<CachedVideo> cachedVideos = searchCache.get(YouTubeSearchCache.Kind.VIDEO_SEARCH, searchTerm, 1, getSearchQuotaCost());
+        if (cachedVideos != null && !cachedVideos.isEmpty()) {
+            CachedVideo cachedVideo = cachedVideos.get(0);
+            return CompletableFuture.completedFuture(new YouTubeVideoImpl(cachedVideo.title(), cachedVideo.videoId(), cachedVideo.durationMs()));
+        }
 
-            return new YouTubeVideoImpl(video.getSnippet().getTitle(), videoId, parseDuration(video));
+        CompletableFuture<YouTubeVideo> futureVideo;
+        if (currentQuota.get() < quotaThreshold) {
+            try {
+                List<SearchResult> items = searchVideos(1, searchTerm);
+                SearchResult searchResult = items.get(0);
+                String videoId = searchResult.getId().getVideoId();
+                VideoListResponse videoListResponse = doWithQuota(QUOTA_COST_LIST, () -> youTube.videos().list(List.of("snippet", "contentDetails"))
+                    .setKey(apiKey)
+                    .setId(List.of(videoId))
+                    .setPart(List.of("snippet", "contentDetails"))
+                    .setMaxResults(1L)
+                    .execute());
+                Video video = videoListResponse.getItems().get(0);
+
+                futureVideo = CompletableFuture.completedFuture(new YouTubeVideoImpl(video.getSnippet().getTitle(), videoId, parseDuration(video)));
+            } catch (IOException | NoResultsFoundException e) {
+                return CompletableFuture.failedFuture(e);
+            }
         } else {
-            List<YouTubeVideo> youTubeVideos = searchVideosViaLavaplayer(searchTerm, 1);
-            return youTubeVideos.get(0);
+            futureVideo = searchVideosViaLavaplayer(searchTerm, 1).thenApply(youTubeVideos -> youTubeVideos.get(0));
         }
+
+        return futureVideo.thenApply(youTubeVideo -> {
+            searchCache.put(YouTubeSearchCache.Kind.VIDEO_SEARCH, searchTerm, 1, List.of(toCachedVideo(youTubeVideo)));
+            return youTubeVideo;
+        });
     }
 
     /**
      * Search several YouTube videos. If the current YouTube API quota usage is beneath the threshold then this action
      * will use the YouTube API, costing {@link #QUOTA_COST_SEARCH} + {@link #QUOTA_COST_LIST} (only once since this
      * action cannot load more than 50 items, which would result in more requests) quota. Else this uses lavaplayer to
-     * load the video metadata by scraping the HTML page returned by YouTube.
+     * load the video metadata by scraping the HTML page returned by YouTube. Results are cached by the
+     * {@link YouTubeSearchCache}, a cached result costs no quota. Callers that do not need the result immediately should
+     * use {@link #searchSeveralVideosAsync(int, String)} instead.
      *
      * @param limit      the maximum number of YouTube videos to return, max 50
      * @param searchTerm the video title to search for
@@ -363,24 +418,58 @@ public class YouTubeService extends AbstractShutdownable {
      * @throws IOException             if the YouTube API request fails
      */
     public List<YouTubeVideo> searchSeveralVideos(int limit, String searchTerm) throws IOException {
+        return awaitSearch(searchSeveralVideosAsync(limit, searchTerm));
+    }
+
+    /**
+     * Search several YouTube videos, see {@link #searchSeveralVideos(int, String)}. Requests to the YouTube API are
+     * executed on the current thread while searches using lavaplayer complete the returned future without blocking the
+     * current thread.
+     *
+     * @param limit      the maximum number of YouTube videos to return, max 50
+     * @param searchTerm the video title to search for
+     * @return a future completed with the list of {@link YouTubeVideo} instances or exceptionally with a
+     * {@link NoResultsFoundException} if no video was found or the {@link IOException} if the YouTube API request failed
+     */
+    public CompletableFuture<List<YouTubeVideo>> searchSeveralVideosAsync(int limit, String searchTerm) {
+        List<CachedVideo> cachedVideos = searchCache.get(YouTubeSearchCache.Kind.VIDEO_SEARCH, searchTerm, limit, getSearchQuotaCost());
+        if (cachedVideos != null && !cachedVideos.isEmpty()) {
+            return CompletableFuture.completedFuture(cachedVideos.stream()
+                .limit(limit)
+                .map(cachedVideo -> (YouTubeVideo) new YouTubeVideoImpl(cachedVideo.title(), cachedVideo.videoId(), cachedVideo.durationMs()))
+                .collect(Collectors.toList()));
+        }
+
+        CompletableFuture<List<YouTubeVideo>> futureVideos;
         if (currentQuota.get() < quotaThreshold) {
-            List<SearchResult> searchResults = searchVideos(limit, searchTerm);
-            List<String> videoIds = searchResults.stream().map(result -> result.getId().getVideoId()).collect(Collectors.toList());
-            List<Video> youtubeVideos = getAllVideos(videoIds);
-            List<YouTubeVideo> videos = Lists.newArrayList();
+            try {
+                List<SearchResult> searchResults = searchVideos(limit, searchTerm);
+                List<String> videoIds = searchResults.stream().map(result -> result.getId().getVideoId()).collect(Collectors.toList());
+                List<Video> youtubeVideos = getAllVideos(videoIds);
+                List<YouTubeVideo> videos = Lists.newArrayList();
 
-            for (Video video : youtubeVideos) {
-                String videoId = video.getId();
-                String title = video.getSnippet().getTitle();
-                long duration = parseDuration(video);
+                for (Video video : youtubeVideos) {
+                    String videoId = video.getId();
+                    String title = video.getSnippet().getTitle();
+                    long duration = parseDuration(video);
 
-                videos.add(new YouTubeVideoImpl(title, videoId, duration));
-            }
+                    videos.add(new YouTubeVideoImpl(title, videoId, duration));
+                }
 
-            return videos;
+                futureVideos = CompletableFuture.completedFuture(videos);
+            } catch (IOException | NoResultsFoundException e) {
+                return CompletableFuture.failedFuture(e);
+            }
         } else {
-            return searchVideosViaLavaplayer(searchTerm, limit);
+            futureVideos = searchVideosViaLavaplayer(searchTerm, limit);
         }
+
+        return futureVideos.thenApply(videos -> {
+            if (!videos.isEmpty()) {
+                searchCache.put(YouTubeSearchCache.Kind.VIDEO_SEARCH, searchTerm, limit, videos.stream().map(YouTubeService::toCachedVideo).toList());
+            }
+            return videos;
+        });
     }
 
     /**
@@ -622,7 +711,8 @@ public class YouTubeService extends AbstractShutdownable {
     /**
      * Load a YouTube video via its id or return null if none is found. If the current YouTube API quota usage is
      * beneath the threshold then this action will use the YouTube API, costing {@link #QUOTA_COST_LIST} quota. Else
-     * this uses lavaplayer to load the video metadata by scraping the HTML page returned by YouTube.
+     * this uses lavaplayer to load the video metadata by scraping the HTML page returned by YouTube. Videos of which the
+     * track is present in the {@link AudioTrackCache} are created from the cached track without either.
      *
      * @param id the video id
      * @return the created {@link YouTubeVideo} instance or null
@@ -630,6 +720,14 @@ public class YouTubeService extends AbstractShutdownable {
      */
     @Nullable
     public YouTubeVideo getVideoForId(String id) throws IOException {
+        String url = String.format("https://www.youtube.com/watch?v=%s", id);
+        AudioTrack cachedTrack = Aiode.get().getAudioManager().getAudioTrackCache().get(url);
+        if (cachedTrack != null) {
+            YouTubeVideo youTubeVideo = new YouTubeVideoImpl(cachedTrack.getInfo().title, id, cachedTrack.getDuration());
+            youTubeVideo.setCached(cachedTrack);
+            return youTubeVideo;
+        }
+
         if (currentQuota.get() < quotaThreshold) {
             YouTube.Videos.List videoRequest = youTube.videos().list(List.of("snippet"));
             videoRequest.setId(List.of(id));
@@ -648,7 +746,7 @@ public class YouTubeService extends AbstractShutdownable {
             AudioTrackLoader audioTrackLoader = new AudioTrackLoader(Aiode.get().getAudioManager().getPlayerManager());
             AudioItem result;
             try {
-                result = audioTrackLoader.loadByIdentifier(String.format("https://www.youtube.com/watch?v=%s", id));
+                result = audioTrackLoader.loadByIdentifier(url);
             } catch (FriendlyException e) {
                 return null;
             }
@@ -848,12 +946,46 @@ public class YouTubeService extends AbstractShutdownable {
         return 0;
     }
 
-    private List<YouTubeVideo> searchVideosViaLavaplayer(String searchTerm, int limit) {
+    /**
+     * Search videos using lavaplayer without blocking the current thread. The returned future is completed by a
+     * lavaplayer thread, completed exceptionally with a {@link NoResultsFoundException} if no video was found or the
+     * search did not complete within 2 minutes.
+     */
+    private CompletableFuture<List<YouTubeVideo>> searchVideosViaLavaplayer(String searchTerm, int limit) {
         AudioTrackLoader audioTrackLoader = new AudioTrackLoader(Aiode.get().getAudioManager().getPlayerManager());
-        Object result = audioTrackLoader.loadByIdentifier("ytsearch:" + searchTerm);
+        return audioTrackLoader.loadAsync("ytsearch:" + searchTerm)
+            .completeOnTimeout(null, 2, TimeUnit.MINUTES)
+            .thenApply(result -> {
+                List<YouTubeVideo> youTubeVideos = toYouTubeVideos(result, limit);
+                if (youTubeVideos.isEmpty()) {
+                    throw new NoResultsFoundException(String.format("No YouTube video found for '%s'", searchTerm));
+                }
 
-        if (!(result instanceof AudioPlaylist) || ((AudioPlaylist) result).getTracks().isEmpty()) {
-            throw new NoResultsFoundException(String.format("No YouTube video found for '%s'", searchTerm));
+                return youTubeVideos;
+            });
+    }
+
+    /**
+     * Wait for the result of a search, rethrowing the exception the search failed with.
+     */
+    private static <T> T awaitSearch(CompletableFuture<T> futureResult) throws IOException {
+        try {
+            return futureResult.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw e;
+        }
+    }
+
+    private List<YouTubeVideo> toYouTubeVideos(@Nullable AudioItem result, int limit) {
+        if (!(result instanceof AudioPlaylist)) {
+            return List.of();
         }
 
         List<AudioTrack> tracks = ((AudioPlaylist) result).getTracks();
@@ -1036,6 +1168,22 @@ public class YouTubeService extends AbstractShutdownable {
         return 0;
     }
 
+    /**
+     * @return the quota a video search costs if executed now, 0 if the search would use lavaplayer
+     */
+    private int getSearchQuotaCost() {
+        return currentQuota.get() < quotaThreshold ? QUOTA_COST_SEARCH + QUOTA_COST_LIST : 0;
+    }
+
+    private static CachedVideo toCachedVideo(YouTubeVideo youTubeVideo) {
+        try {
+            return new CachedVideo(youTubeVideo.getVideoId(), youTubeVideo.getTitle(), youTubeVideo.getDuration());
+        } catch (UnavailableResourceException e) {
+            // only thrown by hollow videos, search results are never hollow
+            throw new IllegalStateException(e);
+        }
+    }
+
     private <E> E doWithQuota(int cost, Callable<E> callable) {
         try {
             UPDATE_QUOTA_SERVICE.execute(() -> hibernateComponent.consumeSession(session -> {
@@ -0,0 +1,106 @@
+package net.robinfriedli.aiode.boot.tasks;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.dv8tion.jda.api.JDA;
+import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.ChartService;
+import net.robinfriedli.aiode.boot.StartupTask;
+import net.robinfriedli.aiode.entities.PlaybackHistory;
+import net.robinfriedli.aiode.entities.xml.StartupTaskContribution;
+import net.robinfriedli.aiode.exceptions.handler.handlers.LoggingUncaughtExceptionHandler;
+import net.robinfriedli.aiode.function.HibernateInvoker;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+/**
+ * Migration for update 2.3.1 that increments the chart counters for the playback history entries persisted before the
+ * counters were maintained, as recorded in the chart_rollup_backfill table. Entries are processed in a background
+ * thread in batches of {@link #BATCH_SIZE}, each batch in its own transaction that also advances the recorded position,
+ * so that the backfill does not delay startup and resumes where it left off if the application is stopped. Entries
+ * persisted after the migration are excluded since the counters already have been incremented for them. Counters of
+ * past months created for older entries are removed by the daily DeleteOutdatedMonthlyChartsTask.
+ */
+public class BackfillChartRollupsTask implements StartupTask {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ChartService chartService;
+    private final SessionFactory sessionFactory;
+    private final StartupTaskContribution contribution;
+
+    public BackfillChartRollupsTask(ChartService chartService, SessionFactory sessionFactory, StartupTaskContribution contribution) {
+        this.chartService = chartService;
+        this.sessionFactory = sessionFactory;
+        this.contribution = contribution;
+    }
+
+    @Override
+    public StartupTaskContribution getContribution() {
+        return contribution;
+    }
+
+    @Override
+    public void perform(@Nullable JDA shard) {
+        Thread.ofVirtual()
+            .name("chart-rollup-backfill")
+            .uncaughtExceptionHandler(new LoggingUncaughtExceptionHandler())
+            .start(this::backfill);
+    }
+
+    private void backfill() {
+        long start = System.currentTimeMillis();
+        int processed = 0;
+        int batchCount;
+        do {
+            try (Session session = sessionFactory.openSession()) {
+                batchCount = HibernateInvoker.create(session).invokeFunction(this::backfillBatch);
+            }
+            processed += batchCount;
+        } while (batchCount > 0);
+
+        if (processed > 0) {
+            Aiode.LOGGER.info(String.format("Backfilled chart counters for %d playback history entries in %d ms", processed, System.currentTimeMillis() - start));
+        }
+    }
+
+    /**
+     * @return the number of processed playback history entries, 0 if the backfill is complete
+     */
+    private int backfillBatch(Session session) {
+        Object[] position = session.createNativeQuery("select next_pk, end_pk from chart_rollup_backfill for update", Object[].class)
+            .uniqueResult();
+        if (position == null) {
+            return 0;
+        }
+
+        long nextPk = ((Number) position[0]).longValue();
+        long endPk = ((Number) position[1]).longValue();
+        List<Long> pks = session.createQuery("select pk from PlaybackHistory where pk >= :nextPk and pk <= :endPk order by pk", Long.class)
+            .setParameter("nextPk", nextPk)
+            .setParameter("endPk", endPk)
+            .setMaxResults(BATCH_SIZE)
+            .getResultList();
+
+        if (pks.isEmpty()) {
+            session.createNativeMutationQuery("delete from chart_rollup_backfill").executeUpdate();
+            return 0;
+        }
+
+        List<PlaybackHistory> playbackHistories = session.createQuery("select distinct p from PlaybackHistory p " +
+                "left join fetch p.artists " +
+                "left join fetch p.userPlaybackHistories " +
+                "where p.pk in :pks", PlaybackHistory.class)
+            .setParameter("pks", pks)
+            .getResultList();
+        chartService.incrementCharts(playbackHistories, session);
+
+        session.createNativeMutationQuery("update chart_rollup_backfill set next_pk = ?")
+            .setParameter(1, pks.getLast() + 1)
+            .executeUpdate();
+        return pks.size();
+    }
+
+}
@@ -406,7 +406,7 @@ public abstract class AbstractCommand implements Command {
     }
 
     protected List<CompletableFuture<Message>> sendToActiveGuilds(MessageEmbed message) {
-        return messageService.sendToActiveGuilds(message, getContext().getSession());
+        return messageService.sendToActiveGuilds(message);
     }
 
     /**
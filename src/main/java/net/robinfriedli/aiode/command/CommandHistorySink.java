@@ -0,0 +1,54 @@
+package net.robinfriedli.aiode.command;
+
+import java.time.Duration;
+import java.util.List;
+
+import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
+import net.robinfriedli.aiode.concurrent.WriteBehindBuffer;
+import net.robinfriedli.aiode.entities.CommandHistory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects finished {@link CommandHistory} entries and persists them in batches on the flush thread of a
+ * {@link WriteBehindBuffer}, so that command execution does not wait for the history to be inserted.
+ */
+@Component
+public class CommandHistorySink {
+
+    private static final int BATCH_SIZE = 50;
+
+    private final HibernateComponent hibernateComponent;
+    private final WriteBehindBuffer<CommandHistory> buffer;
+
+    public CommandHistorySink(
+        HibernateComponent hibernateComponent,
+        @Value("${aiode.preferences.command_history_buffer_size:10000}") int bufferSize
+    ) {
+        this.hibernateComponent = hibernateComponent;
+        buffer = new WriteBehindBuffer<>("command-history", bufferSize, BATCH_SIZE, Duration.ofSeconds(2), this::persist);
+    }
+
+    /**
+     * Submit a finished history entry to be persisted with the next batch.
+     *
+     * @return false if the entry was dropped because the buffer is full
+     */
+    public boolean submit(CommandHistory commandHistory) {
+        return buffer.offer(commandHistory);
+    }
+
+    public WriteBehindBuffer<CommandHistory> getBuffer() {
+        return buffer;
+    }
+
+    private void persist(List<CommandHistory> commandHistories) {
+        hibernateComponent.consumeSession(session -> {
+            session.setJdbcBatchSize(BATCH_SIZE);
+            for (CommandHistory commandHistory : commandHistories) {
+                session.persist(commandHistory);
+            }
+        });
+    }
+
+}
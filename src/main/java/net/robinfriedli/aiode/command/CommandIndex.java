@@ -0,0 +1,84 @@
+package net.robinfriedli.aiode.command;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.robinfriedli.aiode.entities.Preset;
+import net.robinfriedli.aiode.entities.StoredScript;
+import net.robinfriedli.aiode.persist.qb.QueryBuilderFactory;
+import net.robinfriedli.aiode.util.PrefixTrie;
+import org.hibernate.Session;
+
+/**
+ * In-memory index of the names of all {@link Preset} entities and the identifiers of all {@link StoredScript} entities
+ * with usage "script" of a partition, i.e. a guild in partitioned mode or all guilds in shared mode, used by the
+ * {@link CommandManager} to find the preset or script with the longest name the command input starts with without
+ * querying the database. Indices are immutable once built and rebuilt when presets or scripts of the partition change.
+ */
+public class CommandIndex {
+
+    private final PrefixTrie<Long> presetTrie;
+    private final PrefixTrie<Long> scriptTrie;
+
+    private CommandIndex(PrefixTrie<Long> presetTrie, PrefixTrie<Long> scriptTrie) {
+        this.presetTrie = presetTrie;
+        this.scriptTrie = scriptTrie;
+    }
+
+    /**
+     * Build the index for the partition of the current execution context, the partition is applied by the default query
+     * interceptors of the {@link QueryBuilderFactory}.
+     */
+    public static CommandIndex build(Session session, QueryBuilderFactory queryBuilderFactory) {
+        PrefixTrie<Long> presetTrie = new PrefixTrie<>();
+        List<Preset> presets = queryBuilderFactory.find(Preset.class).build(session).setCacheable(true).getResultList();
+        for (Preset preset : presets) {
+            presetTrie.put(preset.getName(), preset.getPk());
+        }
+
+        PrefixTrie<Long> scriptTrie = new PrefixTrie<>();
+        List<StoredScript> scripts = queryBuilderFactory.find(StoredScript.class)
+            .where((cb, root, subQueryFactory) -> cb.equal(
+                root.get("scriptUsage").get("pk"),
+                subQueryFactory.createUncorrelatedSubQuery(StoredScript.ScriptUsage.class, "pk", Long.class)
+                    .where((cb1, root1) -> cb1.equal(root1.get("uniqueId"), "script"))
+                    .build(session)
+            ))
+            .build(session)
+            .getResultList();
+        for (StoredScript script : scripts) {
+            scriptTrie.put(script.getIdentifier(), script.getPk());
+        }
+
+        return new CommandIndex(presetTrie, scriptTrie);
+    }
+
+    /**
+     * @return the pk of the preset with the longest name the input starts with, compared case insensitively, or null
+     */
+    @Nullable
+    public Long findPresetForInput(String input) {
+        PrefixTrie.Match<Long> match = presetTrie.findLongestPrefix(input);
+        return match != null ? match.value() : null;
+    }
+
+    /**
+     * @return the pk of the preset with the provided name, compared case insensitively, or null
+     */
+    @Nullable
+    public Long findPreset(String name) {
+        return presetTrie.get(name);
+    }
+
+    /**
+     * @return the pk of the script with the longest identifier the input starts with, compared case insensitively, or
+     * null
+     */
+    @Nullable
+    public Long findScriptForInput(String input) {
+        PrefixTrie.Match<Long> match = scriptTrie.findLongestPrefix(input);
+        return match != null ? match.value() : null;
+    }
+
+}
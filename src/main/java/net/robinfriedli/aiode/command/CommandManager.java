@@ -5,13 +5,18 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import net.dv8tion.jda.api.entities.Guild;
 import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
 import net.robinfriedli.aiode.command.interceptor.CommandInterceptorChain;
 import net.robinfriedli.aiode.command.interceptor.interceptors.ScriptCommandInterceptor;
 import net.robinfriedli.aiode.command.parser.CommandParser;
@@ -31,7 +36,10 @@ import net.robinfriedli.aiode.exceptions.CommandRuntimeException;
 import net.robinfriedli.aiode.exceptions.InvalidCommandException;
 import net.robinfriedli.aiode.exceptions.RateLimitException;
 import net.robinfriedli.aiode.exceptions.handler.CommandExceptionHandlerExecutor;
+import net.robinfriedli.aiode.function.HibernateInvoker;
 import net.robinfriedli.aiode.persist.qb.QueryBuilderFactory;
+import net.robinfriedli.aiode.util.GenerationalCache;
+import net.robinfriedli.aiode.util.PrefixTrie;
 import net.robinfriedli.jxp.api.JxpBackend;
 import net.robinfriedli.jxp.persist.Context;
 import org.hibernate.Session;
@@ -51,13 +59,20 @@ import static net.robinfriedli.jxp.queries.Conditions.*;
 @Component
 public class CommandManager {
 
+    private static final String SHARED_PARTITION = "shared";
+
     private final boolean isScriptingEnabled;
     private final boolean isScriptingEnabledForSupporters;
     private final Context commandContributionContext;
     private final Context commandInterceptorContext;
     private final EventWaiter eventWaiter;
+    private final HibernateComponent hibernateComponent;
     private final Logger logger;
     private final QueryBuilderFactory queryBuilderFactory;
+    private final boolean modePartitioned;
+    private final PrefixTrie<CommandContribution> commandContributionTrie;
+    // command indices by guild id in partitioned mode or SHARED_PARTITION in shared mode
+    private final GenerationalCache<String, CommandIndex> commandIndices = new GenerationalCache<>(1, TimeUnit.MINUTES);
 
     /**
      * The chain of interceptors to process the command
@@ -70,7 +85,9 @@ public class CommandManager {
                           @Value("classpath:xml-contributions/commands.xml") Resource commandResource,
                           @Value("classpath:xml-contributions/commandInterceptors.xml") Resource commandInterceptorResource,
                           EventWaiter eventWaiter,
+                          HibernateComponent hibernateComponent,
                           JxpBackend jxpBackend,
+                          @Value("${aiode.preferences.mode_partitioned}") boolean modePartitioned,
                           QueryBuilderFactory queryBuilderFactory) {
         this.isScriptingEnabled = isScriptingEnabled;
         this.isScriptingEnabledForSupporters = isScriptingEnabledForSupporters;
@@ -81,8 +98,14 @@ public class CommandManager {
             throw new RuntimeException("Could not instantiate " + getClass().getSimpleName(), e);
         }
         this.eventWaiter = eventWaiter;
+        this.hibernateComponent = hibernateComponent;
         this.logger = LoggerFactory.getLogger(getClass());
         this.queryBuilderFactory = queryBuilderFactory;
+        this.modePartitioned = modePartitioned;
+        commandContributionTrie = new PrefixTrie<>();
+        for (CommandContribution commandContribution : commandContributionContext.getInstancesOf(CommandContribution.class)) {
+            commandContributionTrie.put(commandContribution.getIdentifier(), commandContribution);
+        }
     }
 
     /**
@@ -156,15 +179,8 @@ public class CommandManager {
             return Optional.of(commandContribution.instantiate(this, context, context.getCommandBody()));
         }
 
-        Optional<Preset> preset = queryBuilderFactory.find(Preset.class)
-            .where(((cb, root) -> cb.equal(
-                cb.lower(root.get("name")),
-                identifier.toLowerCase()
-            )))
-            .build(session)
-            .setMaxResults(1)
-            .setCacheable(true)
-            .uniqueResultOptional();
+        Long presetPk = getCommandIndex(context).findPreset(identifier);
+        Optional<Preset> preset = Optional.ofNullable(presetPk).map(pk -> session.get(Preset.class, pk));
 
         return preset.map(p -> {
             AbstractCommand command = p.instantiateCommand(this, context, context.getCommandBody());
@@ -184,39 +200,15 @@ public class CommandManager {
         String formattedCommandInput = commandBody.toLowerCase();
         CommandContribution commandContribution = getCommandContributionForInput(commandBody);
         AbstractCommand commandInstance;
-        // find a preset where the preset name matches the beginning of the command, find the longest matching preset name
-        // corresponds to lower(name) = substring(lower('" + commandBody.replaceAll("'", "''") + "'), 0, length(name) + 1)
-        Optional<Preset> optionalPreset = queryBuilderFactory.find(Preset.class)
-            .where((cb, root) -> cb.equal(
-                cb.lower(root.get("name")),
-                cb.substring(cb.literal(formattedCommandInput), cb.literal(1), cb.length(root.get("name")))
-            ))
-            .orderBy((root, cb) -> cb.desc(cb.length(root.get("name"))))
-            .build(session)
-            .setMaxResults(1)
-            .setCacheable(true)
-            .uniqueResultOptional();
+        // find the preset and script with the longest name or identifier matching the beginning of the command
+        CommandIndex commandIndex = getCommandIndex(context);
+        Long presetPk = commandIndex.findPresetForInput(formattedCommandInput);
+        Optional<Preset> optionalPreset = Optional.ofNullable(presetPk).map(pk -> session.get(Preset.class, pk));
 
         Optional<StoredScript> optionalStoredScript;
         if (includeScripts) {
-            optionalStoredScript = queryBuilderFactory.find(StoredScript.class)
-                .where(((cb, root, subQueryFactory) -> cb.and(
-                    cb.equal(
-                        cb.lower(root.get("identifier")),
-                        cb.substring(cb.literal(formattedCommandInput), cb.literal(1), cb.length(root.get("identifier")))
-                    ),
-                    cb.equal(
-                        root.get("scriptUsage").get("pk"),
-                        subQueryFactory.createUncorrelatedSubQuery(StoredScript.ScriptUsage.class, "pk", Long.class)
-                            .where((cb1, root1) -> cb1.equal(root1.get("uniqueId"), "script"))
-                            .build(session)
-                    )
-                )))
-                .orderBy((root, cb) -> cb.desc(cb.length(root.get("identifier"))))
-                .build(session)
-                .setMaxResults(1)
-                .setCacheable(true)
-                .uniqueResultOptional();
+            Long scriptPk = commandIndex.findScriptForInput(formattedCommandInput);
+            optionalStoredScript = Optional.ofNullable(scriptPk).map(pk -> session.get(StoredScript.class, pk));
         } else {
             optionalStoredScript = Optional.empty();
         }
@@ -297,11 +289,28 @@ public class CommandManager {
         return Optional.of(commandContribution.instantiate(this, commandContext, ""));
     }
 
+    @Nullable
     public CommandContribution getCommandContributionForInput(String input) {
-        return commandContributionContext.query(and(
-            instanceOf(CommandContribution.class),
-            xmlElement -> input.toLowerCase().startsWith(xmlElement.getAttribute("identifier").getValue())
-        ), CommandContribution.class).getOnlyResult();
+        PrefixTrie.Match<CommandContribution> match = commandContributionTrie.findLongestPrefix(input);
+        return match != null ? match.value() : null;
+    }
+
+    /**
+     * Get the {@link CommandIndex} of the presets and scripts available in the guild of the provided context, building
+     * it from the committed presets and scripts using a new session if it is not cached. Cached indices are invalidated
+     * after presets or scripts have been modified and rebuilt after a minute to pick up changes made by other instances.
+     */
+    public CommandIndex getCommandIndex(CommandContext context) {
+        String partition = modePartitioned ? context.getGuild().getId() : SHARED_PARTITION;
+        return commandIndices.get(partition, () -> {
+            try (Session session = hibernateComponent.getSessionFactory().openSession()) {
+                return HibernateInvoker.create(session).invokeFunction(currentSession -> CommandIndex.build(currentSession, queryBuilderFactory));
+            }
+        });
+    }
+
+    public void invalidateCommandIndex(Guild guild) {
+        commandIndices.invalidate(modePartitioned ? guild.getId() : SHARED_PARTITION);
     }
 
     public List<AbstractCommand> getAllCommands(CommandContext commandContext) {
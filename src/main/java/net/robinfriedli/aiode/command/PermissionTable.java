@@ -0,0 +1,106 @@
+package net.robinfriedli.aiode.command;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.ISnowflake;
+import net.dv8tion.jda.api.entities.Role;
+import net.robinfriedli.aiode.entities.AccessConfiguration;
+import net.robinfriedli.aiode.entities.GrantedRole;
+
+/**
+ * Compiled form of all {@link AccessConfiguration} entities of a guild used by the {@link SecurityManager} to check
+ * permissions without querying the database. Each role granted access to any permission target of the guild is assigned
+ * an index and each permission target with an access configuration maps to a {@link BitSet} of the indices of the roles
+ * granted access, so that a check is a hash lookup per role of the member and a bit test.
+ */
+public class PermissionTable {
+
+    private static final BitSet NONE = new BitSet();
+
+    private final Map<String, BitSet> grantedRolesByTarget;
+    private final Map<Long, Integer> roleIndices;
+    private final long[] roleIds;
+
+    private PermissionTable(Map<String, BitSet> grantedRolesByTarget, Map<Long, Integer> roleIndices, long[] roleIds) {
+        this.grantedRolesByTarget = grantedRolesByTarget;
+        this.roleIndices = roleIndices;
+        this.roleIds = roleIds;
+    }
+
+    public static PermissionTable compile(Collection<AccessConfiguration> accessConfigurations) {
+        Map<String, List<String>> grantedRoleIdsByTarget = new HashMap<>();
+        for (AccessConfiguration accessConfiguration : accessConfigurations) {
+            List<String> roleIds = accessConfiguration.getRoles().stream().map(GrantedRole::getId).collect(Collectors.toList());
+            grantedRoleIdsByTarget.put(accessConfiguration.getPermissionIdentifier(), roleIds);
+        }
+
+        return compile(grantedRoleIdsByTarget);
+    }
+
+    /**
+     * @param grantedRoleIdsByTarget the ids of the roles granted access mapped by the full identifier of the permission
+     *                               target
+     */
+    public static PermissionTable compile(Map<String, ? extends Collection<String>> grantedRoleIdsByTarget) {
+        Map<String, BitSet> grantedRolesByTarget = new HashMap<>();
+        Map<Long, Integer> roleIndices = new HashMap<>();
+        grantedRoleIdsByTarget.forEach((permissionIdentifier, grantedRoleIds) -> {
+            BitSet grantedRoles = new BitSet();
+            for (String grantedRoleId : grantedRoleIds) {
+                int index = roleIndices.computeIfAbsent(Long.parseLong(grantedRoleId), id -> roleIndices.size());
+                grantedRoles.set(index);
+            }
+            grantedRolesByTarget.put(permissionIdentifier, grantedRoles);
+        });
+
+        long[] roleIds = new long[roleIndices.size()];
+        roleIndices.forEach((roleId, index) -> roleIds[index] = roleId);
+        return new PermissionTable(grantedRolesByTarget, roleIndices, roleIds);
+    }
+
+    public boolean hasAccessConfiguration(String permissionIdentifier) {
+        return grantedRolesByTarget.containsKey(permissionIdentifier);
+    }
+
+    /**
+     * @param permissionIdentifier the full identifier of the permission target
+     * @param roles                the roles of the member
+     * @return true if there is no access configuration for the permission target or if any of the provided roles has
+     * been granted access
+     */
+    public boolean canAccess(String permissionIdentifier, List<? extends ISnowflake> roles) {
+        BitSet grantedRoles = grantedRolesByTarget.get(permissionIdentifier);
+        if (grantedRoles == null) {
+            return true;
+        }
+
+        for (ISnowflake role : roles) {
+            Integer index = roleIndices.get(role.getIdLong());
+            if (index != null && grantedRoles.get(index)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the roles of the guild that have been granted access to the permission target, excluding roles that no
+     * longer exist
+     */
+    public List<Role> getGrantedRoles(String permissionIdentifier, Guild guild) {
+        BitSet grantedRoles = grantedRolesByTarget.getOrDefault(permissionIdentifier, NONE);
+        return grantedRoles.stream()
+            .mapToObj(index -> guild.getRoleById(roleIds[index]))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+}
@@ -7,6 +7,7 @@ import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -23,8 +24,11 @@ import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
 import net.robinfriedli.aiode.entities.AccessConfiguration;
 import net.robinfriedli.aiode.exceptions.ForbiddenCommandException;
 import net.robinfriedli.aiode.exceptions.NoResultsFoundException;
+import net.robinfriedli.aiode.function.HibernateInvoker;
 import net.robinfriedli.aiode.persist.qb.QueryBuilderFactory;
 import net.robinfriedli.aiode.persist.qb.interceptor.interceptors.AccessConfigurationPartitionInterceptor;
+import net.robinfriedli.aiode.util.GenerationalCache;
+import org.hibernate.Session;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -41,6 +45,7 @@ public class SecurityManager {
     private final HibernateComponent hibernateComponent;
     private final QueryBuilderFactory queryBuilderFactory;
     private final SpringPropertiesConfig springPropertiesConfig;
+    private final GenerationalCache<String, PermissionTable> permissionTables = new GenerationalCache<>(1, TimeUnit.MINUTES);
 
     @Value("#{'${aiode.security.admin_users}'.split('[\\s]*,[\\s]*')}")
     private List<String> adminUserIds;
@@ -76,8 +81,34 @@ public class SecurityManager {
             return true;
         }
 
-        Optional<AccessConfiguration> accessConfiguration = getAccessConfiguration(permissionTarget, member.getGuild());
-        return accessConfiguration.isEmpty() || accessConfiguration.get().canAccess(member);
+        return getPermissionTable(member.getGuild().getId()).canAccess(permissionTarget.getFullPermissionTargetIdentifier(), member.getRoles());
+    }
+
+    /**
+     * Get the compiled {@link PermissionTable} of the guild, compiling it from the committed {@link AccessConfiguration}
+     * entities of the guild using a new session if it is not cached. Cached tables are rebuilt after a minute to pick up
+     * changes made by other instances and are invalidated after access configurations of the guild have been modified.
+     */
+    public PermissionTable getPermissionTable(String guildId) {
+        return permissionTables.get(guildId, () -> {
+            try (Session session = hibernateComponent.getSessionFactory().openSession()) {
+                return HibernateInvoker.create(session).invokeFunction(currentSession -> PermissionTable.compile(
+                    queryBuilderFactory.find(AccessConfiguration.class)
+                        .addInterceptors(new AccessConfigurationPartitionInterceptor(currentSession, guildId))
+                        .build(currentSession)
+                        .setCacheable(true)
+                        .getResultList()
+                ));
+            }
+        });
+    }
+
+    /**
+     * Invalidate the cached permission table of the guild, called after the transaction modifying access configurations
+     * has been committed. Tables that are being compiled concurrently are discarded instead of being cached.
+     */
+    public void invalidatePermissionTable(Guild guild) {
+        permissionTables.invalidate(guild.getId());
     }
 
     public Optional<AccessConfiguration> getAccessConfiguration(PermissionTarget permissionTarget, Guild guild) {
@@ -127,10 +158,11 @@ public class SecurityManager {
             return;
         }
 
-        Optional<AccessConfiguration> accessConfiguration = getAccessConfiguration(permissionTarget, member.getGuild());
-        if (!(accessConfiguration.isEmpty() || accessConfiguration.get().canAccess(member))) {
-            Guild guild = member.getGuild();
-            throw new ForbiddenCommandException(member.getUser(), permissionTarget, accessConfiguration.get().getRoles(guild));
+        Guild guild = member.getGuild();
+        PermissionTable permissionTable = getPermissionTable(guild.getId());
+        String permissionIdentifier = permissionTarget.getFullPermissionTargetIdentifier();
+        if (!permissionTable.canAccess(permissionIdentifier, member.getRoles())) {
+            throw new ForbiddenCommandException(member.getUser(), permissionTarget, permissionTable.getGrantedRoles(permissionIdentifier, guild));
         }
     }
 
@@ -141,7 +173,7 @@ public class SecurityManager {
     public boolean hasElevatedPermissions(Member member) {
         return isAdmin(member.getUser())
             || member.isOwner()
-            || member.getRoles().stream().anyMatch(role -> role.hasPermission(Permission.ADMINISTRATOR));
+            || member.hasPermission(Permission.ADMINISTRATOR);
     }
 
     /**
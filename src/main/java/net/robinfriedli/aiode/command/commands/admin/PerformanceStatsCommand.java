@@ -0,0 +1,180 @@
+package net.robinfriedli.aiode.command.commands.admin;
+
+import java.util.Collection;
+
+import com.google.common.cache.CacheStats;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.AudioTrackCache;
+import net.robinfriedli.aiode.audio.AudioTrackLoader;
+import net.robinfriedli.aiode.audio.TrackPrefetcher;
+import net.robinfriedli.aiode.audio.playables.containers.PlaylistPlayableContainer;
+import net.robinfriedli.aiode.audio.spotify.SpotifyItemSnapshotService;
+import net.robinfriedli.aiode.audio.spotify.SpotifyRedirectService;
+import net.robinfriedli.aiode.command.AbstractAdminCommand;
+import net.robinfriedli.aiode.command.CommandContext;
+import net.robinfriedli.aiode.command.CommandHistorySink;
+import net.robinfriedli.aiode.command.CommandManager;
+import net.robinfriedli.aiode.concurrent.WriteBehindBuffer;
+import net.robinfriedli.aiode.discord.GuildManager;
+import net.robinfriedli.aiode.discord.listeners.CommandListener;
+import net.robinfriedli.aiode.entities.xml.CommandContribution;
+import net.robinfriedli.aiode.scripting.CompiledScriptCache;
+import net.robinfriedli.aiode.scripting.SafeGroovyScriptRunner;
+import net.robinfriedli.aiode.scripting.ScriptExecutionPool;
+
+public class PerformanceStatsCommand extends AbstractAdminCommand {
+
+    public PerformanceStatsCommand(CommandContribution commandContribution, CommandContext context, CommandManager commandManager, String commandString, boolean requiresInput, String identifier, String description, Category category) {
+        super(commandContribution, context, commandManager, commandString, requiresInput, identifier, description, category);
+    }
+
+    @Override
+    public void runAdmin() {
+        Aiode aiode = Aiode.get();
+        EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder.setTitle("Performance statistics");
+        embedBuilder.setDescription("Displays statistics collected since this instance started");
+
+        TrackPrefetcher trackPrefetcher = aiode.getAudioManager().getTrackPrefetcher();
+        embedBuilder.addField("Track prefetching",
+            String.format("Lookahead: %d%nSubmitted: %d%nCompleted: %d%nFailed: %d%nHit rate: %.1f%% (%d hits, %d misses)",
+                trackPrefetcher.getLookahead(),
+                trackPrefetcher.getSubmittedCount(),
+                trackPrefetcher.getCompletedCount(),
+                trackPrefetcher.getFailedCount(),
+                trackPrefetcher.getHitRate() * 100,
+                trackPrefetcher.getHitCount(),
+                trackPrefetcher.getMissCount()),
+            false);
+        embedBuilder.addField("Track transitions",
+            String.format("Transitions: %d%nAverage gap: %dms%nMax gap: %dms",
+                trackPrefetcher.getTransitionCount(),
+                trackPrefetcher.getAverageGapMs(),
+                trackPrefetcher.getMaxGapMs()),
+            false);
+
+        AudioTrackCache audioTrackCache = aiode.getAudioManager().getAudioTrackCache();
+        CacheStats trackCacheStats = audioTrackCache.getStats();
+        embedBuilder.addField("Track cache",
+            String.format("Size: %d / %d%nHit rate: %.1f%% (%d hits, %d misses)%nEvictions: %d",
+                audioTrackCache.getSize(),
+                audioTrackCache.getMaxSize(),
+                trackCacheStats.hitRate() * 100,
+                trackCacheStats.hitCount(),
+                trackCacheStats.missCount(),
+                trackCacheStats.evictionCount()),
+            false);
+
+        embedBuilder.addField("Track loading",
+            String.format("Loads: %d%nCoalesced calls: %d",
+                AudioTrackLoader.getLoadCount(),
+                AudioTrackLoader.getCoalescedCount()),
+            false);
+
+        embedBuilder.addField("Large playlists",
+            String.format("Playlists of %d+ items started: %d%nTime to first audio: %.0fms avg, %dms max",
+                PlaylistPlayableContainer.TIME_TO_FIRST_AUDIO_THRESHOLD,
+                PlaylistPlayableContainer.getTimeToFirstAudioCount(),
+                PlaylistPlayableContainer.getAverageTimeToFirstAudioMs(),
+                PlaylistPlayableContainer.getMaxTimeToFirstAudioMs()),
+            false);
+
+        SpotifyRedirectService.PipelineStage indexLookupStage = SpotifyRedirectService.getIndexLookupStage();
+        SpotifyRedirectService.PipelineStage resolutionStage = SpotifyRedirectService.getResolutionStage();
+        SpotifyRedirectService.PipelineStage persistStage = SpotifyRedirectService.getPersistStage();
+        embedBuilder.addField("Spotify redirect batches",
+            String.format("Index lookup: %d tracks, %.2fms avg%nResolution: %d tracks, %.1fms avg%nPersisting: %d changes, %.2fms avg",
+                indexLookupStage.getItemCount(),
+                indexLookupStage.getAverageMs(),
+                resolutionStage.getItemCount(),
+                resolutionStage.getAverageMs(),
+                persistStage.getItemCount(),
+                persistStage.getAverageMs()),
+            false);
+
+        SpotifyItemSnapshotService spotifyItemSnapshotService = aiode.getSpotifyItemSnapshotService();
+        embedBuilder.addField("Spotify item snapshots",
+            String.format("Hits: %d%nMisses: %d%nRefreshed: %d",
+                spotifyItemSnapshotService.getHitCount(),
+                spotifyItemSnapshotService.getMissCount(),
+                spotifyItemSnapshotService.getRefreshCount()),
+            false);
+        embedBuilder.addField("Spotify item snapshot buffer",
+            describeWriteBehindBuffer(spotifyItemSnapshotService.getSnapshotBuffer()),
+            false);
+
+        CompiledScriptCache compiledScriptCache = SafeGroovyScriptRunner.getCompiledScriptCache();
+        long scriptExecutionCount = SafeGroovyScriptRunner.getScriptExecutionCount();
+        double savedCompileMs = compiledScriptCache.getEstimatedSavedMs();
+        embedBuilder.addField("Compiled script cache",
+            String.format("Size: %d / %d%nHit rate: %.1f%% (%d hits, %d misses)%nAverage compile time: %.1fms%nCompile time saved: %.0fms total, %.1fms per script execution",
+                compiledScriptCache.getSize(),
+                compiledScriptCache.getMaxSize(),
+                compiledScriptCache.getStats().hitRate() * 100,
+                compiledScriptCache.getStats().hitCount(),
+                compiledScriptCache.getStats().missCount(),
+                compiledScriptCache.getAverageCompileMs(),
+                savedCompileMs,
+                scriptExecutionCount > 0 ? savedCompileMs / scriptExecutionCount : 0D),
+            false);
+
+        ScriptExecutionPool scriptExecutionPool = SafeGroovyScriptRunner.getScriptExecutionPool();
+        embedBuilder.addField("Script execution",
+            String.format("Queued: %d%nRunning: %d%nCompleted: %d%nTimed out: %d%nRejected: %d",
+                scriptExecutionPool.getQueuedCount(),
+                scriptExecutionPool.getRunningCount(),
+                scriptExecutionPool.getCompletedCount(),
+                scriptExecutionPool.getTimedOutCount(),
+                scriptExecutionPool.getRejectedCount()),
+            false);
+
+        embedBuilder.addField("Playback history buffer",
+            describeWriteBehindBuffer(aiode.getAudioManager().getPlaybackHistoryBuffer()),
+            false);
+
+        CommandHistorySink commandHistorySink = aiode.getSpringBootContext().getBean(CommandHistorySink.class);
+        embedBuilder.addField("Command history buffer",
+            describeWriteBehindBuffer(commandHistorySink.getBuffer()),
+            false);
+
+        embedBuilder.addField("Command listener",
+            String.format("Messages rejected without session: %d", CommandListener.getRejectedWithoutSessionCount()),
+            false);
+
+        Collection<GuildManager.BootstrapReport> bootstrapReports = aiode.getGuildManager().getBootstrapReports();
+        if (!bootstrapReports.isEmpty()) {
+            embedBuilder.addField("Guild bootstrap",
+                String.format("Shards: %d%nGuilds: %d (%d created, %d set up individually)%nSlowest shard: %dms%nLoad specifications: %dms%nCreate specifications: %dms%nBuild contexts: %dms%nSet up new and remaining guilds: %dms",
+                    bootstrapReports.size(),
+                    bootstrapReports.stream().mapToInt(GuildManager.BootstrapReport::guildCount).sum(),
+                    bootstrapReports.stream().mapToInt(GuildManager.BootstrapReport::createdCount).sum(),
+                    bootstrapReports.stream().mapToInt(GuildManager.BootstrapReport::fallbackCount).sum(),
+                    bootstrapReports.stream().mapToLong(GuildManager.BootstrapReport::totalMs).max().orElse(0),
+                    bootstrapReports.stream().mapToLong(GuildManager.BootstrapReport::loadSpecificationsMs).sum(),
+                    bootstrapReports.stream().mapToLong(GuildManager.BootstrapReport::createSpecificationsMs).sum(),
+                    bootstrapReports.stream().mapToLong(GuildManager.BootstrapReport::buildContextsMs).sum(),
+                    bootstrapReports.stream().mapToLong(GuildManager.BootstrapReport::setupGuildsMs).sum()),
+                false);
+        }
+
+        sendMessage(embedBuilder);
+    }
+
+    private String describeWriteBehindBuffer(WriteBehindBuffer<?> buffer) {
+        return String.format("Queue depth: %d / %d%nRejected: %d%nFlushed: %d in %d batches (%.1f avg)%nFailed: %d%nFlush latency: %.1fms avg, %dms max",
+            buffer.getQueueDepth(),
+            buffer.getCapacity(),
+            buffer.getRejectedCount(),
+            buffer.getFlushedCount(),
+            buffer.getFlushCount(),
+            buffer.getAverageBatchSize(),
+            buffer.getFailedCount(),
+            buffer.getAverageFlushMs(),
+            buffer.getMaxFlushMs());
+    }
+
+    @Override
+    public void onSuccess() {
+    }
+}
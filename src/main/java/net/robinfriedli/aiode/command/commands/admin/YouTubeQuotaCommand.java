@@ -3,6 +3,7 @@ package net.robinfriedli.aiode.command.commands.admin;
 import jakarta.persistence.LockModeType;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.youtube.YouTubeSearchCache;
 import net.robinfriedli.aiode.audio.youtube.YouTubeService;
 import net.robinfriedli.aiode.command.AbstractAdminCommand;
 import net.robinfriedli.aiode.command.CommandContext;
@@ -29,6 +30,16 @@ public class YouTubeQuotaCommand extends AbstractAdminCommand {
         embedBuilder.addField("Current persistent value", String.valueOf(persistent), true);
         embedBuilder.addField("Daily limit", String.valueOf(limit), true);
 
+        YouTubeSearchCache searchCache = youTubeService.getSearchCache();
+        embedBuilder.addField("Saved by search cache",
+            String.format("Quota: %d%nLavaplayer searches: %d%nHits: %d in memory, %d persistent%nMisses: %d",
+                searchCache.getSavedQuota(),
+                searchCache.getSavedLavaplayerSearches(),
+                searchCache.getMemoryHitCount(),
+                searchCache.getPersistentHitCount(),
+                searchCache.getMissCount()),
+            false);
+
         sendMessage(embedBuilder);
     }
 
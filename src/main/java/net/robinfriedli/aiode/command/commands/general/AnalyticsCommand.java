@@ -59,7 +59,7 @@ public class AnalyticsCommand extends AbstractCommand {
 
         EmbedBuilder embedBuilder = new EmbedBuilder();
         embedBuilder.addField("Guilds", String.valueOf(guildCount), true);
-        embedBuilder.addField("Guilds active", String.valueOf(guildManager.getActiveGuilds(session).size()), true);
+        embedBuilder.addField("Guilds active", String.valueOf(guildManager.getActiveGuilds().size()), true);
         embedBuilder.addField("Guilds playing now", String.valueOf(playingCount), true);
         embedBuilder.addField("Total commands entered", String.valueOf(commandCount), true);
         embedBuilder.addField("Saved playlists", String.valueOf(playlistCount), true);
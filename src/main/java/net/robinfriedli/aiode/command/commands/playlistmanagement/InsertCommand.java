@@ -8,6 +8,7 @@ import net.robinfriedli.aiode.entities.Playlist;
 import net.robinfriedli.aiode.entities.PlaylistItem;
 import net.robinfriedli.aiode.entities.xml.CommandContribution;
 import net.robinfriedli.aiode.exceptions.InvalidCommandException;
+import net.robinfriedli.aiode.persist.PlaylistItemIndex;
 
 public class InsertCommand extends AddCommand {
 
@@ -32,18 +33,9 @@ public class InsertCommand extends AddCommand {
             throw new InvalidCommandException(String.format("Invalid index: %d. Index is not within playlist of size %d. Use the add command to add items at the end of the list instead.", targetIndex, playlist.getSize()));
         }
 
-        int actualIndex = targetIndex - 1;
-        // move back all items that are at or after the target index
+        // assign indices between the items before and at the target index
         List<PlaylistItem> itemsSorted = playlist.getItemsSorted(true);
-        for (int i = actualIndex; i < itemsSorted.size(); i++) {
-            PlaylistItem item = itemsSorted.get(i);
-            item.setIndex(item.getIndex() + items.size());
-        }
-        // assign target indices
-        for (int i = 0; i < items.size(); i++) {
-            PlaylistItem item = items.get(i);
-            item.setIndex(actualIndex + i);
-        }
+        PlaylistItemIndex.place(itemsSorted, targetIndex - 1, items);
 
         super.addToList(playlist, items);
     }
@@ -3,6 +3,7 @@ package net.robinfriedli.aiode.command.commands.playlistmanagement;
 import java.util.List;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
 import net.dv8tion.jda.api.entities.Guild;
 import net.robinfriedli.aiode.command.AbstractCommand;
 import net.robinfriedli.aiode.command.CommandContext;
@@ -12,6 +13,7 @@ import net.robinfriedli.aiode.entities.PlaylistItem;
 import net.robinfriedli.aiode.entities.xml.CommandContribution;
 import net.robinfriedli.aiode.exceptions.InvalidCommandException;
 import net.robinfriedli.aiode.exceptions.NoResultsFoundException;
+import net.robinfriedli.aiode.persist.PlaylistItemIndex;
 import net.robinfriedli.aiode.util.SearchEngine;
 import org.hibernate.Session;
 
@@ -75,24 +77,10 @@ public class MoveCommand extends AbstractCommand {
 
     private void moveSingleIndex(int index, int targetIndex, Playlist playlist) {
         List<PlaylistItem> itemsSorted = playlist.getItemsSorted();
-        PlaylistItem itemToMove = itemsSorted.get(index);
         invoke(() -> {
-            if (index < targetIndex) {
-                // item is being moved down
-                // move up items that were after the moving item but are now before
-                for (int i = index + 1; i <= targetIndex; i++) {
-                    PlaylistItem item = itemsSorted.get(i);
-                    item.setIndex(item.getIndex() - 1);
-                }
-            } else {
-                // item is being moved up
-                // move down items that were before the moving item but are now after
-                for (int i = targetIndex; i < index; i++) {
-                    PlaylistItem item = itemsSorted.get(i);
-                    item.setIndex(item.getIndex() + 1);
-                }
-            }
-            itemToMove.setIndex(targetIndex);
+            // place the item between its new neighbours, the indices of the items in between remain unchanged
+            PlaylistItem itemToMove = itemsSorted.remove(index);
+            PlaylistItemIndex.place(itemsSorted, targetIndex, List.of(itemToMove));
             successMessageBuilder.append("Moved item '").append(itemToMove.display()).append("' to index ").append(targetIndex + 1);
         });
     }
@@ -102,31 +90,26 @@ public class MoveCommand extends AbstractCommand {
 
         invoke(() -> {
             boolean movedDown = start < targetIndex;
-            int range = end - start + 1;
+            PlaylistItem targetItem = itemsSorted.get(targetIndex);
+            List<PlaylistItem> rangeToMove = itemsSorted.subList(start, end + 1);
+            List<PlaylistItem> itemsToMove = Lists.newArrayList(rangeToMove);
+            rangeToMove.clear();
             if (movedDown) {
-                for (int i = start; i <= targetIndex; i++) {
-                    PlaylistItem item = itemsSorted.get(i);
-                    if (i <= end) {
-                        // set items are within the defined start - end range to the desired index
-                        // note that the end item ends up at the targetIndex because of how the items are moved up
-                        // e.g moving 4 - 6 to 10
-                        // before                   after
-                        // 3. track 3               3. track 3
-                        // 4. to move 1             4. track 7
-                        // 5. to move 2             5. track 8
-                        // 6. to move 3             6. track 9
-                        // 7. track 7               7. track 10
-                        // 8. track 8               8. to move 1
-                        // 9. track 9               9. to move 2
-                        // 10. track 10             10. to move 3
-                        // 11. track 11             11. track 11
-                        item.setIndex(targetIndex - (end - i));
-                    } else {
-                        item.setIndex(item.getIndex() - range);
-                    }
-                }
+                // the end item ends up at the targetIndex
+                // e.g moving 4 - 6 to 10
+                // before                   after
+                // 3. track 3               3. track 3
+                // 4. to move 1             4. track 7
+                // 5. to move 2             5. track 8
+                // 6. to move 3             6. track 9
+                // 7. track 7               7. track 10
+                // 8. track 8               8. to move 1
+                // 9. track 9               9. to move 2
+                // 10. track 10             10. to move 3
+                // 11. track 11             11. track 11
+                PlaylistItemIndex.place(itemsSorted, targetIndex - itemsToMove.size() + 1, itemsToMove);
                 String message = String.format("Moved items %d through %d behind item '%s'",
-                    start + 1, end + 1, itemsSorted.get(targetIndex).display());
+                    start + 1, end + 1, targetItem.display());
                 successMessageBuilder.append(message);
             } else {
                 // e.g. moving 14 - 16 to 10
@@ -140,16 +123,9 @@ public class MoveCommand extends AbstractCommand {
                 // 15. to move 2                    15. track 12
                 // 16. to move 3                    16. track 13
                 // 17. track 17                     17. track 17
-                for (int i = end; i >= targetIndex; i--) {
-                    PlaylistItem item = itemsSorted.get(i);
-                    if (i >= start) {
-                        item.setIndex(targetIndex + i - start);
-                    } else {
-                        item.setIndex(item.getIndex() + range);
-                    }
-                }
+                PlaylistItemIndex.place(itemsSorted, targetIndex, itemsToMove);
                 String message = String.format("Moved items %d through %d ahead of item '%s'",
-                    start + 1, end + 1, itemsSorted.get(targetIndex).display());
+                    start + 1, end + 1, targetItem.display());
                 successMessageBuilder.append(message);
             }
         });
@@ -1,7 +1,9 @@
 package net.robinfriedli.aiode.command.commands.playlistmanagement;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import net.robinfriedli.aiode.command.AbstractCommand;
 import net.robinfriedli.aiode.command.CommandContext;
@@ -64,10 +66,15 @@ public class RemoveCommand extends AbstractCommand {
             } else if (playlistItems.isEmpty()) {
                 throw new NoResultsFoundException(String.format("No tracks found for '%s' on list '%s'", getCommandInput(), playlistName));
             } else {
+                List<PlaylistItem> itemsSorted = playlist.getItemsSorted();
+                Map<PlaylistItem, Integer> positions = new HashMap<>();
+                for (int i = 0; i < itemsSorted.size(); i++) {
+                    positions.put(itemsSorted.get(i), i + 1);
+                }
                 askQuestion(
                     playlistItems,
                     PlaylistItem::display,
-                    item -> valueOf(item.getIndex() + 1)
+                    item -> valueOf(positions.get(item))
                 );
             }
         }
@@ -203,7 +203,8 @@ public class SearchCommand extends AbstractSourceDecidingCommand {
                 widgetRegistry,
                 getContext().getGuild(),
                 getContext().getChannel(),
-                playlist
+                playlist,
+                getContext().getSession()
             );
             playlistPaginationWidget.initialise();
         }
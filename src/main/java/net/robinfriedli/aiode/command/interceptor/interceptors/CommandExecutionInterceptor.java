@@ -15,9 +15,10 @@ import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.robinfriedli.aiode.command.AbstractCommand;
 import net.robinfriedli.aiode.command.Command;
 import net.robinfriedli.aiode.command.CommandContext;
+import net.robinfriedli.aiode.command.CommandHistorySink;
 import net.robinfriedli.aiode.command.interceptor.AbstractChainableCommandInterceptor;
 import net.robinfriedli.aiode.command.interceptor.CommandInterceptor;
-import net.robinfriedli.aiode.concurrent.HistoryPool;
+import net.robinfriedli.aiode.discord.GuildManager;
 import net.robinfriedli.aiode.discord.MessageService;
 import net.robinfriedli.aiode.entities.CommandHistory;
 import net.robinfriedli.aiode.entities.xml.CommandInterceptorContribution;
@@ -26,7 +27,6 @@ import net.robinfriedli.aiode.exceptions.CommandFailure;
 import net.robinfriedli.aiode.exceptions.CommandRuntimeException;
 import net.robinfriedli.aiode.exceptions.NoLoginException;
 import net.robinfriedli.aiode.exceptions.UserException;
-import net.robinfriedli.aiode.persist.StaticSessionProvider;
 import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
 import se.michaelthelin.spotify.exceptions.detailed.UnauthorizedException;
 
@@ -36,11 +36,21 @@ import se.michaelthelin.spotify.exceptions.detailed.UnauthorizedException;
  */
 public class CommandExecutionInterceptor extends AbstractChainableCommandInterceptor {
 
+    private final CommandHistorySink commandHistorySink;
+    private final GuildManager guildManager;
     private final MessageService messageService;
     private final Logger logger;
 
-    public CommandExecutionInterceptor(CommandInterceptorContribution commandInterceptorContribution, CommandInterceptor next, MessageService messageService) {
+    public CommandExecutionInterceptor(
+        CommandInterceptorContribution commandInterceptorContribution,
+        CommandInterceptor next,
+        CommandHistorySink commandHistorySink,
+        GuildManager guildManager,
+        MessageService messageService
+    ) {
         super(commandInterceptorContribution, next);
+        this.commandHistorySink = commandHistorySink;
+        this.guildManager = guildManager;
         this.messageService = messageService;
         this.logger = LoggerFactory.getLogger(getClass());
     }
@@ -52,6 +62,7 @@ public class CommandExecutionInterceptor extends AbstractChainableCommandInterce
         String errorMessage = null;
         boolean unexpectedException = false;
         boolean aborted = false;
+        guildManager.recordActivity(command.getContext().getGuild());
         try {
             try {
                 if (command.isAborted()) {
@@ -156,7 +167,7 @@ public class CommandExecutionInterceptor extends AbstractChainableCommandInterce
     }
 
     /**
-     * Finalize and persist the {@link CommandHistory} entry for this command execution.
+     * Finalize the {@link CommandHistory} entry for this command execution and submit it to the {@link CommandHistorySink}.
      *
      * @param command               the executed command
      * @param completedSuccessfully whether the command completed sucessfully
@@ -173,22 +184,19 @@ public class CommandExecutionInterceptor extends AbstractChainableCommandInterce
                              boolean aborted) {
         CommandContext context = command.getContext();
         context.interruptMonitoring();
-        HistoryPool.execute(() -> {
-            CommandHistory history = context.getCommandHistory();
-            if (history != null) {
-                history.setDurationMs(System.currentTimeMillis() - history.getStartMillis());
-                history.setCompletedSuccessfully(completedSuccessfully);
-                history.setFailedManually(failedManually);
-                history.setUnexpectedException(unexpectedException);
-                history.setErrorMessage(errorMessage);
-                history.setAborted(aborted);
-
-                StaticSessionProvider.consumeSession(session -> session.persist(history));
-            } else {
-                logger.warn("Command " + command + " has no history");
-            }
-        });
+        CommandHistory history = context.getCommandHistory();
+        if (history != null) {
+            history.setDurationMs(System.currentTimeMillis() - history.getStartMillis());
+            history.setCompletedSuccessfully(completedSuccessfully);
+            history.setFailedManually(failedManually);
+            history.setUnexpectedException(unexpectedException);
+            history.setErrorMessage(errorMessage);
+            history.setAborted(aborted);
 
+            commandHistorySink.submit(history);
+        } else {
+            logger.warn("Command " + command + " has no history");
+        }
     }
 
 }
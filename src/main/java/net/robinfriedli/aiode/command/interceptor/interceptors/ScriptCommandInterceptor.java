@@ -9,8 +9,6 @@ import net.robinfriedli.aiode.command.Command;
 import net.robinfriedli.aiode.command.CommandContext;
 import net.robinfriedli.aiode.command.interceptor.AbstractChainableCommandInterceptor;
 import net.robinfriedli.aiode.command.interceptor.CommandInterceptor;
-import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
-import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.entities.StoredScript;
 import net.robinfriedli.aiode.entities.xml.CommandInterceptorContribution;
 import net.robinfriedli.aiode.persist.qb.QueryBuilderFactory;
@@ -20,16 +18,13 @@ import org.hibernate.Session;
 public abstract class ScriptCommandInterceptor extends AbstractChainableCommandInterceptor {
 
     private final GroovySandboxComponent groovySandboxComponent;
-    private final GuildPropertyManager guildPropertyManager;
     private final QueryBuilderFactory queryBuilderFactory;
 
     public ScriptCommandInterceptor(CommandInterceptorContribution contribution,
                                     CommandInterceptor next,
                                     GroovySandboxComponent groovySandboxComponent,
-                                    GuildPropertyManager guildPropertyManager,
                                     QueryBuilderFactory queryBuilderFactory) {
         super(contribution, next);
-        this.guildPropertyManager = guildPropertyManager;
         this.queryBuilderFactory = queryBuilderFactory;
         this.groovySandboxComponent = groovySandboxComponent;
     }
@@ -48,9 +43,8 @@ public abstract class ScriptCommandInterceptor extends AbstractChainableCommandI
         CommandContext context = command.getContext();
         Session session = context.getSession();
 
-        GuildSpecification specification = context.getGuildContext().getSpecification(session);
-        boolean enableScripting = guildPropertyManager
-            .getPropertyValueOptional("enableScripting", Boolean.class, specification)
+        boolean enableScripting = context.getGuildContext().getPropertySnapshot()
+            .getValue("enableScripting", Boolean.class)
             .orElse(true);
 
         if (!enableScripting) {
@@ -94,9 +88,8 @@ public abstract class ScriptCommandInterceptor extends AbstractChainableCommandI
         public ScriptCommandInterceptorPreExecution(CommandInterceptorContribution contribution,
                                                     CommandInterceptor next,
                                                     GroovySandboxComponent groovySandboxComponent,
-                                                    GuildPropertyManager guildPropertyManager,
                                                     QueryBuilderFactory queryBuilderFactory) {
-            super(contribution, next, groovySandboxComponent, guildPropertyManager, queryBuilderFactory);
+            super(contribution, next, groovySandboxComponent, queryBuilderFactory);
         }
 
         @Override
@@ -110,9 +103,8 @@ public abstract class ScriptCommandInterceptor extends AbstractChainableCommandI
         public ScriptCommandInterceptorFinalizer(CommandInterceptorContribution contribution,
                                                  CommandInterceptor next,
                                                  GroovySandboxComponent groovySandboxComponent,
-                                                 GuildPropertyManager guildPropertyManager,
                                                  QueryBuilderFactory queryBuilderFactory) {
-            super(contribution, next, groovySandboxComponent, guildPropertyManager, queryBuilderFactory);
+            super(contribution, next, groovySandboxComponent, queryBuilderFactory);
         }
 
         @Override
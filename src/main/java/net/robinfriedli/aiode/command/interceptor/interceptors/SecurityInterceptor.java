@@ -13,31 +13,25 @@ import net.robinfriedli.aiode.command.SecurityManager;
 import net.robinfriedli.aiode.command.argument.ArgumentController;
 import net.robinfriedli.aiode.command.interceptor.AbstractChainableCommandInterceptor;
 import net.robinfriedli.aiode.command.interceptor.CommandInterceptor;
-import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
-import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.entities.xml.CommandInterceptorContribution;
 import net.robinfriedli.aiode.exceptions.ForbiddenCommandException;
 import net.robinfriedli.aiode.exceptions.InvalidCommandException;
-import org.hibernate.Session;
 
 /**
  * Interceptor that checks whether a member is allowed to use the current command
  */
 public class SecurityInterceptor extends AbstractChainableCommandInterceptor {
 
-    private final GuildPropertyManager guildPropertyManager;
     private final SecurityManager securityManager;
     private final SpringPropertiesConfig springPropertiesConfig;
 
     public SecurityInterceptor(
         CommandInterceptorContribution contribution,
         CommandInterceptor next,
-        GuildPropertyManager guildPropertyManager,
         SecurityManager securityManager,
         SpringPropertiesConfig springPropertiesConfig
     ) {
         super(contribution, next);
-        this.guildPropertyManager = guildPropertyManager;
         this.securityManager = securityManager;
         this.springPropertiesConfig = springPropertiesConfig;
     }
@@ -62,10 +56,8 @@ public class SecurityInterceptor extends AbstractChainableCommandInterceptor {
                     }
                 }
 
-                Session session = context.getSession();
-                GuildSpecification specification = context.getGuildContext().getSpecification(session);
-                boolean enableScripting = guildPropertyManager
-                    .getPropertyValueOptional("enableScripting", Boolean.class, specification)
+                boolean enableScripting = context.getGuildContext().getPropertySnapshot()
+                    .getValue("enableScripting", Boolean.class)
                     .orElse(true);
 
                 if (!enableScripting) {
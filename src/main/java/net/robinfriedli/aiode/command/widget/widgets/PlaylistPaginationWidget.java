@@ -2,10 +2,16 @@ package net.robinfriedli.aiode.command.widget.widgets;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
@@ -15,42 +21,72 @@ import net.dv8tion.jda.api.requests.ErrorResponse;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import net.robinfriedli.aiode.Aiode;
 import net.robinfriedli.aiode.boot.SpringPropertiesConfig;
-import net.robinfriedli.aiode.command.widget.DynamicEmbedTablePaginationWidget;
+import net.robinfriedli.aiode.command.widget.EmbedTablePaginationWidget;
 import net.robinfriedli.aiode.command.widget.WidgetRegistry;
 import net.robinfriedli.aiode.entities.Playlist;
 import net.robinfriedli.aiode.entities.PlaylistItem;
+import net.robinfriedli.aiode.persist.PlaylistItemIndex;
+import net.robinfriedli.aiode.persist.StaticSessionProvider;
 import net.robinfriedli.aiode.util.Util;
+import org.hibernate.Session;
+
+/**
+ * Widget that displays the items of a playlist in pages of {@link #PAGE_SIZE} items. Pages are loaded lazily using the
+ * keyset pagination of the {@link PlaylistItemIndex} when they are first displayed, only the number of items and their
+ * total duration is loaded up front.
+ */
+public class PlaylistPaginationWidget extends EmbedTablePaginationWidget<PlaylistPaginationWidget.Row> {
+
+    // tracks are truncated to 53 characters, so the track column of a page stays below the 1000 character field limit
+    private static final int PAGE_SIZE = 15;
 
-public class PlaylistPaginationWidget extends DynamicEmbedTablePaginationWidget<PlaylistItem> {
+    @SuppressWarnings("unchecked")
+    private static final Column<Row>[] COLUMNS = new Column[]{
+        new Column<Row>("Track", Row::track),
+        new Column<Row>("Duration", Row::duration)
+    };
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Playlist playlist;
+    private final PlaylistItemIndex.Summary summary;
 
     public PlaylistPaginationWidget(
         WidgetRegistry widgetRegistry,
         Guild guild,
         MessageChannel channel,
-        Playlist playlist
+        Playlist playlist,
+        Session session
+    ) {
+        this(widgetRegistry, guild, channel, playlist, PlaylistItemIndex.getSummary(session, playlist));
+    }
+
+    private PlaylistPaginationWidget(
+        WidgetRegistry widgetRegistry,
+        Guild guild,
+        MessageChannel channel,
+        Playlist playlist,
+        PlaylistItemIndex.Summary summary
     ) {
-        super(
-            widgetRegistry,
-            guild,
-            channel,
-            playlist.getName(),
-            null,
-            new Column[]{
-                new Column<PlaylistItem>("Track", playlistItem -> {
-                    String display = playlistItem.display();
-                    return display.length() > 50
-                        ? display.substring(0, 50) + "..."
-                        : display;
-                }),
-                new Column<PlaylistItem>("Duration", playlistItem -> Util.normalizeMillis(playlistItem.getDuration()))
-            },
-            playlist.getItemsSorted()
-        );
+        super(widgetRegistry, guild, channel, new LazyPages(playlist, summary.size()));
         this.playlist = playlist;
+        this.summary = summary;
+    }
+
+    @Override
+    protected Column<Row>[] getColumns() {
+        return COLUMNS;
+    }
+
+    @Override
+    protected String getTitle() {
+        return playlist.getName();
+    }
+
+    @Nullable
+    @Override
+    protected String getDescription() {
+        return null;
     }
 
     @Override
@@ -74,9 +110,9 @@ public class PlaylistPaginationWidget extends DynamicEmbedTablePaginationWidget<
         }
 
         EmbedBuilder embedBuilder = new EmbedBuilder();
-        embedBuilder.addField("Duration", Util.normalizeMillis(playlist.getDuration()), true);
+        embedBuilder.addField("Duration", Util.normalizeMillis(summary.duration()), true);
         embedBuilder.addField("Created by", createdUser, true);
-        embedBuilder.addField("Tracks", String.valueOf(playlist.getSize()), true);
+        embedBuilder.addField("Tracks", String.valueOf(summary.size()), true);
 
         SpringPropertiesConfig springPropertiesConfig = Aiode.get().getSpringPropertiesConfig();
         String baseUri = springPropertiesConfig.requireApplicationProperty("aiode.server.base_uri");
@@ -90,4 +126,61 @@ public class PlaylistPaginationWidget extends DynamicEmbedTablePaginationWidget<
 
         return embedBuilder;
     }
+
+    /**
+     * A displayed playlist item, rendered while the session that loaded the item is still active.
+     */
+    public record Row(String track, String duration) {
+
+        static Row of(PlaylistItem playlistItem) {
+            String display = playlistItem.display();
+            return new Row(
+                display.length() > 50 ? display.substring(0, 50) + "..." : display,
+                Util.normalizeMillis(playlistItem.getDuration())
+            );
+        }
+    }
+
+    /**
+     * The pages of the playlist, loading pages on first access. Since pages are loaded using keyset pagination, pages
+     * before the requested page are loaded first if they have not been loaded yet.
+     */
+    private static class LazyPages extends AbstractList<List<Row>> {
+
+        private final Playlist playlist;
+        private final int pageCount;
+        private final List<List<Row>> loadedPages = Lists.newArrayList();
+        private PlaylistItem lastLoadedItem;
+
+        LazyPages(Playlist playlist, int itemCount) {
+            this.playlist = playlist;
+            pageCount = (itemCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        }
+
+        @Override
+        public synchronized List<Row> get(int index) {
+            Objects.checkIndex(index, pageCount);
+            if (index >= loadedPages.size()) {
+                StaticSessionProvider.consumeSession(session -> {
+                    while (loadedPages.size() <= index) {
+                        List<PlaylistItem> items = PlaylistItemIndex.getPage(session, playlist, lastLoadedItem, PAGE_SIZE);
+                        if (items.isEmpty()) {
+                            // items have been removed since the widget was created
+                            break;
+                        }
+                        loadedPages.add(items.stream().map(Row::of).toList());
+                        lastLoadedItem = items.getLast();
+                    }
+                });
+            }
+
+            return index < loadedPages.size() ? loadedPages.get(index) : List.of();
+        }
+
+        @Override
+        public int size() {
+            return pageCount;
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ import net.robinfriedli.aiode.persist.interceptors.AlertAccessConfigurationModif
 import net.robinfriedli.aiode.persist.interceptors.AlertPlaylistModificationInterceptor;
 import net.robinfriedli.aiode.persist.interceptors.AlertPresetCreationInterceptor;
 import net.robinfriedli.aiode.persist.interceptors.AlertScriptModificationInterceptor;
+import net.robinfriedli.aiode.persist.interceptors.CommandIndexInterceptor;
 import net.robinfriedli.aiode.persist.interceptors.EntityValidationInterceptor;
 import net.robinfriedli.aiode.persist.interceptors.GuildPropertyInterceptor;
 import net.robinfriedli.aiode.persist.interceptors.InterceptorChain;
@@ -200,7 +201,8 @@ public class ExecutionContext implements CloseableThreadContext, ForkableThreadC
                     AlertPresetCreationInterceptor.class,
                     GuildPropertyInterceptor.class,
                     EntityValidationInterceptor.class,
-                    PresetSlashCommandsInterceptor.class
+                    PresetSlashCommandsInterceptor.class,
+                    CommandIndexInterceptor.class
                 ))
                 .openSession();
             this.session = session;
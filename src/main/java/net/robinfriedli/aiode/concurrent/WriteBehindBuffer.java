@@ -0,0 +1,211 @@
+package net.robinfriedli.aiode.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.robinfriedli.aiode.boot.AbstractShutdownable;
+
+/**
+ * Bounded buffer for entities that do not have to be persisted immediately, such as history entries. Items offered to
+ * the buffer are collected by a dedicated thread for the configured flush interval, or until a full batch is collected,
+ * and then handed to the flush action as one batch so that they can be persisted in one transaction using JDBC
+ * batching. When the buffer is full new items are rejected rather than blocking the calling thread, the number of
+ * rejected items is tracked as a measure of backpressure. Failed batches are retried once. The remaining items are
+ * flushed after the flush thread has terminated when shutting down.
+ *
+ * @param <T> the type of buffered items
+ */
+public class WriteBehindBuffer<T> extends AbstractShutdownable {
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Consumer<List<T>> flushAction;
+    private final Logger logger;
+    private final Thread flushThread;
+
+    private final AtomicLong offeredCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    private volatile boolean shutdown;
+
+    /**
+     * @param name          the name of the buffer, used to name the flush thread
+     * @param capacity      the maximum number of buffered items
+     * @param batchSize     the maximum number of items flushed at once
+     * @param flushInterval the maximum time an item is held before it is flushed
+     * @param flushAction   action that persists a batch of items, called by the flush thread
+     */
+    public WriteBehindBuffer(String name, int capacity, int batchSize, Duration flushInterval, Consumer<List<T>> flushAction) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.flushAction = flushAction;
+        this.logger = LoggerFactory.getLogger(getClass());
+        flushThread = new Thread(this::runFlushLoop, name + "-flush-thread");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    /**
+     * Add an item to the buffer without blocking.
+     *
+     * @return false if the item was rejected because the buffer is full or has been shut down
+     */
+    public boolean offer(T item) {
+        if (!shutdown && queue.offer(item)) {
+            offeredCount.incrementAndGet();
+            return true;
+        }
+
+        long rejected = rejectedCount.incrementAndGet();
+        if (rejected % 1000 == 1) {
+            logger.warn(String.format("Write behind buffer %s is full, %d items have been rejected so far", name, rejected));
+        }
+        return false;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getOfferedCount() {
+        return offeredCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public double getAverageFlushMs() {
+        long count = flushCount.get();
+        return count > 0 ? flushNanos.get() / (count * 1_000_000D) : 0;
+    }
+
+    public long getMaxFlushMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushNanos.get());
+    }
+
+    /**
+     * @return the average number of items per flushed batch
+     */
+    public double getAverageBatchSize() {
+        long count = flushCount.get();
+        return count > 0 ? (double) flushedCount.get() / count : 0;
+    }
+
+    @Override
+    public void shutdown(int delayMs) {
+        shutdown = true;
+        // let the flush thread finish its current batch rather than interrupting a running transaction, the flush loop
+        // must have terminated before draining the queue so that the remaining items are not flushed concurrently
+        try {
+            flushThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn(String.format("Interrupted while waiting for the flush thread of write behind buffer %s, %d items are not flushed", name, queue.size()));
+            return;
+        }
+
+        // flush items the flush thread did not get to
+        List<T> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            flush(remaining);
+            remaining = new ArrayList<>();
+        }
+    }
+
+    private void runFlushLoop() {
+        while (!shutdown) {
+            List<T> batch = new ArrayList<>(batchSize);
+            try {
+                T first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // coalesce items arriving within the flush interval
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize && !shutdown) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    T next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shutdown = true;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    /**
+     * Flush the batch, retrying once if the flush action fails, e.g. due to a serialization failure or a dropped
+     * connection, before giving up on the batch.
+     */
+    private void flush(List<T> batch) {
+        long start = System.nanoTime();
+        try {
+            try {
+                flushAction.accept(batch);
+            } catch (Exception e) {
+                logger.warn(String.format("Exception while flushing %d items of write behind buffer %s, retrying", batch.size(), name), e);
+                flushAction.accept(batch);
+            }
+            flushedCount.addAndGet(batch.size());
+        } catch (Exception e) {
+            failedCount.addAndGet(batch.size());
+            logger.error(String.format("Exception while flushing %d items of write behind buffer %s", batch.size(), name), e);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            flushCount.incrementAndGet();
+            flushNanos.addAndGet(nanos);
+            maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package net.robinfriedli.aiode.cron.tasks;
+
+import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.youtube.YouTubeSearchCache;
+import net.robinfriedli.aiode.cron.AbstractCronTask;
+import net.robinfriedli.aiode.function.modes.HibernateTransactionMode;
+import net.robinfriedli.exec.Mode;
+import org.quartz.JobExecutionContext;
+
+/**
+ * Deletes persisted YouTube search results that are older than the time to live of the {@link YouTubeSearchCache},
+ * results of terms that are searched again are replaced when persisting the new result.
+ */
+public class DeleteExpiredYouTubeSearchResultsTask extends AbstractCronTask {
+
+    @Override
+    protected void run(JobExecutionContext jobExecutionContext) throws Exception {
+        YouTubeSearchCache searchCache = Aiode.get().getAudioManager().getYouTubeService().getSearchCache();
+        long millis = System.currentTimeMillis();
+        int deletedCount = searchCache.deleteExpiredResults();
+        Aiode.LOGGER.info("Deleted {} expired YouTube search results after {}ms", deletedCount, System.currentTimeMillis() - millis);
+    }
+
+    @Override
+    protected Mode getMode() {
+        return Mode.create().with(new HibernateTransactionMode());
+    }
+}
@@ -7,15 +7,18 @@ import net.robinfriedli.aiode.function.modes.HibernateTransactionMode;
 import net.robinfriedli.exec.Mode;
 import org.quartz.JobExecutionContext;
 
-public class RefreshPersistentGlobalChartsTask extends AbstractCronTask {
+/**
+ * Deletes the monthly chart counters of past months, the counters of the current month and the all time counters are
+ * kept up to date by the {@link ChartService} when persisting playback histories.
+ */
+public class DeleteOutdatedMonthlyChartsTask extends AbstractCronTask {
 
     @Override
     protected void run(JobExecutionContext jobExecutionContext) throws Exception {
         ChartService chartService = Aiode.get().getChartService();
-        Aiode.LOGGER.info("Starting to refresh persistent global charts");
         long millis = System.currentTimeMillis();
-        chartService.refreshPersistentGlobalCharts();
-        Aiode.LOGGER.info("Completed refreshing persistent global charts after {}ms", System.currentTimeMillis() - millis);
+        chartService.deleteOutdatedMonthlyCharts();
+        Aiode.LOGGER.info("Deleted outdated monthly charts after {}ms", System.currentTimeMillis() - millis);
     }
 
     @Override
@@ -15,7 +15,6 @@ import net.robinfriedli.aiode.cron.AbstractCronTask;
 import net.robinfriedli.aiode.discord.GuildContext;
 import net.robinfriedli.aiode.discord.GuildManager;
 import net.robinfriedli.aiode.exceptions.DiscordEntityInitialisationException;
-import net.robinfriedli.aiode.persist.StaticSessionProvider;
 import net.robinfriedli.exec.Mode;
 import org.quartz.JobExecutionContext;
 
@@ -32,8 +31,7 @@ public class PlaybackCleanupTask extends AbstractCronTask {
         GuildManager guildManager = aiode.getGuildManager();
         Set<GuildContext> guildContexts = guildManager.getGuildContexts();
 
-        Set<Guild> activeGuilds = StaticSessionProvider.invokeWithSession(session ->
-            guildManager.getActiveGuilds(session, 3600000));
+        Set<Guild> activeGuilds = guildManager.getActiveGuilds(3600000);
 
         int clearedAlone = 0;
         int playbacksCleared = 0;
@@ -5,6 +5,7 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -19,6 +20,7 @@ import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
 import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.audio.AudioTrackLoader;
 import net.robinfriedli.aiode.audio.spotify.SpotifyRedirectService;
 import net.robinfriedli.aiode.audio.spotify.SpotifyTrack;
 import net.robinfriedli.aiode.audio.spotify.SpotifyTrackBulkLoadingService;
@@ -177,6 +179,8 @@ public class RefreshSpotifyRedirectIndicesTask extends AbstractCronTask {
                         updated = true;
                     } else {
                         index.setFileBrokerPk(null);
+                        // search SoundCloud while redirecting to YouTube
+                        CompletableFuture<AudioTrack> futureSoundCloudTrack = spotifyRedirectService.findSoundCloudTrackForSpotifyTrack(track);
                         HollowYouTubeVideo hollowYouTubeVideo = new HollowYouTubeVideo(youTubeService, track);
                         try {
                             youTubeService.redirectSpotify(hollowYouTubeVideo);
@@ -189,7 +193,8 @@ public class RefreshSpotifyRedirectIndicesTask extends AbstractCronTask {
                             updated = true;
                         }
 
-                        AudioTrack soundCloudTrack = spotifyRedirectService.findSoundCloudTrackForSpotifyTrack(track);
+                        // the index has to be updated within the transaction of this task
+                        AudioTrack soundCloudTrack = AudioTrackLoader.awaitResult(futureSoundCloudTrack, 2, TimeUnit.MINUTES);
                         if (soundCloudTrack != null && !Strings.isNullOrEmpty(soundCloudTrack.getInfo().uri)) {
                             index.setSoundCloudUri(soundCloudTrack.getInfo().uri);
                             updated = true;
@@ -0,0 +1,56 @@
+package net.robinfriedli.aiode.cron.tasks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import net.robinfriedli.aiode.Aiode;
+import net.robinfriedli.aiode.cron.AbstractCronTask;
+import net.robinfriedli.aiode.discord.GuildContext;
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshot;
+import net.robinfriedli.aiode.entities.GuildSpecification;
+import net.robinfriedli.exec.Mode;
+import org.quartz.JobExecutionContext;
+
+/**
+ * Task that periodically compares the version of the {@link GuildPropertySnapshot} held by each {@link GuildContext} with
+ * the {@link GuildSpecification#getPropertyVersion()} in the database and invalidates snapshots of guilds whose
+ * properties have been changed by a different instance.
+ */
+public class SyncGuildPropertySnapshotsTask extends AbstractCronTask {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    protected void run(JobExecutionContext jobExecutionContext) {
+        Aiode aiode = Aiode.get();
+        List<GuildContext> loadedContexts = aiode.getGuildManager().getGuildContexts().stream()
+            .filter(guildContext -> guildContext.getLoadedPropertySnapshot() != null)
+            .collect(Collectors.toList());
+
+        for (List<GuildContext> batch : Lists.partition(loadedContexts, BATCH_SIZE)) {
+            Map<Long, GuildContext> contextsBySpecificationPk = batch.stream()
+                .collect(Collectors.toMap(GuildContext::getSpecificationPk, Function.identity()));
+
+            List<Object[]> versions = aiode.getHibernateComponent().invokeWithSession(session -> session
+                .createQuery("select pk, propertyVersion from GuildSpecification where pk in :pks", Object[].class)
+                .setParameter("pks", contextsBySpecificationPk.keySet())
+                .getResultList());
+
+            for (Object[] version : versions) {
+                GuildContext guildContext = contextsBySpecificationPk.get((Long) version[0]);
+                GuildPropertySnapshot snapshot = guildContext.getLoadedPropertySnapshot();
+                if (snapshot != null && snapshot.getVersion() != (Long) version[1]) {
+                    guildContext.invalidatePropertySnapshot(snapshot);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Mode getMode() {
+        return Mode.create();
+    }
+}
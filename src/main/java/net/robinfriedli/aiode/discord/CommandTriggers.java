@@ -0,0 +1,68 @@
+package net.robinfriedli.aiode.discord;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Strings;
+import net.robinfriedli.aiode.discord.listeners.CommandListener;
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshot;
+
+/**
+ * In-memory table of the strings a text command may start with in a guild, i.e. the custom prefix and bot name, the
+ * default prefix and bot name, the legacy prefix and the mention of the bot. Held by the {@link GuildContext} so that the
+ * {@link CommandListener} can reject messages that are not commands without loading the {@link net.robinfriedli.aiode.entities.GuildSpecification}.
+ * The triggers are built from a {@link GuildPropertySnapshot} and are only valid as long as that snapshot is the current
+ * snapshot of the guild, so that a prefix or bot name changed by a different instance is picked up as soon as the
+ * snapshot is invalidated.
+ */
+public class CommandTriggers {
+
+    public static final String LEGACY_PREFIX = "$botify";
+
+    private final GuildPropertySnapshot propertySnapshot;
+    private final String[] triggers;
+    private final String selfMention;
+
+    private CommandTriggers(GuildPropertySnapshot propertySnapshot, String[] triggers, String selfMention) {
+        this.propertySnapshot = propertySnapshot;
+        this.triggers = triggers;
+        this.selfMention = selfMention;
+    }
+
+    public static CommandTriggers create(GuildPropertySnapshot propertySnapshot, String defaultPrefix, String defaultBotName, String selfMention) {
+        String prefix = propertySnapshot.getValue("prefix", String.class).orElse(null);
+        String botName = propertySnapshot.getValue("botName", String.class).orElse(null);
+        String[] triggers = Arrays.stream(new String[]{prefix, botName, defaultPrefix, defaultBotName, LEGACY_PREFIX})
+            .filter(trigger -> !Strings.isNullOrEmpty(trigger))
+            .map(String::toLowerCase)
+            .distinct()
+            .toArray(String[]::new);
+        return new CommandTriggers(propertySnapshot, triggers, Objects.requireNonNull(selfMention));
+    }
+
+    /**
+     * @return true if these triggers have been built from the provided snapshot, meaning they reflect the current
+     * prefix and bot name if the provided snapshot is the current snapshot of the guild
+     */
+    public boolean isBuiltFrom(@Nullable GuildPropertySnapshot propertySnapshot) {
+        return this.propertySnapshot == propertySnapshot;
+    }
+
+    /**
+     * @param contentDisplay the displayed content of the message, compared case insensitively
+     * @param contentRaw     the raw content of the message, used to check whether the message starts with a mention
+     * @return true if the message starts with any trigger and might be a command
+     */
+    public boolean mightBeCommand(String contentDisplay, String contentRaw) {
+        for (String trigger : triggers) {
+            if (contentDisplay.regionMatches(true, 0, trigger, 0, trigger.length())) {
+                return true;
+            }
+        }
+
+        return contentRaw.startsWith(selfMention);
+    }
+
+}
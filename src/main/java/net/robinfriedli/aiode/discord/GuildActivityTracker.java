@@ -0,0 +1,68 @@
+package net.robinfriedli.aiode.discord;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Sets;
+import net.dv8tion.jda.api.entities.Guild;
+
+/**
+ * Tracks the time of the last activity, i.e. the last command or the start of the last track, of the guilds of this
+ * instance in memory, so that active guilds can be determined without querying the command and playback history.
+ * Guilds that have not been active for longer than the retention period are dropped, which keeps scans proportional to
+ * the number of recently active guilds.
+ */
+public class GuildActivityTracker {
+
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final Map<Long, Long> lastActivityMillis = new ConcurrentHashMap<>();
+
+    public void recordActivity(Guild guild) {
+        lastActivityMillis.put(guild.getIdLong(), System.currentTimeMillis());
+    }
+
+    /**
+     * @return the epoch millis of the last activity of the guild or null if the guild has not been active within the
+     * retention period
+     */
+    @Nullable
+    public Long getLastActivityMillis(Guild guild) {
+        return lastActivityMillis.get(guild.getIdLong());
+    }
+
+    /**
+     * @param sinceMillis the epoch millis after which guilds must have been active
+     * @return the ids of all guilds that have been active after the provided time
+     */
+    public Set<Long> getGuildIdsActiveSince(long sinceMillis) {
+        long retentionStart = System.currentTimeMillis() - RETENTION_MILLIS;
+        Set<Long> guildIds = Sets.newHashSet();
+        Iterator<Map.Entry<Long, Long>> iterator = lastActivityMillis.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> entry = iterator.next();
+            long lastActivity = entry.getValue();
+            if (lastActivity > sinceMillis) {
+                guildIds.add(entry.getKey());
+            } else if (lastActivity < retentionStart) {
+                iterator.remove();
+            }
+        }
+
+        return guildIds;
+    }
+
+    public void removeGuild(Guild guild) {
+        lastActivityMillis.remove(guild.getIdLong());
+    }
+
+    public int getTrackedGuildCount() {
+        return lastActivityMillis.size();
+    }
+
+}
@@ -11,10 +11,12 @@ import net.robinfriedli.aiode.command.ClientQuestionEventManager;
 import net.robinfriedli.aiode.command.widget.AbstractWidget;
 import net.robinfriedli.aiode.command.widget.WidgetRegistry;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
-import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshot;
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshotReference;
 import net.robinfriedli.aiode.discord.property.properties.BotNameProperty;
 import net.robinfriedli.aiode.discord.property.properties.PrefixProperty;
 import net.robinfriedli.aiode.entities.GuildSpecification;
+import net.robinfriedli.aiode.function.HibernateInvoker;
 import net.robinfriedli.aiode.persist.StaticSessionProvider;
 import org.hibernate.Session;
 import org.jetbrains.annotations.Nullable;
@@ -33,6 +35,10 @@ public class GuildContext {
     private final PooledTrackLoadingExecutor pooledTrackLoadingExecutor;
     private final ReplaceableTrackLoadingExecutor replaceableTrackLoadingExecutor;
     private final WidgetRegistry widgetRegistry;
+    private final GuildPropertySnapshotReference propertySnapshot = new GuildPropertySnapshotReference();
+
+    // loaded when the first message is handled and reset when the prefix or bot name changes
+    private volatile CommandTriggers commandTriggers;
 
     public GuildContext(Guild guild, AudioPlayback playback, long specificationPk) {
         this.playback = playback;
@@ -57,10 +63,12 @@ public class GuildContext {
         return playback;
     }
 
+    /**
+     * Get the GuildSpecification of this guild for the provided session. Use {@link #getPropertySnapshot()} instead to
+     * read guild properties without making changes.
+     */
     public GuildSpecification getSpecification(Session session) {
-        GuildSpecification guildSpecification = session.getReference(GuildSpecification.class, specificationPk);
-        session.refresh(guildSpecification);
-        return guildSpecification;
+        return session.get(GuildSpecification.class, specificationPk);
     }
 
     public GuildSpecification getSpecification() {
@@ -74,14 +82,7 @@ public class GuildContext {
     }
 
     public String getBotName() {
-        return StaticSessionProvider.invokeWithSession(session -> {
-            GuildPropertyManager guildPropertyManager = Aiode.get().getGuildPropertyManager();
-            GuildSpecification specification = getSpecification(session);
-
-            return guildPropertyManager
-                .getPropertyValueOptional("botName", String.class, specification)
-                .orElse(BotNameProperty.DEFAULT_FALLBACK);
-        });
+        return getPropertySnapshot().getValue("botName", String.class).orElse(BotNameProperty.DEFAULT_FALLBACK);
     }
 
     public void setBotName(String name) {
@@ -90,17 +91,12 @@ public class GuildContext {
 
             guildSpecification.setBotName(name);
         });
+        invalidateCommandTriggers();
+        invalidatePropertySnapshot();
     }
 
     public String getPrefix() {
-        return StaticSessionProvider.invokeWithSession(session -> {
-            GuildPropertyManager guildPropertyManager = Aiode.get().getGuildPropertyManager();
-            GuildSpecification specification = getSpecification(session);
-
-            return guildPropertyManager
-                .getPropertyValueOptional("prefix", String.class, specification)
-                .orElse(PrefixProperty.DEFAULT_FALLBACK);
-        });
+        return getPropertySnapshot().getValue("prefix", String.class).orElse(PrefixProperty.DEFAULT_FALLBACK);
     }
 
     public void setPrefix(String prefix) {
@@ -109,6 +105,75 @@ public class GuildContext {
 
             guildSpecification.setPrefix(prefix);
         });
+        invalidateCommandTriggers();
+        invalidatePropertySnapshot();
+    }
+
+    /**
+     * Get the snapshot of the guild properties, loading the {@link GuildSpecification} if there is no current snapshot.
+     * Prefer this over reading properties from the GuildSpecification when a session is not needed otherwise.
+     */
+    public GuildPropertySnapshot getPropertySnapshot() {
+        return propertySnapshot.get(() -> {
+            // load the specification in a separate session so that the snapshot does not contain uncommitted changes
+            try (Session session = Aiode.get().getHibernateComponent().getSessionFactory().openSession()) {
+                return HibernateInvoker.create(session).invokeFunction(currentSession ->
+                    GuildPropertySnapshot.create(getSpecification(currentSession), Aiode.get().getGuildPropertyManager())
+                );
+            }
+        });
+    }
+
+    /**
+     * @return the current snapshot of the guild properties or null if none has been loaded or it has been invalidated
+     */
+    @Nullable
+    public GuildPropertySnapshot getLoadedPropertySnapshot() {
+        return propertySnapshot.getLoaded();
+    }
+
+    /**
+     * Replace the snapshot of the guild properties with the state of the provided, committed, GuildSpecification.
+     */
+    public void updatePropertySnapshot(GuildSpecification specification) {
+        propertySnapshot.update(GuildPropertySnapshot.create(specification, Aiode.get().getGuildPropertyManager()));
+    }
+
+    public void invalidatePropertySnapshot() {
+        propertySnapshot.invalidate();
+    }
+
+    /**
+     * Invalidate the snapshot of the guild properties if it is still the provided outdated snapshot.
+     */
+    public void invalidatePropertySnapshot(GuildPropertySnapshot outdatedSnapshot) {
+        propertySnapshot.invalidate(outdatedSnapshot);
+    }
+
+    public long getSpecificationPk() {
+        return specificationPk;
+    }
+
+    /**
+     * @return the cached {@link CommandTriggers} of this guild or null if they have not been loaded yet, have been
+     * invalidated or have been built from a property snapshot that is no longer current
+     */
+    @Nullable
+    public CommandTriggers getCommandTriggers() {
+        CommandTriggers triggers = commandTriggers;
+        if (triggers == null || !triggers.isBuiltFrom(propertySnapshot.getLoaded())) {
+            return null;
+        }
+
+        return triggers;
+    }
+
+    public void setCommandTriggers(CommandTriggers commandTriggers) {
+        this.commandTriggers = commandTriggers;
+    }
+
+    public void invalidateCommandTriggers() {
+        commandTriggers = null;
     }
 
     public PooledTrackLoadingExecutor getPooledTrackLoadingExecutor() {
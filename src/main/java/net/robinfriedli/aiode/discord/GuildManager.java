@@ -1,21 +1,28 @@
 package net.robinfriedli.aiode.discord;
 
 import java.io.IOException;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -36,9 +43,7 @@ import net.robinfriedli.aiode.concurrent.ExecutionContext;
 import net.robinfriedli.aiode.discord.property.AbstractGuildProperty;
 import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
 import net.robinfriedli.aiode.entities.AccessConfiguration;
-import net.robinfriedli.aiode.entities.CommandHistory;
 import net.robinfriedli.aiode.entities.GuildSpecification;
-import net.robinfriedli.aiode.entities.PlaybackHistory;
 import net.robinfriedli.aiode.entities.Playlist;
 import net.robinfriedli.aiode.entities.PlaylistItem;
 import net.robinfriedli.aiode.entities.xml.CommandContribution;
@@ -70,8 +75,11 @@ import static net.robinfriedli.jxp.queries.Conditions.*;
 @Component
 public class GuildManager {
 
+    private static final int BOOTSTRAP_QUERY_CHUNK_SIZE = 1000;
+
     private final CommandManager commandManager;
     private final Context embedDocumentContext;
+    private final GuildActivityTracker guildActivityTracker = new GuildActivityTracker();
     @Nullable
     private final Context defaultPlaylistContext;
     private final HibernateComponent hibernateComponent;
@@ -81,6 +89,7 @@ public class GuildManager {
     private final MutexSync<Long> guildSetupSync;
     private final QueryBuilderFactory queryBuilderFactory;
     private final VersionManager versionManager;
+    private final Map<Integer, BootstrapReport> bootstrapReports = new ConcurrentHashMap<>();
     private AudioManager audioManager;
 
     public GuildManager(CommandManager commandManager,
@@ -114,8 +123,123 @@ public class GuildManager {
         guildSetupSync.evaluate(guild.getIdLong(), () -> initializeGuild(guild));
     }
 
+    /**
+     * Set up all guilds of a shard that has become ready. Instead of querying the specification of each guild separately,
+     * the specifications of all guilds are loaded using chunked IN queries and missing specifications are created in
+     * JDBC batches before the contexts are built. Guilds with a specification that has not been initialised, or that
+     * were set up concurrently, fall back to {@link #getContextForGuild(Guild)}. Loading and creating the specifications
+     * each run in a separate transaction that is committed before the contexts are registered, new and remaining guilds
+     * are then each set up in their own transaction, so this must not be called within a transaction. The time spent in
+     * each phase is logged and recorded as a {@link BootstrapReport} for the shard.
+     */
+    public BootstrapReport addGuilds(int shardId, Collection<Guild> guilds) {
+        long startNanos = System.nanoTime();
+        Map<String, Guild> guildsById = Maps.newLinkedHashMap();
+        for (Guild guild : guilds) {
+            if (guildContexts.get(guild) == null) {
+                guildsById.put(guild.getId(), guild);
+            }
+        }
+
+        Map<String, SpecificationState> specifications = Maps.newHashMap();
+        consumeSeparateSession(session -> {
+            for (List<String> guildIds : Iterables.partition(guildsById.keySet(), BOOTSTRAP_QUERY_CHUNK_SIZE)) {
+                List<Object[]> rows = session
+                    .createQuery("select g.guildId, g.pk, g.initialized, g.defaultVolume from GuildSpecification g where g.guildId in (:guildIds)", Object[].class)
+                    .setParameterList("guildIds", guildIds)
+                    .getResultList();
+                for (Object[] row : rows) {
+                    specifications.put((String) row[0], new SpecificationState((Long) row[1], Boolean.TRUE.equals(row[2]), (Integer) row[3]));
+                }
+            }
+        });
+        long loadedNanos = System.nanoTime();
+
+        List<Guild> missingGuilds = guildsById.values().stream()
+            .filter(guild -> !specifications.containsKey(guild.getId()))
+            .toList();
+        Map<String, SpecificationState> createdSpecifications = createSpecifications(missingGuilds);
+        specifications.putAll(createdSpecifications);
+        long createdNanos = System.nanoTime();
+
+        List<Guild> fallbackGuilds = Lists.newArrayList();
+        Map<Guild, GuildContext> newGuildContexts = Maps.newLinkedHashMap();
+        for (Guild guild : guildsById.values()) {
+            SpecificationState specification = specifications.get(guild.getId());
+            if (specification == null || !specification.initialized()) {
+                fallbackGuilds.add(guild);
+                continue;
+            }
+
+            AudioPlayback playback = new AudioPlayback(audioManager.getPlayerManager().createPlayer(), guild);
+            if (specification.defaultVolume() != null) {
+                playback.setDefaultVolume(specification.defaultVolume());
+            }
+            GuildContext guildContext = new GuildContext(guild, playback, specification.pk());
+            boolean registered = guildSetupSync.evaluate(guild.getIdLong(), () -> {
+                // the guild might have been set up by a command in the meantime, in which case the context built here
+                // is discarded and must not be handed to handleNewGuild
+                if (guildContexts.get(guild) == null) {
+                    guildContexts.put(guild, guildContext);
+                    return true;
+                }
+                return false;
+            });
+
+            if (registered && createdSpecifications.containsKey(guild.getId())) {
+                newGuildContexts.put(guild, guildContext);
+            }
+        }
+        long contextsBuiltNanos = System.nanoTime();
+
+        // each new guild and each remaining guild is set up in its own transaction, so that a failure does not affect
+        // the other guilds of the shard
+        for (Map.Entry<Guild, GuildContext> newGuild : newGuildContexts.entrySet()) {
+            try {
+                handleNewGuild(newGuild.getKey(), newGuild.getValue());
+            } catch (Exception e) {
+                logger.error("Exception setting up new guild " + newGuild.getKey(), e);
+            }
+        }
+        for (Guild fallbackGuild : fallbackGuilds) {
+            try {
+                getContextForGuild(fallbackGuild);
+            } catch (Exception e) {
+                logger.error("Exception setting up guild " + fallbackGuild, e);
+            }
+        }
+        long endNanos = System.nanoTime();
+
+        BootstrapReport report = new BootstrapReport(
+            shardId,
+            guildsById.size(),
+            createdSpecifications.size(),
+            fallbackGuilds.size(),
+            TimeUnit.NANOSECONDS.toMillis(loadedNanos - startNanos),
+            TimeUnit.NANOSECONDS.toMillis(createdNanos - loadedNanos),
+            TimeUnit.NANOSECONDS.toMillis(contextsBuiltNanos - createdNanos),
+            TimeUnit.NANOSECONDS.toMillis(endNanos - contextsBuiltNanos),
+            TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos)
+        );
+        bootstrapReports.put(shardId, report);
+        logger.info(String.format(
+            "Set up %d guilds of shard %d in %dms (load specifications: %dms, create %d specifications: %dms, build contexts: %dms, set up new and %d remaining guilds: %dms)",
+            report.guildCount(),
+            shardId,
+            report.totalMs(),
+            report.loadSpecificationsMs(),
+            report.createdCount(),
+            report.createSpecificationsMs(),
+            report.buildContextsMs(),
+            report.fallbackCount(),
+            report.setupGuildsMs()
+        ));
+        return report;
+    }
+
     public void removeGuild(Guild guild) {
         guildContexts.remove(guild);
+        guildActivityTracker.removeGuild(guild);
     }
 
     public String getNameForGuild(Guild guild) {
@@ -127,6 +251,14 @@ public class GuildManager {
         return getContextForGuild(guild).getPrefix();
     }
 
+    /**
+     * @return the context of the guild if it has already been initialised, without setting up the guild otherwise
+     */
+    @Nullable
+    public GuildContext getInitialisedContextForGuild(Guild guild) {
+        return guildContexts.get(guild);
+    }
+
     public GuildContext getContextForGuild(Guild guild) {
         GuildContext guildContext = guildContexts.get(guild);
 
@@ -146,52 +278,37 @@ public class GuildManager {
         return guildContext;
     }
 
-    public Set<Guild> getActiveGuilds(Session session) {
+    public Set<Guild> getActiveGuilds() {
         // consider all guilds were active within the last 10 minutes to be active
-        return getActiveGuilds(session, 600000);
+        return getActiveGuilds(600000);
     }
 
     /**
      * Return guilds that are active now (playing music) or were active withing the specified amount of milliseconds
-     * (by entering a command or listening a song).
+     * (by entering a command or listening a song), as recorded by the {@link GuildActivityTracker}.
      *
-     * @param session the hibernate session
      * @param delayMs the maximum amount of time since the last action for a guild to be considered active in milliseconds
      * @return all active guilds
      */
-    public Set<Guild> getActiveGuilds(Session session, long delayMs) {
-        Aiode aiode = Aiode.get();
-        ShardManager shardManager = aiode.getShardManager();
-        QueryBuilderFactory queryBuilderFactory = aiode.getQueryBuilderFactory();
+    public Set<Guild> getActiveGuilds(long delayMs) {
+        ShardManager shardManager = Aiode.get().getShardManager();
         Set<Guild> activeGuilds = Sets.newHashSet();
-        Set<String> activeGuildIds = Sets.newHashSet();
 
         if (ExecutionContext.Current.isSet()) {
             activeGuilds.add(ExecutionContext.Current.require().getGuild());
         }
 
-        for (Guild guild : shardManager.getGuilds()) {
-            AudioPlayback playback = audioManager.getPlaybackForGuild(guild);
-            if (playback.isPlaying()) {
-                activeGuilds.add(guild);
+        // only guilds with an initialised context can be playing
+        for (GuildContext guildContext : guildContexts.values()) {
+            if (guildContext.getPlayback().isPlaying()) {
+                Guild guild = guildContext.retrieveGuild();
+                if (guild != null) {
+                    activeGuilds.add(guild);
+                }
             }
         }
 
-        long startMillis = System.currentTimeMillis() - delayMs;
-        Set<String> recentCommandGuildIds = queryBuilderFactory.select(CommandHistory.class, "guildId", String.class)
-            .where((cb, root) -> cb.greaterThan(root.get("startMillis"), startMillis))
-            .build(session)
-            .getResultStream().collect(Collectors.toSet());
-        activeGuildIds.addAll(recentCommandGuildIds);
-
-        LocalDateTime dateTime10MinutesAgo = LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), ZoneId.systemDefault());
-        Set<String> recentPlaybackGuildIds = queryBuilderFactory.select(PlaybackHistory.class, "guildId", String.class)
-            .where((cb, root) -> cb.greaterThan(root.get("timestamp"), dateTime10MinutesAgo))
-            .build(session)
-            .getResultStream().collect(Collectors.toSet());
-        activeGuildIds.addAll(recentPlaybackGuildIds);
-
-        for (String guildId : activeGuildIds) {
+        for (long guildId : guildActivityTracker.getGuildIdsActiveSince(System.currentTimeMillis() - delayMs)) {
             Guild guild = shardManager.getGuildById(guildId);
             if (guild != null) {
                 activeGuilds.add(guild);
@@ -201,6 +318,17 @@ public class GuildManager {
         return activeGuilds;
     }
 
+    /**
+     * Record a command or the start of a track in the guild, see {@link #getActiveGuilds(long)}.
+     */
+    public void recordActivity(Guild guild) {
+        guildActivityTracker.recordActivity(guild);
+    }
+
+    public GuildActivityTracker getGuildActivityTracker() {
+        return guildActivityTracker;
+    }
+
     public TextChannel getDefaultTextChannelForGuild(Guild guild) {
         GuildContext guildContext = getContextForGuild(guild);
         return getDefaultTextChannelForGuild(guild, guildContext);
@@ -210,6 +338,13 @@ public class GuildManager {
         return Sets.newHashSet(guildContexts.values());
     }
 
+    /**
+     * @return the reports of the last bootstrap of each shard, see {@link #addGuilds(int, Collection)}
+     */
+    public Collection<BootstrapReport> getBootstrapReports() {
+        return bootstrapReports.values();
+    }
+
     public void setAudioManager(AudioManager audioManager) {
         this.audioManager = audioManager;
     }
@@ -268,6 +403,83 @@ public class GuildManager {
         return createdContext;
     }
 
+    /**
+     * Create initialised specifications, including the access configurations of restricted commands, for guilds that do
+     * not have a specification yet using one JDBC batch per table.
+     *
+     * @return the created specifications mapped by guild id, excluding guilds whose specification has been created
+     * concurrently
+     */
+    private Map<String, SpecificationState> createSpecifications(List<Guild> guilds) {
+        Map<String, SpecificationState> createdSpecifications = Maps.newHashMap();
+        if (guilds.isEmpty()) {
+            return createdSpecifications;
+        }
+
+        Version currentVersion = versionManager.getCurrentVersion();
+        // commit the created specifications before the contexts referencing them are registered
+        consumeSeparateSession(session -> {
+            List<Pair<String, Long>> restrictedCommands = commandManager.getCommandContributionContext()
+                .query(attribute("restrictedAccess").is(true), CommandContribution.class)
+                .getResultStream()
+                .map(command -> Pair.of(command.getFullPermissionTargetIdentifier(), command.getPermissionTargetType().getEntity(session).getPk()))
+                .toList();
+
+            session.doWork(connection -> {
+                for (List<Guild> chunk : Lists.partition(guilds, BOOTSTRAP_QUERY_CHUNK_SIZE)) {
+                    try (PreparedStatement statement = connection.prepareStatement("insert into guild_specification" +
+                        "(guild_id, guild_name, version_update_alert_sent, initialized, property_version) values(?, ?, ?, true, 0) " +
+                        "on conflict (guild_id) do nothing", new String[]{"pk", "guild_id"})) {
+                        for (Guild guild : chunk) {
+                            statement.setString(1, guild.getId());
+                            statement.setString(2, guild.getName());
+                            // never send new guilds an update notification about the current version
+                            if (currentVersion != null) {
+                                statement.setString(3, currentVersion.getVersion());
+                            } else {
+                                statement.setNull(3, Types.VARCHAR);
+                            }
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+
+                        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                            while (generatedKeys.next()) {
+                                createdSpecifications.put(generatedKeys.getString("guild_id"), new SpecificationState(generatedKeys.getLong("pk"), true, null));
+                            }
+                        }
+                    }
+                }
+
+                if (!restrictedCommands.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement("insert into access_configuration" +
+                        "(permission_identifier, fk_guild_specification, fk_permission_type) values(?, ?, ?)")) {
+                        for (SpecificationState specification : createdSpecifications.values()) {
+                            for (Pair<String, Long> restrictedCommand : restrictedCommands) {
+                                statement.setString(1, restrictedCommand.getLeft());
+                                statement.setLong(2, specification.pk());
+                                statement.setLong(3, restrictedCommand.getRight());
+                                statement.addBatch();
+                            }
+                        }
+                        statement.executeBatch();
+                    }
+                }
+            });
+        });
+
+        return createdSpecifications;
+    }
+
+    /**
+     * Run the consumer in the transaction of a new session, independent of any session bound to the current thread.
+     */
+    private void consumeSeparateSession(Consumer<Session> consumer) {
+        try (Session session = hibernateComponent.getSessionFactory().openSession()) {
+            HibernateInvoker.create(session).invokeConsumer(consumer);
+        }
+    }
+
     private void handleNewGuild(Guild guild, GuildContext guildContext) {
         Aiode aiode = Aiode.get();
         MessageService messageService = aiode.getMessageService();
@@ -369,6 +581,29 @@ public class GuildManager {
         }
     }
 
+    /**
+     * Timings of the phases of setting up the guilds of a shard, see {@link #addGuilds(int, Collection)}.
+     *
+     * @param guildCount    the number of guilds that were set up
+     * @param createdCount  the number of guilds whose specification has been created
+     * @param fallbackCount the number of guilds that have been set up individually
+     */
+    public record BootstrapReport(
+        int shardId,
+        int guildCount,
+        int createdCount,
+        int fallbackCount,
+        long loadSpecificationsMs,
+        long createSpecificationsMs,
+        long buildContextsMs,
+        long setupGuildsMs,
+        long totalMs
+    ) {
+    }
+
+    private record SpecificationState(long pk, boolean initialized, @Nullable Integer defaultVolume) {
+    }
+
     public enum Mode {
         /**
          * All database entities will be the same for all guilds, meaning all guilds share the same playlists, presets etc.
@@ -41,16 +41,13 @@ import net.robinfriedli.aiode.boot.SpringPropertiesConfig;
 import net.robinfriedli.aiode.boot.configurations.HibernateComponent;
 import net.robinfriedli.aiode.command.CommandContext;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
-import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
 import net.robinfriedli.aiode.discord.property.properties.ColorSchemeProperty;
 import net.robinfriedli.aiode.discord.property.properties.TempMessageTimeoutProperty;
-import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.function.RateLimitInvoker;
 import net.robinfriedli.aiode.function.modes.RecursionPreventionMode;
 import net.robinfriedli.exec.Invoker;
 import net.robinfriedli.exec.Mode;
 import net.robinfriedli.stringlist.StringList;
-import org.hibernate.Session;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -278,9 +275,9 @@ public class MessageService {
         }
     }
 
-    public List<CompletableFuture<Message>> sendToActiveGuilds(MessageEmbed message, Session session) {
+    public List<CompletableFuture<Message>> sendToActiveGuilds(MessageEmbed message) {
         GuildManager guildManager = Aiode.get().getGuildManager();
-        Set<Guild> activeGuilds = guildManager.getActiveGuilds(session);
+        Set<Guild> activeGuilds = guildManager.getActiveGuilds();
         int numberOfActiveGuilds = activeGuilds.size();
         List<CompletableFuture<Message>> futureMessages = Lists.newArrayListWithCapacity(numberOfActiveGuilds);
 
@@ -634,16 +631,10 @@ public class MessageService {
 
         private int getTimeout() {
             if (message.isFromType(ChannelType.TEXT)) {
-                return hibernateComponent.invokeWithSession(session -> {
-                    Aiode aiode = Aiode.get();
-                    GuildPropertyManager guildPropertyManager = aiode.getGuildPropertyManager();
-                    Guild guild = message.getGuild();
-                    GuildSpecification specification = aiode.getGuildManager().getContextForGuild(guild).getSpecification(session);
-
-                    return guildPropertyManager
-                        .getPropertyValueOptional("tempMessageTimeout", Integer.class, specification)
-                        .orElse(TempMessageTimeoutProperty.DEFAULT_FALLBACK);
-                });
+                return Aiode.get().getGuildManager().getContextForGuild(message.getGuild())
+                    .getPropertySnapshot()
+                    .getValue("tempMessageTimeout", Integer.class)
+                    .orElse(TempMessageTimeoutProperty.DEFAULT_FALLBACK);
             }
 
             return TempMessageTimeoutProperty.DEFAULT_FALLBACK;
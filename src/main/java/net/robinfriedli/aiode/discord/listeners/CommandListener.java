@@ -2,6 +2,7 @@ package net.robinfriedli.aiode.discord.listeners;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,14 +27,15 @@ import net.robinfriedli.aiode.concurrent.CommandExecutionQueueManager;
 import net.robinfriedli.aiode.concurrent.EventHandlerPool;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
 import net.robinfriedli.aiode.concurrent.ThreadExecutionQueue;
+import net.robinfriedli.aiode.discord.CommandTriggers;
 import net.robinfriedli.aiode.discord.GuildContext;
 import net.robinfriedli.aiode.discord.GuildManager;
 import net.robinfriedli.aiode.discord.MessageService;
 import net.robinfriedli.aiode.discord.property.AbstractGuildProperty;
 import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshot;
 import net.robinfriedli.aiode.discord.property.properties.BotNameProperty;
 import net.robinfriedli.aiode.discord.property.properties.PrefixProperty;
-import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.exceptions.UserException;
 import org.hibernate.Session;
 import org.jetbrains.annotations.NotNull;
@@ -47,6 +49,8 @@ import se.michaelthelin.spotify.SpotifyApi;
 @Component
 public class CommandListener extends ListenerAdapter {
 
+    private static final AtomicLong REJECTED_WITHOUT_SESSION_COUNT = new AtomicLong();
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final CommandExecutionQueueManager executionQueueManager;
@@ -104,23 +108,33 @@ public class CommandListener extends ListenerAdapter {
             return;
         }
 
+        // reject messages that cannot be commands on the gateway thread without loading the guild specification
+        GuildContext initialisedContext = guildManager.getInitialisedContextForGuild(event.getGuild());
+        CommandTriggers commandTriggers = initialisedContext != null ? initialisedContext.getCommandTriggers() : null;
+        if (commandTriggers != null && !commandTriggers.mightBeCommand(event.getMessage().getContentDisplay(), event.getMessage().getContentRaw())) {
+            REJECTED_WITHOUT_SESSION_COUNT.incrementAndGet();
+            return;
+        }
+
         EventHandlerPool.execute(() -> hibernateComponent.consumeSession(session -> {
             Guild guild = event.getGuild();
             Message message = event.getMessage();
             String msg = message.getContentDisplay();
             GuildContext guildContext = guildManager.getContextForGuild(guild);
-            GuildSpecification specification = guildContext.getSpecification(session);
-            String botName = specification.getBotName();
-            String prefix = specification.getPrefix();
+            GuildPropertySnapshot propertySnapshot = guildContext.getPropertySnapshot();
+            String botName = propertySnapshot.getValue("botName", String.class).orElse(null);
+            String prefix = propertySnapshot.getValue("prefix", String.class).orElse(null);
             Member selfMember = guild.getSelfMember();
             String selfMention = selfMember.getAsMention();
+            // build the triggers from the property snapshot so that they are discarded when the snapshot is invalidated
+            guildContext.setCommandTriggers(CommandTriggers.create(propertySnapshot, defaultPrefix, defaultBotName, selfMention));
 
             String lowerCaseMsg = msg.toLowerCase();
             boolean startsWithPrefix = !Strings.isNullOrEmpty(prefix) && lowerCaseMsg.startsWith(prefix.toLowerCase());
             boolean startsWithName = !Strings.isNullOrEmpty(botName) && lowerCaseMsg.startsWith(botName.toLowerCase());
             boolean startsWithDefaultPrefix = !Strings.isNullOrEmpty(defaultPrefix) && lowerCaseMsg.startsWith(defaultPrefix);
             boolean startsWithDefaultName = !Strings.isNullOrEmpty(defaultBotName) && lowerCaseMsg.startsWith(defaultBotName);
-            boolean startsWithLegacyPrefix = lowerCaseMsg.startsWith("$botify");
+            boolean startsWithLegacyPrefix = lowerCaseMsg.startsWith(CommandTriggers.LEGACY_PREFIX);
             boolean startsWithMention = message.getContentRaw().startsWith(selfMention);
 
             if (startsWithPrefix
@@ -198,6 +212,14 @@ public class CommandListener extends ListenerAdapter {
         }));
     }
 
+    /**
+     * @return the number of messages rejected as non-commands using the cached {@link CommandTriggers} of the guild
+     * without opening a session since startup
+     */
+    public static long getRejectedWithoutSessionCount() {
+        return REJECTED_WITHOUT_SESSION_COUNT.get();
+    }
+
     private String extractUsedPrefix(
         String botName,
         String prefix,
@@ -208,7 +230,7 @@ public class CommandListener extends ListenerAdapter {
         boolean startsWithLegacyPrefix
     ) {
         boolean[] matches = {startsWithName, startsWithPrefix, startsWithDefaultName, startsWithDefaultPrefix, startsWithLegacyPrefix};
-        String[] strings = {botName, prefix, defaultBotName, defaultPrefix, "$botify"};
+        String[] strings = {botName, prefix, defaultBotName, defaultPrefix, CommandTriggers.LEGACY_PREFIX};
         return getLongestMatch(matches, strings);
     }
 
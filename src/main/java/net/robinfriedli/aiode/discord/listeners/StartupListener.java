@@ -3,6 +3,7 @@ package net.robinfriedli.aiode.discord.listeners;
 import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -21,7 +22,7 @@ import net.robinfriedli.aiode.concurrent.CommandExecutionQueueManager;
 import net.robinfriedli.aiode.concurrent.LoggingThreadFactory;
 import net.robinfriedli.aiode.discord.GuildManager;
 import net.robinfriedli.aiode.entities.xml.StartupTaskContribution;
-import net.robinfriedli.aiode.persist.StaticSessionProvider;
+import net.robinfriedli.aiode.exceptions.handler.handlers.LoggingUncaughtExceptionHandler;
 import net.robinfriedli.jxp.api.JxpBackend;
 import net.robinfriedli.jxp.persist.Context;
 import org.discordbots.api.client.DiscordBotListAPI;
@@ -38,6 +39,13 @@ public class StartupListener extends ListenerAdapter {
         new LinkedBlockingQueue<>(),
         new LoggingThreadFactory("startup-task")
     );
+    // sets up the guilds of each shard in parallel, the startup tasks of the shard are run afterwards
+    private static final ExecutorService GUILD_BOOTSTRAP_EXECUTOR = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual()
+            .name("guild-bootstrap-thread-", 1)
+            .uncaughtExceptionHandler(new LoggingUncaughtExceptionHandler())
+            .factory()
+    );
 
     private final Aiode aiode;
     @Nullable
@@ -56,7 +64,7 @@ public class StartupListener extends ListenerAdapter {
 
     @Override
     public void onReady(@NotNull ReadyEvent event) {
-        STARTUP_TASK_EXECUTOR.execute(() -> {
+        GUILD_BOOTSTRAP_EXECUTOR.execute(() -> {
             JDA jda = event.getJDA();
 
             if (discordBotListAPI != null) {
@@ -71,29 +79,36 @@ public class StartupListener extends ListenerAdapter {
             CommandExecutionQueueManager executionQueueManager = aiode.getExecutionQueueManager();
             GuildManager guildManager = aiode.getGuildManager();
 
-            StaticSessionProvider.consumeSession(session -> {
-                // setup current thread session and handle all guilds within one session instead of opening a new session for each
-                for (Guild guild : jda.getGuilds()) {
-                    executionQueueManager.addGuild(guild);
-                    guildManager.addGuild(guild);
-                }
-            });
-
-            for (StartupTaskContribution element : startupTaskContributions) {
-                if (element.getAttribute("runForEachShard").getBool()) {
-                    try {
-                        element.instantiate().runTask(jda);
-                    } catch (Exception e) {
-                        String msg = String.format(
-                            "Startup task %s has thrown an exception for shard %s",
-                            element.getAttribute("implementation").getValue(),
-                            jda
-                        );
-                        logger.error(msg, e);
-                    }
-                }
+            List<Guild> guilds = jda.getGuilds();
+            for (Guild guild : guilds) {
+                executionQueueManager.addGuild(guild);
             }
+            try {
+                // not run in a session of the current thread as the guilds are set up using separate transactions
+                guildManager.addGuilds(jda.getShardInfo().getShardId(), guilds);
+            } catch (Exception e) {
+                logger.error("Exception setting up guilds of shard " + jda, e);
+            }
+
+            STARTUP_TASK_EXECUTOR.execute(() -> runStartupTasks(jda));
         });
     }
 
+    private void runStartupTasks(JDA jda) {
+        for (StartupTaskContribution element : startupTaskContributions) {
+            if (element.getAttribute("runForEachShard").getBool()) {
+                try {
+                    element.instantiate().runTask(jda);
+                } catch (Exception e) {
+                    String msg = String.format(
+                        "Startup task %s has thrown an exception for shard %s",
+                        element.getAttribute("implementation").getValue(),
+                        jda
+                    );
+                    logger.error(msg, e);
+                }
+            }
+        }
+    }
+
 }
@@ -10,7 +10,6 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.robinfriedli.aiode.Aiode;
 import net.robinfriedli.aiode.audio.AudioManager;
 import net.robinfriedli.aiode.audio.AudioPlayback;
 import net.robinfriedli.aiode.boot.configurations.GroovySandboxComponent;
@@ -21,8 +20,6 @@ import net.robinfriedli.aiode.concurrent.EventHandlerPool;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
 import net.robinfriedli.aiode.concurrent.ThreadContext;
 import net.robinfriedli.aiode.discord.GuildManager;
-import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
-import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.entities.StoredScript;
 import net.robinfriedli.aiode.persist.qb.QueryBuilderFactory;
 import net.robinfriedli.aiode.scripting.GroovyVariableManager;
@@ -150,15 +147,10 @@ public class VoiceChannelListener extends ListenerAdapter {
     }
 
     private boolean isAutoPauseEnabled(Guild guild) {
-        return hibernateComponent.invokeWithSession(session -> {
-            GuildPropertyManager guildPropertyManager = Aiode.get().getGuildPropertyManager();
-            GuildManager guildManager = Aiode.get().getGuildManager();
-            GuildSpecification specification = guildManager.getContextForGuild(guild).getSpecification(session);
-
-            return guildPropertyManager
-                .getPropertyValueOptional("enableAutoPause", Boolean.class, specification)
-                .orElse(true);
-        });
+        return guildManager.getContextForGuild(guild)
+            .getPropertySnapshot()
+            .getValue("enableAutoPause", Boolean.class)
+            .orElse(true);
     }
 
     private void runScriptTriggers(String event, AudioChannel targetChannel, ExecutionContext executionContext) {
@@ -63,6 +63,7 @@ public abstract class AbstractGuildProperty {
             GuildSpecification guildSpecification = guildContext.getSpecification(session);
             setValue(value, guildSpecification);
         }));
+        guildContext.invalidatePropertySnapshot();
     }
 
     public abstract void setValue(String value, GuildSpecification guildSpecification);
@@ -0,0 +1,57 @@
+package net.robinfriedli.aiode.discord.property;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import net.robinfriedli.aiode.discord.GuildContext;
+import net.robinfriedli.aiode.entities.GuildSpecification;
+
+/**
+ * Immutable snapshot of the values of all guild properties of a {@link GuildSpecification}, with default values applied
+ * for properties that are not set. Held by the {@link GuildContext} so that properties read frequently, e.g. by the
+ * audio event handlers, can be read without loading the GuildSpecification. The snapshot remembers the
+ * {@link GuildSpecification#getPropertyVersion()} it was created for to detect changes made by other instances.
+ */
+public class GuildPropertySnapshot {
+
+    private final long version;
+    private final Map<String, Object> values;
+
+    private GuildPropertySnapshot(long version, Map<String, Object> values) {
+        this.version = version;
+        this.values = values;
+    }
+
+    public static GuildPropertySnapshot create(GuildSpecification specification, GuildPropertyManager guildPropertyManager) {
+        return create(specification, guildPropertyManager.getProperties());
+    }
+
+    public static GuildPropertySnapshot create(GuildSpecification specification, List<AbstractGuildProperty> properties) {
+        Map<String, Object> values = new HashMap<>();
+        for (AbstractGuildProperty property : properties) {
+            values.put(property.getProperty(), property.get(specification));
+        }
+
+        return of(specification.getPropertyVersion(), values);
+    }
+
+    public static GuildPropertySnapshot of(long version, Map<String, Object> values) {
+        return new GuildPropertySnapshot(version, Collections.unmodifiableMap(new HashMap<>(values)));
+    }
+
+    /**
+     * @return the value of the property, which is the default value if the property is not set, or an empty optional
+     * if there is no such property or its value is null
+     */
+    public <T> Optional<T> getValue(String property, Class<T> type) {
+        return Optional.ofNullable(values.get(property)).map(type::cast);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+}
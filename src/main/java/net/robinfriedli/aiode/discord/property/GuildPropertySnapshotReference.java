@@ -0,0 +1,80 @@
+package net.robinfriedli.aiode.discord.property;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import net.robinfriedli.aiode.discord.GuildContext;
+import net.robinfriedli.aiode.entities.GuildSpecification;
+
+/**
+ * Holds the current {@link GuildPropertySnapshot} of a {@link GuildContext}. Snapshots loaded lazily are published with
+ * a compare-and-set against the state observed before loading, so a load that read the {@link GuildSpecification}
+ * before a change was committed can never replace the snapshot published or the invalidation made for that change.
+ */
+public class GuildPropertySnapshotReference {
+
+    private final AtomicReference<State> state = new AtomicReference<>(new State(0, null));
+
+    /**
+     * Get the current snapshot, loading it with the provided loader if there is none. If the snapshot is updated or
+     * invalidated while loading, the loaded snapshot is discarded and the current snapshot is returned or loaded again.
+     */
+    public GuildPropertySnapshot get(Supplier<GuildPropertySnapshot> loader) {
+        while (true) {
+            State current = state.get();
+            if (current.snapshot() != null) {
+                return current.snapshot();
+            }
+
+            GuildPropertySnapshot loadedSnapshot = loader.get();
+            if (state.compareAndSet(current, new State(current.generation(), loadedSnapshot))) {
+                return loadedSnapshot;
+            }
+        }
+    }
+
+    /**
+     * @return the current snapshot or null if none has been loaded or it has been invalidated
+     */
+    @Nullable
+    public GuildPropertySnapshot getLoaded() {
+        return state.get().snapshot();
+    }
+
+    /**
+     * Replace the current snapshot with the provided snapshot unless the current snapshot has a greater version, i.e.
+     * reflects a change committed after the change the provided snapshot was created for.
+     */
+    public void update(GuildPropertySnapshot snapshot) {
+        state.updateAndGet(current -> {
+            GuildPropertySnapshot currentSnapshot = current.snapshot();
+            if (currentSnapshot != null && currentSnapshot.getVersion() > snapshot.getVersion()) {
+                return current;
+            }
+
+            return new State(current.generation() + 1, snapshot);
+        });
+    }
+
+    public void invalidate() {
+        state.updateAndGet(current -> new State(current.generation() + 1, null));
+    }
+
+    /**
+     * Invalidate the current snapshot only if it is the provided snapshot, used to discard a snapshot that has been
+     * found to be outdated without discarding a snapshot published in the meantime.
+     */
+    public void invalidate(GuildPropertySnapshot expectedSnapshot) {
+        state.updateAndGet(current -> current.snapshot() == expectedSnapshot ? new State(current.generation() + 1, null) : current);
+    }
+
+    /**
+     * @param generation incremented by each update or invalidation so that the states observed by concurrent loads
+     *                   are never reused
+     */
+    private record State(long generation, @Nullable GuildPropertySnapshot snapshot) {
+    }
+
+}
@@ -6,6 +6,7 @@ import net.robinfriedli.aiode.Aiode;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
 import net.robinfriedli.aiode.discord.property.AbstractGuildProperty;
 import net.robinfriedli.aiode.discord.property.GuildPropertyManager;
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshot;
 import net.robinfriedli.aiode.entities.GuildSpecification;
 import net.robinfriedli.aiode.entities.xml.GuildPropertyContribution;
 import net.robinfriedli.aiode.exceptions.InvalidPropertyValueException;
@@ -30,6 +31,10 @@ public class ColorSchemeProperty extends AbstractGuildProperty {
         }
     }
 
+    public static Color getColor(GuildPropertySnapshot propertySnapshot) {
+        return propertySnapshot.getValue("color", String.class).map(ColorSchemeProperty::parseColor).orElse(DEFAULT_FALLBACK);
+    }
+
     public static Color getColor() {
         GuildPropertyManager guildPropertyManager = Aiode.get().getGuildPropertyManager();
         ColorSchemeProperty colorProperty = (ColorSchemeProperty) guildPropertyManager.getProperty("color");
@@ -1,6 +1,10 @@
 package net.robinfriedli.aiode.entities;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import jakarta.persistence.Column;
@@ -65,6 +69,45 @@ public class Artist implements Serializable {
         });
     }
 
+    /**
+     * Get or create the artists for all provided spotify artists, loading existing artists with one query and creating
+     * missing artists using {@link #getOrCreateArtist(ArtistSimplified, Session)}.
+     *
+     * @param artists the spotify artists, artists without id are ignored
+     * @param session the hibernate session
+     * @return the artists mapped by spotify id
+     */
+    public static Map<String, Artist> getOrCreateArtists(Collection<ArtistSimplified> artists, Session session) {
+        Map<String, ArtistSimplified> artistsById = new HashMap<>();
+        for (ArtistSimplified artist : artists) {
+            if (artist.getId() != null) {
+                artistsById.putIfAbsent(artist.getId(), artist);
+            }
+        }
+
+        Map<String, Artist> result = new HashMap<>();
+        if (artistsById.isEmpty()) {
+            return result;
+        }
+
+        QueryBuilderFactory queryBuilderFactory = Aiode.get().getQueryBuilderFactory();
+        List<Artist> existingArtists = queryBuilderFactory.find(Artist.class)
+            .where((cb, root) -> root.get("id").in(artistsById.keySet()))
+            .build(session)
+            .getResultList();
+        for (Artist existingArtist : existingArtists) {
+            result.put(existingArtist.getId(), existingArtist);
+        }
+
+        for (ArtistSimplified artist : artistsById.values()) {
+            if (!result.containsKey(artist.getId())) {
+                result.put(artist.getId(), getOrCreateArtist(artist, session));
+            }
+        }
+
+        return result;
+    }
+
     public long getPk() {
         return pk;
     }
@@ -9,6 +9,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -20,7 +21,8 @@ import jakarta.persistence.Table;
 public class CommandHistory implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "command_history_pk_seq")
+    @SequenceGenerator(name = "command_history_pk_seq", sequenceName = "command_history_pk_seq", allocationSize = 50)
     @Column(name = "pk")
     private long pk;
     @Column(name = "timestamp")
@@ -24,7 +24,8 @@ import se.michaelthelin.spotify.model_objects.specification.Track;
 @Entity
 @Table(name = "episode", indexes = {
     @Index(name = "episode_id_idx", columnList = "id"),
-    @Index(name = "episode_playlist_pk_idx", columnList = "playlist_pk")
+    @Index(name = "episode_playlist_pk_idx", columnList = "playlist_pk"),
+    @Index(name = "episode_playlist_pk_item_index_idx", columnList = "playlist_pk, item_index, pk")
 })
 public class Episode extends PlaylistItem {
 
@@ -15,7 +15,8 @@ import net.robinfriedli.filebroker.FilebrokerApi;
 @Entity
 @Table(name = "filebroker_track", indexes = {
     @Index(name = "filebroker_track_post_pk", columnList = "post_pk"),
-    @Index(name = "filebroker_track_playlist_pk_idx", columnList = "playlist_pk")
+    @Index(name = "filebroker_track_playlist_pk_idx", columnList = "playlist_pk"),
+    @Index(name = "filebroker_track_playlist_pk_item_index_idx", columnList = "playlist_pk, item_index, pk")
 })
 public class FilebrokerTrack extends PlaylistItem {
 
@@ -18,11 +18,13 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Size;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
 
 @Entity
 @Table(name = "guild_specification")
@@ -35,8 +37,10 @@ public class GuildSpecification implements Serializable {
     @Column(name = "pk")
     private long pk;
     @Column(name = "guild_name")
+    @OptimisticLock(excluded = true)
     private String guildName;
     @Column(name = "guild_id", unique = true)
+    @OptimisticLock(excluded = true)
     private String guildId;
     @Column(name = "bot_name")
     @Size(min = 1, max = 32, message = "Invalid length of nickname. Needs to be between 1 and 32.")
@@ -67,18 +71,29 @@ public class GuildSpecification implements Serializable {
     @Column(name = "enable_scripting")
     private Boolean enableScripting;
     @Column(name = "version_update_alert_sent")
+    @OptimisticLock(excluded = true)
     private String versionUpdateAlertSent;
     @OneToMany(mappedBy = "guildSpecification")
+    @OptimisticLock(excluded = true)
     private Set<AccessConfiguration> accessConfigurations = Sets.newHashSet();
     @ManyToOne
+    @OptimisticLock(excluded = true)
     @JoinColumn(name = "assigned_private_bot_instance", referencedColumnName = "identifier", foreignKey = @ForeignKey(name = "guild_specification_assigned_private_bot_instance_fkey"))
     private PrivateBotInstance privateBotInstance;
     @Column(name = "assigned_private_bot_instance", insertable = false, updatable = false)
     private String privateBotInstanceId;
     @Column(name = "private_bot_assignment_last_heartbeat", columnDefinition = "TIMESTAMP WITH TIME ZONE")
+    @OptimisticLock(excluded = true)
     private OffsetDateTime privateBotAssignmentLastHeartbeat;
     @Column(name = "initialized")
+    @OptimisticLock(excluded = true)
     private Boolean initialized;
+    // incremented by hibernate whenever a guild property changes so that instances holding a snapshot of the properties
+    // can detect changes, the fields that are not guild properties are excluded from optimistic locking; concurrent
+    // property changes fail with an OptimisticLockException instead of both writing the same version
+    @Version
+    @Column(name = "property_version", nullable = false)
+    private long propertyVersion;
 
     public GuildSpecification() {
     }
@@ -262,6 +277,10 @@ public class GuildSpecification implements Serializable {
         this.privateBotAssignmentLastHeartbeat = privateBotAssignmentLastHeartbeat;
     }
 
+    public long getPropertyVersion() {
+        return propertyVersion;
+    }
+
     public Boolean isInitialized() {
         return initialized;
     }
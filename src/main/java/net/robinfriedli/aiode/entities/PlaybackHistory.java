@@ -3,6 +3,9 @@ package net.robinfriedli.aiode.entities;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
 
 import com.google.api.client.util.Sets;
 import jakarta.persistence.Column;
@@ -17,6 +20,7 @@ import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import net.dv8tion.jda.api.entities.Guild;
 import net.robinfriedli.aiode.audio.Playable;
@@ -37,8 +41,10 @@ import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
 })
 public class PlaybackHistory implements Serializable {
 
+    // sequence with an increment of 50 so that ids can be allocated without a round trip per insert
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playback_history_pk_seq")
+    @SequenceGenerator(name = "playback_history_pk_seq", sequenceName = "playback_history_pk_seq", allocationSize = 50)
     @Column(name = "pk")
     private long pk;
     @Column(name = "timestamp")
@@ -78,25 +84,24 @@ public class PlaybackHistory implements Serializable {
     }
 
     public PlaybackHistory(LocalDateTime timestamp, Playable playable, Guild guild, Session session) {
+        this(timestamp, playable, guild, session, artist -> Artist.getOrCreateArtist(artist, session));
+    }
+
+    /**
+     * @param artistResolver function that returns the {@link Artist} entity for the artists of a Spotify track, used to
+     *                       resolve the artists of several history entries at once
+     */
+    public PlaybackHistory(LocalDateTime timestamp, Playable playable, Guild guild, Session session, Function<ArtistSimplified, Artist> artistResolver) {
         try {
             this.timestamp = timestamp;
-            SpotifyTrack spotifyTrack = null;
-            if (playable instanceof PlayableTrackWrapper) {
-                spotifyTrack = ((PlayableTrackWrapper) playable).getTrack();
-            }
-            if (playable instanceof YouTubeVideo) {
-                spotifyTrack = ((YouTubeVideo) playable).getRedirectedSpotifyTrack();
-            }
-            if (playable instanceof SpotifyTrackRedirect) {
-                spotifyTrack = ((SpotifyTrackRedirect) playable).getSpotifyTrack();
-            }
+            SpotifyTrack spotifyTrack = getSpotifyTrack(playable);
             if (spotifyTrack != null) {
                 title = spotifyTrack.getName();
                 spotifyItemKind = spotifyTrack.exhaustiveMatch(
                     track -> {
                         for (ArtistSimplified artist : track.getArtists()) {
                             if (artist.getId() != null) {
-                                artists.add(Artist.getOrCreateArtist(artist, session));
+                                artists.add(artistResolver.apply(artist));
                             }
                         }
 
@@ -117,6 +122,24 @@ public class PlaybackHistory implements Serializable {
         }
     }
 
+    /**
+     * @return the Spotify track the playable represents or was redirected from, or null
+     */
+    @Nullable
+    public static SpotifyTrack getSpotifyTrack(Playable playable) {
+        SpotifyTrack spotifyTrack = null;
+        if (playable instanceof PlayableTrackWrapper) {
+            spotifyTrack = ((PlayableTrackWrapper) playable).getTrack();
+        }
+        if (playable instanceof YouTubeVideo) {
+            spotifyTrack = ((YouTubeVideo) playable).getRedirectedSpotifyTrack();
+        }
+        if (playable instanceof SpotifyTrackRedirect) {
+            spotifyTrack = ((SpotifyTrackRedirect) playable).getSpotifyTrack();
+        }
+        return spotifyTrack;
+    }
+
     public long getPk() {
         return pk;
     }
@@ -4,11 +4,15 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.google.api.client.util.Sets;
@@ -27,12 +31,14 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 import net.robinfriedli.aiode.Aiode;
 import net.robinfriedli.aiode.audio.playables.PlayableFactory;
+import net.robinfriedli.aiode.audio.spotify.SpotifyItemSnapshotService;
 import net.robinfriedli.aiode.audio.spotify.SpotifyTrack;
-import net.robinfriedli.aiode.audio.spotify.SpotifyTrackBulkLoadingService;
 import net.robinfriedli.aiode.audio.spotify.SpotifyTrackKind;
 import net.robinfriedli.aiode.audio.youtube.YouTubeVideo;
 import net.robinfriedli.aiode.boot.SpringPropertiesConfig;
 import net.robinfriedli.aiode.filebroker.FilebrokerPostBulkLoadingService;
+import net.robinfriedli.aiode.persist.PlaylistItemIndex;
+import org.hibernate.Session;
 import se.michaelthelin.spotify.SpotifyApi;
 
 import static net.robinfriedli.aiode.audio.spotify.SpotifyTrackBulkLoadingService.*;
@@ -44,6 +50,9 @@ import static net.robinfriedli.aiode.audio.spotify.SpotifyTrackKind.*;
 })
 public class Playlist implements Serializable, SanitizedEntity {
 
+    // the number of batches of tracks loaded at the same time by getTracks
+    private static final int MAX_CONCURRENT_LOADING_REQUESTS = 4;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "pk")
@@ -143,6 +152,10 @@ public class Playlist implements Serializable, SanitizedEntity {
             .collect(Collectors.toList());
     }
 
+    /**
+     * @return all items of this playlist sorted by index, this initialises all item collections, use
+     * {@link PlaylistItemIndex#getPage} to read the items page by page instead where possible
+     */
     public List<PlaylistItem> getItemsSorted() {
         return getItemsSorted(false);
     }
@@ -167,44 +180,23 @@ public class Playlist implements Serializable, SanitizedEntity {
 
     /**
      * Returns the items in this playlist as objects supported by the {@link PlayableFactory} class. Note that getting the
-     * Spotify track for a Song requires this method to be invoked with client credentials
+     * Spotify track for a Song requires this method to be invoked with client credentials. This initialises and sorts
+     * all item collections, which is only done for playlists below the threshold for progressive loading, larger
+     * playlists are loaded page by page using {@link #getTrackChunk(Session, SpotifyApi, PlaylistItem, int)}.
      */
     public List<Object> getTracks(SpotifyApi spotifyApi) {
-        List<PlaylistItem> playlistItems = getItemsSorted();
-        SpotifyTrackBulkLoadingService service = new SpotifyTrackBulkLoadingService(spotifyApi);
-        FilebrokerPostBulkLoadingService filebrokerLoadingService = new FilebrokerPostBulkLoadingService(Aiode.get().getFilebrokerApi());
-
-        List<Pair<Object, Integer>> itemsWithIndex = Lists.newArrayList();
-        for (int i = 0; i < playlistItems.size(); i++) {
-            PlaylistItem item = playlistItems.get(i);
-            if (item instanceof Song) {
-                String id = ((Song) item).getId();
-                int finalI = i;
-                service.add(createItem(id, TRACK), track -> itemsWithIndex.add(Pair.of(track, finalI)));
-            } else if (item instanceof Episode) {
-                String id = ((Episode) item).getId();
-                int finalI = i;
-                service.add(createItem(id, EPISODE), track -> itemsWithIndex.add(Pair.of(track, finalI)));
-            } else if (item instanceof Video video) {
-                YouTubeVideo youtubeVideo = video.asYouTubeVideo();
-                itemsWithIndex.add(Pair.of(youtubeVideo, i));
-                String spotifyId = video.getRedirectedSpotifyId();
-                if (!Strings.isNullOrEmpty(spotifyId)) {
-                    SpotifyItemKind kindEntity = video.getRedirectedSpotifyKind();
-                    SpotifyTrackKind kind = kindEntity != null ? kindEntity.asEnum() : TRACK;
-                    service.add(createItem(spotifyId, kind), youtubeVideo::setRedirectedSpotifyTrack);
-                }
-            } else if (item instanceof UrlTrack) {
-                itemsWithIndex.add(Pair.of(item, i));
-            } else if (item instanceof FilebrokerTrack filebrokerTrack) {
-                int finalI = i;
-                filebrokerLoadingService.add(filebrokerTrack.getPostPk(), post -> itemsWithIndex.add(Pair.of(post, finalI)));
-            }
-        }
+        return new TrackChunk(spotifyApi, getItemsSorted()).load();
+    }
 
-        service.perform();
-        filebrokerLoadingService.perform();
-        return itemsWithIndex.stream().sorted(Comparator.comparing(Pair::getRight)).map(Pair::getLeft).collect(Collectors.toList());
+    /**
+     * Load the page of at most {@code limit} items following the provided item using {@link PlaylistItemIndex#getPage}
+     * and prepare loading them as a chunk, without initialising the item collections of this playlist. The playlist
+     * items are read when creating the chunk, so the chunk can be loaded after the session has been closed.
+     *
+     * @param after the last item of the previous chunk, see {@link TrackChunk#getLastItem()}, or null for the first chunk
+     */
+    public TrackChunk getTrackChunk(Session session, SpotifyApi spotifyApi, @Nullable PlaylistItem after, int limit) {
+        return new TrackChunk(spotifyApi, PlaylistItemIndex.getPage(session, this, after, limit));
     }
 
     /**
@@ -212,28 +204,47 @@ public class Playlist implements Serializable, SanitizedEntity {
      * redirectedSpotifyId is set. Mind that this method has to be invoked with client credentials
      */
     public List<SpotifyTrack> asTrackList(SpotifyApi spotifyApi) {
-        SpotifyTrackBulkLoadingService service = new SpotifyTrackBulkLoadingService(spotifyApi);
+        List<Pair<SpotifyItem, Consumer<SpotifyTrack>>> spotifyItems = Lists.newArrayList();
         List<SpotifyTrack> tracks = Lists.newArrayList();
         for (PlaylistItem item : getItemsSorted()) {
             if (item instanceof Song) {
                 String id = ((Song) item).getId();
-                service.add(createItem(id, TRACK), tracks::add);
+                spotifyItems.add(Pair.of(createItem(id, TRACK), tracks::add));
             } else if (item instanceof Episode) {
                 String id = ((Episode) item).getId();
-                service.add(createItem(id, EPISODE), tracks::add);
+                spotifyItems.add(Pair.of(createItem(id, EPISODE), tracks::add));
             } else if (item instanceof Video && ((Video) item).getRedirectedSpotifyId() != null) {
                 Video video = (Video) item;
                 String redirectedSpotifyId = video.getRedirectedSpotifyId();
                 SpotifyItemKind kindEntity = video.getRedirectedSpotifyKind();
                 SpotifyTrackKind kind = kindEntity != null ? kindEntity.asEnum() : TRACK;
-                service.add(createItem(redirectedSpotifyId, kind), tracks::add);
+                spotifyItems.add(Pair.of(createItem(redirectedSpotifyId, kind), tracks::add));
             }
         }
 
-        service.perform();
+        resolveSpotifyItems(spotifyApi, spotifyItems);
         return tracks;
     }
 
+    /**
+     * Resolve the provided Spotify items using the {@link SpotifyItemSnapshotService} and pass each found track to the
+     * consumer of the item, in the order of the provided items.
+     */
+    private static void resolveSpotifyItems(SpotifyApi spotifyApi, List<Pair<SpotifyItem, Consumer<SpotifyTrack>>> spotifyItems) {
+        if (spotifyItems.isEmpty()) {
+            return;
+        }
+
+        SpotifyItemSnapshotService snapshotService = Aiode.get().getSpotifyItemSnapshotService();
+        Map<SpotifyItem, SpotifyTrack> tracks = snapshotService.getTracks(spotifyApi, spotifyItems.stream().map(Pair::getLeft).toList());
+        for (Pair<SpotifyItem, Consumer<SpotifyTrack>> spotifyItem : spotifyItems) {
+            SpotifyTrack track = tracks.get(spotifyItem.getLeft());
+            if (track != null) {
+                spotifyItem.getRight().accept(track);
+            }
+        }
+    }
+
     public Set<Song> getSongs() {
         return songs;
     }
@@ -298,4 +309,82 @@ public class Playlist implements Serializable, SanitizedEntity {
     public void setSanitizedIdentifier(String sanitizedIdentifier) {
         setName(sanitizedIdentifier);
     }
+
+    /**
+     * A range of playlist items prepared for loading, see {@link #getTrackChunks(SpotifyApi, int, int)}. Items that do
+     * not need to be loaded are resolved when creating the chunk, Spotify tracks and filebroker posts are loaded when
+     * calling {@link #load()}, which requires Spotify client credentials.
+     */
+    public static class TrackChunk {
+
+        private final SpotifyApi spotifyApi;
+        private final List<Pair<SpotifyItem, Consumer<SpotifyTrack>>> spotifyItems = Lists.newArrayList();
+        private final FilebrokerPostBulkLoadingService filebrokerLoadingService;
+        private final List<Pair<Object, Integer>> itemsWithIndex = Lists.newArrayList();
+        private final int size;
+        @Nullable
+        private final PlaylistItem lastItem;
+
+        private TrackChunk(SpotifyApi spotifyApi, List<PlaylistItem> playlistItems) {
+            this.spotifyApi = spotifyApi;
+            size = playlistItems.size();
+            lastItem = playlistItems.isEmpty() ? null : playlistItems.getLast();
+            // items are sorted by index after loading, so batches can be loaded concurrently
+            filebrokerLoadingService = new FilebrokerPostBulkLoadingService(Aiode.get().getFilebrokerApi());
+            filebrokerLoadingService.setMaxInFlight(MAX_CONCURRENT_LOADING_REQUESTS);
+
+            for (int i = 0; i < playlistItems.size(); i++) {
+                PlaylistItem item = playlistItems.get(i);
+                if (item instanceof Song) {
+                    String id = ((Song) item).getId();
+                    int finalI = i;
+                    spotifyItems.add(Pair.of(createItem(id, TRACK), track -> itemsWithIndex.add(Pair.of(track, finalI))));
+                } else if (item instanceof Episode) {
+                    String id = ((Episode) item).getId();
+                    int finalI = i;
+                    spotifyItems.add(Pair.of(createItem(id, EPISODE), track -> itemsWithIndex.add(Pair.of(track, finalI))));
+                } else if (item instanceof Video video) {
+                    YouTubeVideo youtubeVideo = video.asYouTubeVideo();
+                    itemsWithIndex.add(Pair.of(youtubeVideo, i));
+                    String spotifyId = video.getRedirectedSpotifyId();
+                    if (!Strings.isNullOrEmpty(spotifyId)) {
+                        SpotifyItemKind kindEntity = video.getRedirectedSpotifyKind();
+                        SpotifyTrackKind kind = kindEntity != null ? kindEntity.asEnum() : TRACK;
+                        spotifyItems.add(Pair.of(createItem(spotifyId, kind), youtubeVideo::setRedirectedSpotifyTrack));
+                    }
+                } else if (item instanceof UrlTrack) {
+                    itemsWithIndex.add(Pair.of(item, i));
+                } else if (item instanceof FilebrokerTrack filebrokerTrack) {
+                    int finalI = i;
+                    filebrokerLoadingService.add(filebrokerTrack.getPostPk(), post -> itemsWithIndex.add(Pair.of(post, finalI)));
+                }
+            }
+        }
+
+        /**
+         * @return the items of this chunk as objects supported by the {@link PlayableFactory} class, in playlist order
+         */
+        public List<Object> load() {
+            resolveSpotifyItems(spotifyApi, spotifyItems);
+            filebrokerLoadingService.perform();
+            return itemsWithIndex.stream().sorted(Comparator.comparing(Pair::getRight)).map(Pair::getLeft).collect(Collectors.toList());
+        }
+
+        /**
+         * @return the number of playlist items in this chunk, including items that cannot be loaded
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the last playlist item of this chunk, used to load the following chunk, or null if the chunk is empty
+         */
+        @Nullable
+        public PlaylistItem getLastItem() {
+            return lastItem;
+        }
+
+    }
+
 }
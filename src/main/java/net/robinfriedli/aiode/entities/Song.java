@@ -27,7 +27,8 @@ import se.michaelthelin.spotify.model_objects.specification.Track;
 @Entity
 @Table(name = "song", indexes = {
     @Index(name = "song_id_idx", columnList = "id"),
-    @Index(name = "song_playlist_pk_idx", columnList = "playlist_pk")
+    @Index(name = "song_playlist_pk_idx", columnList = "playlist_pk"),
+    @Index(name = "song_playlist_pk_item_index_idx", columnList = "playlist_pk, item_index, pk")
 })
 public class Song extends PlaylistItem {
 
@@ -0,0 +1,208 @@
+package net.robinfriedli.aiode.entities;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import net.robinfriedli.aiode.audio.spotify.SpotifyItemSnapshotService;
+
+/**
+ * Snapshot of the metadata of a Spotify track or episode maintained by the {@link SpotifyItemSnapshotService} so that
+ * playlist items can be resolved to Spotify tracks without requesting the Spotify API each time a playlist is played.
+ * Artists are stored as a JSON array of objects with the id and name of each artist.
+ */
+@Entity
+@Table(name = "spotify_item_snapshot", uniqueConstraints = {
+    @UniqueConstraint(name = "spotify_item_snapshot_key", columnNames = {"spotify_id", "fk_spotify_item_kind"})
+})
+public class SpotifyItemSnapshot implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "pk")
+    private long pk;
+
+    @Column(name = "spotify_id", nullable = false)
+    private String spotifyId;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "fk_spotify_item_kind", referencedColumnName = "pk", foreignKey = @ForeignKey(name = "spotify_item_snapshot_fk_spotify_item_kind_fkey"))
+    private SpotifyItemKind spotifyItemKind;
+
+    @Column(name = "name", nullable = false, length = 1000)
+    private String name;
+
+    @Column(name = "duration_ms")
+    private Integer durationMs;
+
+    @Column(name = "explicit")
+    private Boolean explicit;
+
+    @Column(name = "artists", columnDefinition = "text")
+    private String artists;
+
+    @Column(name = "album_id")
+    private String albumId;
+
+    @Column(name = "album_name", length = 1000)
+    private String albumName;
+
+    @Column(name = "show_id")
+    private String showId;
+
+    @Column(name = "show_name", length = 1000)
+    private String showName;
+
+    @Column(name = "image_url", length = 1000)
+    private String imageUrl;
+
+    @Column(name = "preview_url", length = 1000)
+    private String previewUrl;
+
+    @Column(name = "is_playable")
+    private Boolean isPlayable;
+
+    @Column(name = "popularity")
+    private Integer popularity;
+
+    @Column(name = "last_updated", nullable = false)
+    private LocalDateTime lastUpdated;
+
+    public long getPk() {
+        return pk;
+    }
+
+    public void setPk(long pk) {
+        this.pk = pk;
+    }
+
+    public String getSpotifyId() {
+        return spotifyId;
+    }
+
+    public void setSpotifyId(String spotifyId) {
+        this.spotifyId = spotifyId;
+    }
+
+    public SpotifyItemKind getSpotifyItemKind() {
+        return spotifyItemKind;
+    }
+
+    public void setSpotifyItemKind(SpotifyItemKind spotifyItemKind) {
+        this.spotifyItemKind = spotifyItemKind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Integer durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Boolean getExplicit() {
+        return explicit;
+    }
+
+    public void setExplicit(Boolean explicit) {
+        this.explicit = explicit;
+    }
+
+    public String getArtists() {
+        return artists;
+    }
+
+    public void setArtists(String artists) {
+        this.artists = artists;
+    }
+
+    public String getAlbumId() {
+        return albumId;
+    }
+
+    public void setAlbumId(String albumId) {
+        this.albumId = albumId;
+    }
+
+    public String getAlbumName() {
+        return albumName;
+    }
+
+    public void setAlbumName(String albumName) {
+        this.albumName = albumName;
+    }
+
+    public String getShowId() {
+        return showId;
+    }
+
+    public void setShowId(String showId) {
+        this.showId = showId;
+    }
+
+    public String getShowName() {
+        return showName;
+    }
+
+    public void setShowName(String showName) {
+        this.showName = showName;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public String getPreviewUrl() {
+        return previewUrl;
+    }
+
+    public void setPreviewUrl(String previewUrl) {
+        this.previewUrl = previewUrl;
+    }
+
+    public Boolean getIsPlayable() {
+        return isPlayable;
+    }
+
+    public void setIsPlayable(Boolean isPlayable) {
+        this.isPlayable = isPlayable;
+    }
+
+    public Integer getPopularity() {
+        return popularity;
+    }
+
+    public void setPopularity(Integer popularity) {
+        this.popularity = popularity;
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+}
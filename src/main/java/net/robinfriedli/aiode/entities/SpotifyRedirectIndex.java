@@ -2,6 +2,10 @@ package net.robinfriedli.aiode.entities;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.google.common.base.Strings;
@@ -74,6 +78,27 @@ public class SpotifyRedirectIndex implements Serializable {
         return session.createQuery(query).setHibernateFlushMode(FlushMode.MANUAL).uniqueResultOptional();
     }
 
+    /**
+     * Query the existing indices for several Spotify tracks with a single query.
+     *
+     * @return the found indices mapped by Spotify track id
+     */
+    public static Map<String, SpotifyRedirectIndex> queryExistingIndices(Session session, Collection<String> spotifyTrackIds) {
+        List<String> ids = spotifyTrackIds.stream().filter(id -> !Strings.isNullOrEmpty(id)).distinct().toList();
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<SpotifyRedirectIndex> query = cb.createQuery(SpotifyRedirectIndex.class);
+        Root<SpotifyRedirectIndex> root = query.from(SpotifyRedirectIndex.class);
+        query.where(root.get("spotifyId").in(ids));
+        Map<String, SpotifyRedirectIndex> indices = new HashMap<>();
+        for (SpotifyRedirectIndex index : session.createQuery(query).setHibernateFlushMode(FlushMode.MANUAL).getResultList()) {
+            indices.put(index.getSpotifyId(), index);
+        }
+        return indices;
+    }
+
     public long getPk() {
         return pk;
     }
@@ -13,7 +13,8 @@ import net.robinfriedli.aiode.audio.UrlPlayable;
 @Entity
 @Table(name = "url_track", indexes = {
     @Index(name = "url_track_url_idx", columnList = "url"),
-    @Index(name = "url_track_playlist_pk_idx", columnList = "playlist_pk")
+    @Index(name = "url_track_playlist_pk_idx", columnList = "playlist_pk"),
+    @Index(name = "url_track_playlist_pk_item_index_idx", columnList = "playlist_pk, item_index, pk")
 })
 public class UrlTrack extends PlaylistItem {
 
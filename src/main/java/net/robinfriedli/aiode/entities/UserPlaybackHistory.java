@@ -11,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import net.dv8tion.jda.api.entities.User;
 
@@ -24,7 +25,8 @@ import net.dv8tion.jda.api.entities.User;
 public class UserPlaybackHistory implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_playback_history_pk_seq")
+    @SequenceGenerator(name = "user_playback_history_pk_seq", sequenceName = "user_playback_history_pk_seq", allocationSize = 50)
     @Column(name = "pk")
     private long pk;
     @Column(name = "user_name")
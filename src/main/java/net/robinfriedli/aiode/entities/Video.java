@@ -21,7 +21,8 @@ import org.hibernate.Session;
 @Entity
 @Table(name = "video", indexes = {
     @Index(name = "video_id_idx", columnList = "id"),
-    @Index(name = "video_playlist_pk_idx", columnList = "playlist_pk")
+    @Index(name = "video_playlist_pk_idx", columnList = "playlist_pk"),
+    @Index(name = "video_playlist_pk_item_index_idx", columnList = "playlist_pk, item_index, pk")
 })
 public class Video extends PlaylistItem {
 
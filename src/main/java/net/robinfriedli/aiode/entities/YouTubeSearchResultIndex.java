@@ -0,0 +1,173 @@
+package net.robinfriedli.aiode.entities;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import net.robinfriedli.aiode.audio.youtube.YouTubeSearchCache;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
+/**
+ * Table that stores the videos returned when searching YouTube for a search term, one row per video, so that searching
+ * the same term again, e.g. when redirecting a different Spotify track with the same name and artists, can be answered
+ * from the database without spending YouTube API quota. See {@link YouTubeSearchCache}.
+ */
+@Entity
+@Table(name = "youtube_search_result_index", indexes = {
+    @Index(name = "youtube_search_result_index_search_term_idx", columnList = "search_kind, search_term"),
+    @Index(name = "youtube_search_result_index_last_updated_idx", columnList = "last_updated")
+})
+public class YouTubeSearchResultIndex implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "pk")
+    private long pk;
+    @Column(name = "search_kind", length = 30, nullable = false)
+    private String searchKind;
+    @Column(name = "search_term", length = 1000, nullable = false)
+    private String searchTerm;
+    @Column(name = "requested_limit", nullable = false)
+    private int requestedLimit;
+    @Column(name = "result_index", nullable = false)
+    private int resultIndex;
+    @Column(name = "video_id", nullable = false)
+    private String videoId;
+    @Column(name = "title", length = 1000)
+    private String title;
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+    @Column(name = "last_updated", nullable = false)
+    private LocalDateTime lastUpdated;
+
+    public YouTubeSearchResultIndex() {
+    }
+
+    public YouTubeSearchResultIndex(String searchKind, String searchTerm, int requestedLimit, int resultIndex, String videoId, String title, long durationMs) {
+        this.searchKind = searchKind;
+        this.searchTerm = searchTerm;
+        this.requestedLimit = requestedLimit;
+        this.resultIndex = resultIndex;
+        this.videoId = videoId;
+        this.title = title;
+        this.durationMs = durationMs;
+        lastUpdated = LocalDateTime.now();
+    }
+
+    /**
+     * @return the persisted results for the search term, ordered by their index in the original search result
+     */
+    public static List<YouTubeSearchResultIndex> queryResults(Session session, String searchKind, String searchTerm, int timeoutSeconds) {
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<YouTubeSearchResultIndex> query = cb.createQuery(YouTubeSearchResultIndex.class);
+        Root<YouTubeSearchResultIndex> root = query.from(YouTubeSearchResultIndex.class);
+        query
+            .where(cb.equal(root.get("searchKind"), searchKind), cb.equal(root.get("searchTerm"), searchTerm))
+            .orderBy(cb.asc(root.get("resultIndex")));
+        return session.createQuery(query).setHibernateFlushMode(FlushMode.MANUAL).setTimeout(timeoutSeconds).getResultList();
+    }
+
+    public static int deleteResults(Session session, String searchKind, String searchTerm) {
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaDelete<YouTubeSearchResultIndex> deleteQuery = cb.createCriteriaDelete(YouTubeSearchResultIndex.class);
+        Root<YouTubeSearchResultIndex> root = deleteQuery.from(YouTubeSearchResultIndex.class);
+        deleteQuery.where(cb.equal(root.get("searchKind"), searchKind), cb.equal(root.get("searchTerm"), searchTerm));
+        return session.createMutationQuery(deleteQuery).executeUpdate();
+    }
+
+    /**
+     * Delete all results that have last been updated before the provided time, i.e. results for terms that have not
+     * been searched again within the time to live.
+     */
+    public static int deleteResultsUpdatedBefore(Session session, LocalDateTime threshold) {
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaDelete<YouTubeSearchResultIndex> deleteQuery = cb.createCriteriaDelete(YouTubeSearchResultIndex.class);
+        Root<YouTubeSearchResultIndex> root = deleteQuery.from(YouTubeSearchResultIndex.class);
+        deleteQuery.where(cb.lessThan(root.get("lastUpdated"), threshold));
+        return session.createMutationQuery(deleteQuery).executeUpdate();
+    }
+
+    public long getPk() {
+        return pk;
+    }
+
+    public void setPk(long pk) {
+        this.pk = pk;
+    }
+
+    public String getSearchKind() {
+        return searchKind;
+    }
+
+    public void setSearchKind(String searchKind) {
+        this.searchKind = searchKind;
+    }
+
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    public void setSearchTerm(String searchTerm) {
+        this.searchTerm = searchTerm;
+    }
+
+    public int getRequestedLimit() {
+        return requestedLimit;
+    }
+
+    public void setRequestedLimit(int requestedLimit) {
+        this.requestedLimit = requestedLimit;
+    }
+
+    public int getResultIndex() {
+        return resultIndex;
+    }
+
+    public void setResultIndex(int resultIndex) {
+        this.resultIndex = resultIndex;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(String videoId) {
+        this.videoId = videoId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+}
@@ -0,0 +1,220 @@
+package net.robinfriedli.aiode.persist;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import net.robinfriedli.aiode.entities.Episode;
+import net.robinfriedli.aiode.entities.FilebrokerTrack;
+import net.robinfriedli.aiode.entities.Playlist;
+import net.robinfriedli.aiode.entities.PlaylistItem;
+import net.robinfriedli.aiode.entities.Song;
+import net.robinfriedli.aiode.entities.UrlTrack;
+import net.robinfriedli.aiode.entities.Video;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+
+/**
+ * Maintains the order of the items of a playlist, which is defined by the item_index column of each item table. Indices
+ * are sparse: consecutive items are {@link #INDEX_GAP} apart so that inserting or moving items only requires assigning
+ * an index between the new neighbours to the affected items, without shifting the indices of all following items. Only
+ * when no gap is left between the neighbours are the indices of the playlist spread out again.
+ * <p>
+ * Also provides keyset pagination over the items of a playlist ordered by index, reading one page from the item tables
+ * at a time using the playlist_pk, item_index indices instead of initialising and sorting all item collections of the
+ * playlist.
+ */
+public class PlaylistItemIndex {
+
+    public static final int INDEX_GAP = 1024;
+    public static final int PAGE_SIZE = 500;
+
+    /**
+     * Assign indices to the provided items so that they are placed, in order, at the provided position of the sorted
+     * items of the playlist. The sorted items must not include the items to place, e.g. items that are being moved must
+     * be removed from the list first. Only the placed items are updated, unless the gap between the neighbouring items
+     * is too small, in which case all items of the playlist are assigned new indices.
+     *
+     * @param sortedItems  the items of the playlist, excluding the items to place, sorted by index
+     * @param position     the position within the sorted items at which to place the items, the size of the list to
+     *                     append the items
+     * @param itemsToPlace the items to place
+     */
+    public static void place(List<PlaylistItem> sortedItems, int position, List<PlaylistItem> itemsToPlace) {
+        if (itemsToPlace.isEmpty()) {
+            return;
+        }
+
+        int count = itemsToPlace.size();
+        Integer predecessorIndex = position > 0 ? sortedItems.get(position - 1).getIndex() : null;
+        Integer successorIndex = position < sortedItems.size() ? sortedItems.get(position).getIndex() : null;
+
+        long lowerBound;
+        long step;
+        if (predecessorIndex == null && successorIndex == null) {
+            lowerBound = -INDEX_GAP;
+            step = INDEX_GAP;
+        } else if (successorIndex == null) {
+            lowerBound = predecessorIndex;
+            step = INDEX_GAP;
+        } else if (predecessorIndex == null) {
+            lowerBound = (long) successorIndex - (long) (count + 1) * INDEX_GAP;
+            step = INDEX_GAP;
+        } else {
+            lowerBound = predecessorIndex;
+            step = ((long) successorIndex - predecessorIndex) / (count + 1);
+        }
+
+        long lastIndex = lowerBound + step * count;
+        if (step < 1 || lowerBound + step < Integer.MIN_VALUE || lastIndex > Integer.MAX_VALUE) {
+            List<PlaylistItem> items = Lists.newArrayList(sortedItems);
+            items.addAll(position, itemsToPlace);
+            spread(items);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            itemsToPlace.get(i).setIndex((int) (lowerBound + step * (i + 1)));
+        }
+    }
+
+    /**
+     * Assign evenly spaced indices to all provided items, in the order of the list.
+     */
+    public static void spread(List<PlaylistItem> items) {
+        for (int i = 0; i < items.size(); i++) {
+            PlaylistItem item = items.get(i);
+            int index = i * INDEX_GAP;
+            if (item.getIndex() == null || item.getIndex() != index) {
+                item.setIndex(index);
+            }
+        }
+    }
+
+    /**
+     * Load the next page of items of the playlist ordered by index.
+     *
+     * @param session  the session to load the items with
+     * @param playlist the playlist to load the items of
+     * @param after    the last item of the previous page or null to load the first page
+     * @param limit    the maximum number of items to load
+     * @return the items following the provided item
+     */
+    public static List<PlaylistItem> getPage(Session session, Playlist playlist, @Nullable PlaylistItem after, int limit) {
+        ItemTable afterTable = after != null ? ItemTable.of(after) : null;
+        StringBuilder queryBuilder = new StringBuilder("select kind, pk from (");
+        ItemTable[] itemTables = ItemTable.values();
+        for (ItemTable itemTable : itemTables) {
+            if (itemTable.ordinal() > 0) {
+                queryBuilder.append(" union all ");
+            }
+            queryBuilder.append("(select ").append(itemTable.ordinal()).append(" as kind, pk, item_index from ")
+                .append(itemTable.getTableName()).append(" where playlist_pk = :playlistPk");
+            // items are ordered by index, table and pk, the predicate is specific to each table so that it only compares
+            // columns of the playlist_pk, item_index index
+            if (afterTable == null) {
+                queryBuilder.append(" and item_index is not null");
+            } else if (itemTable.ordinal() < afterTable.ordinal()) {
+                queryBuilder.append(" and item_index > :index");
+            } else if (itemTable == afterTable) {
+                queryBuilder.append(" and (item_index, pk) > (:index, :pk)");
+            } else {
+                queryBuilder.append(" and item_index >= :index");
+            }
+            queryBuilder.append(" order by item_index, pk limit :limit)");
+        }
+        queryBuilder.append(") items order by item_index, kind, pk limit :limit");
+
+        NativeQuery<Object[]> query = session.createNativeQuery(queryBuilder.toString(), Object[].class)
+            .setParameter("playlistPk", playlist.getPk())
+            .setParameter("limit", limit);
+        if (after != null) {
+            query.setParameter("index", after.getIndex())
+                .setParameter("pk", after.getPk());
+        }
+        List<Object[]> rows = query.getResultList();
+
+        SetMultimap<ItemTable, Long> pksByTable = LinkedHashMultimap.create();
+        for (Object[] row : rows) {
+            pksByTable.put(itemTables[((Number) row[0]).intValue()], ((Number) row[1]).longValue());
+        }
+
+        Map<ItemTable, Map<Long, PlaylistItem>> itemsByTable = Maps.newEnumMap(ItemTable.class);
+        for (ItemTable itemTable : pksByTable.keySet()) {
+            List<? extends PlaylistItem> items = session.byMultipleIds(itemTable.getType()).multiLoad(Lists.newArrayList(pksByTable.get(itemTable)));
+            itemsByTable.put(itemTable, items.stream().filter(Objects::nonNull).collect(Collectors.toMap(PlaylistItem::getPk, item -> item)));
+        }
+
+        List<PlaylistItem> page = Lists.newArrayListWithCapacity(rows.size());
+        for (Object[] row : rows) {
+            PlaylistItem item = itemsByTable.get(itemTables[((Number) row[0]).intValue()]).get(((Number) row[1]).longValue());
+            if (item != null) {
+                page.add(item);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Count the items of the playlist and sum up their duration without loading the items.
+     */
+    public static Summary getSummary(Session session, Playlist playlist) {
+        String query = Arrays.stream(ItemTable.values())
+            .map(itemTable -> "select count(*) as item_count, coalesce(sum(duration), 0) as duration from " + itemTable.getTableName() + " where playlist_pk = :playlistPk")
+            .collect(Collectors.joining(" union all ", "select sum(item_count), sum(duration) from (", ") items"));
+        Object[] result = session.createNativeQuery(query, Object[].class)
+            .setParameter("playlistPk", playlist.getPk())
+            .getSingleResult();
+        return new Summary(((Number) result[0]).intValue(), ((Number) result[1]).longValue());
+    }
+
+    public record Summary(int size, long duration) {
+    }
+
+    /**
+     * The tables storing playlist items, the ordinal is used to order items with the same index.
+     */
+    private enum ItemTable {
+
+        SONG("song", Song.class),
+        VIDEO("video", Video.class),
+        URL_TRACK("url_track", UrlTrack.class),
+        EPISODE("episode", Episode.class),
+        FILEBROKER_TRACK("filebroker_track", FilebrokerTrack.class);
+
+        private final String tableName;
+        private final Class<? extends PlaylistItem> type;
+
+        ItemTable(String tableName, Class<? extends PlaylistItem> type) {
+            this.tableName = tableName;
+            this.type = type;
+        }
+
+        static ItemTable of(PlaylistItem item) {
+            for (ItemTable itemTable : values()) {
+                if (itemTable.getType().isInstance(item)) {
+                    return itemTable;
+                }
+            }
+
+            throw new IllegalArgumentException("Unsupported playlist item type " + item.getClass());
+        }
+
+        String getTableName() {
+            return tableName;
+        }
+
+        Class<? extends PlaylistItem> getType() {
+            return type;
+        }
+    }
+
+}
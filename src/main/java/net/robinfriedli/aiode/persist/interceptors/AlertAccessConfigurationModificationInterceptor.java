@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import net.robinfriedli.aiode.Aiode;
 import net.robinfriedli.aiode.command.CommandContext;
 import net.robinfriedli.aiode.command.PermissionTarget;
 import net.robinfriedli.aiode.discord.MessageService;
@@ -36,6 +37,13 @@ public class AlertAccessConfigurationModificationInterceptor extends CollectingI
         List<CustomPermissionTarget> createdPermissionTargets = getCreatedEntities(CustomPermissionTarget.class);
         List<CustomPermissionTarget> deletedPermissionTargets = getDeletedEntities(CustomPermissionTarget.class);
 
+        if (!(createdAccessConfigurations.isEmpty()
+            && deletedAccessConfigurations.isEmpty()
+            && createdGrantedRoles.isEmpty()
+            && deletedGrantedRoles.isEmpty())) {
+            Aiode.get().getSecurityManager().invalidatePermissionTable(context.getGuild());
+        }
+
         StringBuilder builder = new StringBuilder();
 
         if (!createdAccessConfigurations.isEmpty()) {
@@ -0,0 +1,34 @@
+package net.robinfriedli.aiode.persist.interceptors;
+
+import org.slf4j.Logger;
+
+import net.robinfriedli.aiode.command.CommandIndex;
+import net.robinfriedli.aiode.command.CommandManager;
+import net.robinfriedli.aiode.concurrent.ExecutionContext;
+import net.robinfriedli.aiode.entities.Preset;
+import net.robinfriedli.aiode.entities.StoredScript;
+import org.hibernate.Interceptor;
+
+/**
+ * Interceptor that invalidates the {@link CommandIndex} of the current guild after presets or scripts have been created,
+ * deleted or modified.
+ */
+public class CommandIndexInterceptor extends CollectingInterceptor {
+
+    private final CommandManager commandManager;
+    private final ExecutionContext executionContext;
+
+    public CommandIndexInterceptor(Interceptor next, Logger logger, CommandManager commandManager, ExecutionContext executionContext) {
+        super(next, logger);
+        this.commandManager = commandManager;
+        this.executionContext = executionContext;
+    }
+
+    @Override
+    public void afterCommit() {
+        if (!(getAllAffectedEntities(Preset.class).isEmpty() && getAllAffectedEntities(StoredScript.class).isEmpty())) {
+            commandManager.invalidateCommandIndex(executionContext.getGuild());
+        }
+    }
+
+}
@@ -38,6 +38,7 @@ public class GuildPropertyInterceptor extends ChainableInterceptor {
     private final MessageService messageService;
     private final QueryBuilderFactory queryBuilderFactory;
     private final SessionFactory sessionFactory;
+    private GuildSpecification changedSpecification;
 
     public GuildPropertyInterceptor(Interceptor next,
                                     Logger logger,
@@ -67,6 +68,7 @@ public class GuildPropertyInterceptor extends ChainableInterceptor {
                     AbstractGuildProperty property = guildPropertyManager.getProperty(propertyName);
                     if (property != null) {
                         changedProperties.put(property, Pair.of(previous, current));
+                        changedSpecification = (GuildSpecification) entity;
                         property.validate(current);
                     }
                 }
@@ -103,6 +105,15 @@ public class GuildPropertyInterceptor extends ChainableInterceptor {
     @Override
     public void afterTransactionCompletionChained(Transaction tx) {
         if (!tx.getRollbackOnly()) {
+            if (changedProperties.keySet().stream().anyMatch(property -> "prefix".equals(property.getProperty()) || "botName".equals(property.getProperty()))) {
+                commandContext.getGuildContext().invalidateCommandTriggers();
+            }
+
+            if (changedSpecification != null) {
+                // write the committed state through to the property snapshot of the guild
+                commandContext.getGuildContext().updatePropertySnapshot(changedSpecification);
+            }
+
             if (!changedProperties.isEmpty()) {
                 StringBuilder successMessageBuilder = new StringBuilder();
                 for (AbstractGuildProperty property : changedProperties.keySet()) {
@@ -115,6 +126,7 @@ public class GuildPropertyInterceptor extends ChainableInterceptor {
             }
         }
         changedProperties.clear();
+        changedSpecification = null;
     }
 
     private void updatePresets(AbstractGuildProperty argumentPrefixProperty, Character oldArgumentPrefix, char newArgumentPrefix, Session session) {
@@ -7,9 +7,11 @@ import java.util.stream.Collectors;
 
 import net.robinfriedli.aiode.entities.Playlist;
 import net.robinfriedli.aiode.entities.PlaylistItem;
+import net.robinfriedli.aiode.persist.PlaylistItemIndex;
 
 /**
- * task that updates the itemIndex property for {@link PlaylistItem}s when items are added to a playlist
+ * task that sets the itemIndex property for {@link PlaylistItem}s that are added to the end of a playlist, leaving the
+ * indices of existing items untouched, see {@link PlaylistItemIndex}
  */
 public class UpdatePlaylistItemIndicesTask implements PersistTask<Void> {
 
@@ -37,14 +39,8 @@ public class UpdatePlaylistItemIndicesTask implements PersistTask<Void> {
                 .filter(item -> item.getIndex() == null)
                 .sorted(sorter)
                 .collect(Collectors.toList());
-            itemsOrdered.addAll(addedItems);
-
-            for (int i = 0; i < itemsOrdered.size(); i++) {
-                PlaylistItem item = itemsOrdered.get(i);
-                if (item.getIndex() == null || item.getIndex() != i) {
-                    item.setIndex(i);
-                }
-            }
+
+            PlaylistItemIndex.place(itemsOrdered, itemsOrdered.size(), addedItems);
         }
 
         return null;
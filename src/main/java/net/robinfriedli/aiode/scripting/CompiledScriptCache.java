@@ -0,0 +1,168 @@
+package net.robinfriedli.aiode.scripting;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import net.robinfriedli.aiode.entities.StoredScript;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+/**
+ * Cache of compiled {@link Script} classes of {@link StoredScript} entities used by the {@link SafeGroovyScriptRunner}
+ * so that running a stored script only requires instantiating the compiled class rather than parsing and compiling the
+ * source with all compilation customizers and the static type checking of the sandbox.
+ * <p>
+ * Since the {@link TypeCheckingExtension} infers the static types of groovy variables from their current values, the
+ * compiled class is only valid for variables of the same types, e.g. the command variable refers to a different class
+ * for each command. Entries are thus keyed by the pk of the script, the hash of its source, whether the script was
+ * compiled for a privileged shell and the types of the groovy variables. Each script is compiled by its own
+ * {@link GroovyClassLoader} so that evicted classes can be unloaded.
+ */
+public class CompiledScriptCache {
+
+    private final Cache<Key, CompiledScript> cache;
+    private final long maxSize;
+    private final Logger logger;
+
+    private final AtomicLong compileCount = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of cached script classes
+     * @param ttl     the duration after which a script class that has not been accessed is evicted
+     */
+    public CompiledScriptCache(long maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        logger = LoggerFactory.getLogger(getClass());
+        cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(ttl)
+            .removalListener((RemovalNotification<Key, CompiledScript> notification) -> {
+                CompiledScript compiledScript = notification.getValue();
+                if (compiledScript != null) {
+                    unload(compiledScript);
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Get the compiled class of the provided script, compiling it using the provided configuration if it is not cached.
+     *
+     * @param script                the script to compile
+     * @param isPrivileged          whether the script is compiled with the privileged compiler configuration
+     * @param compilerConfiguration the compiler configuration to use if the script needs to be compiled
+     * @param variableTypes         the types of the groovy variables the script is going to run with
+     * @return the compiled script class
+     */
+    public Class<?> getScriptClass(
+        StoredScript script,
+        boolean isPrivileged,
+        CompilerConfiguration compilerConfiguration,
+        Map<String, Class<?>> variableTypes
+    ) {
+        String source = script.getScript();
+        Key key = new Key(script.getPk(), source.hashCode(), isPrivileged, variableTypes);
+
+        try {
+            CompiledScript compiledScript = cache.get(key, () -> compile(script, compilerConfiguration));
+            if (!compiledScript.source().equals(source)) {
+                // hash collision of a modified script, replace the entry
+                compiledScript = compile(script, compilerConfiguration);
+                cache.put(key, compiledScript);
+            }
+
+            return compiledScript.scriptClass();
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            // rethrow compilation errors as they are, they are handled by the SafeGroovyScriptRunner
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not compile script " + script.getIdentifier(), e.getCause());
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getCompileCount() {
+        return compileCount.get();
+    }
+
+    public double getAverageCompileMs() {
+        long count = compileCount.get();
+        return count > 0 ? compileNanos.get() / (count * 1_000_000D) : 0;
+    }
+
+    /**
+     * @return the compile time saved by cache hits, estimated based on the average compile time
+     */
+    public double getEstimatedSavedMs() {
+        return cache.stats().hitCount() * getAverageCompileMs();
+    }
+
+    private CompiledScript compile(StoredScript script, CompilerConfiguration compilerConfiguration) {
+        long start = System.nanoTime();
+        GroovyClassLoader classLoader = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(), compilerConfiguration);
+        try {
+            Class<?> scriptClass = classLoader.parseClass(script.getScript(), "Script" + script.getPk() + ".groovy");
+            return new CompiledScript(script.getScript(), scriptClass, classLoader);
+        } catch (RuntimeException e) {
+            closeClassLoader(classLoader);
+            throw e;
+        } finally {
+            compileCount.incrementAndGet();
+            compileNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void unload(CompiledScript compiledScript) {
+        InvokerHelper.removeClass(compiledScript.scriptClass());
+        closeClassLoader(compiledScript.classLoader());
+    }
+
+    private void closeClassLoader(GroovyClassLoader classLoader) {
+        classLoader.clearCache();
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            logger.warn("Could not close script class loader", e);
+        }
+    }
+
+    private record Key(long scriptPk, int sourceHash, boolean isPrivileged, Map<String, Class<?>> variableTypes) {
+    }
+
+    private record CompiledScript(String source, Class<?> scriptClass, GroovyClassLoader classLoader) {
+    }
+
+}
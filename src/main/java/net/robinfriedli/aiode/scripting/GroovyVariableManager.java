@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
 import net.robinfriedli.aiode.concurrent.ThreadContext;
 import net.robinfriedli.aiode.entities.xml.GenericClassContribution;
@@ -53,11 +54,29 @@ public class GroovyVariableManager {
     }
 
     public void prepareShell(GroovyShell groovyShell) {
+        prepareBinding(groovyShell.getContext());
+    }
+
+    public void prepareBinding(Binding binding) {
         for (Map.Entry<String, ?> variable : getVariables().entrySet()) {
-            groovyShell.setVariable(variable.getKey(), variable.getValue());
+            binding.setVariable(variable.getKey(), variable.getValue());
         }
     }
 
+    /**
+     * @return the types of the current variables by identifier, which determine the types inferred by the
+     * {@link TypeCheckingExtension} at compile time
+     */
+    public Map<String, Class<?>> getVariableTypes() {
+        Map<String, Class<?>> variableTypes = new HashMap<>();
+        for (Map.Entry<String, ?> variable : getVariables().entrySet()) {
+            Object value = variable.getValue();
+            variableTypes.put(variable.getKey(), value != null ? value.getClass() : null);
+        }
+
+        return variableTypes;
+    }
+
     @SuppressWarnings("unchecked")
     private Map<String, ?> getVariables() {
         Map<String, ?> cachedVariables = ThreadContext.Current.get(CACHE_KEY, Map.class);
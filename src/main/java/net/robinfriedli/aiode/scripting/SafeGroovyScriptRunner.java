@@ -2,16 +2,19 @@ package net.robinfriedli.aiode.scripting;
 
 import java.awt.Color;
 import java.io.ByteArrayInputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.User;
@@ -19,19 +22,19 @@ import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.utils.FileUpload;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.robinfriedli.aiode.Aiode;
-import net.robinfriedli.aiode.boot.ShutdownableExecutorService;
 import net.robinfriedli.aiode.boot.configurations.GroovySandboxComponent;
 import net.robinfriedli.aiode.command.SecurityManager;
 import net.robinfriedli.aiode.concurrent.ExecutionContext;
-import net.robinfriedli.aiode.concurrent.ForkTaskThreadPool;
-import net.robinfriedli.aiode.concurrent.LoggingThreadFactory;
 import net.robinfriedli.aiode.discord.MessageService;
 import net.robinfriedli.aiode.discord.property.properties.ColorSchemeProperty;
 import net.robinfriedli.aiode.entities.StoredScript;
 import net.robinfriedli.aiode.exceptions.CommandFailure;
 import net.robinfriedli.aiode.exceptions.ExceptionUtils;
-import net.robinfriedli.threadpool.ThreadPool;
+import net.robinfriedli.aiode.exceptions.InvalidCommandException;
+import net.robinfriedli.aiode.exceptions.RateLimitException;
+import org.codehaus.groovy.control.CompilerConfiguration;
 import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 /**
  * Class that provides safe execution of untrusted groovy scripts by setting up a sandboxed {@link GroovyShell} with compilation
@@ -45,18 +48,18 @@ import org.codehaus.groovy.control.MultipleCompilationErrorsException;
  */
 public class SafeGroovyScriptRunner {
 
-    private static final ForkTaskThreadPool GLOBAL_POOL = new ForkTaskThreadPool(
-        ThreadPool.Builder.create()
-            .setCoreSize(3)
-            .setMaxSize(Integer.MAX_VALUE)
-            .setKeepAlive(60L, TimeUnit.SECONDS)
-            .setWorkQueue(new SynchronousQueue<>())
-            .setThreadFactory(new LoggingThreadFactory("script-execution-pool"))
-            .build()
+    private static final ScriptExecutionPool SCRIPT_EXECUTION_POOL = new ScriptExecutionPool(
+        64,
+        256,
+        3,
+        Duration.ofSeconds(30),
+        Duration.ofMinutes(1)
     );
+    private static final CompiledScriptCache COMPILED_SCRIPT_CACHE = new CompiledScriptCache(500, Duration.ofHours(1));
+    private static final AtomicLong SCRIPT_EXECUTION_COUNT = new AtomicLong();
 
     static {
-        Aiode.SHUTDOWNABLES.add(new ShutdownableExecutorService(GLOBAL_POOL));
+        SCRIPT_EXECUTION_POOL.register();
     }
 
     private final ExecutionContext context;
@@ -103,6 +106,11 @@ public class SafeGroovyScriptRunner {
                 );
                 messageService.sendTemporary(embedBuilder.build(), context.getChannel());
             }
+        } catch (RateLimitException e) {
+            Aiode.get().getMessageService().sendError(
+                String.format("Could not execute script command %ss. %s", usageId, e.getMessage()),
+                context.getChannel()
+            );
         } catch (TimeoutException e) {
             StoredScript currentScript = currentScriptReference.get();
             MessageService messageService = Aiode.get().getMessageService();
@@ -119,7 +127,9 @@ public class SafeGroovyScriptRunner {
      * Run all provided scripts sequentially in the same thread. This counts as one single script execution, thus all scripts
      * share the same method invocation limits and run with one time limit. This method is mainly used by the ScriptCommandInterceptor
      * to run all interceptors or all finalizers. Just like {@link #evaluateScript(String, long, TimeUnit)} this applies
-     * all security checks and expression transformation if isPrivileged is false.
+     * all security checks and expression transformation if isPrivileged is false. The compiled script classes are cached
+     * by the {@link CompiledScriptCache}, so a script is only compiled again if its source or the types of the groovy
+     * variables change.
      *
      * @param scripts       a list of {@link StoredScript} entities representing the scripts to run
      * @param currentScript a reference pointing to the script that is currently being executed, can be used to reference
@@ -130,11 +140,16 @@ public class SafeGroovyScriptRunner {
      * @throws TimeoutException   if not all scripts finish within the given time limit
      */
     public void doRunScripts(List<StoredScript> scripts, AtomicReference<StoredScript> currentScript, long timeout, TimeUnit timeUnit) throws ExecutionException, TimeoutException {
-        GroovyShell groovyShell = createShell();
+        CompilerConfiguration compilerConfiguration = getCompilerConfiguration();
+        SCRIPT_EXECUTION_COUNT.incrementAndGet();
         Future<Object> result = scriptExecution(() -> {
+            Binding binding = new Binding();
+            groovyVariableManager.prepareBinding(binding);
+            Map<String, Class<?>> variableTypes = groovyVariableManager.getVariableTypes();
             for (StoredScript script : scripts) {
                 currentScript.set(script);
-                groovyShell.evaluate(script.getScript());
+                Class<?> scriptClass = COMPILED_SCRIPT_CACHE.getScriptClass(script, isPrivileged, compilerConfiguration, variableTypes);
+                InvokerHelper.createScript(scriptClass, binding).run();
             }
             return null;
         });
@@ -205,6 +220,8 @@ public class SafeGroovyScriptRunner {
             }
         } catch (TimeoutException e) {
             messageService.sendError(e.getMessage(), channel);
+        } catch (RateLimitException e) {
+            throw new InvalidCommandException(e.getMessage());
         } catch (ExecutionException e) {
             Throwable error = e.getCause() != null ? e.getCause() : e;
 
@@ -229,7 +246,7 @@ public class SafeGroovyScriptRunner {
     }
 
     private <T> Future<T> scriptExecution(Callable<T> execution) {
-        return GLOBAL_POOL.submit(() -> {
+        return SCRIPT_EXECUTION_POOL.submit(isPrivileged ? null : context.getGuild().getId(), () -> {
             try {
                 return execution.call();
             } finally {
@@ -252,26 +269,50 @@ public class SafeGroovyScriptRunner {
             return null;
         } catch (TimeoutException e) {
             result.cancel(true);
+            SCRIPT_EXECUTION_POOL.recordTimeout();
             throw new TimeoutException("Script execution timed out");
         }
     }
 
+    /**
+     * @return the pool executing the scripts of all instances
+     */
+    public static ScriptExecutionPool getScriptExecutionPool() {
+        return SCRIPT_EXECUTION_POOL;
+    }
+
+    /**
+     * @return the cache of compiled stored scripts shared by all instances
+     */
+    public static CompiledScriptCache getCompiledScriptCache() {
+        return COMPILED_SCRIPT_CACHE;
+    }
+
+    /**
+     * @return the number of times stored scripts have been run via {@link #doRunScripts(List, AtomicReference, long, TimeUnit)},
+     * e.g. once for all interceptors of a command
+     */
+    public static long getScriptExecutionCount() {
+        return SCRIPT_EXECUTION_COUNT.get();
+    }
+
     private GroovyShell createShell() {
-        GroovyShell groovyShell;
+        GroovyShell groovyShell = new GroovyShell(getCompilerConfiguration());
+        groovyVariableManager.prepareShell(groovyShell);
 
+        return groovyShell;
+    }
+
+    private CompilerConfiguration getCompilerConfiguration() {
         if (isPrivileged) {
             User user = context.getUser();
             if (!securityManager.isAdmin(user)) {
                 throw new SecurityException(String.format("Cannot set up privileged shell for user %s, only allowed for admin users.", user.getAsMention()));
             }
-            groovyShell = new GroovyShell(groovySandboxComponent.getPrivilegedCompilerConfiguration());
+            return groovySandboxComponent.getPrivilegedCompilerConfiguration();
         } else {
-            groovyShell = new GroovyShell(groovySandboxComponent.getCompilerConfiguration());
+            return groovySandboxComponent.getCompilerConfiguration();
         }
-
-        groovyVariableManager.prepareShell(groovyShell);
-
-        return groovyShell;
     }
 
 }
@@ -0,0 +1,260 @@
+package net.robinfriedli.aiode.scripting;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.robinfriedli.aiode.boot.Shutdownable;
+import net.robinfriedli.aiode.concurrent.ThreadContext;
+import net.robinfriedli.aiode.exceptions.RateLimitException;
+import net.robinfriedli.aiode.exceptions.handler.handlers.LoggingUncaughtExceptionHandler;
+
+/**
+ * Executes groovy scripts on virtual threads while limiting the number of scripts running at the same time, the number
+ * of scripts waiting for execution and, per guild, the number of concurrently submitted scripts and the total time spent
+ * executing scripts within a time window. Scripts exceeding the queue size or the limits of their guild are rejected
+ * with a {@link RateLimitException}, so that a burst of scripts submitted by one guild cannot exhaust the resources of
+ * the whole shard.
+ * <p>
+ * The execution time budget charges the time a script spent running after acquiring an execution slot, as the CPU time
+ * of virtual threads cannot be measured per thread.
+ */
+public class ScriptExecutionPool implements Shutdownable {
+
+    private final ExecutorService executorService;
+    private final Semaphore executionSlots;
+    private final int maxQueued;
+    private final int maxConcurrentPerGuild;
+    private final long timeBudgetNanos;
+    private final Duration budgetWindow;
+    private final Cache<String, GuildQuota> guildQuotas;
+
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    /**
+     * @param maxConcurrent         the maximum number of scripts running at the same time
+     * @param maxQueued             the maximum number of scripts waiting for an execution slot
+     * @param maxConcurrentPerGuild the maximum number of queued or running scripts per guild
+     * @param timeBudget            the maximum time a guild may spend executing scripts within the budget window
+     * @param budgetWindow          the duration after which the used time budget of a guild is reset
+     */
+    public ScriptExecutionPool(int maxConcurrent, int maxQueued, int maxConcurrentPerGuild, Duration timeBudget, Duration budgetWindow) {
+        executorService = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual()
+                .name("script-execution-thread-", 1)
+                .uncaughtExceptionHandler(new LoggingUncaughtExceptionHandler())
+                .factory()
+        );
+        executionSlots = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.maxConcurrentPerGuild = maxConcurrentPerGuild;
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.budgetWindow = budgetWindow;
+        guildQuotas = CacheBuilder.newBuilder()
+            .expireAfterAccess(budgetWindow.multipliedBy(2))
+            .build();
+    }
+
+    /**
+     * Submit a script execution for the provided guild, the execution waits for a free execution slot on its own
+     * virtual thread. If the returned future is cancelled while waiting, e.g. when running into a timeout, the script
+     * does not run once it acquires a slot.
+     *
+     * @param guildId   the id of the guild the script is executed for, or null to bypass the quotas of the guild, e.g.
+     *                  for privileged scripts
+     * @param execution the script execution
+     * @return the future of the script execution
+     * @throws RateLimitException if the execution queue is full or the guild has exhausted its quotas
+     */
+    public <T> Future<T> submit(@Nullable String guildId, Callable<T> execution) {
+        GuildQuota guildQuota = guildId != null ? getGuildQuota(guildId) : null;
+        if (guildQuota != null) {
+            guildQuota.acquire();
+        }
+
+        if (queuedCount.incrementAndGet() > maxQueued) {
+            queuedCount.decrementAndGet();
+            release(guildQuota, 0);
+            rejectedCount.incrementAndGet();
+            throw new RateLimitException(false, "Too many scripts are waiting for execution, try again later.");
+        }
+
+        ThreadContext forkedThreadContext = ThreadContext.Current.get().fork();
+        ScriptTask<T> task = new ScriptTask<>(() -> {
+            ThreadContext.Current.installExplicitly(forkedThreadContext);
+            try {
+                return execution.call();
+            } finally {
+                forkedThreadContext.clear();
+            }
+        }, guildQuota);
+        try {
+            executorService.execute(task);
+        } catch (RuntimeException e) {
+            task.cancel(false);
+            throw e;
+        }
+
+        return task;
+    }
+
+    /**
+     * Record a script that has been cancelled because it ran into a timeout.
+     */
+    public void recordTimeout() {
+        timedOutCount.incrementAndGet();
+    }
+
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    @Override
+    public void shutdown(int delayMs) {
+        executorService.shutdown();
+    }
+
+    private GuildQuota getGuildQuota(String guildId) {
+        try {
+            return guildQuotas.get(guildId, GuildQuota::new);
+        } catch (ExecutionException e) {
+            // GuildQuota constructor does not throw
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void release(@Nullable GuildQuota guildQuota, long runningNanos) {
+        if (guildQuota != null) {
+            guildQuota.release(runningNanos);
+        }
+    }
+
+    /**
+     * Task that waits for an execution slot before running the script and releases the slot and the quota of the guild
+     * once done. If the task is cancelled before it started, e.g. due to a timeout, the quota is released by
+     * {@link #done()}.
+     */
+    private class ScriptTask<T> extends FutureTask<T> {
+
+        private final AtomicBoolean started = new AtomicBoolean();
+        @Nullable
+        private final GuildQuota guildQuota;
+
+        ScriptTask(Callable<T> execution, @Nullable GuildQuota guildQuota) {
+            super(execution);
+            this.guildQuota = guildQuota;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                executionSlots.acquire();
+            } catch (InterruptedException e) {
+                queuedCount.decrementAndGet();
+                release(guildQuota, 0);
+                setException(e);
+                return;
+            }
+
+            queuedCount.decrementAndGet();
+            runningCount.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                super.run();
+            } finally {
+                runningCount.decrementAndGet();
+                completedCount.incrementAndGet();
+                executionSlots.release();
+                release(guildQuota, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (started.compareAndSet(false, true)) {
+                queuedCount.decrementAndGet();
+                release(guildQuota, 0);
+            }
+        }
+
+    }
+
+    private class GuildQuota {
+
+        private int activeCount;
+        private long windowStart = System.nanoTime();
+        private long usedNanos;
+
+        synchronized void acquire() {
+            long now = System.nanoTime();
+            if (now - windowStart >= budgetWindow.toNanos()) {
+                windowStart = now;
+                usedNanos = 0;
+            }
+
+            if (usedNanos >= timeBudgetNanos) {
+                rejectedCount.incrementAndGet();
+                long remainingSeconds = TimeUnit.NANOSECONDS.toSeconds(budgetWindow.toNanos() - (now - windowStart)) + 1;
+                throw new RateLimitException(false, String.format(
+                    "This guild has used up its script execution time of %d seconds per %d seconds. Scripts can be run again in %d seconds.",
+                    TimeUnit.NANOSECONDS.toSeconds(timeBudgetNanos),
+                    budgetWindow.toSeconds(),
+                    remainingSeconds
+                ));
+            }
+
+            if (activeCount >= maxConcurrentPerGuild) {
+                rejectedCount.incrementAndGet();
+                throw new RateLimitException(false, String.format(
+                    "This guild is running too many scripts concurrently, the limit is %d.", maxConcurrentPerGuild
+                ));
+            }
+
+            ++activeCount;
+        }
+
+        synchronized void release(long runningNanos) {
+            --activeCount;
+            usedNanos += runningNanos;
+        }
+
+    }
+
+}
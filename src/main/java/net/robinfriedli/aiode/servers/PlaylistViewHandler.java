@@ -2,8 +2,6 @@ package net.robinfriedli.aiode.servers;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +18,7 @@ import net.robinfriedli.aiode.discord.GuildManager;
 import net.robinfriedli.aiode.entities.Playlist;
 import net.robinfriedli.aiode.entities.PlaylistItem;
 import net.robinfriedli.aiode.exceptions.InvalidRequestException;
+import net.robinfriedli.aiode.persist.PlaylistItemIndex;
 import net.robinfriedli.aiode.util.SearchEngine;
 import net.robinfriedli.aiode.util.Util;
 import org.hibernate.Session;
@@ -39,7 +38,7 @@ public class PlaylistViewHandler implements HttpHandler {
     public void handle(HttpExchange exchange) throws IOException {
         Session session = null;
         try {
-            String html = Files.readString(Path.of("html/playlist_view.html"));
+            String html = ServerUtil.getTemplate("html/playlist_view.html");
             Map<String, String> parameterMap = ServerUtil.getParameters(exchange);
             String guildId = parameterMap.get("guildId");
             String name = parameterMap.get("name");
@@ -66,13 +65,14 @@ public class PlaylistViewHandler implements HttpHandler {
                         }
                         createdUser = userById != null ? userById.getName() : playlist.getCreatedUser();
                     }
+                    PlaylistItemIndex.Summary summary = PlaylistItemIndex.getSummary(session, playlist);
                     String htmlString = String.format(html,
                         playlist.getName(),
                         playlist.getName(),
-                        Util.normalizeMillis(playlist.getDuration()),
+                        Util.normalizeMillis(summary.duration()),
                         createdUser,
-                        playlist.getSize(),
-                        getList(playlist));
+                        summary.size(),
+                        getList(playlist, session));
 
                     byte[] bytes = htmlString.getBytes();
                     exchange.sendResponseHeaders(200, bytes.length);
@@ -97,17 +97,24 @@ public class PlaylistViewHandler implements HttpHandler {
         }
     }
 
-    private String getList(Playlist playlist) {
+    private String getList(Playlist playlist, Session session) {
         StringBuilder listBuilder = new StringBuilder();
-        List<PlaylistItem> playlistItems = playlist.getItemsSorted();
-        for (int i = 0; i < playlistItems.size(); i++) {
-            PlaylistItem item = playlistItems.get(i);
-            listBuilder.append("<tr>").append(System.lineSeparator())
-                .append("<td>").append(i + 1).append("</td>").append(System.lineSeparator())
-                .append("<td>").append(item.display()).append("</td>").append(System.lineSeparator())
-                .append("<td>").append(Util.normalizeMillis(item.getDuration())).append("</td>").append(System.lineSeparator())
-                .append("</tr>").append(System.lineSeparator());
-        }
+        int position = 0;
+        PlaylistItem last = null;
+        List<PlaylistItem> page;
+        do {
+            page = PlaylistItemIndex.getPage(session, playlist, last, PlaylistItemIndex.PAGE_SIZE);
+            for (PlaylistItem item : page) {
+                listBuilder.append("<tr>").append(System.lineSeparator())
+                    .append("<td>").append(++position).append("</td>").append(System.lineSeparator())
+                    .append("<td>").append(item.display()).append("</td>").append(System.lineSeparator())
+                    .append("<td>").append(Util.normalizeMillis(item.getDuration())).append("</td>").append(System.lineSeparator())
+                    .append("</tr>").append(System.lineSeparator());
+                last = item;
+            }
+            // entities of rendered pages are not needed anymore
+            session.clear();
+        } while (page.size() == PlaylistItemIndex.PAGE_SIZE);
 
         return listBuilder.toString();
     }
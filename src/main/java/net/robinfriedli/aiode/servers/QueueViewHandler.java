@@ -2,12 +2,11 @@ package net.robinfriedli.aiode.servers;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
+
+import javax.annotation.Nullable;
 
 import org.slf4j.LoggerFactory;
 
@@ -18,12 +17,18 @@ import net.dv8tion.jda.api.sharding.ShardManager;
 import net.robinfriedli.aiode.audio.AudioManager;
 import net.robinfriedli.aiode.audio.AudioPlayback;
 import net.robinfriedli.aiode.audio.Playable;
-import net.robinfriedli.aiode.audio.queue.AudioQueue;
+import net.robinfriedli.aiode.audio.queue.QueuePage;
+import net.robinfriedli.aiode.audio.queue.QueueSnapshot;
 import net.robinfriedli.aiode.exceptions.InvalidRequestException;
 import net.robinfriedli.aiode.util.Util;
 
 public class QueueViewHandler implements HttpHandler {
 
+    /**
+     * The number of tracks shown per page. Only the tracks of the requested page are collected from the queue.
+     */
+    private static final int PAGE_SIZE = 100;
+
     private final ShardManager shardManager;
     private final AudioManager audioManager;
 
@@ -35,7 +40,7 @@ public class QueueViewHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            String html = Files.readString(Path.of("html/queue_view.html"));
+            String html = ServerUtil.getTemplate("html/queue_view.html");
             Map<String, String> parameterMap = ServerUtil.getParameters(exchange);
             String guildId = parameterMap.get("guildId");
 
@@ -43,34 +48,11 @@ public class QueueViewHandler implements HttpHandler {
                 Guild guild = shardManager.getGuildById(guildId);
                 if (guild != null) {
                     AudioPlayback playback = audioManager.getPlaybackForGuild(guild);
-                    AudioQueue queue = playback.getAudioQueue();
+                    QueueSnapshot queue = playback.getAudioQueue().snapshot();
                     String content;
                     if (!queue.isEmpty()) {
-                        Lock readLock = queue.getLock().readLock();
-                        readLock.lock();
-                        try {
-                            int position = queue.getPosition();
-                            List<Playable> previous = queue.listPrevLocked(position);
-                            List<Playable> next = queue.listNextLocked(queue.getSize() - position);
-
-                            StringBuilder listBuilder = new StringBuilder();
-                            if (!previous.isEmpty()) {
-                                if (previous.size() > 20) {
-                                    listBuilder.append("<a href=\"#current\">Jump to current track</a>").append(System.lineSeparator());
-                                }
-                                appendList(listBuilder, previous, "Previous");
-                            }
-                            listBuilder.append("<div id=\"current\">").append(System.lineSeparator());
-                            appendList(listBuilder, Collections.singletonList(queue.getCurrentLocked()), "Current");
-                            listBuilder.append("</div>").append(System.lineSeparator());
-                            if (!next.isEmpty()) {
-                                appendList(listBuilder, next, "Next");
-                            }
-
-                            content = listBuilder.toString();
-                        } finally {
-                            readLock.unlock();
-                        }
+                        QueuePage page = queue.getPage(getPageOffset(parameterMap.get("page"), queue), PAGE_SIZE);
+                        content = renderPage(page, guildId);
                     } else {
                         content = "Queue is empty";
                     }
@@ -101,6 +83,78 @@ public class QueueViewHandler implements HttpHandler {
         }
     }
 
+    /**
+     * @return the offset of the requested (1-based) page or the offset of the page containing the current track if no
+     * page was requested
+     */
+    private int getPageOffset(@Nullable String pageParameter, QueueSnapshot queue) throws InvalidRequestException {
+        if (pageParameter == null) {
+            return Math.max(queue.getPosition(), 0) / PAGE_SIZE * PAGE_SIZE;
+        }
+
+        int page;
+        try {
+            page = Integer.parseInt(pageParameter);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid page " + pageParameter);
+        }
+        if (page < 1) {
+            throw new InvalidRequestException("Invalid page " + pageParameter);
+        }
+
+        return (int) Math.min((long) (page - 1) * PAGE_SIZE, Integer.MAX_VALUE);
+    }
+
+    private String renderPage(QueuePage page, String guildId) {
+        int position = page.getPosition();
+        int offset = page.getOffset();
+        List<Playable> playables = page.getPlayables();
+        List<Playable> previous = playables.subList(0, Math.max(0, Math.min(position - offset, playables.size())));
+        List<Playable> current = position >= offset && position < offset + playables.size()
+            ? Collections.singletonList(playables.get(position - offset))
+            : Collections.emptyList();
+        List<Playable> next = playables.subList(Math.max(0, Math.min(position + 1 - offset, playables.size())), playables.size());
+
+        StringBuilder listBuilder = new StringBuilder();
+        appendPageNavigation(listBuilder, page, guildId);
+        if (!previous.isEmpty()) {
+            if (previous.size() > 20 && !current.isEmpty()) {
+                listBuilder.append("<a href=\"#current\">Jump to current track</a>").append(System.lineSeparator());
+            }
+            appendList(listBuilder, previous, "Previous");
+        }
+        if (!current.isEmpty()) {
+            listBuilder.append("<div id=\"current\">").append(System.lineSeparator());
+            appendList(listBuilder, current, "Current");
+            listBuilder.append("</div>").append(System.lineSeparator());
+        }
+        if (!next.isEmpty()) {
+            appendList(listBuilder, next, "Next");
+        }
+        appendPageNavigation(listBuilder, page, guildId);
+
+        return listBuilder.toString();
+    }
+
+    private void appendPageNavigation(StringBuilder listBuilder, QueuePage page, String guildId) {
+        int pageCount = Math.max(1, (page.getQueueSize() + PAGE_SIZE - 1) / PAGE_SIZE);
+        if (pageCount == 1) {
+            return;
+        }
+
+        int pageNumber = page.getOffset() / PAGE_SIZE + 1;
+        String pageUrl = "/queue?guildId=" + guildId + "&page=";
+        listBuilder.append("<p>");
+        if (pageNumber > 1) {
+            listBuilder.append("<a href=\"").append(pageUrl).append(pageNumber - 1).append("\">Previous page</a> ");
+        }
+        listBuilder.append("Page ").append(pageNumber).append(" of ").append(pageCount);
+        if (pageNumber < pageCount) {
+            listBuilder.append(" <a href=\"").append(pageUrl).append(pageNumber + 1).append("\">Next page</a>");
+        }
+        listBuilder.append("</p>").append(System.lineSeparator());
+    }
+
     private void appendList(StringBuilder listBuilder, List<Playable> playables, String title) {
         listBuilder.append("<h3>").append(title).append("</h3>").append(System.lineSeparator());
         listBuilder.append("<table class=\"content-table\">").append(System.lineSeparator());
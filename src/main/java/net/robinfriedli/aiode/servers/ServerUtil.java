@@ -8,6 +8,7 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
@@ -16,8 +17,10 @@ import com.sun.net.httpserver.HttpExchange;
 
 public class ServerUtil {
 
+    private static final Map<String, String> TEMPLATE_CACHE = new ConcurrentHashMap<>();
+
     public static void handleError(HttpExchange exchange, Throwable e) throws IOException {
-        String html = Files.readString(Path.of("html/default_error_page.html"));
+        String html = getTemplate("html/default_error_page.html");
         String response = String.format(html, e.getMessage());
         exchange.sendResponseHeaders(500, response.getBytes().length);
         OutputStream responseBody = exchange.getResponseBody();
@@ -32,4 +35,19 @@ public class ServerUtil {
         return parameterMap;
     }
 
+    /**
+     * Read the html template at the given path, caching the content after the first read so that handlers do not hit the
+     * disk on every request.
+     */
+    public static String getTemplate(String path) throws IOException {
+        String cachedTemplate = TEMPLATE_CACHE.get(path);
+        if (cachedTemplate != null) {
+            return cachedTemplate;
+        }
+
+        String template = Files.readString(Path.of(path));
+        TEMPLATE_CACHE.putIfAbsent(path, template);
+        return template;
+    }
+
 }
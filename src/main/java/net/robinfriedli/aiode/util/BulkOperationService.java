@@ -4,22 +4,39 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.google.common.collect.Lists;
+import net.robinfriedli.aiode.concurrent.ThreadContext;
+import net.robinfriedli.aiode.exceptions.handler.handlers.LoggingUncaughtExceptionHandler;
 
 /**
  * Utility class that aids loading a large number of items in as little requests as possible and performs an action with
- * each result
+ * each result. Batches are loaded sequentially unless a higher number of batches in flight is configured using
+ * {@link #setMaxInFlight(int)}.
  *
  * @param <K> the type of key to load each result with
  * @param <V> the type of items that are operated upon after loading
  */
 public class BulkOperationService<K, V> {
 
+    private static final ExecutorService LOADING_EXECUTOR = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual()
+            .name("bulk-operation-thread-", 1)
+            .uncaughtExceptionHandler(new LoggingUncaughtExceptionHandler())
+            .factory()
+    );
+
     // the amount of items that can be loaded within one request
     protected final int size;
     // the function that executes loading the items, the provided list does not exceed the size defined by the size
@@ -31,20 +48,79 @@ public class BulkOperationService<K, V> {
     // the map containing all keys mapped to the action that should be performed with the loaded item
     protected final Map<K, ResultConsumerManager<V>> actionMap = new HashMap<>();
 
+    // the maximum number of batches loaded at the same time
+    private int maxInFlight = 1;
+
     public BulkOperationService(int size, Function<List<K>, List<Pair<K, V>>> loadFunc) {
         this.size = size;
         this.loadFunc = loadFunc;
     }
 
+    /**
+     * Set the maximum number of batches loaded concurrently. Loaded batches are handed to the result consumers on the
+     * thread calling {@link #perform()} in the order they complete, so result consumers do not have to be thread safe
+     * but must not depend on the order of keys across batches. The load function is invoked on virtual threads that
+     * inherit the {@link ThreadContext} of the calling thread and must be thread safe when loading concurrently. Rate
+     * limits enforced by the load function apply to each invocation as they would when loading sequentially.
+     *
+     * @param maxInFlight the maximum number of batches loaded at the same time, 1 to load batches sequentially
+     * @return this service
+     */
+    public BulkOperationService<K, V> setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Load all items and perform the mapped actions with each loaded item. If the current thread is interrupted while
+     * waiting for batches to load, the batches still loading are cancelled and a {@link CancellationException} is
+     * thrown with the interrupted flag of the thread set. If loading a batch fails the remaining batches are cancelled
+     * and the exception is rethrown.
+     */
     public void perform() {
         List<List<K>> batches = Lists.partition(keys, size);
-        for (List<K> batch : batches) {
-            List<Pair<K, V>> loadedBatch = loadFunc.apply(batch);
-            for (Pair<K, V> keyValuePair : loadedBatch) {
-                K key = keyValuePair.getLeft();
-                V value = keyValuePair.getRight();
-                actionMap.get(key).next().accept(value);
+        if (maxInFlight == 1 || batches.size() <= 1) {
+            for (List<K> batch : batches) {
+                applyResults(loadFunc.apply(Lists.newArrayList(batch)));
+            }
+            return;
+        }
+
+        CompletionService<List<Pair<K, V>>> completionService = new ExecutorCompletionService<>(LOADING_EXECUTOR);
+        List<Future<List<Pair<K, V>>>> futures = Lists.newArrayListWithCapacity(batches.size());
+        Iterator<List<K>> batchIterator = batches.iterator();
+        try {
+            while (futures.size() < maxInFlight && batchIterator.hasNext()) {
+                futures.add(submitBatch(completionService, batchIterator.next()));
             }
+
+            for (int completed = 0; completed < batches.size(); completed++) {
+                List<Pair<K, V>> loadedBatch = completionService.take().get();
+                if (batchIterator.hasNext()) {
+                    futures.add(submitBatch(completionService, batchIterator.next()));
+                }
+                applyResults(loadedBatch);
+            }
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while performing bulk operation");
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (RuntimeException | Error e) {
+            cancelAll(futures);
+            throw e;
         }
     }
 
@@ -70,6 +146,40 @@ public class BulkOperationService<K, V> {
         }
     }
 
+    /**
+     * Perform the mapped actions with the items of a loaded batch, called on the thread calling {@link #perform()}.
+     */
+    protected void applyResults(List<Pair<K, V>> loadedBatch) {
+        for (Pair<K, V> keyValuePair : loadedBatch) {
+            K key = keyValuePair.getLeft();
+            V value = keyValuePair.getRight();
+            actionMap.get(key).next().accept(value);
+        }
+    }
+
+    private Future<List<Pair<K, V>>> submitBatch(
+        CompletionService<List<Pair<K, V>>> completionService,
+        List<K> batch
+    ) {
+        // copy the batch as the load function may modify it
+        List<K> batchCopy = Lists.newArrayList(batch);
+        ThreadContext forkedThreadContext = ThreadContext.Current.get().fork();
+        return completionService.submit(() -> {
+            ThreadContext.Current.installExplicitly(forkedThreadContext);
+            try {
+                return loadFunc.apply(batchCopy);
+            } finally {
+                forkedThreadContext.clear();
+            }
+        });
+    }
+
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
     protected static class ResultConsumerManager<T> {
 
         private final List<Consumer<T>> resultConsumers = Lists.newArrayList();
@@ -0,0 +1,77 @@
+package net.robinfriedli.aiode.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Cache for values derived from the database that may be loaded concurrently with invalidations. Each key has a
+ * generation that is incremented when the key is invalidated and each loaded value is stored with the generation that
+ * was current when loading started. Values loaded by a load that was overtaken by an invalidation are discarded and
+ * loaded again instead of being returned, so an older load can never overwrite the value of a newer one. Generations
+ * are retained per key for the lifetime of the cache.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+public class GenerationalCache<K, V> {
+
+    private final Cache<K, Entry<V>> cache;
+    private final ConcurrentMap<K, Long> generations = new ConcurrentHashMap<>();
+
+    public GenerationalCache(long expireAfterWrite, TimeUnit timeUnit) {
+        cache = CacheBuilder.newBuilder()
+            .expireAfterWrite(expireAfterWrite, timeUnit)
+            .build();
+    }
+
+    /**
+     * Get the cached value for the provided key, loading it with the provided loader if absent or if the cached value
+     * has been loaded before the key was last invalidated. Concurrent calls for the same key wait for a single load.
+     */
+    public V get(K key, Supplier<V> loader) {
+        while (true) {
+            Entry<V> entry;
+            try {
+                entry = cache.get(key, () -> {
+                    long generation = getGeneration(key);
+                    return new Entry<>(generation, loader.get());
+                });
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new RuntimeException(e.getCause());
+            }
+
+            if (entry.generation() == getGeneration(key)) {
+                return entry.value();
+            }
+
+            // only remove the outdated entry, a concurrent call might already have loaded a current one
+            cache.asMap().remove(key, entry);
+        }
+    }
+
+    /**
+     * Invalidate the value of the provided key, this should be called after the transaction that modified the data the
+     * value is derived from has been committed.
+     */
+    public void invalidate(K key) {
+        generations.merge(key, 1L, Long::sum);
+        cache.invalidate(key);
+    }
+
+    private long getGeneration(K key) {
+        return generations.getOrDefault(key, 0L);
+    }
+
+    private record Entry<V>(long generation, V value) {
+    }
+
+}
@@ -0,0 +1,90 @@
+package net.robinfriedli.aiode.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Case insensitive trie that finds the longest key that is a prefix of a given input in time linear to the length of
+ * the input. Keys and inputs are compared in lower case. Not thread safe while being populated, instances should be
+ * fully populated before being shared.
+ *
+ * @param <V> the type of values mapped by the keys
+ */
+public class PrefixTrie<V> {
+
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    public void put(String key, V value) {
+        Node<V> current = root;
+        String lowerCaseKey = key.toLowerCase();
+        for (int i = 0; i < lowerCaseKey.length(); i++) {
+            current = current.children.computeIfAbsent(lowerCaseKey.charAt(i), c -> new Node<>());
+        }
+
+        if (current.value == null) {
+            ++size;
+        }
+        current.value = value;
+        current.keyLength = lowerCaseKey.length();
+    }
+
+    /**
+     * @return the value mapped by the provided key or null
+     */
+    @Nullable
+    public V get(String key) {
+        Node<V> current = root;
+        String lowerCaseKey = key.toLowerCase();
+        for (int i = 0; i < lowerCaseKey.length() && current != null; i++) {
+            current = current.children.get(lowerCaseKey.charAt(i));
+        }
+
+        return current != null ? current.value : null;
+    }
+
+    /**
+     * @return the entry with the longest key the provided input starts with or null if the input does not start with
+     * any key
+     */
+    @Nullable
+    public Match<V> findLongestPrefix(String input) {
+        Node<V> current = root;
+        Node<V> longestMatch = null;
+        String lowerCaseInput = input.toLowerCase();
+        for (int i = 0; i < lowerCaseInput.length(); i++) {
+            current = current.children.get(lowerCaseInput.charAt(i));
+            if (current == null) {
+                break;
+            }
+
+            if (current.value != null) {
+                longestMatch = current;
+            }
+        }
+
+        return longestMatch != null ? new Match<>(longestMatch.keyLength, longestMatch.value) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param length the length of the matched key
+     * @param value  the value mapped by the matched key
+     */
+    public record Match<V>(int length, V value) {
+    }
+
+    private static class Node<V> {
+
+        private final Map<Character, Node<V>> children = new HashMap<>();
+        private V value;
+        private int keyLength;
+
+    }
+
+}
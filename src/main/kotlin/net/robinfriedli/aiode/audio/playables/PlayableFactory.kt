@@ -5,6 +5,7 @@ import com.google.common.collect.Lists
 import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack
 import net.robinfriedli.aiode.Aiode
+import net.robinfriedli.aiode.audio.AudioTrackCache
 import net.robinfriedli.aiode.audio.AudioTrackLoader
 import net.robinfriedli.aiode.audio.Playable
 import net.robinfriedli.aiode.audio.exec.SpotifyTrackRedirectionRunnable
@@ -45,6 +46,7 @@ import java.util.function.Function
 import java.util.stream.Collectors
 
 class PlayableFactory(
+    val audioTrackCache: AudioTrackCache,
     val audioTrackLoader: AudioTrackLoader,
     val spotifyService: SpotifyService,
     val trackLoadingExecutor: TrackLoadingExecutor,
@@ -268,11 +270,19 @@ class PlayableFactory(
     }
 
     private fun createPlayableContainerFromUrl(url: String): PlayableContainer<*> {
+        val cachedTrack = audioTrackCache.get(url)
+        if (cachedTrack != null) {
+            return AudioTrackPlayableContainer(cachedTrack)
+        }
+
         val audioItem = audioTrackLoader.loadByIdentifier(url)
             ?: throw NoResultsFoundException("Could not load audio for provided URL.")
 
         return when (audioItem) {
-            is AudioTrack -> AudioTrackPlayableContainer(audioItem)
+            is AudioTrack -> {
+                audioTrackCache.put(audioItem)
+                AudioTrackPlayableContainer(audioItem)
+            }
             is AudioPlaylist -> AudioPlaylistPlayableContainer(audioItem)
             else -> throw UnsupportedOperationException("Expected an AudioTrack or AudioPlaylist but got " + audioItem.javaClass.simpleName)
         }
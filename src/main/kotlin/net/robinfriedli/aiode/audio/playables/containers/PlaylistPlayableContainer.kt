@@ -1,22 +1,252 @@
 package net.robinfriedli.aiode.audio.playables.containers
 
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.collect.Lists
+import net.robinfriedli.aiode.Aiode
 import net.robinfriedli.aiode.audio.Playable
+import net.robinfriedli.aiode.audio.exec.TrackLoadingExecutor
 import net.robinfriedli.aiode.audio.playables.*
+import net.robinfriedli.aiode.audio.queue.AudioQueue
+import net.robinfriedli.aiode.audio.queue.InsertionChain
+import net.robinfriedli.aiode.audio.queue.PlayableContainerQueueFragment
+import net.robinfriedli.aiode.audio.queue.QueueFragment
+import net.robinfriedli.aiode.concurrent.ExecutionContext
+import net.robinfriedli.aiode.discord.GuildContext
 import net.robinfriedli.aiode.entities.Playlist
+import net.robinfriedli.aiode.entities.PlaylistItem
+import net.robinfriedli.aiode.exceptions.ExceptionUtils
+import net.robinfriedli.aiode.exceptions.UserException
+import net.robinfriedli.aiode.function.HibernateInvoker
 import net.robinfriedli.aiode.function.SpotifyInvoker
+import net.robinfriedli.aiode.persist.PlaylistItemIndex
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
 import org.springframework.context.annotation.Lazy
 import org.springframework.stereotype.Component
+import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 
 class PlaylistPlayableContainer(
     playlist: Playlist,
     private val playableContainerManager: PlayableContainerManager
 ) : AbstractPlayableContainer<Playlist>(playlist) {
 
+    companion object {
+        // playlists with at least this many items are queued progressively, see createQueueFragment
+        const val PROGRESSIVE_LOADING_THRESHOLD = 200
+        private const val FIRST_CHUNK_SIZE = 50
+        private const val CHUNK_SIZE = 250
+        // playlists with at least this many items are included in the time to first audio statistics
+        const val TIME_TO_FIRST_AUDIO_THRESHOLD = 1000
+
+        // the first playables of large playlists mapped to the time the playlist started loading, weak keys are compared by identity
+        private val firstAudioTimings: Cache<Playable, FirstAudioTiming> = CacheBuilder.newBuilder()
+            .weakKeys()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build()
+        private val firstAudioCount = AtomicLong()
+        private val firstAudioNanos = AtomicLong()
+        private val maxFirstAudioNanos = AtomicLong()
+
+        /**
+         * Called when a track starts playing to record the time to first audio if the playable is one of the first
+         * playables of a large playlist that has not started playing yet.
+         */
+        @JvmStatic
+        fun recordTrackStart(playable: Playable) {
+            val timing = firstAudioTimings.asMap().remove(playable) ?: return
+            if (timing.recorded.compareAndSet(false, true)) {
+                val nanos = System.nanoTime() - timing.startNanos
+                firstAudioCount.incrementAndGet()
+                firstAudioNanos.addAndGet(nanos)
+                maxFirstAudioNanos.accumulateAndGet(nanos, Math::max)
+            }
+        }
+
+        @JvmStatic
+        fun getTimeToFirstAudioCount(): Long {
+            return firstAudioCount.get()
+        }
+
+        @JvmStatic
+        fun getAverageTimeToFirstAudioMs(): Double {
+            val count = firstAudioCount.get()
+            return if (count > 0) firstAudioNanos.get() / (count * 1_000_000.0) else 0.0
+        }
+
+        @JvmStatic
+        fun getMaxTimeToFirstAudioMs(): Long {
+            return TimeUnit.NANOSECONDS.toMillis(maxFirstAudioNanos.get())
+        }
+    }
+
     private val spotifyInvoker: SpotifyInvoker = SpotifyInvoker.createForCurrentContext()
+    private val logger: Logger = LoggerFactory.getLogger(this.javaClass)
 
     override fun doLoadPlayables(playableFactory: PlayableFactory): List<Playable> {
         val items = spotifyInvoker.invokeFunction { spotifyApi -> getItem().getTracks(spotifyApi) }
+        return createPlayables(items, playableFactory)
+    }
+
+    /**
+     * Large playlists are queued progressively: only the first items are loaded before returning the fragment so that
+     * playback can start right away. The fragment reports the size of the entire playlist as its expected size so that
+     * the maximum queue size is checked for the entire playlist before the first items are queued. Once the fragment has
+     * been inserted into the queue, the remaining items are loaded in chunks on the pooled track loading executor of the
+     * guild and each chunk is inserted after the items of this playlist that have been queued so far, see
+     * [AudioQueue.insertAfterChain]. Loading stops if none of these items are in the queue anymore, e.g. because the
+     * queue has been replaced. The size of the playlist and each chunk are read from the item tables using
+     * [PlaylistItemIndex], so the item collections of the playlist are never initialised and sorted.
+     */
+    override fun createQueueFragment(playableFactory: PlayableFactory, queue: AudioQueue): QueueFragment? {
+        val playlist = getItem()
+        val executionContext = ExecutionContext.Current.get()
+        if (playables != null || executionContext == null) {
+            return super.createQueueFragment(playableFactory, queue)
+        }
+
+        val session = executionContext.session
+        val playlistSize = PlaylistItemIndex.getSummary(session, playlist).size()
+        if (playlistSize < PROGRESSIVE_LOADING_THRESHOLD) {
+            return super.createQueueFragment(playableFactory, queue)
+        }
+
+        val startNanos = System.nanoTime()
+        var lastItem: PlaylistItem? = null
+        var exhausted = false
+        var firstPlayables: List<Playable> = Collections.emptyList()
+        while (firstPlayables.isEmpty() && !exhausted) {
+            val after = lastItem
+            val chunk = spotifyInvoker.invokeFunction { spotifyApi -> playlist.getTrackChunk(session, spotifyApi, after, FIRST_CHUNK_SIZE) }
+            lastItem = chunk.lastItem
+            exhausted = chunk.size() < FIRST_CHUNK_SIZE
+            firstPlayables = createPlayables(spotifyInvoker.invokeFunction { chunk.load() }, playableFactory)
+        }
+
+        if (firstPlayables.isEmpty()) {
+            return null
+        }
+
+        if (playlistSize >= TIME_TO_FIRST_AUDIO_THRESHOLD) {
+            val timing = FirstAudioTiming(startNanos)
+            for (playable in firstPlayables) {
+                firstAudioTimings.put(playable, timing)
+            }
+        }
+
+        val lastQueuedItem = lastItem
+        if (exhausted || lastQueuedItem == null) {
+            return PlayableContainerQueueFragment(queue, Lists.newArrayList(firstPlayables), this)
+        }
 
+        // load the remaining chunks on the pooled executor so that loading additional data for the playables of each
+        // chunk, e.g. redirecting Spotify tracks, does not replace the task loading the chunks
+        val pooledTrackLoadingExecutor = executionContext.guildContext.pooledTrackLoadingExecutor
+        val backgroundPlayableFactory = PlayableFactory(
+            playableFactory.audioTrackCache,
+            playableFactory.audioTrackLoader,
+            playableFactory.spotifyService,
+            pooledTrackLoadingExecutor,
+            playableFactory.youTubeService,
+            playableFactory.redirectSpotify,
+            playableFactory.filebrokerApi
+        )
+        val started = AtomicBoolean(false)
+        val insertionChain = InsertionChain()
+        val guildContext = executionContext.guildContext
+        return PlayableContainerQueueFragment(
+            queue,
+            Lists.newArrayList(firstPlayables),
+            this,
+            expectedSize = playlistSize,
+            insertionChain = insertionChain
+        ) {
+            if (started.compareAndSet(false, true)) {
+                startLoadingRemainingChunks(pooledTrackLoadingExecutor, guildContext, queue, insertionChain, lastQueuedItem, backgroundPlayableFactory)
+            }
+        }
+    }
+
+    /**
+     * Load and queue the chunks following the provided item. Each chunk is read in a separate session since the session
+     * of the command is closed by then. Errors are handled for each chunk and reported to the communication channel of
+     * the playback since the command that queued the playlist has completed. A chunk that fails to load is skipped,
+     * loading stops if a chunk cannot be read or queued, e.g. because other tracks have been queued in the meantime so
+     * that the queue would exceed its maximum size.
+     */
+    private fun startLoadingRemainingChunks(
+        trackLoadingExecutor: TrackLoadingExecutor,
+        guildContext: GuildContext,
+        queue: AudioQueue,
+        insertionChain: InsertionChain,
+        lastQueuedItem: PlaylistItem,
+        playableFactory: PlayableFactory
+    ) {
+        trackLoadingExecutor.execute {
+            var after = lastQueuedItem
+            while (!Thread.currentThread().isInterrupted) {
+                val chunk = try {
+                    readChunk(after)
+                } catch (e: Exception) {
+                    handleChunkException(e, guildContext)
+                    return@execute
+                }
+                after = chunk.lastItem ?: return@execute
+                val lastChunk = chunk.size() < CHUNK_SIZE
+
+                val chunkPlayables = try {
+                    createPlayables(spotifyInvoker.invokeFunction { chunk.load() }, playableFactory)
+                } catch (e: Exception) {
+                    if (ExceptionUtils.getRootCause(e) is InterruptedException) {
+                        return@execute
+                    }
+                    handleChunkException(e, guildContext)
+                    continue
+                }
+
+                if (chunkPlayables.isNotEmpty()) {
+                    val fragment = PlayableContainerQueueFragment(queue, Lists.newArrayList(chunkPlayables), this, insertionChain = insertionChain)
+                    try {
+                        if (!queue.insertAfterChain(fragment)) {
+                            // the playlist has been removed from the queue
+                            return@execute
+                        }
+                    } catch (e: Exception) {
+                        handleChunkException(e, guildContext)
+                        return@execute
+                    }
+                }
+
+                if (lastChunk) {
+                    return@execute
+                }
+            }
+        }
+    }
+
+    private fun readChunk(after: PlaylistItem): Playlist.TrackChunk {
+        Aiode.get().hibernateComponent.sessionFactory.openSession().use { session ->
+            return HibernateInvoker.create(session).invokeFunction { currentSession ->
+                spotifyInvoker.invokeFunction { spotifyApi -> getItem().getTrackChunk(currentSession, spotifyApi, after, CHUNK_SIZE) }
+            }
+        }
+    }
+
+    private fun handleChunkException(e: Exception, guildContext: GuildContext) {
+        val communicationChannel = guildContext.playback.communicationChannel
+        if (e is UserException) {
+            if (communicationChannel != null) {
+                Aiode.get().messageService.sendError("Could not queue all tracks of playlist '${getItem().name}': ${e.message}", communicationChannel)
+            }
+        } else {
+            ExceptionUtils.handleTrackLoadingException(e, logger, ExecutionContext.Current.get(), communicationChannel)
+        }
+    }
+
+    private fun createPlayables(items: List<Any>, playableFactory: PlayableFactory): List<Playable> {
         val playableContainers = items
             .stream()
             .map { track -> playableContainerManager.requirePlayableContainer(track) }
@@ -24,6 +254,10 @@ class PlaylistPlayableContainer(
 
         return playableFactory.loadAll(playableContainers)
     }
+
+    private class FirstAudioTiming(val startNanos: Long) {
+        val recorded = AtomicBoolean(false)
+    }
 }
 
 @Component
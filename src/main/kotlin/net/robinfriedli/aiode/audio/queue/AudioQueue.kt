@@ -1,6 +1,5 @@
 package net.robinfriedli.aiode.audio.queue
 
-import com.google.common.collect.Lists
 import net.dv8tion.jda.api.EmbedBuilder
 import net.dv8tion.jda.api.entities.Guild
 import net.robinfriedli.aiode.Aiode
@@ -13,17 +12,13 @@ import net.robinfriedli.aiode.discord.property.properties.ColorSchemeProperty
 import net.robinfriedli.aiode.entities.GuildSpecification
 import net.robinfriedli.aiode.exceptions.NoResultsFoundException
 import net.robinfriedli.aiode.exceptions.UserException
-import net.robinfriedli.aiode.persist.StaticSessionProvider
 import net.robinfriedli.aiode.util.EmojiConstants
 import net.robinfriedli.aiode.util.Util
-import org.hibernate.Session
 import java.util.*
+import java.util.concurrent.ThreadLocalRandom
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.locks.ReadWriteLock
 import java.util.concurrent.locks.ReentrantReadWriteLock
-import java.util.stream.Collectors
-import java.util.stream.IntStream
-import kotlin.streams.toList
 
 
 class AudioQueue(val maxSize: Int?) {
@@ -34,14 +29,16 @@ class AudioQueue(val maxSize: Int?) {
             val writeLock = lock.writeLock()
             writeLock.lock()
             try {
-                if (!isEmpty()) {
-                    if (value) {
-                        doRandomize(true)
-                    } else if (isShuffle) {
-                        disableShuffle()
+                modifyStructure {
+                    if (!isEmpty()) {
+                        if (value) {
+                            doRandomize(true)
+                        } else if (isShuffle) {
+                            disableShuffle()
+                        }
                     }
+                    field = value
                 }
-                field = value
             } finally {
                 writeLock.unlock()
             }
@@ -59,39 +56,82 @@ class AudioQueue(val maxSize: Int?) {
     @Volatile
     var size: Int = 0
 
-    private val nodeList: QueueNodeList = QueueNodeList()
-    private val shuffledOrder = ArrayList<Int>()
+    private val nodeList: QueueNodeTree = QueueNodeTree()
+    private val shuffledOrder = ShuffleOrder()
 
     @Volatile
     private var flattenedQueue: List<Playable>? = null
 
+    /**
+     * Incremented when a structural modification (anything that changes the tracks, their order or shuffle mode) starts
+     * and again when it completes, so the version is odd while a modification is in progress. Used to validate the
+     * published [snapshotContent] without acquiring the lock, see [snapshot].
+     */
+    @Volatile
+    private var structureVersion: Long = 0
+
+    // only accessed while holding the write lock
+    private var structuralModificationDepth: Int = 0
+
+    @Volatile
+    private var snapshotContent: SnapshotContent? = null
+
     val lock: ReadWriteLock = ReentrantReadWriteLock()
 
+    /**
+     * @return all tracks in playback order, i.e. following the shuffled order if shuffle is enabled
+     */
     fun getTracks(): List<Playable> {
+        return snapshot().tracks
+    }
+
+    /**
+     * Return an immutable snapshot of the tracks in playback order and the current position. While the structure of the
+     * queue does not change, the snapshot is served without acquiring the lock, combining the last published tracks with
+     * the current position. Iterating the queue does not invalidate the published tracks. After a structural
+     * modification the tracks are collected once under the read lock and published for subsequent readers.
+     */
+    fun snapshot(): QueueSnapshot {
+        val version = structureVersion
+        val content = snapshotContent
+        if (version % 2 == 0L && content != null && content.version == version) {
+            val position = currIdx
+            val repeatOne = repeatOne
+            val repeatAll = repeatAll
+            // make sure no structural modification started while reading the position
+            if (structureVersion == version) {
+                return QueueSnapshot(content.tracks, position, content.isShuffle, repeatOne, repeatAll)
+            }
+        }
+
         val readLock = lock.readLock()
         readLock.lock()
         try {
-            val trackList: MutableList<Playable> = ArrayList(size)
-            if (isShuffle) {
-                for (pos in shuffledOrder) {
-                    trackList.add(getPlayableAtIndexLocked(pos))
-                }
+            val currentContent = snapshotContent
+            val validContent = if (currentContent != null && currentContent.version == structureVersion) {
+                currentContent
             } else {
-                val flattenedQueue = flattenedQueue
-                if (flattenedQueue != null) {
-                    return flattenedQueue
-                }
-                for (node in nodeList) {
-                    trackList.addAll(node.getPlayables())
-                }
+                SnapshotContent(structureVersion, getTracksLocked(), isShuffle).also { snapshotContent = it }
             }
-
-            return trackList
+            return QueueSnapshot(validContent.tracks, currIdx, validContent.isShuffle, repeatOne, repeatAll)
         } finally {
             readLock.unlock()
         }
     }
 
+    private fun getTracksLocked(): List<Playable> {
+        val flattenedQueue = getFlattenedQueueLocked()
+        if (isShuffle) {
+            val trackList: MutableList<Playable> = ArrayList(size)
+            for (pos in 0 until shuffledOrder.size) {
+                trackList.add(flattenedQueue[shuffledOrder[pos]])
+            }
+            return Collections.unmodifiableList(trackList)
+        }
+
+        return flattenedQueue
+    }
+
     fun getPosition(): Int {
         return currIdx
     }
@@ -120,11 +160,7 @@ class AudioQueue(val maxSize: Int?) {
     }
 
     fun getCurrentLocked(): Playable {
-        return if (isShuffle) {
-            getPlayableAtIndexLocked(shuffledOrder[currIdx])
-        } else {
-            getPlayableAtIndexLocked(currIdx)
-        }
+        return getPlayableAtPositionLocked(currIdx)
     }
 
     fun getPlayableAtIndex(idx: Int): Playable {
@@ -137,6 +173,14 @@ class AudioQueue(val maxSize: Int?) {
         }
     }
 
+    private fun getPlayableAtPositionLocked(pos: Int): Playable {
+        return if (isShuffle) {
+            getPlayableAtIndexLocked(shuffledOrder[pos])
+        } else {
+            getPlayableAtIndexLocked(pos)
+        }
+    }
+
     private fun getPlayableAtIndexLocked(idx: Int): Playable {
         val flattenedQueue = this.flattenedQueue
         return if (flattenedQueue != null) {
@@ -171,19 +215,7 @@ class AudioQueue(val maxSize: Int?) {
     }
 
     fun peekNext(): Playable? {
-        val readLock = lock.readLock()
-        readLock.lock()
-        try {
-            return if (isShuffle && currIdx < shuffledOrder.size - 1) {
-                getPlayableAtIndexLocked(shuffledOrder[currIdx + 1])
-            } else if (!isShuffle && currIdx < size - 1) {
-                getPlayableAtIndexLocked(currIdx + 1)
-            } else {
-                null
-            }
-        } finally {
-            readLock.unlock()
-        }
+        return snapshot().peekNext()
     }
 
     fun hasNext(): Boolean {
@@ -278,6 +310,38 @@ class AudioQueue(val maxSize: Int?) {
         }
     }
 
+    /**
+     * Insert the fragment after the last node of its [InsertionChain] that is still in the queue, used to fill in the
+     * remaining items of a [PlayableContainer] that is loaded progressively. The position of the node is resolved
+     * through the tree, so this is logarithmic in the number of nodes. In shuffle mode the fragment is appended like any
+     * other fragment, i.e. its playables are interleaved after the current position.
+     *
+     * @return false if none of the nodes of the chain are in the queue anymore, in which case the fragment is not
+     * inserted
+     */
+    fun insertAfterChain(fragment: QueueFragment): Boolean {
+        val insertionChain = fragment.getInsertionChain()
+            ?: throw IllegalArgumentException("Fragment does not belong to an insertion chain")
+        val writeLock = lock.writeLock()
+        writeLock.lock()
+        try {
+            while (true) {
+                val last = insertionChain.tail ?: return false
+                val idx = nodeList.indexOf(last)
+                if (idx < 0) {
+                    // the node has been discarded by clearing the queue
+                    insertionChain.unlink(last)
+                    continue
+                }
+
+                doInsert(if (isShuffle) size else idx + last.size(), fragment)
+                return true
+            }
+        } finally {
+            writeLock.unlock()
+        }
+    }
+
     fun set(fragment: QueueFragment) {
         val writeLock = lock.writeLock()
         writeLock.lock()
@@ -310,6 +374,12 @@ class AudioQueue(val maxSize: Int?) {
 
         var loadedAmount = 0
         if (queueFragments.isNotEmpty()) {
+            // check the expected size up front so that fragments that are filled in progressively cannot exceed the
+            // maximum size after their first playables have been queued
+            val expectedSize = (if (clear) 0 else size) + queueFragments.sumOf { it.expectedSize() }
+            if (maxSize != null && expectedSize > maxSize) {
+                throw UserException("Queue exceeds maximum size of $maxSize tracks")
+            }
             if (clear) {
                 doClear(false)
             }
@@ -319,7 +389,7 @@ class AudioQueue(val maxSize: Int?) {
                 } else {
                     size
                 }, queueFragment)
-                loadedAmount += queueFragment.size()
+                loadedAmount += queueFragment.expectedSize()
             }
         } else {
             throw NoResultsFoundException("No results found")
@@ -369,85 +439,82 @@ class AudioQueue(val maxSize: Int?) {
      * already applied
      */
     fun buildMessageEmbed(playback: AudioPlayback, guild: Guild): EmbedBuilder {
-        val readLock = lock.readLock()
-        readLock.lock()
-        try {
-            val position = getPosition()
-            val embedBuilder = EmbedBuilder()
-            val springPropertiesConfig = Aiode.get().springPropertiesConfig
-            val baseUri = springPropertiesConfig.requireApplicationProperty("aiode.server.base_uri")
-            val optionBuilder = StringBuilder()
-
-            appendIcon(optionBuilder, EmojiConstants.PLAY, playback.isPlaying)
-            appendIcon(optionBuilder, EmojiConstants.PAUSE, playback.isPaused)
-            appendIcon(optionBuilder, EmojiConstants.SHUFFLE, playback.isShuffle)
-            appendIcon(optionBuilder, EmojiConstants.REPEAT, playback.isRepeatAll)
-            appendIcon(optionBuilder, EmojiConstants.REPEAT_ONE, playback.isRepeatOne)
-            optionBuilder.append(EmojiConstants.VOLUME).append(playback.volume)
-            embedBuilder.setDescription(optionBuilder.toString())
-
-            val url = baseUri + String.format("/queue?guildId=%s", guild.id)
-            embedBuilder.addField("", "[Full list]($url)", false)
-
-            if (isEmpty()) {
-                embedBuilder.addField("", "(empty)", false)
-            } else {
-                val prevBuilder = StringBuilder()
-                val nextBuilder = StringBuilder()
-                if (position > 0) {
-                    if (position > 5) {
-                        prevBuilder.append("...").append(System.lineSeparator())
-                    }
-                    val previous: List<Playable> = listPrevLocked(5)
-                    for (prev in previous) {
-                        appendPlayable(prevBuilder, prev)
-                    }
+        // work on a snapshot, displaying a playable may wait for it to load and should not block the queue
+        val snapshot = snapshot()
+        val position = snapshot.position
+        val queueSize = snapshot.size
+        val current = snapshot.getCurrent()
+        val previous = if (current != null && position > 0) snapshot.listPrev(5) else emptyList()
+        val next = if (current != null && position < queueSize - 1) snapshot.listNext(5) else emptyList()
+
+        val embedBuilder = EmbedBuilder()
+        val springPropertiesConfig = Aiode.get().springPropertiesConfig
+        val baseUri = springPropertiesConfig.requireApplicationProperty("aiode.server.base_uri")
+        val optionBuilder = StringBuilder()
+
+        appendIcon(optionBuilder, EmojiConstants.PLAY, playback.isPlaying)
+        appendIcon(optionBuilder, EmojiConstants.PAUSE, playback.isPaused)
+        appendIcon(optionBuilder, EmojiConstants.SHUFFLE, playback.isShuffle)
+        appendIcon(optionBuilder, EmojiConstants.REPEAT, playback.isRepeatAll)
+        appendIcon(optionBuilder, EmojiConstants.REPEAT_ONE, playback.isRepeatOne)
+        optionBuilder.append(EmojiConstants.VOLUME).append(playback.volume)
+        embedBuilder.setDescription(optionBuilder.toString())
+
+        val url = baseUri + String.format("/queue?guildId=%s", guild.id)
+        embedBuilder.addField("", "[Full list]($url)", false)
+
+        if (current == null) {
+            embedBuilder.addField("", "(empty)", false)
+        } else {
+            val prevBuilder = StringBuilder()
+            val nextBuilder = StringBuilder()
+            if (position > 0) {
+                if (position > 5) {
+                    prevBuilder.append("...").append(System.lineSeparator())
                 }
-                if (prevBuilder.toString().isNotEmpty()) {
-                    embedBuilder.addField("Previous", prevBuilder.toString(), false)
+                for (prev in previous) {
+                    appendPlayable(prevBuilder, prev)
                 }
-                val currentPosition = Util.normalizeMillis(playback.currentPositionMs)
-                val current = getCurrentLocked()
-                val duration = Util.normalizeMillis(current.durationMs())
-                embedBuilder.addField(
-                    "Current",
-                    "| " + current.displayNow + " - " + currentPosition + " / " + duration,
-                    false
-                )
-                if (position < size - 1) {
-                    val next: List<Playable> = listNextLocked(5)
-                    for (n in next) {
-                        appendPlayable(nextBuilder, n)
-                    }
-                    if (size > position + 6) {
-                        nextBuilder.append("...")
-                    }
+            }
+            if (prevBuilder.toString().isNotEmpty()) {
+                embedBuilder.addField("Previous", prevBuilder.toString(), false)
+            }
+            val currentPosition = Util.normalizeMillis(playback.currentPositionMs)
+            val duration = Util.normalizeMillis(current.durationMs())
+            embedBuilder.addField(
+                "Current",
+                "| " + current.displayNow + " - " + currentPosition + " / " + duration,
+                false
+            )
+            if (position < queueSize - 1) {
+                for (n in next) {
+                    appendPlayable(nextBuilder, n)
                 }
-                if (nextBuilder.toString().isNotEmpty()) {
-                    embedBuilder.addField("Next", nextBuilder.toString(), false)
+                if (queueSize > position + 6) {
+                    nextBuilder.append("...")
                 }
-                val albumCoverUrl = current.albumCoverUrl
-                embedBuilder.setThumbnail(Objects.requireNonNullElseGet(albumCoverUrl) { "$baseUri/resources-public/img/aiode-logo.png" })
             }
-            val color = StaticSessionProvider.invokeWithSession { session: Session? ->
-                val specification = Aiode.get().guildManager.getContextForGuild(guild).getSpecification(session)
-                ColorSchemeProperty.getColor(specification)
+            if (nextBuilder.toString().isNotEmpty()) {
+                embedBuilder.addField("Next", nextBuilder.toString(), false)
             }
-            embedBuilder.setColor(color)
-            return embedBuilder
-        } finally {
-            readLock.unlock()
+            val albumCoverUrl = current.albumCoverUrl
+            embedBuilder.setThumbnail(Objects.requireNonNullElseGet(albumCoverUrl) { "$baseUri/resources-public/img/aiode-logo.png" })
         }
+        embedBuilder.setColor(ColorSchemeProperty.getColor(Aiode.get().guildManager.getContextForGuild(guild).propertySnapshot))
+        return embedBuilder
+    }
+
+    /**
+     * Collect the playables at the positions [offset] until offset + [limit] in playback order, i.e. following the
+     * shuffled order if shuffle is enabled. The page is taken from the current [snapshot], so rendering a large queue does
+     * not block iteration or adding tracks.
+     */
+    fun getPage(offset: Int, limit: Int): QueuePage {
+        return snapshot().getPage(offset, limit)
     }
 
     fun listNext(limit: Int): List<Playable> {
-        val readLock = lock.readLock()
-        readLock.lock()
-        return try {
-            listNextLocked(limit)
-        } finally {
-            readLock.unlock()
-        }
+        return snapshot().listNext(limit)
     }
 
     fun listNextLocked(limit: Int): List<Playable> {
@@ -461,24 +528,14 @@ class AudioQueue(val maxSize: Int?) {
                 idx = 0
             }
 
-            if (isShuffle) {
-                trackList.add(getPlayableAtIndexLocked(shuffledOrder[idx]))
-            } else {
-                trackList.add(getPlayableAtIndexLocked(idx))
-            }
+            trackList.add(getPlayableAtPositionLocked(idx))
         }
 
         return trackList
     }
 
     fun listPrev(limit: Int): List<Playable> {
-        val readLock = lock.readLock()
-        readLock.lock()
-        return try {
-            listPrevLocked(limit)
-        } finally {
-            readLock.unlock()
-        }
+        return snapshot().listPrev(limit)
     }
 
     fun listPrevLocked(limit: Int): List<Playable> {
@@ -489,11 +546,7 @@ class AudioQueue(val maxSize: Int?) {
         while (trackList.size < limit && idx > 0) {
             idx -= 1
 
-            if (isShuffle) {
-                trackList.add(0, getPlayableAtIndexLocked(shuffledOrder[idx]))
-            } else {
-                trackList.add(0, getPlayableAtIndexLocked(idx))
-            }
+            trackList.add(0, getPlayableAtPositionLocked(idx))
         }
 
         return trackList
@@ -524,123 +577,103 @@ class AudioQueue(val maxSize: Int?) {
     }
 
     private fun doRandomize(protectCurrent: Boolean) {
-        shuffledOrder.clear()
-        val indices: MutableList<Int> = IntStream.range(0, size).boxed().collect(Collectors.toList())
-        val retainedIdx = if (protectCurrent && currIdx >= 0) {
-            indices.removeAt(currIdx)
-        } else {
-            null
-        }
-        indices.shuffle()
-        if (retainedIdx != null) {
-            indices.add(0, retainedIdx)
-        }
-        shuffledOrder.addAll(indices)
-        currIdx = if (!isEmpty()) {
-            0
-        } else {
-            -1
+        modifyStructure {
+            // when re-shuffling while already in shuffle mode the cursor has to be resolved to the actual queue index
+            val retainedIdx = if (protectCurrent && currIdx >= 0) {
+                if (isShuffle && currIdx < shuffledOrder.size) shuffledOrder[currIdx] else currIdx
+            } else {
+                -1
+            }
+            shuffledOrder.randomize(size, retainedIdx, ThreadLocalRandom.current())
+            currIdx = if (!isEmpty()) {
+                0
+            } else {
+                -1
+            }
         }
     }
 
     private fun disableShuffle() {
-        // when setting the queue from shuffle back to normal the current track index has to be adjusted since
-        // currentTrack acts as cursor rather than actual queue position in shuffle mode
-        currIdx = shuffledOrder[currIdx];
-        shuffledOrder.clear()
+        modifyStructure {
+            // when setting the queue from shuffle back to normal the current track index has to be adjusted since
+            // currentTrack acts as cursor rather than actual queue position in shuffle mode
+            currIdx = shuffledOrder[currIdx];
+            shuffledOrder.clear()
+        }
     }
 
     private fun doInsert(idx: Int, fragment: QueueFragment) {
-        if (isShuffle) {
-            nodeList.insert(size, QueueNode(fragment, 0), false)
-            val random = Random()
-            val end = size + fragment.size()
-            val indices = IntStream.range(size, end).boxed().collect(Collectors.toCollection { ArrayList() })
-
-            if (idx == size) {
-                indices.shuffle()
-                // when appending items to the end of the queue, randomise them by inserting them at random indices after the current position
-                for (index in indices) {
-                    val insertionIndex = random.nextInt(currIdx + 1, end)
-                    if (insertionIndex < shuffledOrder.size) {
-                        shuffledOrder.add(insertionIndex, index)
-                    } else {
-                        shuffledOrder.add(index)
-                    }
+        modifyStructure {
+            if (isShuffle) {
+                nodeList.insert(size, QueueNode(fragment, 0), false)
+                if (idx == size) {
+                    // when appending items to the end of the queue, randomise them by inserting them at random indices after the current position
+                    shuffledOrder.interleaveRange(currIdx + 1, size, fragment.size(), ThreadLocalRandom.current())
+                } else {
+                    // when inserting tracks into the queue at a specific position, keep them in order
+                    shuffledOrder.insertRange(idx, size, fragment.size())
                 }
             } else {
-                // when inserting tracks into the queue at a specific position, keep them in order
-                shuffledOrder.addAll(idx, indices)
+                nodeList.insert(idx, QueueNode(fragment, 0))
             }
-        } else {
-            nodeList.insert(idx, QueueNode(fragment, 0))
-        }
 
-        rebuildFlattenedQueue()
+            invalidateFlattenedQueue()
 
-        if (size == 0) {
-            size += fragment.size()
-            iterate()
-        } else {
-            size += fragment.size()
+            if (size == 0) {
+                size += fragment.size()
+                iterate()
+            } else {
+                size += fragment.size()
+            }
         }
+
+        fragment.onInserted()
     }
 
     private fun doRemove(fromIdx: Int, toIdx: Int): Int {
-        return if (isShuffle) {
-            // instead of removing each index one by one gather adjacent indices and remove each range
-            val indices = IntStream.range(fromIdx, toIdx).map { i -> shuffledOrder[i] }.sorted().toList()
-            if (indices.isEmpty()) {
-                return 0
-            }
-            shuffledOrder.removeIf { i -> indices.contains(i) }
-            val indexRanges = Lists.newArrayList<Pair<Int, Int>>()
-            var currStart: Int? = null
-            for (i in 1 until indices.size) {
-                val curr = indices[i]
-                val prev = indices[i - 1]
-                if (curr > prev + 1) {
-                    indexRanges.add(Pair(currStart ?: indices[0], prev + 1))
-                    currStart = curr
+        return modifyStructure {
+            if (isShuffle) {
+                // instead of removing each index one by one gather adjacent indices and remove each range
+                val indexRanges = shuffledOrder.removeRange(fromIdx, toIdx)
+                if (indexRanges.isEmpty()) {
+                    return 0
                 }
-            }
-            indexRanges.add(Pair(currStart ?: indices[0], indices.last() + 1))
 
-            var removed = 0
-            // remove highest indexes first to avoid removal of lower index invalidating higher indexes
-            for ((from, to) in indexRanges.reversed()) {
-                val removedRange = nodeList.remove(from, to)
-                for (i in 0 until shuffledOrder.size) {
-                    if (shuffledOrder[i] > from) {
-                        shuffledOrder[i] = shuffledOrder[i] - removedRange
-                    }
+                var removed = 0
+                // remove highest indexes first to avoid removal of lower index invalidating higher indexes
+                var i = indexRanges.size - 2
+                while (i >= 0) {
+                    removed += nodeList.remove(indexRanges[i], indexRanges[i + 1])
+                    i -= 2
                 }
-                removed += removedRange
-            }
 
-            rebuildFlattenedQueue()
-            removed
-        } else {
-            val removed = nodeList.remove(fromIdx, toIdx)
-            rebuildFlattenedQueue()
-            removed
+                invalidateFlattenedQueue()
+                removed
+            } else {
+                val removed = nodeList.remove(fromIdx, toIdx)
+                invalidateFlattenedQueue()
+                removed
+            }
         }
     }
 
     private fun doClear(retainCurrent: Boolean) {
-        if (retainCurrent && currIdx >= 0) {
-            val current = getCurrentLocked()
-            nodeList.clear(SinglePlayableQueueFragment(this, current, SinglePlayableContainer(current)))
-            size = 1
-            currIdx = 0
-            doRandomize(true)
-            rebuildFlattenedQueue()
-        } else {
-            nodeList.clear()
-            flattenedQueue = null
-            shuffledOrder.clear()
-            size = 0
-            currIdx = -1
+        modifyStructure {
+            if (retainCurrent && currIdx >= 0) {
+                val current = getCurrentLocked()
+                nodeList.clear(SinglePlayableQueueFragment(this, current, SinglePlayableContainer(current)))
+                size = 1
+                currIdx = 0
+                shuffledOrder.clear()
+                doRandomize(true)
+                invalidateFlattenedQueue()
+            } else {
+                nodeList.clear()
+                invalidateFlattenedQueue()
+                shuffledOrder.clear()
+                size = 0
+                currIdx = -1
+            }
         }
     }
 
@@ -656,7 +689,24 @@ class AudioQueue(val maxSize: Int?) {
         return if (currIdx > 0) {
             currIdx - 1
         } else {
-            if (repeatAll) getTracks().size - 1 else 0
+            if (repeatAll) size - 1 else 0
+        }
+    }
+
+    /**
+     * Run a structural modification, marking the [structureVersion] as odd for the duration of the outermost
+     * modification. Must be called while holding the write lock.
+     */
+    private inline fun <T> modifyStructure(modification: () -> T): T {
+        if (structuralModificationDepth++ == 0) {
+            structureVersion++
+        }
+        try {
+            return modification()
+        } finally {
+            if (--structuralModificationDepth == 0) {
+                structureVersion++
+            }
         }
     }
 
@@ -676,47 +726,81 @@ class AudioQueue(val maxSize: Int?) {
         trackListBuilder.append("| ").append(display).append(" - ").append(Util.normalizeMillis(durationMs)).append(System.lineSeparator())
     }
 
-    private fun rebuildFlattenedQueue() {
+    /**
+     * Return the playables of all nodes in queue order (ignoring shuffle). The list is built lazily and reused until
+     * the next modification so that inserting or removing items does not have to pay for rebuilding the entire list.
+     * Must be called while holding at least the read lock.
+     */
+    private fun getFlattenedQueueLocked(): List<Playable> {
+        val currentFlattenedQueue = flattenedQueue
+        if (currentFlattenedQueue != null) {
+            return currentFlattenedQueue
+        }
+
         val flattenedQueue: MutableList<Playable> = ArrayList(size)
         for (queueNode in nodeList) {
             flattenedQueue.addAll(queueNode.getPlayables())
         }
-        this.flattenedQueue = flattenedQueue
+        val unmodifiableFlattenedQueue = Collections.unmodifiableList(flattenedQueue)
+        this.flattenedQueue = unmodifiableFlattenedQueue
+        return unmodifiableFlattenedQueue
     }
 
-    private inner class QueueNodeList : Iterable<QueueNode> {
-        @Volatile
-        var head: QueueNode? = null
+    private fun invalidateFlattenedQueue() {
+        flattenedQueue = null
+    }
 
-        @Volatile
-        var tail: QueueNode? = null
+    /**
+     * Balanced tree of [QueueNode]s ordered by queue position (an implicit treap). Each node holds the number of
+     * playables within its subtree, so resolving the node for a queue index as well as inserting a fragment or removing
+     * a range of indices is logarithmic in the number of nodes instead of walking the chain of nodes. A node that
+     * contains the split point of an insertion or removal is fractured, see [QueueFragment.addFracture].
+     */
+    private inner class QueueNodeTree : Iterable<QueueNode> {
+        var root: QueueNode? = null
+            set(value) {
+                value?.parent = null
+                field = value
+            }
 
         override fun iterator(): Iterator<QueueNode> {
             return object : Iterator<QueueNode> {
 
-                var next = head
+                val stack: MutableList<QueueNode> = ArrayList()
+
+                init {
+                    pushLeft(root)
+                }
 
                 override fun hasNext(): Boolean {
-                    return next != null
+                    return stack.isNotEmpty()
                 }
 
                 override fun next(): QueueNode {
-                    val ret = next!!
-                    next = ret.next
+                    if (stack.isEmpty()) {
+                        throw NoSuchElementException()
+                    }
+                    val ret = stack.removeAt(stack.size - 1)
+                    pushLeft(ret.right)
                     return ret
                 }
 
+                private fun pushLeft(node: QueueNode?) {
+                    var curr = node
+                    while (curr != null) {
+                        stack.add(curr)
+                        curr = curr.left
+                    }
+                }
+
             }
         }
 
         fun clear(retainCurrent: QueueFragment? = null) {
-            if (retainCurrent != null) {
-                val node = QueueNode(retainCurrent, 0)
-                head = node
-                tail = node
+            root = if (retainCurrent != null) {
+                QueueNode(retainCurrent, 0).also { it.update() }
             } else {
-                head = null
-                tail = null
+                null
             }
         }
 
@@ -729,30 +813,12 @@ class AudioQueue(val maxSize: Int?) {
                 throw UserException("Queue exceeds maximum size of $maxSize tracks")
             }
 
-            if (head == null) {
-                head = node
-                tail = node
-            } else if (idx == 0) {
-                head!!.prev = node
-                node.next = head!!
-                head = node
-            } else if (idx == size) {
-                tail!!.next = node
-                node.prev = tail!!
-                tail = node
-            } else {
-                val (offset, foundNode) = getNodeAtIndex(idx)
-                if (offset == 0) {
-                    // index points to first item in node, can just insert new node ahead of the found node
-                    linkBefore(node, foundNode)
-                } else {
-                    // new node is inserted within the found node, fracture the found node and place new node between the two fractures
-                    val fractureIdx = foundNode.fracture(offset)
-                    val fracturedNode = QueueNode(foundNode.fragment, fractureIdx)
-                    linkAfter(node, foundNode)
-                    linkAfter(fracturedNode, node)
-                }
-            }
+            node.left = null
+            node.right = null
+            node.update()
+            val (left, right) = split(root, idx)
+            root = merge(merge(left, node), right)
+            node.insertionChain?.append(node)
 
             if (updateQueueIndex && idx <= currIdx) {
                 currIdx += node.size()
@@ -770,79 +836,36 @@ class AudioQueue(val maxSize: Int?) {
                 throw IllegalArgumentException("toIdx must be greater than fromIdx")
             }
 
-            var toRemove = toIdx - fromIdx
-            var (offset, node) = getNodeAtIndex(fromIdx)
-            do {
-                val next = node.next
-                if (offset > 0) {
-                    val fractureIdx = node.fracture(offset)
-                    val fracturedNode = QueueNode(node.fragment, fractureIdx)
-                    val fracturedSize = fracturedNode.size()
-                    if (fracturedSize > toRemove) {
-                        val nextNodeFracture = node.fracture(offset + toRemove)
-                        // e.g. given remove index 3 - 8 (excluding) from node:
-                        // 0 1 2 | 3 4 5 6 7 | 8 9
-                        // create fracture at 3 and 8
-                        // dismiss the first fracture that points to the range of removed items
-                        // insert second fracture after the original node
-                        // creates the following state: {QueueNode(fracture 0: [0, 1, 2]), (unlinked) QueueNode(fracture 1: [3, 4, 5, 6, 7]), QueueNode(fracture 2: [8, 9])}
-                        linkAfter(QueueNode(node.fragment, nextNodeFracture), node)
-                        size -= fracturedNode.size()
-                        toRemove = 0
-                    } else {
-                        toRemove -= fracturedSize
-                        size -= fracturedSize
-                    }
-                } else if (toRemove >= node.size()) {
-                    toRemove -= node.size()
-                    removeNode(node)
-                } else {
-                    val nextFracture = node.fracture(toRemove)
-                    val nextNode = QueueNode(node.fragment, nextFracture)
-                    val prevNode = node.prev
-                    toRemove -= node.size()
-                    removeNode(node)
-                    if (prevNode != null) {
-                        linkAfter(nextNode, prevNode)
-                    } else {
-                        val currHead = head
-                        nextNode.next = currHead
-                        head = nextNode
-                        if (currHead == null) {
-                            tail = nextNode
-                        } else {
-                            currHead.prev = nextNode
-                        }
-                    }
-                }
-
-                if (next != null) {
-                    node = next
-                } else if (toRemove > 0) {
-                    throw IllegalStateException("Reached end of list")
-                }
-                offset = 0
-            } while (toRemove > 0)
+            // e.g. given remove index 3 - 8 (excluding) from a single node:
+            // 0 1 2 | 3 4 5 6 7 | 8 9
+            // split the tree at 3 and at 8 (relative to the remainder), which fractures the node at 3 and 8, and
+            // merge the outer trees, dismissing the tree that contains the fracture with the removed items
+            val (head, remainder) = split(root, fromIdx)
+            val (removed, tail) = split(remainder, toIdx - fromIdx)
+            val removedCount = subtreeSize(removed)
+            root = merge(head, tail)
+            size -= removedCount
+            unlinkChains(removed)
 
-            return toIdx - fromIdx
+            return removedCount
         }
 
-        fun removeNode(node: QueueNode) {
-            val next = node.next
-            val prev = node.prev
-            if (prev == null) {
-                head = next
-            } else {
-                prev.next = next
-                next?.prev = null
-            }
-            if (next == null) {
-                tail = prev
-            } else {
-                next.prev = prev
-                node.next = null
+        /**
+         * @return the queue index of the first playable of the provided node, resolved by walking up the tree, or -1
+         * if the node is not in the tree
+         */
+        fun indexOf(node: QueueNode): Int {
+            var idx = subtreeSize(node.left)
+            var current = node
+            while (true) {
+                val parent = current.parent ?: break
+                if (parent.right === current) {
+                    idx += subtreeSize(parent.left) + parent.size()
+                }
+                current = parent
             }
-            size -= node.size()
+
+            return if (current === root) idx else -1
         }
 
         fun getPlayableAtIndex(idx: Int): Playable {
@@ -859,59 +882,118 @@ class AudioQueue(val maxSize: Int?) {
                 throw IllegalArgumentException("Index $idx out of bounds for size $size")
             }
 
-            if (idx <= size / 2) {
-                var currentNode = head!!
-                var startIdx = 0
-                var nextStartIdx = currentNode.size()
-
-                while (nextStartIdx <= idx) {
-                    startIdx = nextStartIdx
-                    currentNode = currentNode.next!!
-                    nextStartIdx += currentNode.size()
+            var currentNode = root!!
+            var remaining = idx
+            while (true) {
+                val leftSize = subtreeSize(currentNode.left)
+                if (remaining < leftSize) {
+                    currentNode = currentNode.left!!
+                    continue
                 }
 
-                return Pair(idx - startIdx, currentNode)
-            } else {
-                var currentNode = tail!!
-                var nextStartIdx = size - currentNode.size()
-
-                while (nextStartIdx > idx) {
-                    currentNode = currentNode.prev!!
-                    nextStartIdx -= currentNode.size()
+                remaining -= leftSize
+                val nodeSize = currentNode.size()
+                if (remaining < nodeSize) {
+                    return Pair(remaining, currentNode)
                 }
 
-                return Pair(idx - nextStartIdx, currentNode)
+                remaining -= nodeSize
+                currentNode = currentNode.right ?: throw IllegalStateException("Reached end of tree for index $idx")
             }
         }
 
-        private fun linkAfter(node: QueueNode, predecessor: QueueNode) {
-            val successor = predecessor.next
-            node.prev = predecessor
-            node.next = successor
-            predecessor.next = node
-            if (successor == null) {
-                tail = node
+        /**
+         * Split the given tree so that the first tree contains the first [count] playables and the second tree contains
+         * the rest, fracturing the node the split point lies within.
+         */
+        private fun split(node: QueueNode?, count: Int): Pair<QueueNode?, QueueNode?> {
+            if (node == null) {
+                return Pair(null, null)
+            }
+
+            val leftSize = subtreeSize(node.left)
+            val nodeSize = node.size()
+            return if (count <= leftSize) {
+                val (left, right) = split(node.left, count)
+                node.left = right
+                node.update()
+                Pair(left, node)
+            } else if (count >= leftSize + nodeSize) {
+                val (left, right) = split(node.right, count - leftSize - nodeSize)
+                node.right = left
+                node.update()
+                Pair(node, right)
             } else {
-                successor.prev = node
+                // split point lies within the node, fracture the node and move the fracture to the second tree
+                val fracturedNode = QueueNode(node.fragment, node.fracture(count - leftSize))
+                fracturedNode.update()
+                node.insertionChain?.linkAfter(node, fracturedNode)
+                val right = node.right
+                node.right = null
+                node.update()
+                Pair(node, merge(fracturedNode, right))
             }
         }
 
-        private fun linkBefore(node: QueueNode, successor: QueueNode) {
-            val predecessor = successor.prev
-            node.prev = predecessor
-            node.next = successor
-            successor.prev = node
-            if (predecessor == null) {
-                head = node
+        private fun merge(left: QueueNode?, right: QueueNode?): QueueNode? {
+            if (left == null) {
+                return right
+            }
+            if (right == null) {
+                return left
+            }
+
+            return if (left.priority > right.priority) {
+                left.right = merge(left.right, right)
+                left.update()
+                left
             } else {
-                predecessor.next = node
+                right.left = merge(left, right.left)
+                right.update()
+                right
+            }
+        }
+
+        private fun subtreeSize(node: QueueNode?): Int {
+            return node?.subtreeSize ?: 0
+        }
+
+        /**
+         * Unlink all nodes of the removed subtree from their [InsertionChain].
+         */
+        private fun unlinkChains(removed: QueueNode?) {
+            removed?.parent = null
+            val stack: MutableList<QueueNode> = ArrayList()
+            removed?.let { stack.add(it) }
+            while (stack.isNotEmpty()) {
+                val node = stack.removeAt(stack.size - 1)
+                node.insertionChain?.unlink(node)
+                node.left?.let { stack.add(it) }
+                node.right?.let { stack.add(it) }
             }
         }
     }
 
+    private class SnapshotContent(val version: Long, val tracks: List<Playable>, val isShuffle: Boolean)
+
     class QueueNode(val fragment: QueueFragment, val fractureIdx: Int) {
-        var next: QueueNode? = null
-        var prev: QueueNode? = null
+        var left: QueueNode? = null
+        var right: QueueNode? = null
+        val priority: Int = ThreadLocalRandom.current().nextInt()
+
+        /**
+         * The parent of this node in the tree, maintained by [update] of the parent, null for the root.
+         */
+        internal var parent: QueueNode? = null
+        internal val insertionChain: InsertionChain? = fragment.getInsertionChain()
+        internal var chainPrevious: QueueNode? = null
+        internal var chainNext: QueueNode? = null
+
+        /**
+         * The number of playables in the subtree rooted at this node, maintained by [update].
+         */
+        var subtreeSize: Int = 0
+            private set
 
         fun getPlayables(): List<Playable> {
             return fragment.getPlayablesInFracture(fractureIdx)
@@ -928,6 +1010,12 @@ class AudioQueue(val maxSize: Int?) {
         fun fracture(idx: Int): Int {
             return fragment.addFracture(fractureIdx, idx)
         }
+
+        fun update() {
+            subtreeSize = size() + (left?.subtreeSize ?: 0) + (right?.subtreeSize ?: 0)
+            left?.parent = this
+            right?.parent = this
+        }
     }
 
 }
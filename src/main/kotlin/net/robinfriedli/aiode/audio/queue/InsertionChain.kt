@@ -0,0 +1,49 @@
+package net.robinfriedli.aiode.audio.queue
+
+import net.robinfriedli.aiode.audio.playables.PlayableContainer
+
+/**
+ * Links the [AudioQueue.QueueNode]s of all fragments inserted for a [PlayableContainer] that is loaded progressively in
+ * queue order, including the nodes created when these fragments are fractured. Used to insert the remaining playables
+ * after the last node of the container that is still in the queue without scanning the queue, see
+ * [AudioQueue.insertAfterChain]. Nodes are unlinked when they are removed from the queue. Only accessed while holding
+ * the write lock of the queue.
+ */
+class InsertionChain {
+
+    internal var tail: AudioQueue.QueueNode? = null
+        private set
+
+    internal fun append(node: AudioQueue.QueueNode) {
+        node.chainPrevious = tail
+        node.chainNext = null
+        tail?.chainNext = node
+        tail = node
+    }
+
+    /**
+     * Link the node created by fracturing the provided node, which follows the node in the queue.
+     */
+    internal fun linkAfter(node: AudioQueue.QueueNode, successor: AudioQueue.QueueNode) {
+        successor.chainPrevious = node
+        successor.chainNext = node.chainNext
+        node.chainNext?.chainPrevious = successor
+        node.chainNext = successor
+        if (tail === node) {
+            tail = successor
+        }
+    }
+
+    internal fun unlink(node: AudioQueue.QueueNode) {
+        val previous = node.chainPrevious
+        val next = node.chainNext
+        previous?.chainNext = next
+        next?.chainPrevious = previous
+        if (tail === node) {
+            tail = previous
+        }
+        node.chainPrevious = null
+        node.chainNext = null
+    }
+
+}
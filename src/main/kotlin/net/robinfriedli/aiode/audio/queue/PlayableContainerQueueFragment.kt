@@ -3,20 +3,31 @@ package net.robinfriedli.aiode.audio.queue
 import com.google.common.collect.Lists
 import net.robinfriedli.aiode.audio.Playable
 import net.robinfriedli.aiode.audio.playables.PlayableContainer
-import java.util.stream.IntStream
+import java.util.*
 
-class PlayableContainerQueueFragment(
+class PlayableContainerQueueFragment @JvmOverloads constructor(
     private val queue: AudioQueue,
     private val playables: MutableList<Playable>,
-    private val playableContainer: PlayableContainer<*>
+    private val playableContainer: PlayableContainer<*>,
+    private val expectedSize: Int? = null,
+    private val insertionChain: InsertionChain? = null,
+    private val insertionListener: (() -> Unit)? = null
 ) : QueueFragment {
 
     private var fractures: MutableList<Pair<Int, Int>> = Lists.newArrayList(Pair(0, size()))
 
+    // start index of each fracture mapped to the fracture index; fractures always partition the fragment, so the
+    // fracture containing an index is the one with the greatest start index not exceeding the index
+    private val fractureStarts: TreeMap<Int, Int> = TreeMap(mapOf(0 to 0))
+
     override fun size(): Int {
         return playables.size
     }
 
+    override fun expectedSize(): Int {
+        return expectedSize ?: size()
+    }
+
     override fun getPlayableContainer(): PlayableContainer<*> {
         return playableContainer
     }
@@ -30,13 +41,9 @@ class PlayableContainerQueueFragment(
             throw IndexOutOfBoundsException("Cannot create fracture at index $idx")
         }
 
-        val (parentFractureIdx, parentFracture) = IntStream
-            .range(0, fractures.size)
-            .mapToObj { i -> Pair(i, fractures[i]) }
-            .sorted(Comparator.comparing { (_, fracture) -> fracture.first })
-            .filter { (_, fracture) -> fracture.first <= idx && fracture.second > idx }
-            .findFirst()
-            .orElseThrow { IllegalStateException("Could not find suitable parent fracture for index $idx") }
+        val parentFractureIdx = fractureStarts.floorEntry(idx)?.value
+            ?: throw IllegalStateException("Could not find suitable parent fracture for index $idx")
+        val parentFracture = fractures[parentFractureIdx]
 
         if (parentFracture.first == idx) {
             throw IllegalStateException("Fragment is already fractured at $idx")
@@ -44,6 +51,7 @@ class PlayableContainerQueueFragment(
 
         fractures[parentFractureIdx] = Pair(parentFracture.first, idx)
         fractures.add(Pair(idx, parentFracture.second))
+        fractureStarts[idx] = fractures.size - 1
         return fractures.size - 1
     }
 
@@ -68,11 +76,19 @@ class PlayableContainerQueueFragment(
 
     override fun getPlayablesInFracture(fractureIdx: Int): List<Playable> {
         val (start, end) = fractures[fractureIdx]
-        return ArrayList(playables).subList(start, end)
+        return ArrayList(playables.subList(start, end))
     }
 
     override fun sizeOfFracture(fractureIdx: Int): Int {
         val (start, end) = fractures[fractureIdx]
         return end - start
     }
+
+    override fun getInsertionChain(): InsertionChain? {
+        return insertionChain
+    }
+
+    override fun onInserted() {
+        insertionListener?.invoke()
+    }
 }
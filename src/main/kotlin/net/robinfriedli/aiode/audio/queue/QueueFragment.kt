@@ -15,6 +15,15 @@ interface QueueFragment {
      */
     fun size(): Int
 
+    /**
+     * Return the number of [Playable] instances this fragment is expected to add to the queue, which exceeds [size] if
+     * the remaining playables of the [PlayableContainer] are inserted progressively after this fragment has been
+     * inserted, see [getInsertionChain].
+     */
+    fun expectedSize(): Int {
+        return size()
+    }
+
     /**
      * Return the [PlayableContainer] this QueueFragment is based on.
      */
@@ -60,4 +69,18 @@ interface QueueFragment {
 
     fun sizeOfFracture(fractureIdx: Int): Int
 
+    /**
+     * Return the [InsertionChain] the nodes of this fragment are linked to if the fragment is part of a
+     * [PlayableContainer] that is loaded progressively, see [AudioQueue.insertAfterChain].
+     */
+    fun getInsertionChain(): InsertionChain? {
+        return null
+    }
+
+    /**
+     * Called once this fragment has been inserted into the queue, while holding the write lock of the queue.
+     */
+    fun onInserted() {
+    }
+
 }
@@ -0,0 +1,24 @@
+package net.robinfriedli.aiode.audio.queue
+
+import net.robinfriedli.aiode.audio.Playable
+
+/**
+ * A window of the [AudioQueue] in playback order, as returned by [AudioQueue.getPage].
+ *
+ * @param offset the queue position of the first playable of this page
+ * @param playables the playables of this page
+ * @param position the current position of the queue when the page was created
+ * @param queueSize the size of the queue when the page was created
+ */
+data class QueuePage(
+    val offset: Int,
+    val playables: List<Playable>,
+    val position: Int,
+    val queueSize: Int
+) {
+
+    fun isEmpty(): Boolean {
+        return playables.isEmpty()
+    }
+
+}
@@ -0,0 +1,108 @@
+package net.robinfriedli.aiode.audio.queue
+
+import net.robinfriedli.aiode.audio.Playable
+
+/**
+ * Immutable view of the [AudioQueue] at a given point in time as returned by [AudioQueue.snapshot]. Readers that only
+ * display the queue should prefer the snapshot over the locking methods of the queue, as snapshots can be created without
+ * contending with playback iteration.
+ *
+ * @param tracks the tracks in playback order, following the shuffled order if shuffle was enabled
+ * @param position the current position within [tracks], -1 if the queue has never been iterated
+ */
+class QueueSnapshot(
+    val tracks: List<Playable>,
+    val position: Int,
+    val isShuffle: Boolean,
+    val repeatOne: Boolean,
+    val repeatAll: Boolean
+) {
+
+    val size: Int
+        get() = tracks.size
+
+    fun isEmpty(): Boolean {
+        return tracks.isEmpty()
+    }
+
+    /**
+     * @return the track at the current position or null if the queue is empty or has never been iterated
+     */
+    fun getCurrent(): Playable? {
+        return if (position >= 0 && position < tracks.size) {
+            tracks[position]
+        } else {
+            null
+        }
+    }
+
+    fun peekNext(): Playable? {
+        return if (position < tracks.size - 1) {
+            tracks[position + 1]
+        } else {
+            null
+        }
+    }
+
+    fun hasNext(ignoreRepeat: Boolean = false): Boolean {
+        if (isEmpty()) {
+            return false
+        }
+
+        val inBound = position < tracks.size - 1
+        return inBound || (!ignoreRepeat && (repeatOne || repeatAll))
+    }
+
+    fun hasPrevious(ignoreRepeat: Boolean = false): Boolean {
+        if (isEmpty()) {
+            return false
+        }
+
+        val inBound = position > 0
+        return inBound || (!ignoreRepeat && (repeatOne || repeatAll))
+    }
+
+    /**
+     * List the next tracks after the current position, wrapping around to the start of the queue if repeat all is
+     * enabled.
+     */
+    fun listNext(limit: Int): List<Playable> {
+        val trackList: MutableList<Playable> = ArrayList(minOf(limit, tracks.size))
+        var idx = position
+
+        while (trackList.size < limit && (repeatAll || idx < tracks.size - 1) && tracks.isNotEmpty()) {
+            if (idx < tracks.size - 1) {
+                idx += 1
+            } else {
+                idx = 0
+            }
+
+            trackList.add(tracks[idx])
+        }
+
+        return trackList
+    }
+
+    fun listPrev(limit: Int): List<Playable> {
+        if (position <= 0) {
+            return emptyList()
+        }
+
+        val from = maxOf(0, position - limit)
+        return tracks.subList(from, minOf(position, tracks.size))
+    }
+
+    /**
+     * @return the tracks at the positions [offset] until offset + [limit]
+     */
+    fun getPage(offset: Int, limit: Int): QueuePage {
+        if (offset < 0 || limit < 0) {
+            throw IllegalArgumentException("Invalid page offset $offset or limit $limit")
+        }
+
+        val from = minOf(offset, tracks.size)
+        val to = from + minOf(limit, tracks.size - from)
+        return QueuePage(from, tracks.subList(from, to), position, tracks.size)
+    }
+
+}
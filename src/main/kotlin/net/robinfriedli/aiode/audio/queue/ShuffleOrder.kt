@@ -0,0 +1,226 @@
+package net.robinfriedli.aiode.audio.queue
+
+import java.util.*
+
+/**
+ * Permutation of queue indices used by the [AudioQueue] in shuffle mode, backed by primitive int arrays. Holds both the
+ * mapping from shuffled position (the cursor of the queue in shuffle mode) to queue index and the inverse mapping from
+ * queue index to shuffled position. All operations are at worst linear in the size of the queue and do not box indices.
+ * Not thread safe, access is synchronised by the queue.
+ */
+class ShuffleOrder {
+
+    // shuffled position -> queue index
+    private var order: IntArray = IntArray(INITIAL_CAPACITY)
+
+    // queue index -> shuffled position
+    private var positions: IntArray = IntArray(INITIAL_CAPACITY)
+
+    // reused buffer for indices that are inserted at random positions
+    private var scratch: IntArray = IntArray(0)
+
+    var size: Int = 0
+        private set
+
+    /**
+     * @return the queue index at the given shuffled position
+     */
+    operator fun get(position: Int): Int {
+        checkPosition(position)
+        return order[position]
+    }
+
+    /**
+     * @return the shuffled position of the given queue index
+     */
+    fun positionOf(index: Int): Int {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("Index $index out of bounds for size $size")
+        }
+        return positions[index]
+    }
+
+    fun clear() {
+        size = 0
+    }
+
+    /**
+     * Create a random permutation of the queue indices 0 until [count]. If [retainedIdx] is not negative, that index is
+     * placed at the first position and the remaining indices are shuffled after it.
+     */
+    fun randomize(count: Int, retainedIdx: Int, random: Random) {
+        ensureCapacity(count)
+        var position = 0
+        if (retainedIdx >= 0) {
+            if (retainedIdx >= count) {
+                throw IndexOutOfBoundsException("Index $retainedIdx out of bounds for size $count")
+            }
+            order[position++] = retainedIdx
+        }
+        for (index in 0 until count) {
+            if (index != retainedIdx) {
+                order[position++] = index
+            }
+        }
+        size = count
+        shuffle(order, if (retainedIdx >= 0) 1 else 0, count, random)
+        updatePositions(0)
+    }
+
+    /**
+     * Insert the new queue indices [fromIndex] until fromIndex + [count] in order at the given shuffled position. The
+     * indices have to be appended to the end of the queue, i.e. [fromIndex] must equal the current size.
+     */
+    fun insertRange(position: Int, fromIndex: Int, count: Int) {
+        if (position < 0 || position > size) {
+            throw IndexOutOfBoundsException("Position $position out of bounds for size $size")
+        }
+        checkAppendedIndices(fromIndex)
+        ensureCapacity(size + count)
+        System.arraycopy(order, position, order, position + count, size - position)
+        for (i in 0 until count) {
+            order[position + i] = fromIndex + i
+        }
+        size += count
+        updatePositions(position)
+    }
+
+    /**
+     * Insert the new queue indices [fromIndex] until fromIndex + [count] in random order at random positions at or after
+     * [fromPosition], retaining the relative order of the items already placed after [fromPosition]. The indices have to
+     * be appended to the end of the queue, i.e. [fromIndex] must equal the current size.
+     */
+    fun interleaveRange(fromPosition: Int, fromIndex: Int, count: Int, random: Random) {
+        if (fromPosition < 0 || fromPosition > size) {
+            throw IndexOutOfBoundsException("Position $fromPosition out of bounds for size $size")
+        }
+        checkAppendedIndices(fromIndex)
+        ensureCapacity(size + count)
+        if (scratch.size < count) {
+            scratch = IntArray(count)
+        }
+        for (i in 0 until count) {
+            scratch[i] = fromIndex + i
+        }
+        shuffle(scratch, 0, count, random)
+
+        // merge the existing tail and the new indices from the back, picking a new index with a probability matching
+        // the share of remaining new indices, which results in a uniformly random interleaving
+        var remainingTail = size - fromPosition
+        var remainingNew = count
+        var write = size + count - 1
+        while (remainingNew > 0) {
+            if (remainingTail == 0 || random.nextInt(remainingTail + remainingNew) < remainingNew) {
+                order[write] = scratch[--remainingNew]
+            } else {
+                order[write] = order[fromPosition + --remainingTail]
+            }
+            write--
+        }
+        size += count
+        updatePositions(fromPosition)
+    }
+
+    /**
+     * Remove the shuffled positions [fromPosition] until [toPosition] and shift the remaining queue indices down to fill
+     * the gaps left by the removed queue indices.
+     *
+     * @return the removed queue indices as ascending, non-adjacent ranges, flattened as pairs of inclusive start and
+     * exclusive end index
+     */
+    fun removeRange(fromPosition: Int, toPosition: Int): IntArray {
+        if (fromPosition < 0 || toPosition > size || fromPosition > toPosition) {
+            throw IndexOutOfBoundsException("Range $fromPosition - $toPosition out of bounds for size $size")
+        }
+        if (fromPosition == toPosition) {
+            return IntArray(0)
+        }
+
+        var ranges = IntArray(8)
+        var rangeCount = 0
+        var removedBefore = 0
+        var rangeStart = -1
+        // walk the queue indices in ascending order, collecting the ranges of removed indices and replacing the position
+        // of each index with the new index after the removal, or -1 if removed
+        for (index in 0 until size) {
+            val position = positions[index]
+            val removed = position in fromPosition until toPosition
+            if (removed) {
+                if (rangeStart < 0) {
+                    rangeStart = index
+                }
+                removedBefore++
+                positions[index] = -1
+            } else {
+                if (rangeStart >= 0) {
+                    if (rangeCount + 2 > ranges.size) {
+                        ranges = ranges.copyOf(ranges.size * 2)
+                    }
+                    ranges[rangeCount++] = rangeStart
+                    ranges[rangeCount++] = index
+                    rangeStart = -1
+                }
+                positions[index] = index - removedBefore
+            }
+        }
+        if (rangeStart >= 0) {
+            if (rangeCount + 2 > ranges.size) {
+                ranges = ranges.copyOf(ranges.size * 2)
+            }
+            ranges[rangeCount++] = rangeStart
+            ranges[rangeCount++] = size
+        }
+
+        var write = 0
+        for (position in 0 until size) {
+            if (position in fromPosition until toPosition) {
+                continue
+            }
+            order[write++] = positions[order[position]]
+        }
+        size = write
+        updatePositions(0)
+
+        return ranges.copyOf(rangeCount)
+    }
+
+    private fun updatePositions(fromPosition: Int) {
+        for (position in fromPosition until size) {
+            positions[order[position]] = position
+        }
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity > order.size) {
+            val newCapacity = maxOf(capacity, order.size * 2)
+            order = order.copyOf(newCapacity)
+            positions = positions.copyOf(newCapacity)
+        }
+    }
+
+    private fun checkPosition(position: Int) {
+        if (position < 0 || position >= size) {
+            throw IndexOutOfBoundsException("Position $position out of bounds for size $size")
+        }
+    }
+
+    private fun checkAppendedIndices(fromIndex: Int) {
+        if (fromIndex != size) {
+            throw IllegalArgumentException("Inserted indices must start at the current size $size but start at $fromIndex")
+        }
+    }
+
+    private fun shuffle(array: IntArray, from: Int, to: Int, random: Random) {
+        for (i in to - 1 downTo from + 1) {
+            val j = from + random.nextInt(i - from + 1)
+            val tmp = array[i]
+            array[i] = array[j]
+            array[j] = tmp
+        }
+    }
+
+    companion object {
+        private const val INITIAL_CAPACITY = 16
+    }
+
+}
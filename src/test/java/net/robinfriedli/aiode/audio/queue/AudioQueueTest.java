@@ -0,0 +1,228 @@
+package net.robinfriedli.aiode.audio.queue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.*;
+
+import com.google.common.collect.Lists;
+import net.robinfriedli.aiode.audio.Playable;
+import net.robinfriedli.aiode.audio.UrlPlayable;
+import net.robinfriedli.aiode.audio.playables.containers.SinglePlayableContainer;
+import net.robinfriedli.aiode.entities.UrlTrack;
+
+import static com.google.common.truth.Truth.*;
+
+public class AudioQueueTest {
+
+    private int playableCount;
+
+    @Test
+    public void testInsertAtHeadMiddleAndTail() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+
+        insert(queue, expected, 0, fragment(queue, 5));
+        insert(queue, expected, 0, fragment(queue, 3));
+        insert(queue, expected, 4, fragment(queue, 2));
+        insert(queue, expected, expected.size(), fragment(queue, 4));
+        insert(queue, expected, 6, single(queue));
+
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testInsertAtHeadRetainsCurrent() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+        insert(queue, expected, 0, fragment(queue, 10));
+        queue.setPosition(4);
+        Playable current = queue.getCurrent();
+
+        insert(queue, expected, 0, fragment(queue, 3));
+        insert(queue, expected, 6, fragment(queue, 2));
+
+        assertThat(queue.getPosition()).isEqualTo(9);
+        assertThat(queue.getCurrent()).isSameInstanceAs(current);
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testIndexLookupAfterFracturedInserts() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+        insert(queue, expected, 0, fragment(queue, 200));
+
+        // repeatedly insert into the middle of the existing nodes so that the initial fragment is fractured many times
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            int idx = 1 + random.nextInt(expected.size() - 1);
+            insert(queue, expected, idx, random.nextBoolean() ? single(queue) : fragment(queue, 1 + random.nextInt(5)));
+        }
+
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testRemoveRangeAcrossFragments() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+        insert(queue, expected, 0, fragment(queue, 10));
+        insert(queue, expected, 10, fragment(queue, 10));
+        insert(queue, expected, 20, single(queue));
+        insert(queue, expected, 21, fragment(queue, 10));
+
+        // starts within the first fragment and ends within the last fragment
+        remove(queue, expected, 7, 25);
+        assertQueue(queue, expected);
+
+        // within a single fracture of the last fragment
+        remove(queue, expected, 8, 10);
+        assertQueue(queue, expected);
+
+        // up to the end of the queue
+        remove(queue, expected, 3, expected.size());
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testRemoveEntireQueue() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+        insert(queue, expected, 0, fragment(queue, 10));
+        insert(queue, expected, 5, fragment(queue, 10));
+
+        remove(queue, expected, 0, expected.size());
+
+        assertThat(queue.getSize()).isEqualTo(0);
+        assertThat(queue.getTracks()).isEmpty();
+
+        insert(queue, expected, 0, fragment(queue, 3));
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testRandomModificationsMatchList() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+        Random random = new Random(2);
+
+        for (int i = 0; i < 1000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int idx = random.nextInt(expected.size() + 1);
+                insert(queue, expected, idx, random.nextInt(4) == 0 ? single(queue) : fragment(queue, 1 + random.nextInt(20)));
+            } else {
+                int fromIdx = random.nextInt(expected.size());
+                int toIdx = fromIdx + 1 + random.nextInt(Math.min(30, expected.size() - fromIdx));
+                remove(queue, expected, fromIdx, toIdx);
+            }
+
+            assertThat(queue.getSize()).isEqualTo(expected.size());
+            if (i % 50 == 0) {
+                assertQueue(queue, expected);
+            }
+        }
+
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testInsertAfterChain() {
+        AudioQueue queue = new AudioQueue(null);
+        List<Playable> expected = Lists.newArrayList();
+        InsertionChain insertionChain = new InsertionChain();
+        insert(queue, expected, 0, fragment(queue, 3));
+        insert(queue, expected, 3, chainedFragment(queue, 10, insertionChain));
+        insert(queue, expected, expected.size(), fragment(queue, 4));
+
+        // fracture the chained fragment so that its last playables are in a different node
+        insert(queue, expected, 8, fragment(queue, 2));
+        insertAfterChain(queue, expected, 15, chainedFragment(queue, 5, insertionChain));
+        assertQueue(queue, expected);
+
+        // remove the last playables of the chain, the next fragment follows the remaining playables of the chain
+        remove(queue, expected, 12, 20);
+        insertAfterChain(queue, expected, 12, chainedFragment(queue, 3, insertionChain));
+        assertQueue(queue, expected);
+
+        // remove all playables of the chain
+        remove(queue, expected, 3, 8);
+        remove(queue, expected, 5, 10);
+        assertThat(queue.insertAfterChain(chainedFragment(queue, 3, insertionChain))).isFalse();
+        assertQueue(queue, expected);
+    }
+
+    @Test
+    public void testInsertAfterChainAfterClear() {
+        AudioQueue queue = new AudioQueue(null);
+        InsertionChain insertionChain = new InsertionChain();
+        queue.add(chainedFragment(queue, 10, insertionChain));
+        queue.insert(5, fragment(queue, 2));
+
+        queue.clear();
+        List<Playable> expected = Lists.newArrayList();
+        insert(queue, expected, 0, fragment(queue, 3));
+
+        assertThat(queue.insertAfterChain(chainedFragment(queue, 3, insertionChain))).isFalse();
+        assertQueue(queue, expected);
+    }
+
+    /**
+     * Assert that resolving each index through the tree and flattening the entire queue both match the expected list.
+     */
+    private static void assertQueue(AudioQueue queue, List<Playable> expected) {
+        assertThat(queue.getSize()).isEqualTo(expected.size());
+        // resolve each index before the tracks are collected, playables are only resolved from the flattened queue
+        // once it has been built
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(queue.getPlayableAtIndex(i)).isSameInstanceAs(expected.get(i));
+        }
+        assertThat(queue.getTracks()).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    private static void insert(AudioQueue queue, List<Playable> expected, int idx, QueueFragment fragment) {
+        queue.insert(idx, fragment);
+        expected.addAll(idx, fragment.getPlayables());
+    }
+
+    private static void insertAfterChain(AudioQueue queue, List<Playable> expected, int expectedIdx, QueueFragment fragment) {
+        assertThat(queue.insertAfterChain(fragment)).isTrue();
+        expected.addAll(expectedIdx, fragment.getPlayables());
+    }
+
+    private static void remove(AudioQueue queue, List<Playable> expected, int fromIdx, int toIdx) {
+        int removed = queue.remove(fromIdx, toIdx);
+        assertThat(removed).isEqualTo(toIdx - fromIdx);
+        expected.subList(fromIdx, toIdx).clear();
+    }
+
+    private QueueFragment fragment(AudioQueue queue, int size) {
+        List<Playable> playables = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            playables.add(playable());
+        }
+        return new PlayableContainerQueueFragment(queue, playables, new SinglePlayableContainer(playables.getFirst()));
+    }
+
+    private QueueFragment chainedFragment(AudioQueue queue, int size, InsertionChain insertionChain) {
+        List<Playable> playables = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            playables.add(playable());
+        }
+        return new PlayableContainerQueueFragment(queue, playables, new SinglePlayableContainer(playables.getFirst()), null, insertionChain);
+    }
+
+    private QueueFragment single(AudioQueue queue) {
+        Playable playable = playable();
+        return new SinglePlayableQueueFragment(queue, playable, new SinglePlayableContainer(playable));
+    }
+
+    private Playable playable() {
+        UrlTrack urlTrack = new UrlTrack();
+        int id = playableCount++;
+        urlTrack.setUrl("https://example.com/" + id);
+        urlTrack.setTitle("Track " + id);
+        return new UrlPlayable(urlTrack);
+    }
+
+}
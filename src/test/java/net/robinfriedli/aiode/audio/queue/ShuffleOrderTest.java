@@ -0,0 +1,103 @@
+package net.robinfriedli.aiode.audio.queue;
+
+import java.util.Random;
+
+import org.testng.annotations.*;
+
+import static com.google.common.truth.Truth.*;
+
+public class ShuffleOrderTest {
+
+    @Test
+    public void testRandomizeRetainsCurrent() {
+        ShuffleOrder shuffleOrder = new ShuffleOrder();
+        shuffleOrder.randomize(100, 42, new Random(1));
+
+        assertThat(shuffleOrder.getSize()).isEqualTo(100);
+        assertThat(shuffleOrder.get(0)).isEqualTo(42);
+        assertConsistent(shuffleOrder);
+    }
+
+    @Test
+    public void testInsertRange() {
+        ShuffleOrder shuffleOrder = new ShuffleOrder();
+        shuffleOrder.randomize(10, -1, new Random(2));
+        int first = shuffleOrder.get(0);
+        shuffleOrder.insertRange(1, 10, 5);
+
+        assertThat(shuffleOrder.getSize()).isEqualTo(15);
+        assertThat(shuffleOrder.get(0)).isEqualTo(first);
+        for (int i = 0; i < 5; i++) {
+            assertThat(shuffleOrder.get(i + 1)).isEqualTo(10 + i);
+        }
+        assertConsistent(shuffleOrder);
+    }
+
+    @Test
+    public void testInterleaveRangeKeepsPrecedingPositions() {
+        ShuffleOrder shuffleOrder = new ShuffleOrder();
+        shuffleOrder.randomize(20, 3, new Random(3));
+        int[] head = new int[5];
+        for (int i = 0; i < head.length; i++) {
+            head[i] = shuffleOrder.get(i);
+        }
+        shuffleOrder.interleaveRange(5, 20, 30, new Random(4));
+
+        assertThat(shuffleOrder.getSize()).isEqualTo(50);
+        for (int i = 0; i < head.length; i++) {
+            assertThat(shuffleOrder.get(i)).isEqualTo(head[i]);
+        }
+        assertConsistent(shuffleOrder);
+    }
+
+    @Test
+    public void testRemoveRange() {
+        ShuffleOrder shuffleOrder = new ShuffleOrder();
+        shuffleOrder.randomize(50, -1, new Random(5));
+        int[] removedIndices = new int[10];
+        for (int i = 0; i < removedIndices.length; i++) {
+            removedIndices[i] = shuffleOrder.get(20 + i);
+        }
+        int retainedIdx = shuffleOrder.get(30);
+
+        int[] ranges = shuffleOrder.removeRange(20, 30);
+
+        int removedCount = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            assertThat(ranges[i]).isLessThan(ranges[i + 1]);
+            if (i > 0) {
+                assertThat(ranges[i]).isGreaterThan(ranges[i - 1]);
+            }
+            removedCount += ranges[i + 1] - ranges[i];
+        }
+        assertThat(removedCount).isEqualTo(10);
+        for (int removedIdx : removedIndices) {
+            boolean contained = false;
+            for (int i = 0; i < ranges.length; i += 2) {
+                contained |= removedIdx >= ranges[i] && removedIdx < ranges[i + 1];
+            }
+            assertThat(contained).isTrue();
+        }
+
+        int shift = 0;
+        for (int removedIdx : removedIndices) {
+            if (removedIdx < retainedIdx) {
+                shift++;
+            }
+        }
+        assertThat(shuffleOrder.getSize()).isEqualTo(40);
+        assertThat(shuffleOrder.get(20)).isEqualTo(retainedIdx - shift);
+        assertConsistent(shuffleOrder);
+    }
+
+    private void assertConsistent(ShuffleOrder shuffleOrder) {
+        boolean[] seen = new boolean[shuffleOrder.getSize()];
+        for (int position = 0; position < shuffleOrder.getSize(); position++) {
+            int index = shuffleOrder.get(position);
+            assertThat(seen[index]).isFalse();
+            seen[index] = true;
+            assertThat(shuffleOrder.positionOf(index)).isEqualTo(position);
+        }
+    }
+
+}
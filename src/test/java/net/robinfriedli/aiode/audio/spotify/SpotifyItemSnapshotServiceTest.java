@@ -0,0 +1,128 @@
+package net.robinfriedli.aiode.audio.spotify;
+
+import java.util.Arrays;
+
+import org.testng.annotations.*;
+
+import net.robinfriedli.aiode.entities.SpotifyItemSnapshot;
+import se.michaelthelin.spotify.enums.ModelObjectType;
+import se.michaelthelin.spotify.model_objects.specification.AlbumSimplified;
+import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
+import se.michaelthelin.spotify.model_objects.specification.Episode;
+import se.michaelthelin.spotify.model_objects.specification.Image;
+import se.michaelthelin.spotify.model_objects.specification.ShowSimplified;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+
+import static com.google.common.truth.Truth.*;
+
+public class SpotifyItemSnapshotServiceTest {
+
+    @Test
+    public void testTrackRoundTrip() {
+        SpotifyTrack track = SpotifyTrack.wrap(new Track.Builder()
+            .setId("4uLU6hMCjMI75M1A2tKUQC")
+            .setName("Never Gonna Give You Up")
+            .setDurationMs(213573)
+            .setExplicit(false)
+            .setPreviewUrl("https://p.scdn.co/mp3-preview/4uLU6hMCjMI75M1A2tKUQC")
+            .setIsPlayable(true)
+            .setPopularity(78)
+            .setArtists(
+                artist("0gxyHStUsqpMadRV0Di1Qt", "Rick Astley"),
+                artist("1dfeR4HaWDbWqFHLkxsg1d", "Queen")
+            )
+            .setAlbum(new AlbumSimplified.Builder()
+                .setId("6XhjNHCyCDyyGJRM5mg40G")
+                .setName("Whenever You Need Somebody")
+                .setImages(new Image.Builder().setUrl("https://i.scdn.co/image/album").build())
+                .build())
+            .setType(ModelObjectType.TRACK)
+            .setUri("spotify:track:4uLU6hMCjMI75M1A2tKUQC")
+            .build());
+
+        SpotifyItemSnapshot snapshot = SpotifyItemSnapshotService.createSnapshot(track);
+        assertThat(snapshot.getShowId()).isNull();
+        SpotifyTrack restoredTrack = SpotifyItemSnapshotService.toSpotifyTrack(snapshot, SpotifyTrackKind.TRACK);
+
+        assertCommonFields(restoredTrack, track);
+        Track restored = restoredTrack.cast(Track.class);
+        Track original = track.cast(Track.class);
+        assertThat(restored.getPopularity()).isEqualTo(78);
+        assertThat(Arrays.stream(restored.getArtists()).map(ArtistSimplified::getId).toList())
+            .containsExactly("0gxyHStUsqpMadRV0Di1Qt", "1dfeR4HaWDbWqFHLkxsg1d").inOrder();
+        assertThat(Arrays.stream(restored.getArtists()).map(ArtistSimplified::getName).toList())
+            .containsExactly("Rick Astley", "Queen").inOrder();
+        assertThat(restored.getAlbum().getId()).isEqualTo(original.getAlbum().getId());
+        assertThat(restored.getAlbum().getName()).isEqualTo(original.getAlbum().getName());
+        assertThat(restoredTrack.getDisplay()).isEqualTo(track.getDisplay());
+    }
+
+    @Test
+    public void testEpisodeRoundTrip() {
+        SpotifyTrack episode = SpotifyTrack.wrap(new Episode.Builder()
+            .setId("512ojhOuo1ktJprKbVcKyQ")
+            .setName("Episode 1")
+            .setDurationMs(3600000)
+            .setExplicit(true)
+            .setAudioPreviewUrl("https://p.scdn.co/mp3-preview/512ojhOuo1ktJprKbVcKyQ")
+            .setPlayable(false)
+            .setImages(new Image.Builder().setUrl("https://i.scdn.co/image/episode").build())
+            .setShow(new ShowSimplified.Builder()
+                .setId("38bS44xjbVVZ3No3ByF1dJ")
+                .setName("The Show")
+                .build())
+            .setType(ModelObjectType.EPISODE)
+            .setUri("spotify:episode:512ojhOuo1ktJprKbVcKyQ")
+            .build());
+
+        SpotifyItemSnapshot snapshot = SpotifyItemSnapshotService.createSnapshot(episode);
+        assertThat(snapshot.getArtists()).isNull();
+        assertThat(snapshot.getAlbumId()).isNull();
+        assertThat(snapshot.getPopularity()).isNull();
+        SpotifyTrack restoredEpisode = SpotifyItemSnapshotService.toSpotifyTrack(snapshot, SpotifyTrackKind.EPISODE);
+
+        assertCommonFields(restoredEpisode, episode);
+        ShowSimplified show = restoredEpisode.cast(Episode.class).getShow();
+        assertThat(show.getId()).isEqualTo("38bS44xjbVVZ3No3ByF1dJ");
+        assertThat(show.getName()).isEqualTo("The Show");
+        assertThat(restoredEpisode.getDisplay()).isEqualTo(episode.getDisplay());
+    }
+
+    @Test
+    public void testArtistsRoundTrip() {
+        ArtistSimplified[] artists = SpotifyItemSnapshotService.deserializeArtists(
+            SpotifyItemSnapshotService.serializeArtists(new ArtistSimplified[]{artist("1", "First"), artist(null, "Local Artist")})
+        );
+
+        assertThat(artists).hasLength(2);
+        assertThat(artists[0].getId()).isEqualTo("1");
+        assertThat(artists[0].getName()).isEqualTo("First");
+        assertThat(artists[0].getType()).isEqualTo(ModelObjectType.ARTIST);
+        assertThat(artists[1].getId()).isNull();
+        assertThat(artists[1].getName()).isEqualTo("Local Artist");
+
+        assertThat(SpotifyItemSnapshotService.deserializeArtists(SpotifyItemSnapshotService.serializeArtists(null))).isEmpty();
+        assertThat(SpotifyItemSnapshotService.deserializeArtists(null)).isEmpty();
+    }
+
+    private static void assertCommonFields(SpotifyTrack restored, SpotifyTrack original) {
+        assertThat(restored.getKind()).isEqualTo(original.getKind());
+        assertThat(restored.getId()).isEqualTo(original.getId());
+        assertThat(restored.getName()).isEqualTo(original.getName());
+        assertThat(restored.getDurationMs()).isEqualTo(original.getDurationMs());
+        assertThat(restored.getIsExplicit()).isEqualTo(original.getIsExplicit());
+        assertThat(restored.getPreviewUrl()).isEqualTo(original.getPreviewUrl());
+        assertThat(restored.getIsPlayable()).isEqualTo(original.getIsPlayable());
+        assertThat(restored.getAlbumCoverUrl()).isEqualTo(original.getAlbumCoverUrl());
+        assertThat(restored.getUri()).isEqualTo(original.getUri());
+    }
+
+    private static ArtistSimplified artist(String id, String name) {
+        return new ArtistSimplified.Builder()
+            .setId(id)
+            .setName(name)
+            .setType(ModelObjectType.ARTIST)
+            .build();
+    }
+
+}
@@ -0,0 +1,69 @@
+package net.robinfriedli.aiode.command;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.dv8tion.jda.api.entities.ISnowflake;
+
+/**
+ * Compares the throughput of checks against the compiled {@link PermissionTable} with the previous set based check of
+ * AccessConfiguration#canAccess, excluding the query that previously preceded each check. Not part of the test suite,
+ * run the main method manually.
+ */
+public class PermissionTableBenchmark {
+
+    private static final int TARGETS = 200;
+    private static final int ITERATIONS = 500_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Map<String, List<String>> grantedRoleIdsByTarget = new HashMap<>();
+        for (int i = 0; i < TARGETS; i++) {
+            int target = i;
+            grantedRoleIdsByTarget.put("command" + i, IntStream.range(0, 5).mapToObj(r -> String.valueOf(1000 + target * 5 + r)).toList());
+        }
+        PermissionTable permissionTable = PermissionTable.compile(grantedRoleIdsByTarget);
+        List<ISnowflake> memberRoles = Arrays.stream(new long[]{1, 2, 3, 4, 5, 6, 7, 8, 1500})
+            .mapToObj(id -> (ISnowflake) () -> id)
+            .toList();
+
+        // the first rounds warm up the JIT, the last round is reported
+        for (int round = 1; round <= ROUNDS; round++) {
+            boolean setResult = false;
+            long setStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                Set<String> grantedRoles = Set.copyOf(grantedRoleIdsByTarget.get("command" + (i % TARGETS)));
+                Set<String> roleIds = memberRoles.stream().map(ISnowflake::getId).collect(Collectors.toSet());
+                setResult ^= roleIds.stream().anyMatch(grantedRoles::contains);
+            }
+            long setNanos = System.nanoTime() - setStart;
+
+            boolean tableResult = false;
+            long tableStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                tableResult ^= permissionTable.canAccess("command" + (i % TARGETS), memberRoles);
+            }
+            long tableNanos = System.nanoTime() - tableStart;
+
+            if (tableResult != setResult) {
+                throw new IllegalStateException("Compiled table and set based check disagree");
+            }
+
+            System.out.printf("Round %d: permission checks per second: set based %d, compiled table %d%n",
+                round,
+                checksPerSecond(setNanos),
+                checksPerSecond(tableNanos));
+        }
+    }
+
+    private static long checksPerSecond(long nanos) {
+        return ITERATIONS * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1);
+    }
+
+}
@@ -0,0 +1,46 @@
+package net.robinfriedli.aiode.command;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.*;
+
+import net.dv8tion.jda.api.entities.ISnowflake;
+
+import static com.google.common.truth.Truth.*;
+
+public class PermissionTableTest {
+
+    @Test
+    public void testTargetWithoutAccessConfigurationIsAccessible() {
+        PermissionTable permissionTable = PermissionTable.compile(Map.of("play", List.of("1")));
+
+        assertThat(permissionTable.hasAccessConfiguration("queue")).isFalse();
+        assertThat(permissionTable.canAccess("queue", List.of())).isTrue();
+    }
+
+    @Test
+    public void testGrantedRoleCanAccess() {
+        PermissionTable permissionTable = PermissionTable.compile(Map.of("play", List.of("1", "2"), "skip", List.of("3")));
+
+        assertThat(permissionTable.canAccess("play", roles(2))).isTrue();
+        assertThat(permissionTable.canAccess("play", roles(4, 1))).isTrue();
+        assertThat(permissionTable.canAccess("play", roles(3))).isFalse();
+        assertThat(permissionTable.canAccess("skip", roles(3))).isTrue();
+        assertThat(permissionTable.canAccess("skip", roles(1, 2))).isFalse();
+    }
+
+    @Test
+    public void testAccessConfigurationWithoutRolesDeniesAccess() {
+        PermissionTable permissionTable = PermissionTable.compile(Map.of("play", List.of()));
+
+        assertThat(permissionTable.hasAccessConfiguration("play")).isTrue();
+        assertThat(permissionTable.canAccess("play", roles(1))).isFalse();
+    }
+
+    private static List<ISnowflake> roles(long... ids) {
+        return Arrays.stream(ids).mapToObj(id -> (ISnowflake) () -> id).toList();
+    }
+
+}
@@ -0,0 +1,44 @@
+package net.robinfriedli.aiode.discord;
+
+import java.util.Map;
+
+import org.testng.annotations.*;
+
+import net.robinfriedli.aiode.discord.property.GuildPropertySnapshot;
+
+import static com.google.common.truth.Truth.*;
+
+public class CommandTriggersTest {
+
+    private static final String SELF_MENTION = "<@1234>";
+
+    @Test
+    public void testMessageStartingWithTriggerMightBeCommand() {
+        GuildPropertySnapshot snapshot = GuildPropertySnapshot.of(0, Map.of("prefix", "!", "botName", "jukebox"));
+        CommandTriggers commandTriggers = CommandTriggers.create(snapshot, "$aiode", "aiode", SELF_MENTION);
+
+        assertThat(commandTriggers.mightBeCommand("!play song", "!play song")).isTrue();
+        assertThat(commandTriggers.mightBeCommand("Jukebox play song", "Jukebox play song")).isTrue();
+        assertThat(commandTriggers.mightBeCommand("$aiode play song", "$aiode play song")).isTrue();
+        assertThat(commandTriggers.mightBeCommand("@aiode play song", SELF_MENTION + " play song")).isTrue();
+        assertThat(commandTriggers.mightBeCommand("hello there", "hello there")).isFalse();
+    }
+
+    @Test
+    public void testChangedPrefixIsAccepted() {
+        GuildPropertySnapshot snapshot = GuildPropertySnapshot.of(0, Map.of("prefix", "!", "botName", "jukebox"));
+        CommandTriggers commandTriggers = CommandTriggers.create(snapshot, "$aiode", "aiode", SELF_MENTION);
+        assertThat(commandTriggers.mightBeCommand("?play song", "?play song")).isFalse();
+
+        // the prefix has been changed, e.g. by a different instance, and the snapshot has been reloaded
+        GuildPropertySnapshot changedSnapshot = GuildPropertySnapshot.of(1, Map.of("prefix", "?", "botName", "jukebox"));
+        assertThat(commandTriggers.isBuiltFrom(snapshot)).isTrue();
+        assertThat(commandTriggers.isBuiltFrom(changedSnapshot)).isFalse();
+        assertThat(commandTriggers.isBuiltFrom(null)).isFalse();
+
+        CommandTriggers rebuiltTriggers = CommandTriggers.create(changedSnapshot, "$aiode", "aiode", SELF_MENTION);
+        assertThat(rebuiltTriggers.mightBeCommand("?play song", "?play song")).isTrue();
+        assertThat(rebuiltTriggers.mightBeCommand("!play song", "!play song")).isFalse();
+    }
+
+}
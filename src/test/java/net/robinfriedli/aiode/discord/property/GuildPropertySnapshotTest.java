@@ -0,0 +1,185 @@
+package net.robinfriedli.aiode.discord.property;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.*;
+
+import net.robinfriedli.aiode.entities.GuildSpecification;
+
+import static com.google.common.truth.Truth.*;
+
+public class GuildPropertySnapshotTest {
+
+    @Test
+    public void testCreateAppliesDefaultValues() {
+        GuildSpecification specification = new GuildSpecification();
+        specification.setPrefix("!");
+
+        GuildPropertySnapshot snapshot = GuildPropertySnapshot.create(specification, List.of(prefixProperty(), botNameProperty()));
+
+        assertThat(snapshot.getValue("prefix", String.class)).hasValue("!");
+        assertThat(snapshot.getValue("botName", String.class)).hasValue("$aiode");
+        assertThat(snapshot.getValue("color", String.class)).isEmpty();
+        assertThat(snapshot.getVersion()).isEqualTo(specification.getPropertyVersion());
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() {
+        GuildSpecification specification = new GuildSpecification();
+        specification.setPrefix("!");
+        GuildPropertySnapshot snapshot = GuildPropertySnapshot.create(specification, List.of(prefixProperty()));
+
+        specification.setPrefix("?");
+
+        assertThat(snapshot.getValue("prefix", String.class)).hasValue("!");
+    }
+
+    @Test
+    public void testReferenceLoadsOnce() {
+        GuildPropertySnapshotReference reference = new GuildPropertySnapshotReference();
+        AtomicInteger loadCount = new AtomicInteger();
+        GuildPropertySnapshot snapshot = snapshot(0, "!");
+
+        assertThat(reference.getLoaded()).isNull();
+        assertThat(reference.get(() -> {
+            loadCount.incrementAndGet();
+            return snapshot;
+        })).isSameInstanceAs(snapshot);
+        assertThat(reference.get(() -> {
+            loadCount.incrementAndGet();
+            return snapshot(0, "?");
+        })).isSameInstanceAs(snapshot);
+
+        assertThat(loadCount.get()).isEqualTo(1);
+        assertThat(reference.getLoaded()).isSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void testInvalidationDuringLoadIsNotLost() {
+        GuildPropertySnapshotReference reference = new GuildPropertySnapshotReference();
+        GuildPropertySnapshot staleSnapshot = snapshot(0, "!");
+        GuildPropertySnapshot currentSnapshot = snapshot(1, "?");
+        AtomicInteger loadCount = new AtomicInteger();
+
+        GuildPropertySnapshot loadedSnapshot = reference.get(() -> {
+            if (loadCount.getAndIncrement() == 0) {
+                // the property is changed and the snapshot invalidated after the specification has been read
+                reference.invalidate();
+                return staleSnapshot;
+            }
+            return currentSnapshot;
+        });
+
+        assertThat(loadCount.get()).isEqualTo(2);
+        assertThat(loadedSnapshot).isSameInstanceAs(currentSnapshot);
+        assertThat(reference.getLoaded()).isSameInstanceAs(currentSnapshot);
+    }
+
+    @Test
+    public void testUpdateDuringLoadIsNotReplaced() {
+        GuildPropertySnapshotReference reference = new GuildPropertySnapshotReference();
+        GuildPropertySnapshot staleSnapshot = snapshot(0, "!");
+        GuildPropertySnapshot updatedSnapshot = snapshot(1, "?");
+
+        GuildPropertySnapshot loadedSnapshot = reference.get(() -> {
+            reference.update(updatedSnapshot);
+            return staleSnapshot;
+        });
+
+        assertThat(loadedSnapshot).isSameInstanceAs(updatedSnapshot);
+        assertThat(reference.getLoaded()).isSameInstanceAs(updatedSnapshot);
+    }
+
+    @Test
+    public void testUpdateKeepsNewerVersion() {
+        GuildPropertySnapshotReference reference = new GuildPropertySnapshotReference();
+        GuildPropertySnapshot newerSnapshot = snapshot(2, "?");
+        reference.update(newerSnapshot);
+
+        reference.update(snapshot(1, "!"));
+        assertThat(reference.getLoaded()).isSameInstanceAs(newerSnapshot);
+
+        GuildPropertySnapshot newestSnapshot = snapshot(3, "-");
+        reference.update(newestSnapshot);
+        assertThat(reference.getLoaded()).isSameInstanceAs(newestSnapshot);
+    }
+
+    @Test
+    public void testInvalidateExpectedSnapshot() {
+        GuildPropertySnapshotReference reference = new GuildPropertySnapshotReference();
+        GuildPropertySnapshot outdatedSnapshot = snapshot(0, "!");
+        GuildPropertySnapshot currentSnapshot = snapshot(1, "?");
+        reference.update(currentSnapshot);
+
+        // a snapshot has been published since the outdated snapshot was found
+        reference.invalidate(outdatedSnapshot);
+        assertThat(reference.getLoaded()).isSameInstanceAs(currentSnapshot);
+
+        reference.invalidate(currentSnapshot);
+        assertThat(reference.getLoaded()).isNull();
+        assertThat(reference.get(() -> outdatedSnapshot)).isSameInstanceAs(outdatedSnapshot);
+    }
+
+    private static GuildPropertySnapshot snapshot(long version, String prefix) {
+        return GuildPropertySnapshot.of(version, Map.of("prefix", prefix));
+    }
+
+    private static AbstractGuildProperty prefixProperty() {
+        return new TestProperty("prefix") {
+            @Override
+            public Object extractPersistedValue(GuildSpecification guildSpecification) {
+                return guildSpecification.getPrefix();
+            }
+        };
+    }
+
+    private static AbstractGuildProperty botNameProperty() {
+        return new TestProperty("botName") {
+            @Override
+            public Object extractPersistedValue(GuildSpecification guildSpecification) {
+                return guildSpecification.getBotName();
+            }
+        };
+    }
+
+    /**
+     * String property without a contribution defaulting to "$aiode".
+     */
+    private static abstract class TestProperty extends AbstractGuildProperty {
+
+        private final String property;
+
+        TestProperty(String property) {
+            super(null);
+            this.property = property;
+        }
+
+        @Override
+        public String getProperty() {
+            return property;
+        }
+
+        @Override
+        public String getDefaultValue() {
+            return "$aiode";
+        }
+
+        @Override
+        public void validate(Object state) {
+        }
+
+        @Override
+        public Object process(String input) {
+            return input;
+        }
+
+        @Override
+        public void setValue(String value, GuildSpecification guildSpecification) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
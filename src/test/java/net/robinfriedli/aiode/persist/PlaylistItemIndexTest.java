@@ -0,0 +1,221 @@
+package net.robinfriedli.aiode.persist;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.testng.annotations.*;
+
+import com.google.common.collect.Lists;
+import net.robinfriedli.aiode.entities.PlaylistItem;
+import net.robinfriedli.aiode.entities.UrlTrack;
+
+import static com.google.common.truth.Truth.*;
+
+public class PlaylistItemIndexTest {
+
+    @Test
+    public void testAppendKeepsExistingIndices() {
+        List<PlaylistItem> sortedItems = items(0, 1024, 2048);
+        List<PlaylistItem> itemsToPlace = items(null, null);
+        PlaylistItemIndex.place(sortedItems, sortedItems.size(), itemsToPlace);
+
+        assertThat(indices(sortedItems)).containsExactly(0, 1024, 2048).inOrder();
+        assertThat(indices(itemsToPlace)).containsExactly(3072, 4096).inOrder();
+    }
+
+    @Test
+    public void testHeadInsertUsesNegativeIndices() {
+        List<PlaylistItem> sortedItems = items(0, 1024);
+        List<PlaylistItem> itemsToPlace = items(null, null);
+        PlaylistItemIndex.place(sortedItems, 0, itemsToPlace);
+
+        assertThat(indices(sortedItems)).containsExactly(0, 1024).inOrder();
+        assertThat(indices(itemsToPlace)).containsExactly(-2048, -1024).inOrder();
+        assertOrder(concat(itemsToPlace, sortedItems));
+    }
+
+    @Test
+    public void testInsertBetweenNeighbours() {
+        List<PlaylistItem> sortedItems = items(0, 1024);
+        List<PlaylistItem> itemsToPlace = items(null, null, null);
+        PlaylistItemIndex.place(sortedItems, 1, itemsToPlace);
+
+        assertThat(indices(sortedItems)).containsExactly(0, 1024).inOrder();
+        assertThat(indices(itemsToPlace)).containsExactly(256, 512, 768).inOrder();
+    }
+
+    @Test
+    public void testExhaustedGapSpreadsPlaylist() {
+        List<PlaylistItem> sortedItems = items(0, 1, 2);
+        List<PlaylistItem> itemsToPlace = items(null);
+        PlaylistItemIndex.place(sortedItems, 1, itemsToPlace);
+
+        List<PlaylistItem> expectedOrder = Lists.newArrayList(sortedItems);
+        expectedOrder.addAll(1, itemsToPlace);
+        assertThat(indices(expectedOrder)).containsExactly(0, 1024, 2048, 3072).inOrder();
+    }
+
+    @Test
+    public void testAppendAtUpperBoundSpreadsPlaylist() {
+        List<PlaylistItem> sortedItems = items(0, Integer.MAX_VALUE - 10);
+        List<PlaylistItem> itemsToPlace = items(null);
+        PlaylistItemIndex.place(sortedItems, sortedItems.size(), itemsToPlace);
+
+        assertThat(indices(concat(sortedItems, itemsToPlace))).containsExactly(0, 1024, 2048).inOrder();
+    }
+
+    @Test
+    public void testHeadInsertAtLowerBoundSpreadsPlaylist() {
+        List<PlaylistItem> sortedItems = items(Integer.MIN_VALUE + 10, 0);
+        List<PlaylistItem> itemsToPlace = items(null);
+        PlaylistItemIndex.place(sortedItems, 0, itemsToPlace);
+
+        assertThat(indices(concat(itemsToPlace, sortedItems))).containsExactly(0, 1024, 2048).inOrder();
+    }
+
+    @Test
+    public void testSpreadOnlyUpdatesChangedIndices() {
+        List<PlaylistItem> items = items(0, 5, 2048);
+        PlaylistItemIndex.spread(items);
+
+        assertThat(indices(items)).containsExactly(0, 1024, 2048).inOrder();
+    }
+
+    @Test
+    public void testMoveRangeDown() {
+        List<PlaylistItem> items = spreadItems(12);
+        List<PlaylistItem> expectedOrder = Lists.newArrayList(items);
+        List<PlaylistItem> moved = Lists.newArrayList(expectedOrder.subList(3, 6));
+        expectedOrder.removeAll(moved);
+        expectedOrder.addAll(6, moved);
+
+        moveRange(items, 3, 5, 8);
+
+        assertOrder(expectedOrder);
+    }
+
+    @Test
+    public void testMoveRangeUp() {
+        List<PlaylistItem> items = spreadItems(16);
+        List<PlaylistItem> expectedOrder = Lists.newArrayList(items);
+        List<PlaylistItem> moved = Lists.newArrayList(expectedOrder.subList(13, 16));
+        expectedOrder.removeAll(moved);
+        expectedOrder.addAll(9, moved);
+
+        moveRange(items, 13, 15, 9);
+
+        assertOrder(expectedOrder);
+    }
+
+    @Test
+    public void testMoveRangeToEnd() {
+        List<PlaylistItem> items = spreadItems(8);
+        List<PlaylistItem> expectedOrder = Lists.newArrayList(items);
+        List<PlaylistItem> moved = Lists.newArrayList(expectedOrder.subList(0, 2));
+        expectedOrder.removeAll(moved);
+        expectedOrder.addAll(moved);
+
+        moveRange(items, 0, 1, 7);
+
+        assertOrder(expectedOrder);
+    }
+
+    @Test
+    public void testMoveRangeToStart() {
+        List<PlaylistItem> items = spreadItems(8);
+        List<PlaylistItem> expectedOrder = Lists.newArrayList(items);
+        List<PlaylistItem> moved = Lists.newArrayList(expectedOrder.subList(5, 8));
+        expectedOrder.removeAll(moved);
+        expectedOrder.addAll(0, moved);
+
+        moveRange(items, 5, 7, 0);
+
+        assertOrder(expectedOrder);
+    }
+
+    @Test
+    public void testRepeatedMovesIntoSameGap() {
+        List<PlaylistItem> items = spreadItems(20);
+        List<PlaylistItem> expectedOrder = Lists.newArrayList(items);
+        // keep moving the last item between the first two items until the gap is exhausted and the playlist is spread
+        for (int i = 0; i < 15; i++) {
+            PlaylistItem last = expectedOrder.removeLast();
+            expectedOrder.add(1, last);
+            moveSingle(sorted(items), items.size() - 1, 1);
+            assertOrder(expectedOrder);
+        }
+    }
+
+    /**
+     * Moves an item the way the MoveCommand does: removes it from the sorted items and places it at the target index.
+     */
+    private static void moveSingle(List<PlaylistItem> itemsSorted, int index, int targetIndex) {
+        PlaylistItem itemToMove = itemsSorted.remove(index);
+        PlaylistItemIndex.place(itemsSorted, targetIndex, List.of(itemToMove));
+    }
+
+    /**
+     * Moves a range of items the way the MoveCommand does: items moved down end up with the end item at the target
+     * index, items moved up end up with the start item at the target index.
+     */
+    private static void moveRange(List<PlaylistItem> items, int start, int end, int targetIndex) {
+        List<PlaylistItem> itemsSorted = sorted(items);
+        boolean movedDown = start < targetIndex;
+        List<PlaylistItem> rangeToMove = itemsSorted.subList(start, end + 1);
+        List<PlaylistItem> itemsToMove = Lists.newArrayList(rangeToMove);
+        rangeToMove.clear();
+        if (movedDown) {
+            PlaylistItemIndex.place(itemsSorted, targetIndex - itemsToMove.size() + 1, itemsToMove);
+        } else {
+            PlaylistItemIndex.place(itemsSorted, targetIndex, itemsToMove);
+        }
+    }
+
+    /**
+     * Asserts that sorting the provided items by index results in the provided order and that indices are unique.
+     */
+    private static void assertOrder(List<PlaylistItem> expectedOrder) {
+        assertThat(sorted(expectedOrder)).containsExactlyElementsIn(expectedOrder).inOrder();
+        assertThat(indices(expectedOrder)).containsNoDuplicates();
+    }
+
+    private static List<PlaylistItem> sorted(List<PlaylistItem> items) {
+        List<PlaylistItem> sorted = Lists.newArrayList(items);
+        sorted.sort(Comparator.comparing(PlaylistItem::getIndex));
+        return sorted;
+    }
+
+    private static List<PlaylistItem> spreadItems(int count) {
+        List<PlaylistItem> items = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            items.add(item(null));
+        }
+        PlaylistItemIndex.spread(items);
+        return items;
+    }
+
+    private static List<PlaylistItem> items(Integer... indices) {
+        List<PlaylistItem> items = Lists.newArrayList();
+        for (Integer index : indices) {
+            items.add(item(index));
+        }
+        return items;
+    }
+
+    private static PlaylistItem item(Integer index) {
+        UrlTrack urlTrack = new UrlTrack();
+        urlTrack.setIndex(index);
+        return urlTrack;
+    }
+
+    private static List<PlaylistItem> concat(List<PlaylistItem> first, List<PlaylistItem> second) {
+        List<PlaylistItem> items = Lists.newArrayList(first);
+        items.addAll(second);
+        return items;
+    }
+
+    private static List<Integer> indices(List<PlaylistItem> items) {
+        return items.stream().map(PlaylistItem::getIndex).toList();
+    }
+
+}
@@ -0,0 +1,135 @@
+package net.robinfriedli.aiode.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.*;
+
+import com.google.common.collect.Lists;
+
+import static com.google.common.truth.Truth.*;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void testFindLongestPrefix() {
+        PrefixTrie<Long> trie = trie(Map.of("play", 1L, "play loud", 2L, "play loud now", 3L, "skip", 4L));
+
+        assertMatch(trie.findLongestPrefix("play song"), 4, 1L);
+        assertMatch(trie.findLongestPrefix("play loudly"), 9, 2L);
+        assertMatch(trie.findLongestPrefix("play loud no"), 9, 2L);
+        assertMatch(trie.findLongestPrefix("play loud now please"), 13, 3L);
+        assertMatch(trie.findLongestPrefix("skip"), 4, 4L);
+    }
+
+    @Test
+    public void testNoPrefixMatch() {
+        PrefixTrie<Long> trie = trie(Map.of("play loud", 1L));
+
+        // the input only matches a path in the trie that does not end with a key
+        assertThat(trie.findLongestPrefix("play")).isNull();
+        assertThat(trie.findLongestPrefix("play lou")).isNull();
+        assertThat(trie.findLongestPrefix("queue")).isNull();
+        assertThat(trie.findLongestPrefix("")).isNull();
+        assertThat(new PrefixTrie<Long>().findLongestPrefix("play")).isNull();
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        PrefixTrie<Long> trie = trie(Map.of("MyPreset", 1L));
+
+        assertMatch(trie.findLongestPrefix("mypreset arg"), 8, 1L);
+        assertMatch(trie.findLongestPrefix("MYPRESET arg"), 8, 1L);
+        assertThat(trie.get("myPRESET")).isEqualTo(1L);
+        assertThat(trie.get("mypreset ")).isNull();
+
+        // keys differing only in case map to the same entry
+        trie.put("mypreset", 2L);
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.get("MyPreset")).isEqualTo(2L);
+    }
+
+    @Test
+    public void testGetExactKey() {
+        PrefixTrie<Long> trie = trie(Map.of("play", 1L, "play loud", 2L));
+
+        assertThat(trie.get("play")).isEqualTo(1L);
+        assertThat(trie.get("play loud")).isEqualTo(2L);
+        assertThat(trie.get("play lou")).isNull();
+        assertThat(trie.get("play loud now")).isNull();
+        assertThat(trie.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRebuildAfterInvalidation() {
+        GenerationalCache<String, PrefixTrie<Long>> cache = new GenerationalCache<>(1, TimeUnit.MINUTES);
+        List<String> names = Lists.newArrayList("play");
+        AtomicInteger buildCount = new AtomicInteger();
+
+        PrefixTrie<Long> trie = getTrie(cache, names, buildCount);
+        assertThat(trie.findLongestPrefix("play loud now")).isNotNull();
+        assertThat(getTrie(cache, names, buildCount)).isSameInstanceAs(trie);
+        assertThat(buildCount.get()).isEqualTo(1);
+
+        // a preset is added and the index invalidated after committing
+        names.add("play loud");
+        cache.invalidate("partition");
+
+        PrefixTrie<Long> rebuiltTrie = getTrie(cache, names, buildCount);
+        assertThat(buildCount.get()).isEqualTo(2);
+        assertMatch(rebuiltTrie.findLongestPrefix("play loud now"), 9, 1L);
+        // the previous trie is immutable once built and not affected by the rebuild
+        assertMatch(trie.findLongestPrefix("play loud now"), 4, 0L);
+    }
+
+    @Test
+    public void testInvalidationDuringBuildCausesRebuild() {
+        GenerationalCache<String, PrefixTrie<Long>> cache = new GenerationalCache<>(1, TimeUnit.MINUTES);
+        List<String> names = Lists.newArrayList("play");
+        AtomicInteger buildCount = new AtomicInteger();
+
+        PrefixTrie<Long> trie = cache.get("partition", () -> {
+            PrefixTrie<Long> builtTrie = build(names, buildCount);
+            if (buildCount.get() == 1) {
+                // the preset is committed and the index invalidated after the presets have been read
+                names.add("play loud");
+                cache.invalidate("partition");
+            }
+            return builtTrie;
+        });
+
+        assertThat(buildCount.get()).isEqualTo(2);
+        assertMatch(trie.findLongestPrefix("play loud now"), 9, 1L);
+    }
+
+    private static PrefixTrie<Long> getTrie(GenerationalCache<String, PrefixTrie<Long>> cache, List<String> names, AtomicInteger buildCount) {
+        return cache.get("partition", () -> build(names, buildCount));
+    }
+
+    /**
+     * Build a trie the way the CommandIndex does, mapping each name to its position.
+     */
+    private static PrefixTrie<Long> build(List<String> names, AtomicInteger buildCount) {
+        buildCount.incrementAndGet();
+        PrefixTrie<Long> trie = new PrefixTrie<>();
+        for (int i = 0; i < names.size(); i++) {
+            trie.put(names.get(i), (long) i);
+        }
+        return trie;
+    }
+
+    private static PrefixTrie<Long> trie(Map<String, Long> entries) {
+        PrefixTrie<Long> trie = new PrefixTrie<>();
+        entries.forEach(trie::put);
+        return trie;
+    }
+
+    private static void assertMatch(PrefixTrie.Match<Long> match, int length, long value) {
+        assertThat(match).isNotNull();
+        assertThat(match.length()).isEqualTo(length);
+        assertThat(match.value()).isEqualTo(value);
+    }
+
+}